@@ -42,6 +42,7 @@ import org.gradle.api.tasks.OutputDirectory;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.api.tasks.VerificationTask;
 import org.gradle.internal.file.PathToFileResolver;
+import org.gradle.internal.hash.HashValue;
 import org.gradle.internal.logging.ConsoleRenderer;
 import org.gradle.internal.logging.progress.ProgressLogger;
 import org.gradle.internal.logging.progress.ProgressLoggerFactory;
@@ -318,6 +319,11 @@ public class CompareGradleBuilds extends DefaultTask implements VerificationTask
             return delegate.move(key, source);
         }
 
+        @Override
+        public LocallyAvailableResource move(String key, File source, HashValue sha1) throws FileStoreException {
+            return delegate.move(key, source, sha1);
+        }
+
         @Override
         public LocallyAvailableResource add(String key, Action<File> addAction) throws FileStoreException {
             return delegate.add(key, addAction);
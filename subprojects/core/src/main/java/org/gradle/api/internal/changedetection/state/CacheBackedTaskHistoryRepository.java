@@ -89,7 +89,7 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
         this.snapshotterRegistry = snapshotterRegistry;
         this.fileCollectionFactory = fileCollectionFactory;
         TaskExecutionSnapshotSerializer serializer = new TaskExecutionSnapshotSerializer(stringInterner, fileCollectionSnapshotSerializer);
-        this.taskHistoryCache = cacheAccess.createCache("taskHistory", String.class, serializer, 10000, false);
+        this.taskHistoryCache = cacheAccess.createCache("taskHistory", String.class, serializer, 10000, false, TaskExecutionSizeEstimator.INSTANCE);
     }
 
     @Override
@@ -417,4 +417,31 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
         return builder.add(stringInterner.intern(file.getAbsolutePath()));
     }
 
+    /**
+     * Estimates the size of a task execution from the number of files and input properties it refers to, which dominate its size for most tasks.
+     */
+    private static class TaskExecutionSizeEstimator implements InMemoryCacheEntrySizeEstimator<HistoricalTaskExecution> {
+        private static final TaskExecutionSizeEstimator INSTANCE = new TaskExecutionSizeEstimator();
+        private static final int BASE_SIZE = 1024;
+        private static final int FILE_SIZE = 200;
+        private static final int PROPERTY_SIZE = 100;
+
+        @Override
+        public int estimateSize(HistoricalTaskExecution execution) {
+            long files = countFiles(execution.getInputFilesSnapshot().values()) + countFiles(execution.getOutputFilesSnapshot().values());
+            if (execution.getDiscoveredInputFilesSnapshot() != null) {
+                files += execution.getDiscoveredInputFilesSnapshot().getSnapshots().size();
+            }
+            long size = BASE_SIZE + files * FILE_SIZE + (long) execution.getInputProperties().size() * PROPERTY_SIZE;
+            return (int) Math.min(size, Integer.MAX_VALUE);
+        }
+
+        private static long countFiles(Collection<FileCollectionSnapshot> snapshots) {
+            long count = 0;
+            for (FileCollectionSnapshot snapshot : snapshots) {
+                count += snapshot.getSnapshots().size();
+            }
+            return count;
+        }
+    }
 }
@@ -51,6 +51,13 @@ public class CrossBuildFileHashCache implements Closeable, TaskHistoryStore {
         return cache.createCache(parameters);
     }
 
+    @Override
+    public <K, V> PersistentIndexedCache<K, V> createCache(String cacheName, Class<K> keyType, Serializer<V> valueSerializer, int maxEntriesToKeepInMemory, boolean cacheInMemoryForShortLivedProcesses, InMemoryCacheEntrySizeEstimator<? super V> sizeEstimator) {
+        PersistentIndexedCacheParameters<K, V> parameters = new PersistentIndexedCacheParameters<K, V>(cacheName, keyType, valueSerializer)
+                .cacheDecorator(inMemoryCacheDecoratorFactory.decorator(maxEntriesToKeepInMemory, cacheInMemoryForShortLivedProcesses, sizeEstimator));
+        return cache.createCache(parameters);
+    }
+
     @Override
     public void close() throws IOException {
         cache.close();
@@ -25,11 +25,11 @@ import org.gradle.normalization.internal.InputNormalizationStrategy;
 
 public class DefaultCompileClasspathSnapshotter extends AbstractFileCollectionSnapshotter implements CompileClasspathSnapshotter {
     private final ResourceHasher classpathResourceHasher;
-    private final ResourceSnapshotterCacheService cacheService;
+    private final JarAbiIndex jarAbiIndex;
 
-    public DefaultCompileClasspathSnapshotter(ResourceSnapshotterCacheService cacheService, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemSnapshotter fileSystemSnapshotter, StringInterner stringInterner) {
+    public DefaultCompileClasspathSnapshotter(ResourceSnapshotterCacheService cacheService, JarAbiIndex jarAbiIndex, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemSnapshotter fileSystemSnapshotter, StringInterner stringInterner) {
         super(stringInterner, directoryFileTreeFactory, fileSystemSnapshotter);
-        this.cacheService = cacheService;
+        this.jarAbiIndex = jarAbiIndex;
         this.classpathResourceHasher = new CachingResourceHasher(new AbiExtractingClasspathResourceHasher(), cacheService);
     }
 
@@ -37,7 +37,7 @@ public class DefaultCompileClasspathSnapshotter extends AbstractFileCollectionSn
     public FileCollectionSnapshot snapshot(FileCollection files, PathNormalizationStrategy pathNormalizationStrategy, InputNormalizationStrategy inputNormalizationStrategy) {
         return super.snapshot(
             files,
-            new CompileClasspathSnapshotBuilder(classpathResourceHasher, cacheService, getStringInterner()));
+            new CompileClasspathSnapshotBuilder(classpathResourceHasher, jarAbiIndex, getStringInterner()));
     }
 
     @Override
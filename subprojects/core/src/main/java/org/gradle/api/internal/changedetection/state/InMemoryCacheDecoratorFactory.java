@@ -33,6 +33,7 @@ import org.gradle.cache.internal.CrossProcessSynchronizingCache;
 import org.gradle.cache.internal.HeapProportionalCacheSizer;
 import org.gradle.cache.internal.MultiProcessSafeAsyncPersistentIndexedCache;
 
+import javax.annotation.Nullable;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -40,38 +41,55 @@ import java.util.concurrent.atomic.AtomicReference;
  * The in-memory cache is invalidated when the backing cache is changed by another process.
  *
  * Also decorates each cache so that updates to the backing cache are made asynchronously.
+ *
+ * The in-memory caches are limited by number of entries, or by estimated size when an {@link InMemoryCacheEntrySizeEstimator} is provided. The estimated size of
+ * all in-memory caches is also limited by a single {@link InMemoryCacheMemoryBudget}, which removes entries from the least used caches when exceeded.
  */
 public class InMemoryCacheDecoratorFactory {
     private final static Logger LOG = Logging.getLogger(InMemoryCacheDecoratorFactory.class);
     private final boolean longLivingProcess;
     private final HeapProportionalCacheSizer cacheSizer = new HeapProportionalCacheSizer();
     private final CrossBuildInMemoryCache<String, CacheDetails> caches;
+    private final InMemoryCacheMemoryBudget memoryBudget;
 
     public InMemoryCacheDecoratorFactory(boolean longLivingProcess, CrossBuildInMemoryCacheFactory cacheFactory) {
+        this(longLivingProcess, cacheFactory, InMemoryCacheMemoryBudget.defaultBudget());
+    }
+
+    InMemoryCacheDecoratorFactory(boolean longLivingProcess, CrossBuildInMemoryCacheFactory cacheFactory, long memoryBudget) {
         this.longLivingProcess = longLivingProcess;
-        caches = cacheFactory.newCache();
+        this.caches = cacheFactory.newCache();
+        this.memoryBudget = new InMemoryCacheMemoryBudget(memoryBudget);
     }
 
     public CacheDecorator decorator(final int maxEntriesToKeepInMemory, final boolean cacheInMemoryForShortLivedProcesses) {
-        return new InMemoryCacheDecorator(maxEntriesToKeepInMemory, cacheInMemoryForShortLivedProcesses);
+        return new InMemoryCacheDecorator(maxEntriesToKeepInMemory, cacheInMemoryForShortLivedProcesses, null);
+    }
+
+    /**
+     * Creates a decorator whose in-memory cache is limited by the estimated size of its entries, as given by the estimator, rather than by their number.
+     * Decorators are only equal when they use the same estimator instance.
+     */
+    public CacheDecorator decorator(final int maxEntriesToKeepInMemory, final boolean cacheInMemoryForShortLivedProcesses, InMemoryCacheEntrySizeEstimator<?> sizeEstimator) {
+        return new InMemoryCacheDecorator(maxEntriesToKeepInMemory, cacheInMemoryForShortLivedProcesses, sizeEstimator);
     }
 
-    private <K, V> MultiProcessSafeAsyncPersistentIndexedCache<K, V> applyInMemoryCaching(String cacheId, MultiProcessSafeAsyncPersistentIndexedCache<K, V> backingCache, int maxEntriesToKeepInMemory, boolean cacheInMemoryForShortLivedProcesses) {
+    private <K, V> MultiProcessSafeAsyncPersistentIndexedCache<K, V> applyInMemoryCaching(String cacheId, MultiProcessSafeAsyncPersistentIndexedCache<K, V> backingCache, int maxEntriesToKeepInMemory, boolean cacheInMemoryForShortLivedProcesses, @Nullable InMemoryCacheEntrySizeEstimator<?> sizeEstimator) {
         if (!longLivingProcess && !cacheInMemoryForShortLivedProcesses) {
             // Short lived process, don't cache in memory
             LOG.debug("Creating cache {} without in-memory store.", cacheId);
             return backingCache;
         }
         int targetSize = cacheSizer.scaleCacheSize(maxEntriesToKeepInMemory);
-        CacheDetails cacheDetails = getCache(cacheId, targetSize);
-        return new InMemoryDecoratedCache<K, V>(backingCache, cacheDetails.entries, cacheId, cacheDetails.lockState);
+        CacheDetails cacheDetails = getCache(cacheId, targetSize, sizeEstimator);
+        return new InMemoryDecoratedCache<K, V>(backingCache, cacheDetails.entries, cacheId, cacheDetails.lockState, memoryBudget);
     }
 
-    private CacheDetails getCache(final String cacheId, final int maxSize) {
+    private CacheDetails getCache(final String cacheId, final int maxSize, @Nullable final InMemoryCacheEntrySizeEstimator<?> sizeEstimator) {
         CacheDetails cacheDetails = caches.get(cacheId, new Transformer<CacheDetails, String>() {
             @Override
             public CacheDetails transform(String cacheId) {
-                Cache<Object, Object> entries = createInMemoryCache(cacheId, maxSize);
+                Cache<Object, Object> entries = createInMemoryCache(cacheId, maxSize, sizeEstimator);
                 CacheDetails cacheDetails = new CacheDetails(cacheId, maxSize, entries, new AtomicReference<FileLock.State>(null));
                 LOG.debug("Creating in-memory store for cache {} (max size: {})", cacheId, maxSize);
                 return cacheDetails;
@@ -83,21 +101,27 @@ public class InMemoryCacheDecoratorFactory {
         return cacheDetails;
     }
 
-    private Cache<Object, Object> createInMemoryCache(String cacheId, int maxSize) {
+    private Cache<Object, Object> createInMemoryCache(String cacheId, int maxSize, @Nullable InMemoryCacheEntrySizeEstimator<?> sizeEstimator) {
         LoggingEvictionListener evictionListener = new LoggingEvictionListener(cacheId, maxSize);
-        final CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder().maximumSize(maxSize).recordStats().removalListener(evictionListener);
+        InMemoryCacheMemoryBudget.Member budgetMember = memoryBudget.register(cacheId, sizeEstimator, evictionListener);
+        // Without an estimator every entry has the same weight, so the limit is the maximum number of entries
+        long maxWeight = sizeEstimator == null ? (long) maxSize * InMemoryCacheMemoryBudget.DEFAULT_ENTRY_WEIGHT : memoryBudget.getBudget();
+        final CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder().maximumWeight(maxWeight).weigher(budgetMember).recordStats().removalListener(budgetMember);
         Cache<Object, Object> inMemoryCache = cacheBuilder.build();
         evictionListener.setCache(inMemoryCache);
+        budgetMember.setCache(inMemoryCache);
         return inMemoryCache;
     }
 
     private class InMemoryCacheDecorator implements CacheDecorator {
         private final int maxEntriesToKeepInMemory;
         private final boolean cacheInMemoryForShortLivedProcesses;
+        private final InMemoryCacheEntrySizeEstimator<?> sizeEstimator;
 
-        InMemoryCacheDecorator(int maxEntriesToKeepInMemory, boolean cacheInMemoryForShortLivedProcesses) {
+        InMemoryCacheDecorator(int maxEntriesToKeepInMemory, boolean cacheInMemoryForShortLivedProcesses, @Nullable InMemoryCacheEntrySizeEstimator<?> sizeEstimator) {
             this.maxEntriesToKeepInMemory = maxEntriesToKeepInMemory;
             this.cacheInMemoryForShortLivedProcesses = cacheInMemoryForShortLivedProcesses;
+            this.sizeEstimator = sizeEstimator;
         }
 
         @Override
@@ -109,7 +133,7 @@ public class InMemoryCacheDecoratorFactory {
                 return false;
             }
             InMemoryCacheDecorator other = (InMemoryCacheDecorator) obj;
-            return maxEntriesToKeepInMemory == other.maxEntriesToKeepInMemory && cacheInMemoryForShortLivedProcesses == other.cacheInMemoryForShortLivedProcesses;
+            return maxEntriesToKeepInMemory == other.maxEntriesToKeepInMemory && cacheInMemoryForShortLivedProcesses == other.cacheInMemoryForShortLivedProcesses && sizeEstimator == other.sizeEstimator;
         }
 
         @Override
@@ -120,7 +144,7 @@ public class InMemoryCacheDecoratorFactory {
         @Override
         public <K, V> MultiProcessSafePersistentIndexedCache<K, V> decorate(String cacheId, String cacheName, MultiProcessSafePersistentIndexedCache<K, V> persistentCache, CrossProcessCacheAccess crossProcessCacheAccess, AsyncCacheAccess asyncCacheAccess) {
             MultiProcessSafeAsyncPersistentIndexedCache<K, V> asyncCache = new AsyncCacheAccessDecoratedCache<K, V>(asyncCacheAccess, persistentCache);
-            MultiProcessSafeAsyncPersistentIndexedCache<K, V> memCache = applyInMemoryCaching(cacheId, asyncCache, maxEntriesToKeepInMemory, cacheInMemoryForShortLivedProcesses);
+            MultiProcessSafeAsyncPersistentIndexedCache<K, V> memCache = applyInMemoryCaching(cacheId, asyncCache, maxEntriesToKeepInMemory, cacheInMemoryForShortLivedProcesses, sizeEstimator);
             return new CrossProcessSynchronizingCache<K, V>(memCache, crossProcessCacheAccess);
         }
     }
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+/**
+ * Estimates the heap space used by a value held in an in-memory cache, so that caches with large values can be limited by size rather than by number of entries.
+ *
+ * @see InMemoryCacheDecoratorFactory#decorator(int, boolean, InMemoryCacheEntrySizeEstimator)
+ */
+public interface InMemoryCacheEntrySizeEstimator<V> {
+    /**
+     * Returns the approximate number of bytes retained by the given value.
+     */
+    int estimateSize(V value);
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import javax.annotation.Nullable;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the estimated size of the entries of all in-memory caches of a process within a single budget.
+ *
+ * <p>Each cache registers a {@link Member}, which weighs the entries of the cache. When the total weight of all caches exceeds the budget, entries are
+ * removed from the caches that were used least since the budget was last enforced, until the total weight is back below the budget.</p>
+ */
+class InMemoryCacheMemoryBudget {
+    /**
+     * The budget in megabytes. Defaults to a fraction of the maximum heap size.
+     */
+    static final String BUDGET_PROPERTY_NAME = "org.gradle.internal.cache.memory.budget.mb";
+    static final int DEFAULT_ENTRY_WEIGHT = 256;
+    private static final Logger LOG = Logging.getLogger(InMemoryCacheMemoryBudget.class);
+    private static final double DEFAULT_HEAP_FRACTION = 0.3d;
+    // Trim a bit further than the budget, so the budget is not enforced again on every insert
+    private static final double TRIM_TARGET_FRACTION = 0.9d;
+
+    private final long budget;
+    private final AtomicLong weight = new AtomicLong();
+    private final List<Member> members = new CopyOnWriteArrayList<Member>();
+    private final Lock trimLock = new ReentrantLock();
+
+    InMemoryCacheMemoryBudget(long budget) {
+        this.budget = budget;
+    }
+
+    static long defaultBudget() {
+        Integer budgetMb = Integer.getInteger(BUDGET_PROPERTY_NAME);
+        if (budgetMb != null) {
+            return budgetMb * 1024L * 1024L;
+        }
+        return (long) (Runtime.getRuntime().maxMemory() * DEFAULT_HEAP_FRACTION);
+    }
+
+    long getBudget() {
+        return budget;
+    }
+
+    long getWeight() {
+        return weight.get();
+    }
+
+    Member register(String cacheId, @Nullable InMemoryCacheEntrySizeEstimator<?> estimator, RemovalListener<Object, Object> evictionListener) {
+        Member member = new Member(cacheId, estimator, evictionListener);
+        members.add(member);
+        return member;
+    }
+
+    /**
+     * Removes entries from caches when the total weight exceeds the budget. Must not be called while an operation on one of the caches is in progress on the
+     * current thread. Does nothing when another thread is already removing entries.
+     */
+    void enforce() {
+        if (weight.get() <= budget || !trimLock.tryLock()) {
+            return;
+        }
+        try {
+            long target = (long) (budget * TRIM_TARGET_FRACTION);
+            List<Member> candidates = new ArrayList<Member>(members.size());
+            for (Member member : members) {
+                if (member.prepareForTrim()) {
+                    candidates.add(member);
+                } else {
+                    // The cache has been garbage collected
+                    members.remove(member);
+                    weight.addAndGet(-member.weight.getAndSet(0));
+                }
+            }
+            Collections.sort(candidates, new Comparator<Member>() {
+                @Override
+                public int compare(Member left, Member right) {
+                    if (left.requestsSinceLastTrim != right.requestsSinceLastTrim) {
+                        return left.requestsSinceLastTrim < right.requestsSinceLastTrim ? -1 : 1;
+                    }
+                    long leftWeight = left.weight.get();
+                    long rightWeight = right.weight.get();
+                    return leftWeight > rightWeight ? -1 : leftWeight == rightWeight ? 0 : 1;
+                }
+            });
+            for (Member member : candidates) {
+                if (weight.get() <= target) {
+                    break;
+                }
+                member.trim(target);
+            }
+        } finally {
+            trimLock.unlock();
+        }
+    }
+
+    /**
+     * Weighs the entries of a single cache and tracks its eviction statistics. Does not retain the cache.
+     */
+    class Member implements Weigher<Object, Object>, RemovalListener<Object, Object> {
+        private final String cacheId;
+        private final InMemoryCacheEntrySizeEstimator<Object> estimator;
+        private final RemovalListener<Object, Object> evictionListener;
+        private final AtomicLong weight = new AtomicLong();
+        private WeakReference<Cache<Object, Object>> cache;
+        private long lastRequestCount;
+        private long requestsSinceLastTrim;
+        private long budgetEvictionCount;
+
+        @SuppressWarnings("unchecked")
+        Member(String cacheId, @Nullable InMemoryCacheEntrySizeEstimator<?> estimator, RemovalListener<Object, Object> evictionListener) {
+            this.cacheId = cacheId;
+            this.estimator = (InMemoryCacheEntrySizeEstimator<Object>) estimator;
+            this.evictionListener = evictionListener;
+        }
+
+        void setCache(Cache<Object, Object> cache) {
+            this.cache = new WeakReference<Cache<Object, Object>>(cache);
+        }
+
+        long getWeight() {
+            return weight.get();
+        }
+
+        long getBudgetEvictionCount() {
+            return budgetEvictionCount;
+        }
+
+        @Override
+        public int weigh(Object key, Object value) {
+            int entryWeight = estimate(value);
+            weight.addAndGet(entryWeight);
+            InMemoryCacheMemoryBudget.this.weight.addAndGet(entryWeight);
+            return entryWeight;
+        }
+
+        @Override
+        public void onRemoval(RemovalNotification<Object, Object> notification) {
+            // Entries whose value has been garbage collected are not weighed again, as the estimate is not known
+            Object value = notification.getValue();
+            if (value != null) {
+                int entryWeight = estimate(value);
+                weight.addAndGet(-entryWeight);
+                InMemoryCacheMemoryBudget.this.weight.addAndGet(-entryWeight);
+            }
+            evictionListener.onRemoval(notification);
+        }
+
+        private int estimate(Object value) {
+            if (estimator == null || value == InMemoryDecoratedCache.NULL) {
+                return DEFAULT_ENTRY_WEIGHT;
+            }
+            return Math.max(1, estimator.estimateSize(value));
+        }
+
+        private boolean prepareForTrim() {
+            Cache<Object, Object> entries = cache == null ? null : cache.get();
+            if (entries == null) {
+                return cache == null;
+            }
+            long requestCount = entries.stats().requestCount();
+            requestsSinceLastTrim = requestCount - lastRequestCount;
+            lastRequestCount = requestCount;
+            return true;
+        }
+
+        private void trim(long target) {
+            Cache<Object, Object> entries = cache == null ? null : cache.get();
+            if (entries == null) {
+                return;
+            }
+            int evicted = 0;
+            Iterator<Object> iterator = entries.asMap().keySet().iterator();
+            while (InMemoryCacheMemoryBudget.this.weight.get() > target && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+                evicted++;
+            }
+            if (evicted > 0) {
+                budgetEvictionCount += evicted;
+                LOG.info("Evicted {} entries from in-memory cache of {} to keep in-memory caches within {} MB: Weight{{}} BudgetEvictions{{}}, {}",
+                    evicted, cacheId, budget / (1024 * 1024), weight.get(), budgetEvictionCount, entries.stats());
+            }
+        }
+    }
+}
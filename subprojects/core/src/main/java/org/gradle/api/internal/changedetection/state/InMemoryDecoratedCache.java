@@ -34,17 +34,19 @@ import java.util.concurrent.atomic.AtomicReference;
 
 class InMemoryDecoratedCache<K, V> implements MultiProcessSafeAsyncPersistentIndexedCache<K, V> {
     private final static Logger LOG = Logging.getLogger(InMemoryDecoratedCache.class);
-    private final static Object NULL = new Object();
+    static final Object NULL = new Object();
     private final MultiProcessSafeAsyncPersistentIndexedCache<K, V> delegate;
     private final Cache<Object, Object> inMemoryCache;
     private final String cacheId;
     private final AtomicReference<FileLock.State> fileLockStateReference;
+    private final InMemoryCacheMemoryBudget memoryBudget;
 
-    public InMemoryDecoratedCache(MultiProcessSafeAsyncPersistentIndexedCache<K, V> delegate, Cache<Object, Object> inMemoryCache, String cacheId, AtomicReference<FileLock.State> fileLockStateReference) {
+    public InMemoryDecoratedCache(MultiProcessSafeAsyncPersistentIndexedCache<K, V> delegate, Cache<Object, Object> inMemoryCache, String cacheId, AtomicReference<FileLock.State> fileLockStateReference, InMemoryCacheMemoryBudget memoryBudget) {
         this.delegate = delegate;
         this.inMemoryCache = inMemoryCache;
         this.cacheId = cacheId;
         this.fileLockStateReference = fileLockStateReference;
+        this.memoryBudget = memoryBudget;
     }
 
     @Override
@@ -69,6 +71,7 @@ class InMemoryDecoratedCache<K, V> implements MultiProcessSafeAsyncPersistentInd
         } catch (ExecutionException e) {
             throw UncheckedException.throwAsUncheckedException(e.getCause());
         }
+        memoryBudget.enforce();
         if (value == NULL) {
             return null;
         } else {
@@ -111,6 +114,7 @@ class InMemoryDecoratedCache<K, V> implements MultiProcessSafeAsyncPersistentInd
         } finally {
             completionRef.get().run();
         }
+        memoryBudget.enforce();
         if (value == NULL) {
             return null;
         } else {
@@ -122,12 +126,14 @@ class InMemoryDecoratedCache<K, V> implements MultiProcessSafeAsyncPersistentInd
     public void putLater(K key, V value, Runnable completion) {
         inMemoryCache.put(key, value);
         delegate.putLater(key, value, completion);
+        memoryBudget.enforce();
     }
 
     @Override
     public void removeLater(K key, Runnable completion) {
         inMemoryCache.put(key, NULL);
         delegate.removeLater(key, completion);
+        memoryBudget.enforce();
     }
 
     @Override
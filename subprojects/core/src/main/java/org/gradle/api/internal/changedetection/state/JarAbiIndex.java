@@ -0,0 +1,31 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.hash.HashCode;
+
+/**
+ * Caches the compile classpath hashes of jar files, keyed by the content hash of the jar.
+ *
+ * Lives in the Gradle user home, so the ABI of a given jar is only extracted once, regardless of how many projects and builds have it on their compile classpath.
+ */
+public class JarAbiIndex extends ResourceSnapshotterCacheService {
+    public JarAbiIndex(PersistentIndexedCache<HashCode, HashCode> persistentCache) {
+        super(persistentCache);
+    }
+}
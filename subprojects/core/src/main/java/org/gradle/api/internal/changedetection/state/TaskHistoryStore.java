@@ -29,4 +29,9 @@ public interface TaskHistoryStore {
      * @param cacheInMemoryForShortLivedProcesses When true, entries are cached in memory. When false, entries are cached in memory only when it possible that another build will be run in this process.
      */
     <K, V> PersistentIndexedCache<K, V> createCache(String name, Class<K> keyType, Serializer<V> valueSerializer, int maxEntriesToKeepInMemory, boolean cacheInMemoryForShortLivedProcesses);
+
+    /**
+     * Same as {@link #createCache(String, Class, Serializer, int, boolean)}, but limits the entries kept in memory by their estimated size rather than their number.
+     */
+    <K, V> PersistentIndexedCache<K, V> createCache(String name, Class<K> keyType, Serializer<V> valueSerializer, int maxEntriesToKeepInMemory, boolean cacheInMemoryForShortLivedProcesses, InMemoryCacheEntrySizeEstimator<? super V> sizeEstimator);
 }
@@ -23,9 +23,16 @@ import org.gradle.api.execution.TaskExecutionGraphListener;
 import org.gradle.api.internal.GradleInternal;
 import org.gradle.api.internal.project.ProjectInternal;
 
+import java.util.List;
 import java.util.Set;
 
 public class SelectedTaskExecutionAction implements BuildExecutionAction {
+    private final List<TaskExecutionPreparer> preparers;
+
+    public SelectedTaskExecutionAction(List<TaskExecutionPreparer> preparers) {
+        this.preparers = preparers;
+    }
+
     public void execute(BuildExecutionContext context) {
         GradleInternal gradle = context.getGradle();
         TaskExecutionGraphInternal taskGraph = gradle.getTaskGraph();
@@ -34,6 +41,9 @@ public class SelectedTaskExecutionAction implements BuildExecutionAction {
         }
 
         taskGraph.addTaskExecutionGraphListener(new BindAllReferencesOfProjectsToExecuteListener());
+        if (!preparers.isEmpty()) {
+            taskGraph.addTaskExecutionGraphListener(new PrepareForExecutionListener(preparers));
+        }
         taskGraph.execute();
     }
 
@@ -49,4 +59,19 @@ public class SelectedTaskExecutionAction implements BuildExecutionAction {
             }
         }
     }
+
+    private static class PrepareForExecutionListener implements TaskExecutionGraphListener {
+        private final List<TaskExecutionPreparer> preparers;
+
+        PrepareForExecutionListener(List<TaskExecutionPreparer> preparers) {
+            this.preparers = preparers;
+        }
+
+        @Override
+        public void graphPopulated(TaskExecutionGraph graph) {
+            for (TaskExecutionPreparer preparer : preparers) {
+                preparer.prepareForExecution(graph);
+            }
+        }
+    }
 }
@@ -0,0 +1,27 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.execution;
+
+import org.gradle.api.execution.TaskExecutionGraph;
+
+/**
+ * Prepares for the execution of a task graph. Preparers are called once the graph has been populated and all graph listeners have been notified, before the first task starts executing.
+ *
+ * <p>Implementations are contributed as Gradle scoped services.</p>
+ */
+public interface TaskExecutionPreparer {
+    void prepareForExecution(TaskExecutionGraph taskGraph);
+}
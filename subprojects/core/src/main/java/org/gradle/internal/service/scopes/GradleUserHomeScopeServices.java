@@ -32,6 +32,7 @@ import org.gradle.api.internal.changedetection.state.FileSystemSnapshotter;
 import org.gradle.api.internal.changedetection.state.GenericFileCollectionSnapshotter;
 import org.gradle.api.internal.changedetection.state.GlobalScopeFileTimeStampInspector;
 import org.gradle.api.internal.changedetection.state.InMemoryCacheDecoratorFactory;
+import org.gradle.api.internal.changedetection.state.JarAbiIndex;
 import org.gradle.api.internal.changedetection.state.ResourceSnapshotterCacheService;
 import org.gradle.api.internal.changedetection.state.TaskHistoryStore;
 import org.gradle.api.internal.changedetection.state.ValueSnapshotter;
@@ -158,6 +159,10 @@ public class GradleUserHomeScopeServices {
         return new DefaultClasspathHasher(snapshotter);
     }
 
+    JarAbiIndex createJarAbiIndex(TaskHistoryStore store) {
+        return new JarAbiIndex(store.createCache("jarAbiHashes", HashCode.class, new HashCodeSerializer(), 200000, true));
+    }
+
     HashingClassLoaderFactory createClassLoaderFactory(ClasspathHasher classpathHasher) {
         return new DefaultHashingClassLoaderFactory(classpathHasher);
     }
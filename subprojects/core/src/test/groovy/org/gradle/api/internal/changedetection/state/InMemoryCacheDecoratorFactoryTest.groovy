@@ -202,4 +202,47 @@ class InMemoryCacheDecoratorFactoryTest extends Specification {
         0 * target._
     }
 
+    def "removes entries from least used cache when estimated size of all caches exceeds memory budget"() {
+        given:
+        def budgetedFactory = new InMemoryCacheDecoratorFactory(true, new CrossBuildInMemoryCacheFactory(new DefaultListenerManager()), 1000)
+        def sizeEstimator = { String value -> value.length() } as InMemoryCacheEntrySizeEstimator<String>
+        def idleTarget = Mock(MultiProcessSafePersistentIndexedCache)
+        def busyTarget = Mock(MultiProcessSafePersistentIndexedCache)
+        crossProcessCacheAccess.withFileLock(_) >> { Factory task -> task.create() }
+        asyncCacheAccess.read(_) >> { Factory task -> task.create() }
+        def idleCache = budgetedFactory.decorator(100, true, sizeEstimator).decorate("path/idle.bin", "idle", idleTarget, crossProcessCacheAccess, asyncCacheAccess)
+        def busyCache = budgetedFactory.decorator(100, true, sizeEstimator).decorate("path/busy.bin", "busy", busyTarget, crossProcessCacheAccess, asyncCacheAccess)
+
+        when:
+        3.times { idleCache.get("idle" + it) }
+        10.times { busyCache.get("busy0") }
+        3.times { busyCache.get("busy" + (it + 1)) }
+
+        then:
+        3 * idleTarget.get(_) >> ("x" * 150)
+        4 * busyTarget.get(_) >> ("x" * 150)
+
+        when:
+        4.times { busyCache.get("busy" + it) }
+        3.times { idleCache.get("idle" + it) }
+
+        then:
+        0 * busyTarget.get(_)
+        (1.._) * idleTarget.get(_) >> ("x" * 150)
+    }
+
+    def "does not limit number of entries when size estimator is used"() {
+        given:
+        def sizeEstimator = { String value -> value.length() } as InMemoryCacheEntrySizeEstimator<String>
+        crossProcessCacheAccess.withFileLock(_) >> { Factory task -> task.create() }
+        asyncCacheAccess.read(_) >> { Factory task -> task.create() }
+        def cache = cacheFactory.decorator(100, true, sizeEstimator).decorate("path/fileSnapshots.bin", "fileSnapshots", target, crossProcessCacheAccess, asyncCacheAccess)
+
+        when:
+        200.times { cache.get("key" + it) }
+        200.times { cache.get("key" + it) }
+
+        then:
+        200 * target.get(_) >> "result"
+    }
 }
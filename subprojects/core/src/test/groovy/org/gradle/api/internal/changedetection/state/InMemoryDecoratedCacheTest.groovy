@@ -26,7 +26,7 @@ import java.util.concurrent.atomic.AtomicReference
 
 class InMemoryDecoratedCacheTest extends ConcurrentSpec {
     def target = Mock(MultiProcessSafeAsyncPersistentIndexedCache)
-    def cache = new InMemoryDecoratedCache(target, CacheBuilder.newBuilder().build(), "id", new AtomicReference<FileLock.State>())
+    def cache = new InMemoryDecoratedCache(target, CacheBuilder.newBuilder().build(), "id", new AtomicReference<FileLock.State>(), new InMemoryCacheMemoryBudget(Long.MAX_VALUE))
 
     def "does not produce value when present in memory and marks completed"() {
         def producer = Mock(Transformer)
@@ -17,12 +17,14 @@ package org.gradle.execution
 
 import org.gradle.StartParameter
 import org.gradle.api.Task
+import org.gradle.api.execution.TaskExecutionGraphListener
 import org.gradle.api.internal.GradleInternal
 import org.gradle.api.tasks.TaskState
 import spock.lang.Specification
 
 class SelectedTaskExecutionActionTest extends Specification {
-    final SelectedTaskExecutionAction action = new SelectedTaskExecutionAction()
+    final TaskExecutionPreparer preparer = Mock()
+    final SelectedTaskExecutionAction action = new SelectedTaskExecutionAction([preparer])
     final BuildExecutionContext context = Mock()
     final TaskExecutionGraphInternal taskGraph = Mock()
     final GradleInternal gradleInternal = Mock()
@@ -57,6 +59,26 @@ class SelectedTaskExecutionActionTest extends Specification {
         1 * taskGraph.execute()
     }
 
+    def "prepares for execution once task graph has been populated"() {
+        given:
+        def listeners = []
+        _ * startParameter.continueOnFailure >> false
+        _ * taskGraph.addTaskExecutionGraphListener(_) >> { TaskExecutionGraphListener listener -> listeners << listener }
+
+        when:
+        action.execute(context)
+
+        then:
+        1 * taskGraph.execute()
+        0 * preparer._
+
+        when:
+        listeners.last().graphPopulated(taskGraph)
+
+        then:
+        1 * preparer.prepareForExecution(taskGraph)
+    }
+
     def brokenTask(Throwable failure) {
         Task task = Mock()
         TaskState state = Mock()
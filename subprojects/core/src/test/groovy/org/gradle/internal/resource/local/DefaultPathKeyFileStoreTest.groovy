@@ -17,6 +17,7 @@
 package org.gradle.internal.resource.local
 
 import org.gradle.api.Action
+import org.gradle.internal.hash.HashUtil
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.gradle.util.UsesNativeServices
@@ -56,6 +57,20 @@ class DefaultPathKeyFileStoreTest extends Specification {
         !b.exists()
     }
 
+    def "can move file with known checksum to filestore"() {
+        def a = createFile("abc")
+        def sha1 = HashUtil.sha1("abc".bytes)
+
+        when:
+        def stored = store.move("a", a, sha1)
+
+        then:
+        stored.file.text == "abc"
+        stored.file == fsBase.file("a")
+        stored.sha1 == sha1
+        !a.exists()
+    }
+
     def "can move directory to filestore"() {
         def a = dir.createDir("a")
         a.file("child-1").createFile()
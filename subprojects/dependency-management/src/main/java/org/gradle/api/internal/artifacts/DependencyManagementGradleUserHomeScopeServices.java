@@ -17,10 +17,16 @@
 package org.gradle.api.internal.artifacts;
 
 import org.gradle.api.internal.artifacts.ivyservice.DefaultArtifactCacheMetadata;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleGroupAbsenceIndex;
 import org.gradle.cache.internal.CacheScopeMapping;
+import org.gradle.internal.time.Clock;
 
 public class DependencyManagementGradleUserHomeScopeServices {
     DefaultArtifactCacheMetadata createArtifactCacheMetaData(CacheScopeMapping cacheScopeMapping) {
         return new DefaultArtifactCacheMetadata(cacheScopeMapping);
     }
+
+    ModuleGroupAbsenceIndex createModuleGroupAbsenceIndex(Clock clock) {
+        return new ModuleGroupAbsenceIndex(clock);
+    }
 }
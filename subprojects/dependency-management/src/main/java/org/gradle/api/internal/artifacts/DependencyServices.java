@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.artifacts;
 
+import org.gradle.api.internal.artifacts.configurations.ConfigurationPreResolver;
 import org.gradle.api.internal.artifacts.ivyservice.ArtifactCacheMetadata;
 import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
 import org.gradle.api.internal.artifacts.ivyservice.DefaultCacheLockingManager;
@@ -24,9 +25,12 @@ import org.gradle.api.internal.artifacts.transform.TransformedFileCache;
 import org.gradle.api.internal.changedetection.state.FileSystemSnapshotter;
 import org.gradle.api.internal.changedetection.state.InMemoryCacheDecoratorFactory;
 import org.gradle.cache.CacheRepository;
+import org.gradle.execution.TaskExecutionPreparer;
 import org.gradle.internal.event.ListenerManager;
+import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.internal.service.ServiceRegistration;
 import org.gradle.internal.service.scopes.AbstractPluginServiceRegistry;
+import org.gradle.internal.work.WorkerLeaseService;
 
 public class DependencyServices extends AbstractPluginServiceRegistry {
     public void registerGlobalServices(ServiceRegistration registration) {
@@ -48,6 +52,11 @@ public class DependencyServices extends AbstractPluginServiceRegistry {
         registration.addProvider(new DependencyManagementBuildScopeServices());
     }
 
+    @Override
+    public void registerGradleServices(ServiceRegistration registration) {
+        registration.addProvider(new DependencyManagementGradleServices());
+    }
+
     @Override
     public void registerBuildTreeServices(ServiceRegistration registration) {
         registration.addProvider(new DependencyManagementBuildTreeScopeServices());
@@ -64,4 +73,10 @@ public class DependencyServices extends AbstractPluginServiceRegistry {
             return transformedFileCache;
         }
     }
+
+    private static class DependencyManagementGradleServices {
+        TaskExecutionPreparer createConfigurationPreResolver(BuildOperationExecutor buildOperationExecutor, WorkerLeaseService workerLeaseService) {
+            return new ConfigurationPreResolver(buildOperationExecutor, workerLeaseService);
+        }
+    }
 }
@@ -52,4 +52,10 @@ public interface ConfigurationInternal extends ResolveContext, Configuration, De
     OutgoingVariant convertToOutgoingVariant();
 
     void preventFromFurtherMutation();
+
+    /**
+     * Resolves this configuration ahead of its first use. A failure is not thrown, but is thrown instead by the first use of this configuration that requires it to be resolved,
+     * so that it is reported in the same way as when the configuration is resolved by that use.
+     */
+    void preResolve();
 }
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.configurations;
+
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.SetMultimap;
+import org.gradle.api.Action;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.execution.TaskExecutionGraph;
+import org.gradle.api.internal.GradleInternal;
+import org.gradle.api.internal.file.FileCollectionInternal;
+import org.gradle.api.internal.file.FileCollectionVisitor;
+import org.gradle.api.internal.file.FileTreeInternal;
+import org.gradle.api.internal.file.collections.DirectoryFileTree;
+import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.execution.TaskExecutionPreparer;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.internal.resources.ResourceLock;
+import org.gradle.internal.work.WorkerLeaseService;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Resolves the configurations that the tasks of a task graph take as input files concurrently, before any task starts executing.
+ *
+ * <p>Without this, configurations are resolved lazily by the first task that uses them, while holding the lock of that task's project.
+ * Configurations of different projects are independent, so they are resolved here on the build operation worker pool, one project at a time per worker and while holding the lock of the project that owns the configurations.
+ * Configurations of the same project are resolved in sequence.</p>
+ *
+ * <p>A failure to resolve a configuration, including a failure of a {@code beforeResolve} action, does not fail the build here. It is thrown by the first use of the configuration instead,
+ * so that it is reported to the consuming task as it would be without pre-resolution.</p>
+ *
+ * <p>This is opt-in, as it changes the point at which dependency resolution happens: a build that modifies a configuration from a task action will fail when the configuration has been resolved up-front.</p>
+ */
+public class ConfigurationPreResolver implements TaskExecutionPreparer {
+    private static final Logger LOGGER = Logging.getLogger(ConfigurationPreResolver.class);
+    public static final String PRE_RESOLVE_PROPERTY = "org.gradle.internal.resolution.preresolve";
+
+    private final BuildOperationExecutor buildOperationExecutor;
+    private final WorkerLeaseService workerLeaseService;
+    private final boolean enabled;
+
+    public ConfigurationPreResolver(BuildOperationExecutor buildOperationExecutor, WorkerLeaseService workerLeaseService) {
+        this(buildOperationExecutor, workerLeaseService, Boolean.getBoolean(PRE_RESOLVE_PROPERTY));
+    }
+
+    ConfigurationPreResolver(BuildOperationExecutor buildOperationExecutor, WorkerLeaseService workerLeaseService, boolean enabled) {
+        this.buildOperationExecutor = buildOperationExecutor;
+        this.workerLeaseService = workerLeaseService;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void prepareForExecution(TaskExecutionGraph taskGraph) {
+        if (!enabled) {
+            return;
+        }
+        final SetMultimap<Project, ConfigurationInternal> configurationsByProject = collectConfigurations(taskGraph);
+        if (configurationsByProject.isEmpty()) {
+            return;
+        }
+        buildOperationExecutor.runAll(new Action<BuildOperationQueue<RunnableBuildOperation>>() {
+            @Override
+            public void execute(BuildOperationQueue<RunnableBuildOperation> queue) {
+                for (Project project : configurationsByProject.keySet()) {
+                    queue.add(new ResolveProjectConfigurations(project, configurationsByProject.get(project)));
+                }
+            }
+        });
+    }
+
+    private SetMultimap<Project, ConfigurationInternal> collectConfigurations(TaskExecutionGraph taskGraph) {
+        SetMultimap<Project, ConfigurationInternal> configurationsByProject = LinkedHashMultimap.create();
+        for (Task task : taskGraph.getAllTasks()) {
+            CollectingVisitor visitor = new CollectingVisitor(task.getProject(), configurationsByProject);
+            try {
+                ((FileCollectionInternal) task.getInputs().getFiles()).visitRootElements(visitor);
+            } catch (Exception e) {
+                // The inputs of some tasks can only be calculated once the tasks they depend on have run. Leave these to be resolved by the task itself.
+                LOGGER.debug("Could not determine the configurations used by {}. Skipping.", task, e);
+            }
+        }
+        return configurationsByProject;
+    }
+
+    private static class CollectingVisitor implements FileCollectionVisitor {
+        private final Project project;
+        private final SetMultimap<Project, ConfigurationInternal> configurations;
+
+        CollectingVisitor(Project project, SetMultimap<Project, ConfigurationInternal> configurations) {
+            this.project = project;
+            this.configurations = configurations;
+        }
+
+        @Override
+        public void visitCollection(FileCollectionInternal fileCollection) {
+            if (!(fileCollection instanceof ConfigurationInternal)) {
+                return;
+            }
+            ConfigurationInternal configuration = (ConfigurationInternal) fileCollection;
+            // Only consider configurations owned by the project of the consuming task, so that the correct project lock can be held while resolving
+            if (configuration.isCanBeResolved()
+                && configuration.getState() == Configuration.State.UNRESOLVED
+                && project.getConfigurations().findByName(configuration.getName()) == configuration) {
+                configurations.put(project, configuration);
+            }
+        }
+
+        @Override
+        public void visitTree(FileTreeInternal fileTree) {
+        }
+
+        @Override
+        public void visitDirectoryTree(DirectoryFileTree directoryTree) {
+        }
+    }
+
+    private class ResolveProjectConfigurations implements RunnableBuildOperation {
+        private final Project project;
+        private final Collection<ConfigurationInternal> configurations;
+
+        ResolveProjectConfigurations(Project project, Collection<ConfigurationInternal> configurations) {
+            this.project = project;
+            this.configurations = configurations;
+        }
+
+        @Override
+        public void run(BuildOperationContext context) {
+            String gradlePath = ((GradleInternal) project.getGradle()).getIdentityPath().toString();
+            String projectPath = ((ProjectInternal) project).getIdentityPath().toString();
+            ResourceLock projectLock = workerLeaseService.getProjectLock(gradlePath, projectPath);
+            workerLeaseService.withLocks(Collections.singleton(projectLock), new Runnable() {
+                @Override
+                public void run() {
+                    for (ConfigurationInternal configuration : configurations) {
+                        // Another thread may have resolved the configuration in the meantime, in which case this does nothing.
+                        // Failures are retained by the configuration and reported to the consuming task when it queries the files
+                        configuration.preResolve();
+                    }
+                }
+            });
+        }
+
+        @Override
+        public BuildOperationDescriptor.Builder description() {
+            return BuildOperationDescriptor.displayName("Resolve configurations of " + project.getDisplayName());
+        }
+    }
+}
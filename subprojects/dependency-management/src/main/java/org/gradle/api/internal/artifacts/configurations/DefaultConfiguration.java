@@ -179,6 +179,8 @@ public class DefaultConfiguration extends AbstractFileCollection implements Conf
     private final Object resolutionLock = new Object();
     private InternalState resolvedState = UNRESOLVED;
     private boolean insideBeforeResolve;
+    // The failure of pre-resolution, which is reported to the first use of this configuration
+    private Throwable preResolveFailure;
 
     private ResolverResults cachedResolverResults;
     private boolean dependenciesModified;
@@ -494,9 +496,26 @@ public class DefaultConfiguration extends AbstractFileCollection implements Conf
         return cachedResolverResults.getResolvedConfiguration();
     }
 
+    @Override
+    public void preResolve() {
+        try {
+            resolveToStateOrLater(ARTIFACTS_RESOLVED);
+        } catch (Throwable t) {
+            synchronized (resolutionLock) {
+                preResolveFailure = t;
+            }
+        }
+    }
+
     private void resolveToStateOrLater(InternalState requestedState) {
         assertResolvingAllowed();
         synchronized (resolutionLock) {
+            if (preResolveFailure != null) {
+                // Report the failure as if this use had resolved the configuration. Any later use tries again, as it would had the configuration not been pre-resolved
+                Throwable failure = preResolveFailure;
+                preResolveFailure = null;
+                throw UncheckedException.throwAsUncheckedException(failure);
+            }
             if (requestedState == GRAPH_RESOLVED || requestedState == ARTIFACTS_RESOLVED) {
                 resolveGraphIfRequired(requestedState);
             }
@@ -31,6 +31,7 @@ class ComponentMetaDataResolveState {
 
     private boolean searchedLocally;
     private boolean searchedRemotely;
+    private boolean rejected;
 
     public ComponentMetaDataResolveState(ModuleComponentIdentifier componentIdentifier, ComponentOverrideMetadata componentOverrideMetadata, ModuleComponentRepository repository, VersionedComponentChooser versionedComponentChooser) {
         this.componentOverrideMetadata = componentOverrideMetadata;
@@ -66,15 +67,27 @@ class ComponentMetaDataResolveState {
         moduleAccess.resolveComponentMetaData(componentIdentifier, componentOverrideMetadata, resolveResult);
         if (resolveResult.getState() == BuildableModuleComponentMetaDataResolveResult.State.Resolved) {
             if (versionedComponentChooser.isRejectedComponent(componentIdentifier, new MetadataProvider(resolveResult))) {
+                rejected = true;
                 resolveResult.missing();
             }
         }
     }
 
+    ModuleComponentIdentifier getComponentIdentifier() {
+        return componentIdentifier;
+    }
+
     protected void applyTo(ResourceAwareResolveResult result) {
         resolveResult.applyTo(result);
     }
 
+    /**
+     * Returns true when the component was found, but rejected by a component selection rule.
+     */
+    public boolean isRejected() {
+        return rejected;
+    }
+
     public boolean canMakeFurtherAttempts() {
         return !searchedRemotely;
     }
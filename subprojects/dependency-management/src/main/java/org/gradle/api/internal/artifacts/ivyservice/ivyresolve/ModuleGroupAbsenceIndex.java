@@ -0,0 +1,128 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve;
+
+import com.google.common.collect.Sets;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy;
+import org.gradle.internal.time.Clock;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers, per repository, the module groups for which a module was found to be missing and no module was found to be present.
+ *
+ * <p>A repository chain uses this to consult the repositories in which the group of a module is known to be absent after the other repositories,
+ * so that a module that lives in the last of several repositories does not cost a request against each of the others.
+ * The repositories are still consulted when no other repository provides the module, so a module is never reported missing because of this index.
+ * However, when a group is only partially present in a repository, a module may be taken from a later repository than without this index.
+ * For this reason, the index is only used when enabled with the {@value #ENABLED_PROPERTY} system property.</p>
+ *
+ * <p>Knowledge of an absent group expires in the same way as cached missing modules, as defined by the {@link CachePolicy} of the resolution.</p>
+ */
+public class ModuleGroupAbsenceIndex {
+    public static final String ENABLED_PROPERTY = "org.gradle.internal.resolution.absentGroupsLast";
+
+    private final ConcurrentMap<String, RepositoryGroups> repositories = new ConcurrentHashMap<String, RepositoryGroups>();
+    private final Clock clock;
+    private final boolean enabled;
+
+    public ModuleGroupAbsenceIndex(Clock clock) {
+        this(clock, Boolean.getBoolean(ENABLED_PROPERTY));
+    }
+
+    ModuleGroupAbsenceIndex(Clock clock, boolean enabled) {
+        this.clock = clock;
+        this.enabled = enabled;
+    }
+
+    public void moduleMissing(String repositoryId, ModuleComponentIdentifier component) {
+        if (enabled) {
+            getRepository(repositoryId).missing(component.getGroup(), clock.getCurrentTime());
+        }
+    }
+
+    public void modulePresent(String repositoryId, ModuleComponentIdentifier component) {
+        if (enabled) {
+            getRepository(repositoryId).present(component.getGroup());
+        }
+    }
+
+    /**
+     * Returns true when the group of the given component is known to be absent from the given repository, and this knowledge has not expired according to the given cache policy.
+     */
+    public boolean isKnownAbsent(String repositoryId, ModuleComponentIdentifier component, CachePolicy cachePolicy) {
+        if (!enabled) {
+            return false;
+        }
+        RepositoryGroups groups = repositories.get(repositoryId);
+        if (groups == null) {
+            return false;
+        }
+        Long missingSince = groups.missingSince(component.getGroup());
+        if (missingSince == null) {
+            return false;
+        }
+        if (cachePolicy.mustRefreshMissingModule(component, clock.getCurrentTime() - missingSince)) {
+            groups.expire(component.getGroup(), missingSince);
+            return false;
+        }
+        return true;
+    }
+
+    private RepositoryGroups getRepository(String repositoryId) {
+        RepositoryGroups groups = repositories.get(repositoryId);
+        if (groups == null) {
+            groups = new RepositoryGroups();
+            RepositoryGroups existing = repositories.putIfAbsent(repositoryId, groups);
+            if (existing != null) {
+                groups = existing;
+            }
+        }
+        return groups;
+    }
+
+    private static class RepositoryGroups {
+        private final Set<String> present = Sets.newConcurrentHashSet();
+        private final ConcurrentMap<String, Long> missing = new ConcurrentHashMap<String, Long>();
+
+        void missing(String group, long timestamp) {
+            if (!present.contains(group)) {
+                missing.putIfAbsent(group, timestamp);
+                if (present.contains(group)) {
+                    // Lost a race with a module being found
+                    missing.remove(group);
+                }
+            }
+        }
+
+        void present(String group) {
+            present.add(group);
+            missing.remove(group);
+        }
+
+        Long missingSince(String group) {
+            return missing.get(group);
+        }
+
+        void expire(String group, long timestamp) {
+            missing.remove(group, timestamp);
+        }
+    }
+}
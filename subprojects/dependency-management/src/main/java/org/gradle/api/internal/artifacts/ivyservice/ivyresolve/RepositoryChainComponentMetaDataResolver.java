@@ -19,6 +19,7 @@ package org.gradle.api.internal.artifacts.ivyservice.ivyresolve;
 import org.gradle.api.Transformer;
 import org.gradle.api.artifacts.component.ComponentIdentifier;
 import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy;
 import org.gradle.api.internal.artifacts.repositories.resolver.MetadataFetchingCost;
 import org.gradle.internal.component.external.model.ModuleComponentResolveMetadata;
 import org.gradle.internal.component.model.ComponentOverrideMetadata;
@@ -44,10 +45,14 @@ public class RepositoryChainComponentMetaDataResolver implements ComponentMetaDa
     private final List<String> repositoryNames = new ArrayList<String>();
     private final VersionedComponentChooser versionedComponentChooser;
     private final Transformer<ModuleComponentResolveMetadata, RepositoryChainModuleResolution> metaDataFactory;
+    private final ModuleGroupAbsenceIndex absenceIndex;
+    private final CachePolicy cachePolicy;
 
-    public RepositoryChainComponentMetaDataResolver(VersionedComponentChooser componentChooser, Transformer<ModuleComponentResolveMetadata, RepositoryChainModuleResolution> metaDataFactory) {
+    public RepositoryChainComponentMetaDataResolver(VersionedComponentChooser componentChooser, Transformer<ModuleComponentResolveMetadata, RepositoryChainModuleResolution> metaDataFactory, ModuleGroupAbsenceIndex absenceIndex, CachePolicy cachePolicy) {
         this.versionedComponentChooser = componentChooser;
         this.metaDataFactory = metaDataFactory;
+        this.absenceIndex = absenceIndex;
+        this.cachePolicy = cachePolicy;
     }
 
     public void add(ModuleComponentRepository repository) {
@@ -85,9 +90,17 @@ public class RepositoryChainComponentMetaDataResolver implements ComponentMetaDa
         List<Throwable> errors = new ArrayList<Throwable>();
 
         List<ComponentMetaDataResolveState> resolveStates = new ArrayList<ComponentMetaDataResolveState>();
+        List<ComponentMetaDataResolveState> knownAbsentStates = new ArrayList<ComponentMetaDataResolveState>();
         for (ModuleComponentRepository repository : repositories) {
-            resolveStates.add(new ComponentMetaDataResolveState(identifier, componentOverrideMetadata, repository, versionedComponentChooser));
+            ComponentMetaDataResolveState resolveState = new ComponentMetaDataResolveState(identifier, componentOverrideMetadata, repository, versionedComponentChooser);
+            if (absenceIndex.isKnownAbsent(repository.getId(), identifier, cachePolicy)) {
+                // Consult repositories that are known not to contain the group only once all others have been tried
+                knownAbsentStates.add(resolveState);
+            } else {
+                resolveStates.add(resolveState);
+            }
         }
+        resolveStates.addAll(knownAbsentStates);
 
         final RepositoryChainModuleResolution latestResolved = findBestMatch(resolveStates, errors);
         if (latestResolved != null) {
@@ -144,12 +157,14 @@ public class RepositoryChainComponentMetaDataResolver implements ComponentMetaDa
                     }
                     break;
                 case Missing:
+                    recordMissing(request);
                     // Queue this up for checking again later
                     if (request.canMakeFurtherAttempts()) {
                         missing.add(request);
                     }
                     break;
                 case Resolved:
+                    absenceIndex.modulePresent(request.repository.getId(), request.getComponentIdentifier());
                     RepositoryChainModuleResolution moduleResolution = new RepositoryChainModuleResolution(request.repository, metaDataResolveResult.getMetaData());
                     if (!metaDataResolveResult.getMetaData().isMissing()) {
                         return moduleResolution;
@@ -163,4 +178,12 @@ public class RepositoryChainComponentMetaDataResolver implements ComponentMetaDa
 
         return best;
     }
+
+    private void recordMissing(ComponentMetaDataResolveState request) {
+        if (request.isRejected()) {
+            absenceIndex.modulePresent(request.repository.getId(), request.getComponentIdentifier());
+        } else {
+            absenceIndex.moduleMissing(request.repository.getId(), request.getComponentIdentifier());
+        }
+    }
 }
@@ -22,6 +22,8 @@ import org.gradle.api.internal.artifacts.ivyservice.ArtifactCacheMetadata;
 import org.gradle.api.internal.changedetection.state.FileSystemSnapshotter;
 import org.gradle.api.internal.changedetection.state.InMemoryCacheDecoratorFactory;
 import org.gradle.api.internal.changedetection.state.Snapshot;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
 import org.gradle.cache.CacheBuilder;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.FileLockManager;
@@ -47,18 +49,24 @@ import java.io.File;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.gradle.api.internal.artifacts.ivyservice.CacheLayout.TRANSFORMS_META_DATA;
 import static org.gradle.api.internal.artifacts.ivyservice.CacheLayout.TRANSFORMS_STORE;
 import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
 
 public class DefaultTransformedFileCache implements TransformedFileCache, Stoppable, RootBuildLifecycleListener {
+    private static final Logger LOGGER = Logging.getLogger(DefaultTransformedFileCache.class);
+
     private final PersistentCache cache;
     private final PersistentIndexedCache<HashCode, List<File>> indexedCache;
     private final FileStore<String> fileStore;
     private final ProducerGuard<CacheKey> producing = ProducerGuard.adaptive();
     private final Map<CacheKey, List<File>> resultHashToResult = new ConcurrentHashMap<CacheKey, List<File>>();
     private final FileSystemSnapshotter fileSystemSnapshotter;
+    private final AtomicLong inMemoryHits = new AtomicLong();
+    private final AtomicLong persistentHits = new AtomicLong();
+    private final AtomicLong executions = new AtomicLong();
 
     public DefaultTransformedFileCache(ArtifactCacheMetadata artifactCacheMetadata, CacheRepository cacheRepository, InMemoryCacheDecoratorFactory cacheDecoratorFactory, FileSystemSnapshotter fileSystemSnapshotter) {
         this.fileSystemSnapshotter = fileSystemSnapshotter;
@@ -88,10 +96,25 @@ public class DefaultTransformedFileCache implements TransformedFileCache, Stoppa
 
     @Override
     public void beforeComplete() {
+        Statistics statistics = getStatistics();
+        if (statistics.getRequestCount() > 0) {
+            LOGGER.info("{}", statistics);
+        }
+        inMemoryHits.set(0);
+        persistentHits.set(0);
+        executions.set(0);
+
         // Discard cached results between builds
         resultHashToResult.clear();
     }
 
+    /**
+     * Returns the statistics for the current build.
+     */
+    public Statistics getStatistics() {
+        return new Statistics(inMemoryHits.get(), persistentHits.get(), executions.get());
+    }
+
     @Override
     public boolean contains(File absoluteFile, HashCode inputsHash) {
         return resultHashToResult.containsKey(getCacheKey(absoluteFile, inputsHash));
@@ -102,6 +125,7 @@ public class DefaultTransformedFileCache implements TransformedFileCache, Stoppa
         final CacheKey resultHash = getCacheKey(inputFile, inputsHash);
         List<File> files = resultHashToResult.get(resultHash);
         if (files != null) {
+            inMemoryHits.incrementAndGet();
             return files;
         }
         return loadIntoCache(inputFile, resultHash, transformer);
@@ -117,6 +141,7 @@ public class DefaultTransformedFileCache implements TransformedFileCache, Stoppa
             public List<File> create() {
                 List<File> files = resultHashToResult.get(cacheKey);
                 if (files != null) {
+                    inMemoryHits.incrementAndGet();
                     return files;
                 }
                 files = cache.withFileLock(new Factory<List<File>>() {
@@ -133,6 +158,7 @@ public class DefaultTransformedFileCache implements TransformedFileCache, Stoppa
                                 }
                             }
                             if (allExist) {
+                                persistentHits.incrementAndGet();
                                 return files;
                             }
                         }
@@ -145,6 +171,7 @@ public class DefaultTransformedFileCache implements TransformedFileCache, Stoppa
                             throw UncheckedException.throwAsUncheckedException(e.getCause());
                         }
 
+                        executions.incrementAndGet();
                         indexedCache.put(persistentCacheKey, action.result);
                         return action.result;
                     }
@@ -208,6 +235,53 @@ public class DefaultTransformedFileCache implements TransformedFileCache, Stoppa
         }
     }
 
+    /**
+     * How the requests for transformed files were satisfied.
+     */
+    public static class Statistics {
+        private final long inMemoryHits;
+        private final long persistentHits;
+        private final long executions;
+
+        Statistics(long inMemoryHits, long persistentHits, long executions) {
+            this.inMemoryHits = inMemoryHits;
+            this.persistentHits = persistentHits;
+            this.executions = executions;
+        }
+
+        /**
+         * The number of results that were already available in memory, as they had been used earlier in the build.
+         */
+        public long getInMemoryHits() {
+            return inMemoryHits;
+        }
+
+        /**
+         * The number of results that were loaded from the persistent cache, typically produced by an earlier build.
+         */
+        public long getPersistentHits() {
+            return persistentHits;
+        }
+
+        /**
+         * The number of results that had to be produced by running the transform.
+         */
+        public long getExecutions() {
+            return executions;
+        }
+
+        public long getRequestCount() {
+            return inMemoryHits + persistentHits + executions;
+        }
+
+        @Override
+        public String toString() {
+            long requests = getRequestCount();
+            long hitRate = requests == 0 ? 0 : (inMemoryHits + persistentHits) * 100 / requests;
+            return "Artifact transforms cache: " + requests + " requested, " + inMemoryHits + " in-memory hits, " + persistentHits + " persistent hits, " + executions + " executed (" + hitRate + "% hit rate)";
+        }
+    }
+
     private static class TransformAction implements Action<File> {
         private final BiFunction<List<File>, File, File> transformer;
         private final File inputFile;
@@ -27,6 +27,8 @@ import org.gradle.cache.internal.ProducerGuard;
 import org.gradle.internal.Factory;
 import org.gradle.internal.hash.HashUtil;
 import org.gradle.internal.hash.HashValue;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.hash.HashingOutputStream;
 import org.gradle.internal.resource.ExternalResource;
 import org.gradle.internal.resource.ExternalResourceName;
 import org.gradle.internal.resource.ExternalResourceReadResult;
@@ -186,7 +188,7 @@ public class DefaultCacheAwareExternalResourceAccessor implements CacheAwareExte
             if (!localChecksum.equals(remoteChecksum)) {
                 return null;
             }
-            return moveIntoCache(source, destination, fileStore, remoteMetaData);
+            return moveIntoCache(source, destination, localChecksum, fileStore, remoteMetaData);
         } finally {
             destination.delete();
         }
@@ -206,16 +208,16 @@ public class DefaultCacheAwareExternalResourceAccessor implements CacheAwareExte
 
         // Move into cache
         try {
-            return moveIntoCache(source, downloadAction.destination, fileStore, downloadAction.metaData);
+            return moveIntoCache(source, downloadAction.destination, downloadAction.sha1, fileStore, downloadAction.metaData);
         } finally {
             downloadAction.destination.delete();
         }
     }
 
-    private LocallyAvailableExternalResource moveIntoCache(final ExternalResourceName source, final File destination, final ResourceFileStore fileStore, final ExternalResourceMetaData metaData) {
+    private LocallyAvailableExternalResource moveIntoCache(final ExternalResourceName source, final File destination, final HashValue sha1, final ResourceFileStore fileStore, final ExternalResourceMetaData metaData) {
         return cacheLockingManager.useCache(new Factory<LocallyAvailableExternalResource>() {
             public LocallyAvailableExternalResource create() {
-                LocallyAvailableResource cachedResource = fileStore.moveIntoCache(destination);
+                LocallyAvailableResource cachedResource = fileStore.moveIntoCache(destination, sha1);
                 File fileInFileStore = cachedResource.getFile();
                 cachedExternalResourceIndex.store(source.toString(), fileInFileStore, metaData);
                 return fileResourceRepository.resource(fileInFileStore, source.getUri(), metaData);
@@ -231,6 +233,7 @@ public class DefaultCacheAwareExternalResourceAccessor implements CacheAwareExte
         private final ExternalResourceName source;
         File destination;
         ExternalResourceMetaData metaData;
+        HashValue sha1;
 
         DownloadAction(ExternalResourceName source) {
             this.source = source;
@@ -244,12 +247,19 @@ public class DefaultCacheAwareExternalResourceAccessor implements CacheAwareExte
             if (destination.getParentFile() != null) {
                 GFileUtils.mkdirs(destination.getParentFile());
             }
-            FileOutputStream outputStream = new FileOutputStream(destination);
+            // Calculate the SHA1 as the content is written, so that the file does not need to be read again to verify it or to add it to the file store
+            HashingOutputStream outputStream = new HashingOutputStream(Hashing.sha1(), new FileOutputStream(destination));
             try {
                 IOUtils.copyLarge(inputStream, outputStream);
             } finally {
                 outputStream.close();
             }
+            sha1 = new HashValue(outputStream.hash().toByteArray());
+            HashValue expectedSha1 = metaData.getSha1();
+            if (expectedSha1 != null && !expectedSha1.equals(sha1)) {
+                destination.delete();
+                throw new IOException(String.format("Checksum verification failed for %s. Expected SHA1 %s but was %s.", source, expectedSha1.asHexString(), sha1.asHexString()));
+            }
             return null;
         }
     }
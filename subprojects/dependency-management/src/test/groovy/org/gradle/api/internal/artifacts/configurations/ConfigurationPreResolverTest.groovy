@@ -0,0 +1,171 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.configurations
+
+import org.gradle.api.Task
+import org.gradle.api.artifacts.Configuration
+import org.gradle.api.artifacts.ConfigurationContainer
+import org.gradle.api.execution.TaskExecutionGraph
+import org.gradle.api.internal.GradleInternal
+import org.gradle.api.internal.TaskInputsInternal
+import org.gradle.api.internal.file.FileCollectionInternal
+import org.gradle.api.internal.file.FileCollectionVisitor
+import org.gradle.api.internal.project.ProjectInternal
+import org.gradle.internal.operations.TestBuildOperationExecutor
+import org.gradle.internal.resources.ResourceLock
+import org.gradle.internal.work.WorkerLeaseService
+import org.gradle.util.Path
+import spock.lang.Specification
+
+class ConfigurationPreResolverTest extends Specification {
+    def buildOperationExecutor = new TestBuildOperationExecutor()
+    def workerLeaseService = Mock(WorkerLeaseService)
+    def taskGraph = Mock(TaskExecutionGraph)
+    def projectLock = Mock(ResourceLock)
+
+    def "does nothing when not enabled"() {
+        def preResolver = new ConfigurationPreResolver(buildOperationExecutor, workerLeaseService, false)
+
+        when:
+        preResolver.prepareForExecution(taskGraph)
+
+        then:
+        0 * _
+    }
+
+    def "resolves unresolved configurations used as task inputs while holding the project lock"() {
+        def preResolver = new ConfigurationPreResolver(buildOperationExecutor, workerLeaseService, true)
+        def project = project(":a")
+        def compileClasspath = configuration("compileClasspath", project)
+        def runtimeClasspath = configuration("runtimeClasspath", project)
+        def alreadyResolved = configuration("resolved", project, Configuration.State.RESOLVED)
+        def notResolvable = configuration("api", project, Configuration.State.UNRESOLVED, false)
+        def task1 = task(project, compileClasspath, alreadyResolved)
+        def task2 = task(project, compileClasspath, runtimeClasspath, notResolvable)
+
+        given:
+        taskGraph.allTasks >> [task1, task2]
+
+        when:
+        preResolver.prepareForExecution(taskGraph)
+
+        then:
+        1 * workerLeaseService.getProjectLock(":", ":a") >> projectLock
+        1 * workerLeaseService.withLocks([projectLock] as Set, _ as Runnable) >> { locks, Runnable action -> action.run() }
+
+        then:
+        1 * compileClasspath.preResolve()
+        1 * runtimeClasspath.preResolve()
+        0 * alreadyResolved.preResolve()
+        0 * notResolvable.preResolve()
+        buildOperationExecutor.operations*.displayName == ["Resolve configurations of project ':a'"]
+    }
+
+    def "resolves configurations of each project separately"() {
+        def preResolver = new ConfigurationPreResolver(buildOperationExecutor, workerLeaseService, true)
+        def projectA = project(":a")
+        def projectB = project(":b")
+        def configurationA = configuration("compileClasspath", projectA)
+        def configurationB = configuration("compileClasspath", projectB)
+
+        given:
+        taskGraph.allTasks >> [task(projectA, configurationA), task(projectB, configurationB)]
+        workerLeaseService.withLocks(_, _ as Runnable) >> { locks, Runnable action -> action.run() }
+
+        when:
+        preResolver.prepareForExecution(taskGraph)
+
+        then:
+        1 * workerLeaseService.getProjectLock(":", ":a") >> projectLock
+        1 * workerLeaseService.getProjectLock(":", ":b") >> projectLock
+        1 * configurationA.preResolve()
+        1 * configurationB.preResolve()
+        buildOperationExecutor.operations.size() == 2
+    }
+
+    def "ignores configurations owned by another project"() {
+        def preResolver = new ConfigurationPreResolver(buildOperationExecutor, workerLeaseService, true)
+        def projectA = project(":a")
+        def projectB = project(":b")
+        def configurationB = configuration("compileClasspath", projectB)
+
+        given:
+        taskGraph.allTasks >> [task(projectA, configurationB)]
+
+        when:
+        preResolver.prepareForExecution(taskGraph)
+
+        then:
+        0 * workerLeaseService._
+        0 * configurationB.preResolve()
+    }
+
+    def "skips tasks whose inputs cannot be calculated yet"() {
+        def preResolver = new ConfigurationPreResolver(buildOperationExecutor, workerLeaseService, true)
+        def task = Mock(Task)
+        def inputs = Mock(TaskInputsInternal)
+        def files = Mock(FileCollectionInternal)
+
+        given:
+        taskGraph.allTasks >> [task]
+        task.project >> project(":a")
+        task.inputs >> inputs
+        inputs.files >> files
+        files.visitRootElements(_) >> { throw new IllegalStateException("not yet") }
+
+        when:
+        preResolver.prepareForExecution(taskGraph)
+
+        then:
+        noExceptionThrown()
+        0 * workerLeaseService._
+    }
+
+    def project(String path) {
+        def project = Mock(ProjectInternal)
+        def gradle = Mock(GradleInternal)
+        def configurations = Mock(ConfigurationContainer)
+        _ * project.gradle >> gradle
+        _ * project.identityPath >> Path.path(path)
+        _ * project.displayName >> "project '$path'"
+        _ * project.configurations >> configurations
+        _ * gradle.identityPath >> Path.ROOT
+        return project
+    }
+
+    def configuration(String name, ProjectInternal project, Configuration.State state = Configuration.State.UNRESOLVED, boolean canBeResolved = true) {
+        def configuration = Mock(ConfigurationInternal)
+        _ * configuration.name >> name
+        _ * configuration.state >> state
+        _ * configuration.canBeResolved >> canBeResolved
+        _ * project.configurations.findByName(name) >> configuration
+        return configuration
+    }
+
+    def task(ProjectInternal project, ConfigurationInternal... configurations) {
+        def task = Mock(Task)
+        def inputs = Mock(TaskInputsInternal)
+        def files = Mock(FileCollectionInternal)
+        _ * task.project >> project
+        _ * task.inputs >> inputs
+        _ * inputs.files >> files
+        _ * files.visitRootElements(_) >> { FileCollectionVisitor visitor ->
+            configurations.each { visitor.visitCollection(it) }
+        }
+        return task
+    }
+}
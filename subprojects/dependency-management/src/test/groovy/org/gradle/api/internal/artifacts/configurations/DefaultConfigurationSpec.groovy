@@ -912,6 +912,31 @@ class DefaultConfigurationSpec extends Specification {
         1 * action.execute(config.incoming)
     }
 
+    def "failure to pre-resolve is thrown by the first use of the configuration"() {
+        Action<ResolvableDependencies> action = Mock()
+        def failure = new RuntimeException("broken")
+        def config = conf("conf")
+
+        given:
+        config.incoming.beforeResolve(action)
+
+        when:
+        config.preResolve()
+
+        then:
+        1 * action.execute(config.incoming) >> { throw failure }
+        noExceptionThrown()
+        config.state == UNRESOLVED
+
+        when:
+        config.resolvedConfiguration
+
+        then:
+        def e = thrown(RuntimeException)
+        e == failure || e.cause == failure
+        0 * action.execute(_)
+    }
+
     def "calls beforeResolve closure on incoming dependencies set when dependencies are resolved"() {
         def config = conf("conf")
         resolveConfig(config)
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve
+
+import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.time.Clock
+import spock.lang.Specification
+
+class ModuleGroupAbsenceIndexTest extends Specification {
+    def clock = Mock(Clock)
+    def cachePolicy = Mock(CachePolicy)
+    def index = new ModuleGroupAbsenceIndex(clock, true)
+    def module = DefaultModuleComponentIdentifier.newId("org", "a", "1.0")
+    def otherModuleInGroup = DefaultModuleComponentIdentifier.newId("org", "b", "1.0")
+    def moduleInOtherGroup = DefaultModuleComponentIdentifier.newId("com", "a", "1.0")
+
+    def setup() {
+        _ * clock.currentTime >>> [1000, 3000]
+    }
+
+    def "group is known absent once a module of the group is missing from the repository"() {
+        when:
+        index.moduleMissing("repo", module)
+
+        then:
+        index.isKnownAbsent("repo", otherModuleInGroup, cachePolicy)
+        1 * cachePolicy.mustRefreshMissingModule(otherModuleInGroup, 2000) >> false
+
+        and:
+        !index.isKnownAbsent("other", otherModuleInGroup, cachePolicy)
+        !index.isKnownAbsent("repo", moduleInOtherGroup, cachePolicy)
+    }
+
+    def "group is not absent once a module of the group is present in the repository"() {
+        when:
+        index.moduleMissing("repo", module)
+        index.modulePresent("repo", otherModuleInGroup)
+        index.moduleMissing("repo", module)
+
+        then:
+        !index.isKnownAbsent("repo", module, cachePolicy)
+        0 * cachePolicy._
+    }
+
+    def "absence expires according to the cache policy for missing modules"() {
+        when:
+        index.moduleMissing("repo", module)
+
+        then:
+        !index.isKnownAbsent("repo", otherModuleInGroup, cachePolicy)
+        1 * cachePolicy.mustRefreshMissingModule(otherModuleInGroup, 2000) >> true
+
+        and:
+        !index.isKnownAbsent("repo", otherModuleInGroup, cachePolicy)
+        0 * cachePolicy._
+    }
+
+    def "does nothing when not enabled"() {
+        def index = new ModuleGroupAbsenceIndex(clock, false)
+
+        when:
+        index.moduleMissing("repo", module)
+
+        then:
+        !index.isKnownAbsent("repo", module, cachePolicy)
+        0 * cachePolicy._
+    }
+}
@@ -82,7 +82,7 @@ class ResolveIvyFactoryTest extends Specification {
         versionParser = new VersionParser()
 
         resolveIvyFactory = new ResolveIvyFactory(cacheProvider, startParameterResolutionOverride, buildCommencedTimeProvider,
-            versionSelectorScheme, versionComparator, moduleIdentifierFactory, repositoryBlacklister, versionParser)
+            versionSelectorScheme, versionComparator, moduleIdentifierFactory, repositoryBlacklister, versionParser, Stub(ModuleGroupAbsenceIndex))
     }
 
     def "returns an empty resolver when no repositories are configured" () {
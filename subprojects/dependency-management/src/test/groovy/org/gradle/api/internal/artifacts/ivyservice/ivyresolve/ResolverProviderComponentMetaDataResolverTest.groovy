@@ -21,6 +21,7 @@ import org.gradle.api.Transformer
 import org.gradle.api.artifacts.ModuleVersionIdentifier
 import org.gradle.api.artifacts.ModuleVersionSelector
 import org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier
+import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy
 import org.gradle.api.internal.artifacts.ivyservice.IvyUtil
 import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
 import org.gradle.internal.component.external.model.ModuleComponentResolveMetadata
@@ -42,7 +43,9 @@ class ResolverProviderComponentMetaDataResolverTest extends Specification {
     def remoteAccess2 = Mock(ModuleComponentRepositoryAccess)
 
     final VersionedComponentChooser componentSelectionStrategy = Mock(VersionedComponentChooser)
-    final RepositoryChainComponentMetaDataResolver resolver = new RepositoryChainComponentMetaDataResolver(componentSelectionStrategy, transformer)
+    final ModuleGroupAbsenceIndex absenceIndex = Mock(ModuleGroupAbsenceIndex)
+    final CachePolicy cachePolicy = Stub(CachePolicy)
+    final RepositoryChainComponentMetaDataResolver resolver = new RepositoryChainComponentMetaDataResolver(componentSelectionStrategy, transformer, absenceIndex, cachePolicy)
 
     ModuleVersionIdentifier moduleVersionIdentifier(ModuleDescriptor moduleDescriptor) {
         def moduleRevId = moduleDescriptor.moduleRevisionId
@@ -62,6 +65,7 @@ class ResolverProviderComponentMetaDataResolverTest extends Specification {
             getLocalAccess() >> repoLocalAccess
             getRemoteAccess() >> repoRemoteAccess
             getName() >> name
+            getId() >> name
         }
         resolver.add(repo)
         repo
@@ -555,6 +559,59 @@ class ResolverProviderComponentMetaDataResolverTest extends Specification {
         0 * result._
     }
 
+    def "consults repositories from which the module group is known to be absent last"() {
+        given:
+        addRepo1()
+        def repo2 = addRepo2()
+        absenceIndex.isKnownAbsent("repo1", moduleComponentId, cachePolicy) >> true
+
+        when:
+        resolver.resolve(moduleComponentId, componentRequestMetaData, result)
+
+        then:
+        1 * localAccess2.resolveComponentMetaData(moduleComponentId, componentRequestMetaData, _)
+        1 * remoteAccess2.resolveComponentMetaData(moduleComponentId, componentRequestMetaData, _) >> { id, meta, result ->
+            result.resolved(metaData)
+        }
+        1 * absenceIndex.modulePresent("repo2", moduleComponentId)
+        1 * transformer.transform(_) >> { RepositoryChainModuleResolution it ->
+            assert it.repository == repo2
+            metaData
+        }
+        1 * result.resolved(_)
+
+        and:
+        0 * localAccess._
+        0 * remoteAccess._
+        0 * result._
+    }
+
+    def "still consults repositories from which the module group is known to be absent when no other repository has the module"() {
+        given:
+        addRepo1()
+        addRepo2()
+        absenceIndex.isKnownAbsent("repo1", moduleComponentId, cachePolicy) >> true
+
+        when:
+        resolver.resolve(moduleComponentId, componentRequestMetaData, result)
+
+        then:
+        1 * localAccess2.resolveComponentMetaData(moduleComponentId, componentRequestMetaData, _)
+        1 * remoteAccess2.resolveComponentMetaData(moduleComponentId, componentRequestMetaData, _) >> { id, meta, result ->
+            result.missing()
+        }
+        1 * absenceIndex.moduleMissing("repo2", moduleComponentId)
+
+        then:
+        1 * localAccess.resolveComponentMetaData(moduleComponentId, componentRequestMetaData, _)
+        1 * remoteAccess.resolveComponentMetaData(moduleComponentId, componentRequestMetaData, _) >> { id, meta, result ->
+            result.resolved(metaData)
+        }
+        1 * absenceIndex.modulePresent("repo1", moduleComponentId)
+        1 * transformer.transform(_) >> metaData
+        1 * result.resolved(_)
+    }
+
     def descriptor(String version) {
         def descriptor = Stub(ModuleDescriptor)
         descriptor.resolvedModuleRevisionId >> IvyUtil.createModuleRevisionId("org", "module", version)
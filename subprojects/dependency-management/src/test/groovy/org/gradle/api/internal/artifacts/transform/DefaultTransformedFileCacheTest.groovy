@@ -40,7 +40,7 @@ class DefaultTransformedFileCacheTest extends ConcurrentSpec {
     def cacheRepo = new DefaultCacheRepository(scopeMapping, new InMemoryCacheFactory())
     def decorator = Stub(InMemoryCacheDecoratorFactory)
     def snapshotter = Mock(FileSystemSnapshotter)
-    TransformedFileCache cache
+    DefaultTransformedFileCache cache
 
     def setup() {
         scopeMapping.getBaseDirectory(_, _, _) >> tmpDir.testDirectory
@@ -345,6 +345,38 @@ class DefaultTransformedFileCacheTest extends ConcurrentSpec {
         0 * transform._
     }
 
+    def "records how results were produced"() {
+        def transform = Mock(BiFunction)
+        def inputFile = tmpDir.file("a")
+
+        given:
+        _ * snapshotter.snapshotAll(inputFile) >> snapshot(HashCode.fromInt(456))
+        _ * transform.apply(inputFile, _) >>  { File file, File dir -> def r = new File(dir, "a.1"); r.text = "result"; [r] }
+
+        when:
+        cache.getResult(inputFile, HashCode.fromInt(123), transform)
+        cache.getResult(inputFile, HashCode.fromInt(123), transform)
+        cache.getResult(inputFile, HashCode.fromInt(123), transform)
+
+        then:
+        def statistics = cache.statistics
+        statistics.executions == 1
+        statistics.inMemoryHits == 2
+        statistics.persistentHits == 0
+        statistics.requestCount == 3
+
+        when:
+        cache.beforeComplete()
+        cache.getResult(inputFile, HashCode.fromInt(123), transform)
+
+        then:
+        def nextBuild = cache.statistics
+        nextBuild.executions == 0
+        nextBuild.inMemoryHits == 0
+        nextBuild.persistentHits == 1
+        nextBuild.toString() == "Artifact transforms cache: 1 requested, 0 in-memory hits, 1 persistent hits, 0 executed (100% hit rate)"
+    }
+
     def snapshot(HashCode hashCode) {
         FileCollectionSnapshot snapshot = Stub(FileCollectionSnapshot)
         snapshot.appendToHasher(_) >> { BuildCacheHasher hasher -> hasher.putHash(hashCode) }
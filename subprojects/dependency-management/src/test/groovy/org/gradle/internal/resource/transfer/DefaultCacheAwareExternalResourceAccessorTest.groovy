@@ -20,6 +20,7 @@ import org.gradle.api.Transformer
 import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager
 import org.gradle.api.internal.artifacts.ivyservice.resolutionstrategy.DefaultExternalResourceCachePolicy
 import org.gradle.api.internal.file.TemporaryFileProvider
+import org.gradle.api.resources.ResourceException
 import org.gradle.cache.internal.ProducerGuard
 import org.gradle.internal.hash.HashUtil
 import org.gradle.internal.resource.ExternalResource
@@ -60,6 +61,7 @@ class DefaultCacheAwareExternalResourceAccessorTest extends Specification {
             factory.create()
         }
     }
+    final emptySha1 = HashUtil.sha1(new byte[0])
     final cache = new DefaultCacheAwareExternalResourceAccessor(repository, index, timeProvider, temporaryFileProvider, cacheLockingManager, cachePolicy, producerGuard, fileRepository)
 
     def "returns null when the request resource is not cached and does not exist in the remote repository"() {
@@ -127,17 +129,80 @@ class DefaultCacheAwareExternalResourceAccessorTest extends Specification {
         1 * remoteResource.withContentIfPresent(_) >> { ExternalResource.ContentAction a ->
             a.execute(new ByteArrayInputStream(), metaData)
         }
+        _ * metaData.sha1 >> null
 
         and:
         1 * cacheLockingManager.useCache(_) >> { org.gradle.internal.Factory factory ->
             return factory.create()
         }
-        1 * fileStore.moveIntoCache(tempFile) >> localResource
+        1 * fileStore.moveIntoCache(tempFile, emptySha1) >> localResource
         1 * index.store("thing", cachedFile, metaData)
         1 * fileRepository.resource(cachedFile, location.uri, metaData) >> cachedResource
         0 * _._
     }
 
+    def "downloads resource and moves it into the cache when checksum in meta-data matches the downloaded content"() {
+        def location = new ExternalResourceName("thing")
+        def fileStore = Mock(CacheAwareExternalResourceAccessor.ResourceFileStore)
+        def remoteResource = Mock(ExternalResource)
+        def metaData = Mock(ExternalResourceMetaData)
+        def content = "some content".bytes
+        def sha1 = HashUtil.sha1(content)
+        def localResource = new DefaultLocallyAvailableResource(cachedFile)
+        def cachedResource = Stub(LocallyAvailableExternalResource)
+
+        when:
+        def result = cache.getResource(location, null, fileStore, null)
+
+        then:
+        result == cachedResource
+
+        and:
+        1 * index.lookup("thing") >> null
+        1 * repository.withProgressLogging() >> progressLoggingRepo
+        1 * progressLoggingRepo.resource(location) >> remoteResource
+        1 * remoteResource.withContentIfPresent(_) >> { ExternalResource.ContentAction a ->
+            a.execute(new ByteArrayInputStream(content), metaData)
+        }
+        _ * metaData.sha1 >> sha1
+
+        and:
+        1 * cacheLockingManager.useCache(_) >> { org.gradle.internal.Factory factory ->
+            return factory.create()
+        }
+        1 * fileStore.moveIntoCache(tempFile, sha1) >> localResource
+        1 * index.store("thing", cachedFile, metaData)
+        1 * fileRepository.resource(cachedFile, location.uri, metaData) >> cachedResource
+        0 * _._
+    }
+
+    def "fails when downloaded content does not match checksum in meta-data"() {
+        def location = new ExternalResourceName("thing")
+        def fileStore = Mock(CacheAwareExternalResourceAccessor.ResourceFileStore)
+        def remoteResource = Mock(ExternalResource)
+        def metaData = Mock(ExternalResourceMetaData)
+
+        when:
+        cache.getResource(location, null, fileStore, null)
+
+        then:
+        def e = thrown(ResourceException)
+        e.cause.message.startsWith("Checksum verification failed for thing.")
+
+        and:
+        1 * index.lookup("thing") >> null
+        1 * repository.withProgressLogging() >> progressLoggingRepo
+        1 * progressLoggingRepo.resource(location) >> remoteResource
+        1 * remoteResource.withContentIfPresent(_) >> { ExternalResource.ContentAction a ->
+            a.execute(new ByteArrayInputStream("some content".bytes), metaData)
+        }
+        _ * metaData.sha1 >> HashUtil.sha1("other content".bytes)
+        0 * _._
+
+        and:
+        !tempFile.exists()
+    }
+
     def "reuses cached resource if it has not expired"() {
         def location = new ExternalResourceName("scheme:thing")
         def fileStore = Mock(CacheAwareExternalResourceAccessor.ResourceFileStore)
@@ -205,7 +270,7 @@ class DefaultCacheAwareExternalResourceAccessorTest extends Specification {
         1 * cacheLockingManager.useCache(_) >> { org.gradle.internal.Factory factory ->
             return factory.create()
         }
-        1 * fileStore.moveIntoCache(tempFile) >> localResource
+        1 * fileStore.moveIntoCache(tempFile, emptySha1) >> localResource
         1 * index.store("thing", cachedFile, remoteMetaData)
         1 * fileRepository.resource(cachedFile, location.uri, remoteMetaData) >> resultResource
         0 * _._
@@ -254,7 +319,7 @@ class DefaultCacheAwareExternalResourceAccessorTest extends Specification {
         1 * cacheLockingManager.useCache(_) >> { org.gradle.internal.Factory factory ->
             return factory.create()
         }
-        1 * fileStore.moveIntoCache(tempFile) >> localResource
+        1 * fileStore.moveIntoCache(tempFile, emptySha1) >> localResource
         1 * index.store("thing", cachedFile, remoteMetaData)
         1 * fileRepository.resource(cachedFile, location.uri, remoteMetaData) >> resultResource
         0 * _._
@@ -301,7 +366,7 @@ class DefaultCacheAwareExternalResourceAccessorTest extends Specification {
         1 * cacheLockingManager.useCache(_) >> { org.gradle.internal.Factory factory ->
             return factory.create()
         }
-        1 * fileStore.moveIntoCache(tempFile) >> localResource
+        1 * fileStore.moveIntoCache(tempFile, emptySha1) >> localResource
         1 * index.store("thing", cachedFile, remoteMetaData)
         1 * fileRepository.resource(cachedFile, location.uri, remoteMetaData) >> resultResource
         0 * _._
@@ -351,7 +416,7 @@ class DefaultCacheAwareExternalResourceAccessorTest extends Specification {
         1 * cacheLockingManager.useCache(_) >> { org.gradle.internal.Factory factory ->
             return factory.create()
         }
-        1 * fileStore.moveIntoCache(tempFile) >> localResource
+        1 * fileStore.moveIntoCache(tempFile, emptySha1) >> localResource
         1 * index.store("thing", cachedFile, remoteMetaData)
         1 * fileRepository.resource(cachedFile, location.uri, remoteMetaData) >> resultResource
         0 * _._
@@ -406,7 +471,7 @@ class DefaultCacheAwareExternalResourceAccessorTest extends Specification {
         1 * cacheLockingManager.useCache(_) >> { org.gradle.internal.Factory factory ->
             return factory.create()
         }
-        1 * fileStore.moveIntoCache(tempFile) >> localResource
+        1 * fileStore.moveIntoCache(tempFile, emptySha1) >> localResource
         1 * index.store("thing", cachedFile, remoteMetaData)
         1 * fileRepository.resource(cachedFile, location.uri, remoteMetaData) >> resultResource
         0 * _._
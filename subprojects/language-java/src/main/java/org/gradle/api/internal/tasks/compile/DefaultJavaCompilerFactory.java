@@ -31,13 +31,15 @@ public class DefaultJavaCompilerFactory implements JavaCompilerFactory {
     private final Factory<JavaCompiler> javaHomeBasedJavaCompilerFactory;
     private final FileResolver fileResolver;
     private final ExecHandleFactory execHandleFactory;
+    private final JavacFileManagerPool fileManagerPool;
 
-    public DefaultJavaCompilerFactory(WorkerDirectoryProvider workingDirProvider, WorkerDaemonFactory workerDaemonFactory, Factory<JavaCompiler> javaHomeBasedJavaCompilerFactory, FileResolver fileResolver, ExecHandleFactory execHandleFactory) {
+    public DefaultJavaCompilerFactory(WorkerDirectoryProvider workingDirProvider, WorkerDaemonFactory workerDaemonFactory, Factory<JavaCompiler> javaHomeBasedJavaCompilerFactory, FileResolver fileResolver, ExecHandleFactory execHandleFactory, JavacFileManagerPool fileManagerPool) {
         this.workingDirProvider = workingDirProvider;
         this.workerDaemonFactory = workerDaemonFactory;
         this.javaHomeBasedJavaCompilerFactory = javaHomeBasedJavaCompilerFactory;
         this.fileResolver = fileResolver;
         this.execHandleFactory = execHandleFactory;
+        this.fileManagerPool = fileManagerPool;
     }
 
     @Override
@@ -60,11 +62,10 @@ public class DefaultJavaCompilerFactory implements JavaCompilerFactory {
             return new CommandLineJavaCompiler(execHandleFactory);
         }
 
-        Compiler<JavaCompileSpec> compiler = new JdkJavaCompiler(javaHomeBasedJavaCompilerFactory);
         if (ForkingJavaCompileSpec.class.isAssignableFrom(type) && !jointCompilation) {
-            return new DaemonJavaCompiler(workingDirProvider.getIdleWorkingDirectory(), compiler, workerDaemonFactory, fileResolver);
+            return new DaemonJavaCompiler(workingDirProvider.getIdleWorkingDirectory(), new JdkJavaCompiler(javaHomeBasedJavaCompilerFactory), workerDaemonFactory, fileResolver);
         }
 
-        return compiler;
+        return new JdkJavaCompiler(javaHomeBasedJavaCompilerFactory, JavacFileManagerPool.isEnabled() ? fileManagerPool : null);
     }
 }
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableSet;
+import org.gradle.internal.hash.FileHasher;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.os.OperatingSystem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Keeps javac file managers alive between in-process compilations, so that the jars on the classpath are opened and indexed once per daemon rather than once per compile task.
+ *
+ * <p>A file manager is only handed to a compilation that passes javac the same set of options, so no location set by a previous compilation leaks into the next one.
+ * The content hash of each jar a file manager has read is recorded, and a file manager is discarded as soon as one of those jars is found to have changed.</p>
+ *
+ * <p>An idle file manager keeps the jars it has read open. On Windows, this would prevent those jars from being deleted or replaced, so the pool is never used there.</p>
+ */
+public class JavacFileManagerPool implements Closeable {
+    public static final String ENABLED_PROPERTY = "org.gradle.internal.java.compile.server";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JavacFileManagerPool.class);
+    private static final int MAX_IDLE_FILE_MANAGERS = 8;
+    private static final Set<String> PATH_OPTIONS = ImmutableSet.of(
+        "-classpath", "-cp", "--class-path",
+        "-bootclasspath", "--boot-class-path",
+        "--module-path", "-p", "--upgrade-module-path",
+        "-sourcepath", "--source-path", "--module-source-path",
+        "-processorpath", "--processor-path", "--processor-module-path");
+    private static final Splitter PATH_SPLITTER = Splitter.on(File.pathSeparatorChar).omitEmptyStrings();
+
+    private final FileHasher fileHasher;
+    private final LinkedList<PooledFileManager> idle = new LinkedList<PooledFileManager>();
+    private boolean closed;
+
+    public JavacFileManagerPool(FileHasher fileHasher) {
+        this.fileHasher = fileHasher;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY) && !OperatingSystem.current().isWindows();
+    }
+
+    /**
+     * Returns a file manager for a compilation with the given options. The file manager must be handed back using {@link #release(PooledFileManager, boolean)}.
+     */
+    public PooledFileManager acquire(JavaCompiler compiler, @Nullable Charset charset, List<String> options) {
+        Map<File, HashCode> jarHashes = hashJars(options);
+        Set<String> optionNames = optionNames(options);
+        PooledFileManager fileManager = takeIdle(compiler.getClass(), charset, optionNames, jarHashes);
+        if (fileManager == null) {
+            fileManager = new PooledFileManager(compiler.getStandardFileManager(null, null, charset), compiler.getClass(), charset, optionNames);
+        }
+        fileManager.jarHashes.putAll(jarHashes);
+        return fileManager;
+    }
+
+    /**
+     * Hands a file manager back to the pool.
+     *
+     * @param reusable whether the compilation completed normally, leaving the file manager in a state where it can be used again.
+     */
+    public void release(PooledFileManager fileManager, boolean reusable) {
+        if (reusable) {
+            try {
+                fileManager.getFileManager().flush();
+            } catch (IOException e) {
+                reusable = false;
+            }
+        }
+        PooledFileManager evicted = null;
+        synchronized (this) {
+            if (reusable && !closed) {
+                idle.addFirst(fileManager);
+                if (idle.size() > MAX_IDLE_FILE_MANAGERS) {
+                    evicted = idle.removeLast();
+                }
+            } else {
+                evicted = fileManager;
+            }
+        }
+        if (evicted != null) {
+            evicted.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        List<PooledFileManager> toClose;
+        synchronized (this) {
+            closed = true;
+            toClose = new LinkedList<PooledFileManager>(idle);
+            idle.clear();
+        }
+        for (PooledFileManager fileManager : toClose) {
+            fileManager.close();
+        }
+    }
+
+    @Nullable
+    private PooledFileManager takeIdle(Class<?> compilerType, @Nullable Charset charset, Set<String> optionNames, Map<File, HashCode> jarHashes) {
+        List<PooledFileManager> stale = new LinkedList<PooledFileManager>();
+        PooledFileManager match = null;
+        synchronized (this) {
+            Iterator<PooledFileManager> iterator = idle.iterator();
+            while (iterator.hasNext()) {
+                PooledFileManager candidate = iterator.next();
+                if (candidate.hasReadChangedJar(jarHashes)) {
+                    iterator.remove();
+                    stale.add(candidate);
+                } else if (match == null && candidate.canBeUsedFor(compilerType, charset, optionNames)) {
+                    iterator.remove();
+                    match = candidate;
+                }
+            }
+        }
+        for (PooledFileManager fileManager : stale) {
+            LOGGER.debug("Discarding javac file manager as a jar it has read has changed.");
+            fileManager.close();
+        }
+        return match;
+    }
+
+    private Map<File, HashCode> hashJars(List<String> options) {
+        Map<File, HashCode> hashes = new HashMap<File, HashCode>();
+        Iterator<String> iterator = options.iterator();
+        while (iterator.hasNext()) {
+            String option = iterator.next();
+            if (PATH_OPTIONS.contains(option) && iterator.hasNext()) {
+                for (String path : PATH_SPLITTER.split(iterator.next())) {
+                    File file = new File(path);
+                    if (file.isFile()) {
+                        hashes.put(file, fileHasher.hash(file));
+                    }
+                }
+            }
+        }
+        return hashes;
+    }
+
+    private static Set<String> optionNames(List<String> options) {
+        Set<String> names = new TreeSet<String>();
+        for (String option : options) {
+            if (option.startsWith("-") && !option.startsWith("-A")) {
+                names.add(option);
+            }
+        }
+        return names;
+    }
+
+    public static class PooledFileManager {
+        private final StandardJavaFileManager fileManager;
+        private final Class<?> compilerType;
+        private final Charset charset;
+        private final Set<String> optionNames;
+        private final Map<File, HashCode> jarHashes = new HashMap<File, HashCode>();
+
+        PooledFileManager(StandardJavaFileManager fileManager, Class<?> compilerType, @Nullable Charset charset, Set<String> optionNames) {
+            this.fileManager = fileManager;
+            this.compilerType = compilerType;
+            this.charset = charset;
+            this.optionNames = optionNames;
+        }
+
+        public StandardJavaFileManager getFileManager() {
+            return fileManager;
+        }
+
+        boolean canBeUsedFor(Class<?> compilerType, @Nullable Charset charset, Set<String> optionNames) {
+            return this.compilerType.equals(compilerType)
+                && (this.charset == null ? charset == null : this.charset.equals(charset))
+                && this.optionNames.equals(optionNames);
+        }
+
+        boolean hasReadChangedJar(Map<File, HashCode> currentHashes) {
+            for (Map.Entry<File, HashCode> entry : currentHashes.entrySet()) {
+                HashCode previous = jarHashes.get(entry.getKey());
+                if (previous != null && !previous.equals(entry.getValue())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void close() {
+            try {
+                fileManager.close();
+            } catch (IOException e) {
+                LOGGER.debug("Could not close javac file manager.", e);
+            }
+        }
+    }
+}
@@ -24,6 +24,7 @@ import org.gradle.language.base.internal.compile.Compiler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.tools.JavaCompiler;
 import javax.tools.JavaFileObject;
 import javax.tools.StandardJavaFileManager;
@@ -36,29 +37,47 @@ import java.util.Set;
 public class JdkJavaCompiler implements Compiler<JavaCompileSpec>, Serializable {
     private static final Logger LOGGER = LoggerFactory.getLogger(JdkJavaCompiler.class);
     private final Factory<JavaCompiler> javaHomeBasedJavaCompilerFactory;
+    private final transient JavacFileManagerPool fileManagerPool;
 
     public JdkJavaCompiler(Factory<JavaCompiler> javaHomeBasedJavaCompilerFactory) {
+        this(javaHomeBasedJavaCompilerFactory, null);
+    }
+
+    public JdkJavaCompiler(Factory<JavaCompiler> javaHomeBasedJavaCompilerFactory, @Nullable JavacFileManagerPool fileManagerPool) {
         this.javaHomeBasedJavaCompilerFactory = javaHomeBasedJavaCompilerFactory;
+        this.fileManagerPool = fileManagerPool;
     }
 
     @Override
     public WorkResult execute(JavaCompileSpec spec) {
         LOGGER.info("Compiling with JDK Java compiler API.");
 
+        List<String> options = new JavaCompilerArgumentsBuilder(spec).build();
+        JavaCompiler compiler = javaHomeBasedJavaCompilerFactory.create();
+        MinimalJavaCompileOptions compileOptions = spec.getCompileOptions();
+        Charset charset = compileOptions.getEncoding() != null ? Charset.forName(compileOptions.getEncoding()) : null;
         JdkJavaCompilerResult result = new JdkJavaCompilerResult();
-        JavaCompiler.CompilationTask task = createCompileTask(spec, result);
-        boolean success = task.call();
+
+        boolean success;
+        if (fileManagerPool == null) {
+            success = createCompileTask(spec, options, compiler, compiler.getStandardFileManager(null, null, charset), result).call();
+        } else {
+            JavacFileManagerPool.PooledFileManager pooledFileManager = fileManagerPool.acquire(compiler, charset, options);
+            boolean reusable = false;
+            try {
+                success = createCompileTask(spec, options, compiler, pooledFileManager.getFileManager(), result).call();
+                reusable = true;
+            } finally {
+                fileManagerPool.release(pooledFileManager, reusable);
+            }
+        }
         if (!success) {
             throw new CompilationFailedException();
         }
         return result;
     }
 
-    private JavaCompiler.CompilationTask createCompileTask(JavaCompileSpec spec, JdkJavaCompilerResult result) {
-        List<String> options = new JavaCompilerArgumentsBuilder(spec).build();
-        JavaCompiler compiler = javaHomeBasedJavaCompilerFactory.create();
-        MinimalJavaCompileOptions compileOptions = spec.getCompileOptions();
-        StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(null, null, compileOptions.getEncoding() != null ? Charset.forName(compileOptions.getEncoding()) : null);
+    private JavaCompiler.CompilationTask createCompileTask(JavaCompileSpec spec, List<String> options, JavaCompiler compiler, StandardJavaFileManager standardFileManager, JdkJavaCompilerResult result) {
         Iterable<? extends JavaFileObject> compilationUnits = standardFileManager.getJavaFileObjectsFromFiles(spec.getSourceFiles());
         StandardJavaFileManager fileManager = standardFileManager;
         if (JavaVersion.current().isJava9Compatible() && emptySourcepathIn(options)) {
@@ -22,15 +22,19 @@ import org.gradle.internal.serialize.AbstractSerializer;
 import org.gradle.internal.serialize.Decoder;
 import org.gradle.internal.serialize.Encoder;
 import org.gradle.internal.serialize.IntSetSerializer;
+import org.gradle.internal.serialize.MapSerializer;
 import org.gradle.internal.serialize.SetSerializer;
 
+import java.util.Map;
 import java.util.Set;
 
+import static org.gradle.internal.serialize.BaseSerializerFactory.INTEGER_SERIALIZER;
 import static org.gradle.internal.serialize.BaseSerializerFactory.STRING_SERIALIZER;
 
 public class ClassAnalysisSerializer extends AbstractSerializer<ClassAnalysis> {
 
     private static final SetSerializer<String> STRING_SET_SERIALIZER = new SetSerializer<String>(STRING_SERIALIZER, false);
+    private static final MapSerializer<String, Integer> MEMBERS_SERIALIZER = new MapSerializer<String, Integer>(STRING_SERIALIZER, INTEGER_SERIALIZER);
 
     @Override
     public ClassAnalysis read(Decoder decoder) throws Exception {
@@ -39,7 +43,9 @@ public class ClassAnalysisSerializer extends AbstractSerializer<ClassAnalysis> {
         Set<String> classes = STRING_SET_SERIALIZER.read(decoder);
         IntSet constants = IntSetSerializer.INSTANCE.read(decoder);
         Set<String> superTypes = STRING_SET_SERIALIZER.read(decoder);
-        return new ClassAnalysis(className, classes, relatedToAll, constants, superTypes);
+        Map<String, Integer> members = MEMBERS_SERIALIZER.read(decoder);
+        Set<String> memberReferences = STRING_SET_SERIALIZER.read(decoder);
+        return new ClassAnalysis(className, classes, relatedToAll, constants, superTypes, members, memberReferences);
     }
 
     @Override
@@ -49,6 +55,8 @@ public class ClassAnalysisSerializer extends AbstractSerializer<ClassAnalysis> {
         STRING_SET_SERIALIZER.write(encoder, value.getClassDependencies());
         IntSetSerializer.INSTANCE.write(encoder, value.getConstants());
         STRING_SET_SERIALIZER.write(encoder, value.getSuperTypes());
+        MEMBERS_SERIALIZER.write(encoder, value.getMembers());
+        STRING_SET_SERIALIZER.write(encoder, value.getMemberReferences());
     }
 
 }
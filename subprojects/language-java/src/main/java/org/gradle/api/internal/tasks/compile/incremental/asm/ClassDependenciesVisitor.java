@@ -17,10 +17,12 @@
 package org.gradle.api.internal.tasks.compile.incremental.asm;
 
 import com.google.common.base.Predicate;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.ints.IntSet;
 import org.gradle.api.internal.tasks.compile.incremental.deps.ClassAnalysis;
+import org.gradle.api.internal.tasks.compile.incremental.deps.ClassMembers;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.Label;
@@ -29,6 +31,10 @@ import org.objectweb.asm.Type;
 import org.objectweb.asm.TypePath;
 
 import java.lang.annotation.RetentionPolicy;
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
 
 public class ClassDependenciesVisitor extends ClassVisitor {
@@ -40,11 +46,15 @@ public class ClassDependenciesVisitor extends ClassVisitor {
     private final IntSet constants;
     private final Set<String> superTypes;
     private final Set<String> types;
+    private final Map<String, Integer> members;
+    private final Set<String> memberReferences;
     private final Predicate<String> typeFilter;
+    private String internalName;
+    private String currentMember;
     private boolean isAnnotationType;
+    private boolean tracksMembers;
     private boolean dependencyToAll;
     private final RetentionPolicyVisitor retentionPolicyVisitor;
-    private final AnnotationVisitor annotationVisitor;
 
     private ClassDependenciesVisitor(IntSet constantsCollector) {
         this(constantsCollector, null, null, null);
@@ -55,10 +65,11 @@ public class ClassDependenciesVisitor extends ClassVisitor {
         this.constants = constantsCollector;
         this.types = types;
         this.superTypes = types == null ? null : Sets.<String>newHashSet();
+        this.members = types == null ? null : Maps.<String, Integer>newHashMap();
+        this.memberReferences = types == null ? null : Sets.<String>newHashSet();
         this.methodVisitor = types == null ? null : new MethodVisitor();
         this.fieldVisitor = types == null ? null : new FieldVisitor();
         this.retentionPolicyVisitor = types == null ? null : new RetentionPolicyVisitor();
-        this.annotationVisitor = types == null ? null : new AnnotationVisitor();
         this.typeFilter = typeFilter;
         if (reader != null) {
             collectClassDependencies(reader);
@@ -70,7 +81,8 @@ public class ClassDependenciesVisitor extends ClassVisitor {
         Set<String> classDependencies = Sets.newHashSet();
         ClassDependenciesVisitor visitor = new ClassDependenciesVisitor(constants, classDependencies, new ClassRelevancyFilter(className), reader);
         reader.accept(visitor, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
-        return new ClassAnalysis(className, classDependencies, visitor.isDependencyToAll(), constants, visitor.getSuperTypes());
+        Map<String, Integer> members = visitor.tracksMembers ? visitor.members : Collections.<String, Integer>emptyMap();
+        return new ClassAnalysis(className, classDependencies, visitor.isDependencyToAll(), constants, visitor.getSuperTypes(), members, visitor.memberReferences);
     }
 
     public static IntSet retrieveConstants(ClassReader reader) {
@@ -83,6 +95,11 @@ public class ClassDependenciesVisitor extends ClassVisitor {
     @Override
     public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
         isAnnotationType = isAnnotationType(interfaces);
+        internalName = name;
+        // Dependents can use the elements of annotation types and the constants of enums without referencing them
+        // from their constant pool, so any change to such a type is treated as a change to the type itself
+        tracksMembers = (access & (Opcodes.ACC_ANNOTATION | Opcodes.ACC_ENUM)) == 0;
+        addMember(ClassMembers.TYPE, (access + "|" + name + "|" + signature + "|" + superName + "|" + Arrays.toString(interfaces)).hashCode());
         if (superName != null) {
             // superName can be null if what we are analyzing is `java.lang.Object`
             // which can happen when a custom Java SDK is on classpath (typically, android.jar)
@@ -98,13 +115,27 @@ public class ClassDependenciesVisitor extends ClassVisitor {
 
     }
 
-    // performs a fast analysis of classes referenced in bytecode (method bodies)
+    // performs a fast analysis of classes and members referenced in bytecode (method bodies)
     // avoiding us to implement a costly visitor and potentially missing edge cases
     private void collectClassDependencies(ClassReader reader) {
         char[] charBuffer = new char[reader.getMaxStringLength()];
         for (int i = 1; i < reader.getItemCount(); i++) {
             int itemOffset = reader.getItem(i);
-            if (itemOffset > 0 && reader.readByte(itemOffset - 1) == 7) {
+            if (itemOffset <= 0) {
+                continue;
+            }
+            int tag = reader.readByte(itemOffset - 1);
+            if (tag == 9 || tag == 10 || tag == 11) {
+                // A CONSTANT_Fieldref, CONSTANT_Methodref or CONSTANT_InterfaceMethodref entry
+                String owner = reader.readClass(itemOffset, charBuffer);
+                int nameAndTypeOffset = reader.getItem(reader.readUnsignedShort(itemOffset + 2));
+                maybeAddMemberReference(Type.getObjectType(owner), reader.readUTF8(nameAndTypeOffset, charBuffer));
+            } else if (tag == 18) {
+                // A CONSTANT_InvokeDynamic entry, which names the method of the functional interface a lambda implements
+                int nameAndTypeOffset = reader.getItem(reader.readUnsignedShort(itemOffset + 2));
+                String name = reader.readUTF8(nameAndTypeOffset, charBuffer);
+                maybeAddMemberReference(Type.getReturnType(reader.readUTF8(nameAndTypeOffset + 2, charBuffer)), name);
+            } else if (tag == 7) {
                 // A CONSTANT_Class entry, read the class descriptor
                 String classDescriptor = reader.readUTF8(itemOffset, charBuffer);
                 Type type = Type.getObjectType(classDescriptor);
@@ -121,6 +152,22 @@ public class ClassDependenciesVisitor extends ClassVisitor {
         }
     }
 
+    private void maybeAddMemberReference(Type owner, String memberName) {
+        if (memberReferences != null && owner.getSort() == Type.OBJECT) {
+            String ownerName = owner.getClassName();
+            if (typeFilter.apply(ownerName)) {
+                memberReferences.add(ClassMembers.memberKey(ownerName, memberName));
+            }
+        }
+    }
+
+    private void addMember(String name, int hash) {
+        if (members != null) {
+            Integer previous = members.get(name);
+            members.put(name, previous == null ? hash : previous + hash);
+        }
+    }
+
     protected void maybeAddSuperType(String type) {
         if (superTypes != null && typeFilter.apply(type)) {
             superTypes.add(type);
@@ -148,6 +195,8 @@ public class ClassDependenciesVisitor extends ClassVisitor {
     @Override
     public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
         maybeAddDependentType(descTypeOf(desc));
+        currentMember = name;
+        addMember(name, (access + "|" + desc + "|" + signature + "|" + value).hashCode());
         if (isAccessibleConstant(access, value) && constants != null) {
             // we need to compute a hash for a constant, which is based on the name of the constant + its value
             // otherwise we miss the case where a class defines several constants with the same value, or when
@@ -171,6 +220,8 @@ public class ClassDependenciesVisitor extends ClassVisitor {
 
     @Override
     public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+        currentMember = name;
+        addMember(name, (access + "|" + desc + "|" + signature + "|" + Arrays.toString(exceptions)).hashCode());
         Type methodType = Type.getMethodType(desc);
         maybeAddDependentType(methodType.getReturnType().getClassName());
         for (Type argType : methodType.getArgumentTypes()) {
@@ -179,16 +230,34 @@ public class ClassDependenciesVisitor extends ClassVisitor {
         return methodVisitor;
     }
 
+    @Override
+    public void visitInnerClass(String name, String outerName, String innerName, int access) {
+        if (name.equals(internalName)) {
+            // the modifiers of a nested class are only recorded in the InnerClasses attribute
+            addMember(ClassMembers.TYPE, access);
+        }
+    }
+
     @Override
     public org.objectweb.asm.AnnotationVisitor visitAnnotation(String desc, boolean visible) {
         if (isAnnotationType && "Ljava/lang/annotation/Retention;".equals(desc)) {
+            addMember(ClassMembers.TYPE, desc.hashCode());
             return retentionPolicyVisitor;
         } else {
-            maybeAddDependentType(Type.getType(desc).getClassName());
-            return annotationVisitor;
+            return visitMemberAnnotation(ClassMembers.TYPE, "@", desc);
         }
     }
 
+    /**
+     * Visits an annotation of the given member, whose descriptor and values are part of the hash of the member.
+     *
+     * @param target identifies where the annotation is placed on the member, such as the index of an annotated parameter.
+     */
+    private org.objectweb.asm.AnnotationVisitor visitMemberAnnotation(String member, String target, String descriptor) {
+        maybeAddDependentType(Type.getType(descriptor).getClassName());
+        return types == null ? null : new AnnotationVisitor(member, target + descriptor);
+    }
+
     private static boolean isPrivate(int access) {
         return (access & Opcodes.ACC_PRIVATE) != 0;
     }
@@ -209,14 +278,12 @@ public class ClassDependenciesVisitor extends ClassVisitor {
 
         @Override
         public org.objectweb.asm.AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
-            maybeAddDependentType(Type.getType(descriptor).getClassName());
-            return annotationVisitor;
+            return visitMemberAnnotation(currentMember, "@", descriptor);
         }
 
         @Override
         public org.objectweb.asm.AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String descriptor, boolean visible) {
-            maybeAddDependentType(Type.getType(descriptor).getClassName());
-            return annotationVisitor;
+            return visitMemberAnnotation(currentMember, "@" + typeRef + ":" + typePath + ":", descriptor);
         }
     }
 
@@ -234,20 +301,17 @@ public class ClassDependenciesVisitor extends ClassVisitor {
 
         @Override
         public org.objectweb.asm.AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
-            maybeAddDependentType(Type.getType(descriptor).getClassName());
-            return annotationVisitor;
+            return visitMemberAnnotation(currentMember, "@", descriptor);
         }
 
         @Override
         public org.objectweb.asm.AnnotationVisitor visitParameterAnnotation(int parameter, String descriptor, boolean visible) {
-            maybeAddDependentType(Type.getType(descriptor).getClassName());
-            return annotationVisitor;
+            return visitMemberAnnotation(currentMember, "@" + parameter + ":", descriptor);
         }
 
         @Override
         public org.objectweb.asm.AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String descriptor, boolean visible) {
-            maybeAddDependentType(Type.getType(descriptor).getClassName());
-            return annotationVisitor;
+            return visitMemberAnnotation(currentMember, "@" + typeRef + ":" + typePath + ":", descriptor);
         }
     }
 
@@ -267,9 +331,18 @@ public class ClassDependenciesVisitor extends ClassVisitor {
         }
     }
 
+    /**
+     * Collects the types used by an annotation, and adds its descriptor and values to the hash of the annotated member.
+     */
     private class AnnotationVisitor extends org.objectweb.asm.AnnotationVisitor {
-        public AnnotationVisitor() {
+        private final String member;
+        private final StringBuilder content;
+        private int nesting;
+
+        public AnnotationVisitor(String member, String header) {
             super(ClassDependenciesVisitor.API);
+            this.member = member;
+            this.content = new StringBuilder(header).append('(');
         }
 
         @Override
@@ -277,17 +350,49 @@ public class ClassDependenciesVisitor extends ClassVisitor {
             if (value instanceof Type) {
                 maybeAddDependentType(((Type) value).getClassName());
             }
+            content.append(name).append('=').append(valueToString(value)).append(',');
+        }
+
+        @Override
+        public void visitEnum(String name, String descriptor, String value) {
+            content.append(name).append('=').append(descriptor).append('.').append(value).append(',');
         }
 
         @Override
         public org.objectweb.asm.AnnotationVisitor visitArray(String name) {
+            nesting++;
+            content.append(name).append("=[");
             return this;
         }
 
         @Override
         public org.objectweb.asm.AnnotationVisitor visitAnnotation(String name, String descriptor) {
             maybeAddDependentType(Type.getType(descriptor).getClassName());
+            nesting++;
+            content.append(name).append("=@").append(descriptor).append('(');
             return this;
         }
+
+        @Override
+        public void visitEnd() {
+            content.append("),");
+            if (nesting == 0) {
+                addMember(member, content.toString().hashCode());
+            } else {
+                nesting--;
+            }
+        }
+
+        private String valueToString(Object value) {
+            // primitive arrays are passed as a single value
+            if (value.getClass().isArray()) {
+                StringBuilder builder = new StringBuilder("[");
+                for (int i = 0; i < Array.getLength(value); i++) {
+                    builder.append(Array.get(value, i)).append(',');
+                }
+                return builder.append(']').toString();
+            }
+            return value.toString();
+        }
     }
 }
@@ -18,17 +18,11 @@ package org.gradle.api.internal.tasks.compile.incremental.cache;
 
 import org.gradle.api.internal.changedetection.state.InMemoryCacheDecoratorFactory;
 import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassAnalysisCache;
-import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassAnalysisSerializer;
-import org.gradle.api.internal.tasks.compile.incremental.analyzer.DefaultClassAnalysisCache;
-import org.gradle.api.internal.tasks.compile.incremental.deps.ClassAnalysis;
 import org.gradle.api.internal.tasks.compile.incremental.deps.ClassSetAnalysisData;
 import org.gradle.api.internal.tasks.compile.incremental.deps.LocalClassSetAnalysisStore;
-import org.gradle.api.internal.tasks.compile.incremental.jar.DefaultJarSnapshotCache;
 import org.gradle.api.internal.tasks.compile.incremental.jar.JarClasspathSnapshotData;
 import org.gradle.api.internal.tasks.compile.incremental.jar.JarClasspathSnapshotDataSerializer;
 import org.gradle.api.internal.tasks.compile.incremental.jar.JarSnapshotCache;
-import org.gradle.api.internal.tasks.compile.incremental.jar.JarSnapshotData;
-import org.gradle.api.internal.tasks.compile.incremental.jar.JarSnapshotDataSerializer;
 import org.gradle.api.internal.tasks.compile.incremental.jar.LocalJarClasspathSnapshotStore;
 import org.gradle.api.internal.tasks.compile.incremental.processing.AnnotationProcessorPathStore;
 import org.gradle.api.invocation.Gradle;
@@ -37,9 +31,7 @@ import org.gradle.cache.FileLockManager;
 import org.gradle.cache.PersistentCache;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.PersistentIndexedCacheParameters;
-import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.serialize.BaseSerializerFactory;
-import org.gradle.internal.serialize.HashCodeSerializer;
 import org.gradle.internal.serialize.ListSerializer;
 
 import java.io.Closeable;
@@ -49,33 +41,25 @@ import java.util.List;
 import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
 
 public class DefaultGeneralCompileCaches implements GeneralCompileCaches, Closeable {
-    private final ClassAnalysisCache classAnalysisCache;
-    private final JarSnapshotCache jarSnapshotCache;
+    private final UserHomeScopedCompileCaches userHomeScopedCompileCaches;
     private final PersistentCache cache;
     private final PersistentIndexedCache<String, JarClasspathSnapshotData> taskJarCache;
     private final PersistentIndexedCache<String, ClassSetAnalysisData> taskCompileCache;
     private final PersistentIndexedCache<String, List<File>> taskProcessorPathCache;
 
-    public DefaultGeneralCompileCaches(CacheRepository cacheRepository, Gradle gradle, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory) {
+    public DefaultGeneralCompileCaches(UserHomeScopedCompileCaches userHomeScopedCompileCaches, CacheRepository cacheRepository, Gradle gradle, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory) {
+        this.userHomeScopedCompileCaches = userHomeScopedCompileCaches;
         cache = cacheRepository
             .cache(gradle, "javaCompile")
             .withDisplayName("Java compile cache")
             .withLockOptions(mode(FileLockManager.LockMode.None)) // Lock on demand
             .open();
-        PersistentIndexedCacheParameters<HashCode, ClassAnalysis> classCacheParameters = new PersistentIndexedCacheParameters<HashCode, ClassAnalysis>("classAnalysis", new HashCodeSerializer(), new ClassAnalysisSerializer())
-            .cacheDecorator(inMemoryCacheDecoratorFactory.decorator(400000, true));
-        this.classAnalysisCache = new DefaultClassAnalysisCache(cache.createCache(classCacheParameters));
-
-        PersistentIndexedCacheParameters<HashCode, JarSnapshotData> jarCacheParameters = new PersistentIndexedCacheParameters<HashCode, JarSnapshotData>("jarAnalysis", new HashCodeSerializer(), new JarSnapshotDataSerializer())
-            .cacheDecorator(inMemoryCacheDecoratorFactory.decorator(20000, true));
-        this.jarSnapshotCache = new DefaultJarSnapshotCache(cache.createCache(jarCacheParameters));
-
         PersistentIndexedCacheParameters<String, JarClasspathSnapshotData> taskJarCacheParameters = new PersistentIndexedCacheParameters<String, JarClasspathSnapshotData>("taskJars", String.class, new JarClasspathSnapshotDataSerializer())
             .cacheDecorator(inMemoryCacheDecoratorFactory.decorator(2000, false));
         taskJarCache = cache.createCache(taskJarCacheParameters);
 
         PersistentIndexedCacheParameters<String, ClassSetAnalysisData> taskCompileCacheParameters = new PersistentIndexedCacheParameters<String, ClassSetAnalysisData>("taskHistory", String.class, new ClassSetAnalysisData.Serializer())
-            .cacheDecorator(inMemoryCacheDecoratorFactory.decorator(2000, false));
+            .cacheDecorator(inMemoryCacheDecoratorFactory.decorator(2000, false, ClassSetAnalysisData.SizeEstimator.INSTANCE));
         taskCompileCache = cache.createCache(taskCompileCacheParameters);
         PersistentIndexedCacheParameters<String, List<File>> taskProcessorPathCacheParameters = new PersistentIndexedCacheParameters<String, List<File>>("processorPath", String.class, new ListSerializer<File>(BaseSerializerFactory.FILE_SERIALIZER))
             .cacheDecorator(inMemoryCacheDecoratorFactory.decorator(2000, false));
@@ -89,12 +73,12 @@ public class DefaultGeneralCompileCaches implements GeneralCompileCaches, Closea
 
     @Override
     public ClassAnalysisCache getClassAnalysisCache() {
-        return classAnalysisCache;
+        return userHomeScopedCompileCaches.getClassAnalysisCache();
     }
 
     @Override
     public JarSnapshotCache getJarSnapshotCache() {
-        return jarSnapshotCache;
+        return userHomeScopedCompileCaches.getJarSnapshotCache();
     }
 
     @Override
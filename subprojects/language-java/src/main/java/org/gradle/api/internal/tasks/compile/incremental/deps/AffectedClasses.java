@@ -16,15 +16,23 @@
 
 package org.gradle.api.internal.tasks.compile.incremental.deps;
 
+import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
 
 public class AffectedClasses {
 
     private final DependentsSet altered;
+    private final Map<String, Set<String>> changedMembers;
     private final Set<String> addedClasses;
 
     public AffectedClasses(DependentsSet altered, Set<String> addedClasses) {
+        this(altered, Collections.<String, Set<String>>emptyMap(), addedClasses);
+    }
+
+    public AffectedClasses(DependentsSet altered, Map<String, Set<String>> changedMembers, Set<String> addedClasses) {
         this.altered = altered;
+        this.changedMembers = changedMembers;
         this.addedClasses = addedClasses;
     }
 
@@ -32,6 +40,13 @@ public class AffectedClasses {
         return altered;
     }
 
+    /**
+     * The classes of which only some members have changed, and the names of these members. These classes are not part of {@link #getAltered()}.
+     */
+    public Map<String, Set<String>> getChangedMembers() {
+        return changedMembers;
+    }
+
     public Set<String> getAdded() {
         return addedClasses;
     }
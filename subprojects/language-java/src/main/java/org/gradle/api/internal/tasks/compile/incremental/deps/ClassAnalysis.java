@@ -17,7 +17,10 @@
 package org.gradle.api.internal.tasks.compile.incremental.deps;
 
 import it.unimi.dsi.fastutil.ints.IntSet;
+import org.gradle.api.internal.changedetection.state.InMemoryCacheEntrySizeEstimator;
 
+import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -29,13 +32,21 @@ public class ClassAnalysis {
     private final boolean dependencyToAll;
     private final IntSet constants;
     private final Set<String> superTypes;
+    private final Map<String, Integer> members;
+    private final Set<String> memberReferences;
 
     public ClassAnalysis(String className, Set<String> classDependencies, boolean dependencyToAll, IntSet constants, Set<String> superTypes) {
+        this(className, classDependencies, dependencyToAll, constants, superTypes, Collections.<String, Integer>emptyMap(), Collections.<String>emptySet());
+    }
+
+    public ClassAnalysis(String className, Set<String> classDependencies, boolean dependencyToAll, IntSet constants, Set<String> superTypes, Map<String, Integer> members, Set<String> memberReferences) {
         this.className = className;
         this.classDependencies = classDependencies;
         this.dependencyToAll = dependencyToAll;
         this.constants = constants;
         this.superTypes = superTypes;
+        this.members = members;
+        this.memberReferences = memberReferences;
     }
 
     public String getClassName() {
@@ -57,4 +68,38 @@ public class ClassAnalysis {
     public Set<String> getSuperTypes() {
         return superTypes;
     }
+
+    /**
+     * The hash of the members of this class by member name, see {@link ClassMembers}. Empty when members are not tracked for this class.
+     */
+    public Map<String, Integer> getMembers() {
+        return members;
+    }
+
+    /**
+     * The members of other classes referenced by this class, as {@code className.memberName}.
+     */
+    public Set<String> getMemberReferences() {
+        return memberReferences;
+    }
+
+    /**
+     * Estimates the size of the analysis from the number of class and member names it refers to.
+     */
+    public static class SizeEstimator implements InMemoryCacheEntrySizeEstimator<ClassAnalysis> {
+        public static final SizeEstimator INSTANCE = new SizeEstimator();
+        private static final int BASE_SIZE = 256;
+        private static final int NAME_SIZE = 100;
+        private static final int CONSTANT_SIZE = 20;
+
+        private SizeEstimator() {
+        }
+
+        @Override
+        public int estimateSize(ClassAnalysis analysis) {
+            long names = analysis.classDependencies.size() + analysis.superTypes.size() + analysis.members.size() + analysis.memberReferences.size();
+            long size = BASE_SIZE + names * NAME_SIZE + (long) analysis.constants.size() * CONSTANT_SIZE;
+            return (int) Math.min(size, Integer.MAX_VALUE);
+        }
+    }
 }
@@ -40,9 +40,20 @@ public class ClassDependentsAccumulator {
     private final Map<String, IntSet> classesToConstants = new HashMap<String, IntSet>();
     private final Set<String> seenClasses = Sets.newHashSet();
     private final Multimap<String, String> parentToChildren = HashMultimap.create();
+    private final Map<String, Map<String, Integer>> classesToMembers = new HashMap<String, Map<String, Integer>>();
+    private final Multimap<String, String> memberDependents = HashMultimap.create();
+    private final boolean recordMembers;
     private String fullRebuildCause;
 
     public ClassDependentsAccumulator() {
+        this(false);
+    }
+
+    /**
+     * @param recordMembers whether to record the hashes of the members of each class. These are only compared for classes in jars, see {@link ClassMembers}.
+     */
+    public ClassDependentsAccumulator(boolean recordMembers) {
+        this.recordMembers = recordMembers;
     }
 
     public void addClass(File classFile, ClassAnalysis classAnalysis) {
@@ -51,7 +62,19 @@ public class ClassDependentsAccumulator {
     }
 
     public void addClass(ClassAnalysis classAnalysis) {
-        addClass(classAnalysis.getClassName(), classAnalysis.isDependencyToAll(), classAnalysis.getClassDependencies(), classAnalysis.getConstants(), classAnalysis.getSuperTypes());
+        String className = classAnalysis.getClassName();
+        if (seenClasses.contains(className)) {
+            return;
+        }
+        addClass(className, classAnalysis.isDependencyToAll(), classAnalysis.getClassDependencies(), classAnalysis.getConstants(), classAnalysis.getSuperTypes());
+        if (recordMembers && !classAnalysis.getMembers().isEmpty()) {
+            classesToMembers.put(className, classAnalysis.getMembers());
+        }
+        for (String memberReference : classAnalysis.getMemberReferences()) {
+            if (!memberReference.substring(0, memberReference.lastIndexOf('.')).equals(className)) {
+                memberDependents.put(memberReference, className);
+            }
+        }
     }
 
     public void addClass(String className, boolean dependencyToAll, Iterable<String> classDependencies, IntSet constants, Set<String> superTypes) {
@@ -128,7 +151,8 @@ public class ClassDependentsAccumulator {
     }
 
     public ClassSetAnalysisData getAnalysis() {
-        return new ClassSetAnalysisData(filePathToClassName, getDependentsMap(), getClassesToConstants(), asMap(parentToChildren), DependentsSet.dependents(aggregatedTypes), DependentsSet.dependents(dependentsOnAll), fullRebuildCause);
+        return new ClassSetAnalysisData(filePathToClassName, getDependentsMap(), getClassesToConstants(), asMap(parentToChildren), DependentsSet.dependents(aggregatedTypes), DependentsSet.dependents(dependentsOnAll), fullRebuildCause,
+            classesToMembers, asMap(memberDependents));
     }
 
     private static <K, V> Map<K, Set<V>> asMap(Multimap<K, V> multimap) {
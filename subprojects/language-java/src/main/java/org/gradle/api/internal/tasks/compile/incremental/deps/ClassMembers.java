@@ -0,0 +1,65 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.incremental.deps;
+
+import com.google.common.collect.Sets;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compares the members of two versions of a class.
+ *
+ * <p>The members of a class are recorded as a hash per member name, with the declaration of the class itself (modifiers, super types, signature and annotations) recorded under {@link #TYPE}.
+ * Fields and methods are hashed together when they share a name, as a new overload may change which member a dependent resolves to.</p>
+ */
+public class ClassMembers {
+    public static final String TYPE = "";
+
+    private ClassMembers() {
+    }
+
+    /**
+     * Returns the names of the members which differ between the two versions, or null when the change affects the declaration of the class or the members of either version are unknown.
+     */
+    @Nullable
+    public static Set<String> changedMembers(Map<String, Integer> previous, Map<String, Integer> current) {
+        if (previous.isEmpty() || current.isEmpty()) {
+            return null;
+        }
+        Set<String> changed = Sets.newHashSet();
+        for (Map.Entry<String, Integer> entry : previous.entrySet()) {
+            if (!entry.getValue().equals(current.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (String name : current.keySet()) {
+            if (!previous.containsKey(name)) {
+                changed.add(name);
+            }
+        }
+        if (changed.contains(TYPE)) {
+            return null;
+        }
+        return changed;
+    }
+
+    public static String memberKey(String className, String memberName) {
+        return className + '.' + memberName;
+    }
+}
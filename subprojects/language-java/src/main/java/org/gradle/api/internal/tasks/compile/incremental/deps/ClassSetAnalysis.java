@@ -21,6 +21,7 @@ import com.google.common.collect.Sets;
 import it.unimi.dsi.fastutil.ints.IntSet;
 
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 public class ClassSetAnalysis {
@@ -68,6 +69,76 @@ public class ClassSetAnalysis {
         return DependentsSet.dependents(result);
     }
 
+    /**
+     * Returns the dependents of the given classes, where for some classes only the given members have changed, see {@link ClassMembers}.
+     */
+    public DependentsSet getRelevantDependents(Iterable<String> classes, Map<String, Set<String>> changedMembers, IntSet constants) {
+        if (!constants.isEmpty()) {
+            return DependentsSet.dependencyToAll();
+        }
+        DependentsSet classDependents = getRelevantDependents(classes, constants);
+        if (classDependents.isDependencyToAll() || changedMembers.isEmpty()) {
+            return classDependents;
+        }
+        Set<String> result = Sets.newLinkedHashSet(classDependents.getDependentClasses());
+        for (Map.Entry<String, Set<String>> entry : changedMembers.entrySet()) {
+            DependentsSet d = getRelevantMemberDependents(entry.getKey(), entry.getValue());
+            if (d.isDependencyToAll()) {
+                return d;
+            }
+            result.addAll(d.getDependentClasses());
+        }
+        return result.isEmpty() ? DependentsSet.empty() : DependentsSet.dependents(result);
+    }
+
+    /**
+     * Returns the dependents of a class of which only the given members have changed. These are the classes referencing one of the members, and the subclasses, which may override them.
+     */
+    public DependentsSet getRelevantMemberDependents(String className, Set<String> changedMembers) {
+        DependentsSet deps = data.getDependents(className);
+        if (deps.isDependencyToAll()) {
+            return deps;
+        }
+        Set<String> direct = getMemberDependents(className, changedMembers);
+        direct.addAll(data.getChildren(className));
+        direct.addAll(data.getDependentsOnAll().getDependentClasses());
+        if (direct.isEmpty()) {
+            return DependentsSet.empty();
+        }
+        Set<String> result = new HashSet<String>();
+        recurseDependents(new HashSet<String>(), result, direct);
+        result.remove(className);
+        return DependentsSet.dependents(result);
+    }
+
+    /**
+     * Returns the classes referencing one of the given members of the given class.
+     */
+    public Set<String> getMemberDependents(String className, Set<String> members) {
+        Set<String> result = new HashSet<String>();
+        for (String member : members) {
+            result.addAll(data.getMemberDependents(className, member));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the given class and all of its direct and indirect subclasses.
+     */
+    public Set<String> getTypeHierarchy(String className) {
+        Set<String> result = Sets.newLinkedHashSet();
+        recurseChildren(result, className);
+        return result;
+    }
+
+    private void recurseChildren(Set<String> result, String className) {
+        if (result.add(className)) {
+            for (String child : data.getChildren(className)) {
+                recurseChildren(result, child);
+            }
+        }
+    }
+
     public DependentsSet getAggregatedTypes() {
         return data.getAggregatedTypes();
     }
@@ -20,6 +20,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import it.unimi.dsi.fastutil.ints.IntSet;
 import it.unimi.dsi.fastutil.ints.IntSets;
+import org.gradle.api.internal.changedetection.state.InMemoryCacheEntrySizeEstimator;
 import org.gradle.internal.serialize.AbstractSerializer;
 import org.gradle.internal.serialize.Decoder;
 import org.gradle.internal.serialize.Encoder;
@@ -39,8 +40,15 @@ public class ClassSetAnalysisData {
     private final DependentsSet aggregatedTypes;
     final DependentsSet dependentsOnAll;
     final String fullRebuildCause;
+    final Map<String, Map<String, Integer>> classesToMembers;
+    final Map<String, Set<String>> memberDependents;
 
     public ClassSetAnalysisData(Map<String, String> filePathToClassName, Map<String, DependentsSet> dependents, Map<String, IntSet> classesToConstants, Map<String, Set<String>> classesToChildren, DependentsSet aggregatedTypes, DependentsSet dependentsOnAll, String fullRebuildCause) {
+        this(filePathToClassName, dependents, classesToConstants, classesToChildren, aggregatedTypes, dependentsOnAll, fullRebuildCause, Collections.<String, Map<String, Integer>>emptyMap(), Collections.<String, Set<String>>emptyMap());
+    }
+
+    public ClassSetAnalysisData(Map<String, String> filePathToClassName, Map<String, DependentsSet> dependents, Map<String, IntSet> classesToConstants, Map<String, Set<String>> classesToChildren, DependentsSet aggregatedTypes, DependentsSet dependentsOnAll, String fullRebuildCause,
+                                Map<String, Map<String, Integer>> classesToMembers, Map<String, Set<String>> memberDependents) {
         this.filePathToClassName = filePathToClassName;
         this.dependents = dependents;
         this.classesToConstants = classesToConstants;
@@ -48,6 +56,8 @@ public class ClassSetAnalysisData {
         this.aggregatedTypes = aggregatedTypes;
         this.dependentsOnAll = dependentsOnAll;
         this.fullRebuildCause = fullRebuildCause;
+        this.classesToMembers = classesToMembers;
+        this.memberDependents = memberDependents;
     }
 
     public String getClassNameForFile(String filePath) {
@@ -83,6 +93,63 @@ public class ClassSetAnalysisData {
         return children == null ? Collections.<String>emptySet() : children;
     }
 
+    /**
+     * Returns the hashes of the members of the given class, see {@link ClassMembers}. Empty when the members of the class are not known.
+     */
+    public Map<String, Integer> getMembers(String className) {
+        Map<String, Integer> members = classesToMembers.get(className);
+        return members == null ? Collections.<String, Integer>emptyMap() : members;
+    }
+
+    /**
+     * Returns the classes referencing the given member of the given class.
+     */
+    public Set<String> getMemberDependents(String className, String memberName) {
+        Set<String> dependents = memberDependents.get(ClassMembers.memberKey(className, memberName));
+        return dependents == null ? Collections.<String>emptySet() : dependents;
+    }
+
+    /**
+     * Estimates the size of the analysis from the number of class names it refers to, which grows with the number of classes in the analyzed class set.
+     */
+    public static class SizeEstimator implements InMemoryCacheEntrySizeEstimator<ClassSetAnalysisData> {
+        public static final SizeEstimator INSTANCE = new SizeEstimator();
+        private static final int BASE_SIZE = 512;
+        private static final int NAME_SIZE = 100;
+        private static final int CONSTANT_SIZE = 20;
+
+        private SizeEstimator() {
+        }
+
+        @Override
+        public int estimateSize(ClassSetAnalysisData data) {
+            long names = 2L * data.filePathToClassName.size() + data.dependents.size() + data.classesToConstants.size() + data.classesToChildren.size() + data.classesToMembers.size() + data.memberDependents.size();
+            long constants = 0;
+            for (DependentsSet dependents : data.dependents.values()) {
+                names += countDependents(dependents);
+            }
+            for (IntSet classConstants : data.classesToConstants.values()) {
+                constants += classConstants.size();
+            }
+            for (Set<String> children : data.classesToChildren.values()) {
+                names += children.size();
+            }
+            for (Map<String, Integer> members : data.classesToMembers.values()) {
+                names += members.size();
+            }
+            for (Set<String> dependents : data.memberDependents.values()) {
+                names += dependents.size();
+            }
+            names += countDependents(data.aggregatedTypes) + countDependents(data.dependentsOnAll);
+            long size = BASE_SIZE + names * NAME_SIZE + constants * CONSTANT_SIZE;
+            return (int) Math.min(size, Integer.MAX_VALUE);
+        }
+
+        private static int countDependents(DependentsSet dependents) {
+            return dependents.isDependencyToAll() ? 0 : dependents.getDependentClasses().size();
+        }
+    }
+
     public static class Serializer extends AbstractSerializer<ClassSetAnalysisData> {
 
         @Override
@@ -132,7 +199,33 @@ public class ClassSetAnalysisData {
 
             String fullRebuildCause = decoder.readNullableString();
 
-            return new ClassSetAnalysisData(filePathToClassNameBuilder.build(), dependentsBuilder.build(), classesToConstantsBuilder.build(), classNameToChildren.build(), aggregatedTypes, dependentsOnAll, fullRebuildCause);
+            count = decoder.readSmallInt();
+            ImmutableMap.Builder<String, Map<String, Integer>> classesToMembersBuilder = ImmutableMap.builder();
+            for (int i = 0; i < count; i++) {
+                String className = readClassName(decoder, classNameMap);
+                int memberCount = decoder.readSmallInt();
+                ImmutableMap.Builder<String, Integer> membersBuilder = ImmutableMap.builder();
+                for (int j = 0; j < memberCount; j++) {
+                    membersBuilder.put(decoder.readString(), decoder.readInt());
+                }
+                classesToMembersBuilder.put(className, membersBuilder.build());
+            }
+
+            count = decoder.readSmallInt();
+            ImmutableMap.Builder<String, Set<String>> memberDependentsBuilder = ImmutableMap.builder();
+            for (int i = 0; i < count; i++) {
+                String className = readClassName(decoder, classNameMap);
+                String memberName = decoder.readString();
+                int nameCount = decoder.readSmallInt();
+                ImmutableSet.Builder<String> namesBuilder = ImmutableSet.builder();
+                for (int j = 0; j < nameCount; j++) {
+                    namesBuilder.add(readClassName(decoder, classNameMap));
+                }
+                memberDependentsBuilder.put(ClassMembers.memberKey(className, memberName), namesBuilder.build());
+            }
+
+            return new ClassSetAnalysisData(filePathToClassNameBuilder.build(), dependentsBuilder.build(), classesToConstantsBuilder.build(), classNameToChildren.build(), aggregatedTypes, dependentsOnAll, fullRebuildCause,
+                classesToMembersBuilder.build(), memberDependentsBuilder.build());
         }
 
         @Override
@@ -173,6 +266,28 @@ public class ClassSetAnalysisData {
             writeDependentSet(value.dependentsOnAll, classNameMap, encoder);
 
             encoder.writeNullableString(value.fullRebuildCause);
+
+            encoder.writeSmallInt(value.classesToMembers.size());
+            for (Map.Entry<String, Map<String, Integer>> entry : value.classesToMembers.entrySet()) {
+                writeClassName(entry.getKey(), classNameMap, encoder);
+                encoder.writeSmallInt(entry.getValue().size());
+                for (Map.Entry<String, Integer> member : entry.getValue().entrySet()) {
+                    encoder.writeString(member.getKey());
+                    encoder.writeInt(member.getValue());
+                }
+            }
+
+            encoder.writeSmallInt(value.memberDependents.size());
+            for (Map.Entry<String, Set<String>> entry : value.memberDependents.entrySet()) {
+                String memberKey = entry.getKey();
+                int separator = memberKey.lastIndexOf('.');
+                writeClassName(memberKey.substring(0, separator), classNameMap, encoder);
+                encoder.writeString(memberKey.substring(separator + 1));
+                encoder.writeSmallInt(entry.getValue().size());
+                for (String className : entry.getValue()) {
+                    writeClassName(className, classNameMap, encoder);
+                }
+            }
         }
 
         private DependentsSet readDependentsSet(Decoder decoder, Map<Integer, String> classNameMap) throws IOException {
@@ -44,7 +44,7 @@ class DefaultJarSnapshotter {
 
     public JarSnapshot createSnapshot(HashCode hash, JarArchive jarArchive) {
         final Map<String, HashCode> hashes = Maps.newHashMap();
-        final ClassDependentsAccumulator accumulator = new ClassDependentsAccumulator();
+        final ClassDependentsAccumulator accumulator = new ClassDependentsAccumulator(true);
 
         try {
             jarArchive.contents.visit(new JarVisitor(accumulator, hashes));
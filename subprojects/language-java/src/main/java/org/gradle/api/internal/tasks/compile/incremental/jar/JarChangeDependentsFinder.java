@@ -17,6 +17,7 @@
 package org.gradle.api.internal.tasks.compile.incremental.jar;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.gradle.api.Action;
 import org.gradle.api.internal.tasks.compile.incremental.deps.AffectedClasses;
@@ -25,6 +26,7 @@ import org.gradle.api.internal.tasks.compile.incremental.deps.DependentsSet;
 import org.gradle.api.tasks.incremental.InputFileDetails;
 
 import java.util.Deque;
+import java.util.Map;
 import java.util.Set;
 
 public class JarChangeDependentsFinder {
@@ -103,7 +105,38 @@ public class JarChangeDependentsFinder {
                     }
                 });
             }
-            return previousCompilation.getDependents(dependentClasses, currentSnapshot.getRelevantConstants(previous, dependentClasses));
+
+            //members of changed classes are inherited by the subclasses in other jars
+            final Map<String, Set<String>> changedMembers = Maps.newHashMap(affected.getChangedMembers());
+            for (final Map.Entry<String, Set<String>> entry : affected.getChangedMembers().entrySet()) {
+                final Deque<String> types = Lists.newLinkedList();
+                types.add(entry.getKey());
+                while (!types.isEmpty()) {
+                    final String type = types.poll();
+                    jarClasspathSnapshot.forEachSnapshot(new Action<JarSnapshot>() {
+                        @Override
+                        public void execute(JarSnapshot jarSnapshot) {
+                            if (jarSnapshot != previous) {
+                                for (String child : jarSnapshot.getData().data.getChildren(type)) {
+                                    Set<String> members = changedMembers.get(child);
+                                    if (members == null) {
+                                        members = Sets.newHashSet();
+                                        changedMembers.put(child, members);
+                                    }
+                                    if (members.addAll(entry.getValue())) {
+                                        types.add(child);
+                                    }
+                                }
+                            }
+                        }
+                    });
+                }
+            }
+            changedMembers.keySet().removeAll(dependentClasses);
+
+            Set<String> constantSources = Sets.newHashSet(dependentClasses);
+            constantSources.addAll(affected.getChangedMembers().keySet());
+            return previousCompilation.getDependents(dependentClasses, changedMembers, currentSnapshot.getRelevantConstants(previous, constantSources));
         }
 
         throw new IllegalArgumentException("Unknown input file details provided: " + jarChangeDetails);
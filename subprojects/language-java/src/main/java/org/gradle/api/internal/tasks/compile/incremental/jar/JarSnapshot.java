@@ -20,10 +20,12 @@ import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.ints.IntSet;
 import it.unimi.dsi.fastutil.ints.IntSets;
 import org.gradle.api.internal.tasks.compile.incremental.deps.AffectedClasses;
+import org.gradle.api.internal.tasks.compile.incremental.deps.ClassMembers;
 import org.gradle.api.internal.tasks.compile.incremental.deps.ClassSetAnalysis;
 import org.gradle.api.internal.tasks.compile.incremental.deps.DependentsSet;
 import org.gradle.internal.hash.HashCode;
 
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -68,27 +70,54 @@ public class JarSnapshot {
     }
 
     public AffectedClasses getAffectedClassesSince(JarSnapshot other) {
-        DependentsSet affectedClasses = affectedSince(other);
+        Map<String, Set<String>> changedMembers = new HashMap<String, Set<String>>();
+        DependentsSet affectedClasses = affectedSince(other, changedMembers);
         Set<String> addedClasses = addedSince(other);
-        return new AffectedClasses(affectedClasses, addedClasses);
+        return new AffectedClasses(affectedClasses, changedMembers, addedClasses);
     }
 
-    private DependentsSet affectedSince(JarSnapshot other) {
+    private DependentsSet affectedSince(JarSnapshot other, Map<String, Set<String>> changedMembers) {
         final Set<String> affected = new HashSet<String>();
+        ClassSetAnalysis otherAnalysis = other.getAnalysis();
         for (Map.Entry<String, HashCode> otherClass : other.getHashes().entrySet()) {
             String otherClassName = otherClass.getKey();
             HashCode otherClassBytes = otherClass.getValue();
             HashCode thisClsBytes = getHashes().get(otherClassName);
             if (thisClsBytes == null || !thisClsBytes.equals(otherClassBytes)) {
                 //removed since or changed since
-                affected.add(otherClassName);
-                DependentsSet dependents = other.getAnalysis().getRelevantDependents(otherClassName, IntSets.EMPTY_SET);
-                if (dependents.isDependencyToAll()) {
-                    return dependents;
+                Set<String> members = thisClsBytes == null || otherAnalysis.isDependencyToAll(otherClassName) ? null : ClassMembers.changedMembers(other.data.data.getMembers(otherClassName), data.data.getMembers(otherClassName));
+                if (members == null) {
+                    affected.add(otherClassName);
+                    DependentsSet dependents = otherAnalysis.getRelevantDependents(otherClassName, IntSets.EMPTY_SET);
+                    if (dependents.isDependencyToAll()) {
+                        return dependents;
+                    }
+                    affected.addAll(dependents.getDependentClasses());
+                    continue;
+                }
+                //only some members changed, so only the classes using these members are affected
+                //subclasses inherit the members, so their users need to be looked up as well
+                for (String type : otherAnalysis.getTypeHierarchy(otherClassName)) {
+                    if (otherAnalysis.isDependencyToAll(type)) {
+                        return otherAnalysis.getRelevantDependents(type, IntSets.EMPTY_SET);
+                    }
+                    Set<String> typeMembers = changedMembers.get(type);
+                    if (typeMembers == null) {
+                        typeMembers = new HashSet<String>();
+                        changedMembers.put(type, typeMembers);
+                    }
+                    typeMembers.addAll(members);
+                    Set<String> users = otherAnalysis.getMemberDependents(type, members);
+                    DependentsSet dependents = otherAnalysis.getRelevantDependents(users, IntSets.EMPTY_SET);
+                    if (dependents.isDependencyToAll()) {
+                        return dependents;
+                    }
+                    affected.addAll(users);
+                    affected.addAll(dependents.getDependentClasses());
                 }
-                affected.addAll(dependents.getDependentClasses());
             }
         }
+        changedMembers.keySet().removeAll(affected);
         return DependentsSet.dependents(affected);
     }
 
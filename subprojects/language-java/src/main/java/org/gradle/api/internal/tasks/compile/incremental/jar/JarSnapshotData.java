@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.tasks.compile.incremental.jar;
 
+import org.gradle.api.internal.changedetection.state.InMemoryCacheEntrySizeEstimator;
 import org.gradle.api.internal.tasks.compile.incremental.deps.ClassSetAnalysisData;
 import org.gradle.internal.hash.HashCode;
 
@@ -41,4 +42,21 @@ public class JarSnapshotData {
         this.hashes = hashes;
         this.data = data;
     }
+
+    /**
+     * Estimates the size of the snapshot from the number of classes in the jar and the size of their analysis.
+     */
+    public static class SizeEstimator implements InMemoryCacheEntrySizeEstimator<JarSnapshotData> {
+        public static final SizeEstimator INSTANCE = new SizeEstimator();
+        private static final int CLASS_HASH_SIZE = 150;
+
+        private SizeEstimator() {
+        }
+
+        @Override
+        public int estimateSize(JarSnapshotData snapshot) {
+            long size = (long) snapshot.hashes.size() * CLASS_HASH_SIZE + ClassSetAnalysisData.SizeEstimator.INSTANCE.estimateSize(snapshot.data);
+            return (int) Math.min(size, Integer.MAX_VALUE);
+        }
+    }
 }
@@ -47,6 +47,10 @@ public class PreviousCompilation {
         return analysis.getRelevantDependents(allClasses, constants);
     }
 
+    public DependentsSet getDependents(Set<String> allClasses, Map<String, Set<String>> changedMembers, IntSet constants) {
+        return analysis.getRelevantDependents(allClasses, changedMembers, constants);
+    }
+
     public String getClassName(String path) {
         return analysis.getData().getClassNameForFile(path);
     }
@@ -25,7 +25,7 @@ import javax.tools.JavaCompiler
 
 class DefaultJavaCompilerFactoryTest extends Specification {
     Factory<JavaCompiler> javaCompilerFinder = Mock()
-    def factory = new DefaultJavaCompilerFactory({new File("daemon-work-dir")}, Mock(WorkerDaemonFactory), javaCompilerFinder, Mock(FileResolver), Mock(ExecHandleFactory))
+    def factory = new DefaultJavaCompilerFactory({new File("daemon-work-dir")}, Mock(WorkerDaemonFactory), javaCompilerFinder, Mock(FileResolver), Mock(ExecHandleFactory), Mock(JavacFileManagerPool))
 
     def "creates in-process compiler when JavaCompileSpec is provided"() {
         expect:
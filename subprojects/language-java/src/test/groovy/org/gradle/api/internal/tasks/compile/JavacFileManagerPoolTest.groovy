@@ -0,0 +1,136 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile
+
+import org.gradle.internal.hash.FileHasher
+import org.gradle.internal.hash.HashCode
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.Requires
+import org.gradle.util.SetSystemProperties
+import org.gradle.util.TestPrecondition
+import org.junit.Rule
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import javax.tools.JavaCompiler
+import javax.tools.StandardJavaFileManager
+
+class JavacFileManagerPoolTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    @Rule
+    SetSystemProperties systemProperties = new SetSystemProperties()
+
+    def fileHasher = Mock(FileHasher)
+    def compiler = Mock(JavaCompiler)
+    def pool = new JavacFileManagerPool(fileHasher)
+    def jar = tmpDir.file("lib.jar").createFile()
+
+    @Requires(TestPrecondition.NOT_WINDOWS)
+    def "is enabled by system property"() {
+        expect:
+        !JavacFileManagerPool.enabled
+
+        when:
+        System.setProperty(JavacFileManagerPool.ENABLED_PROPERTY, "true")
+
+        then:
+        JavacFileManagerPool.enabled
+    }
+
+    @Requires(TestPrecondition.WINDOWS)
+    def "is never enabled on Windows, where idle file managers would lock the jars they have read"() {
+        when:
+        System.setProperty(JavacFileManagerPool.ENABLED_PROPERTY, "true")
+
+        then:
+        !JavacFileManagerPool.enabled
+    }
+
+    def "reuses file manager for compilation with same options"() {
+        def fileManager = Mock(StandardJavaFileManager)
+        fileHasher.hash(jar) >> HashCode.fromInt(1)
+
+        when:
+        def first = pool.acquire(compiler, null, ["-classpath", jar.path])
+        pool.release(first, true)
+        def second = pool.acquire(compiler, null, ["-classpath", jar.path])
+
+        then:
+        1 * compiler.getStandardFileManager(null, null, null) >> fileManager
+        1 * fileManager.flush()
+        second.fileManager == fileManager
+        0 * fileManager.close()
+    }
+
+    def "does not reuse file manager when options differ"() {
+        fileHasher.hash(jar) >> HashCode.fromInt(1)
+
+        when:
+        def first = pool.acquire(compiler, null, ["-classpath", jar.path])
+        pool.release(first, true)
+        def second = pool.acquire(compiler, null, ["-classpath", jar.path, "-bootclasspath", ""])
+
+        then:
+        2 * compiler.getStandardFileManager(null, null, null) >> { Mock(StandardJavaFileManager) }
+        second.fileManager != first.fileManager
+    }
+
+    @Unroll
+    def "discards file manager when a jar it has read from #option has changed"() {
+        def fileManager = Mock(StandardJavaFileManager)
+
+        when:
+        def first = pool.acquire(compiler, null, [option, jar.path])
+        pool.release(first, true)
+        def second = pool.acquire(compiler, null, [option, jar.path])
+
+        then:
+        2 * fileHasher.hash(jar) >>> [HashCode.fromInt(1), HashCode.fromInt(2)]
+        1 * compiler.getStandardFileManager(null, null, null) >> fileManager
+        1 * compiler.getStandardFileManager(null, null, null) >> Mock(StandardJavaFileManager)
+        1 * fileManager.close()
+        second.fileManager != fileManager
+
+        where:
+        option << ["-classpath", "--module-path", "-sourcepath", "--source-path", "-processorpath", "--processor-module-path"]
+    }
+
+    def "discards file manager that is not reusable"() {
+        def fileManager = Mock(StandardJavaFileManager)
+        compiler.getStandardFileManager(null, null, null) >> fileManager
+
+        when:
+        pool.release(pool.acquire(compiler, null, []), false)
+
+        then:
+        1 * fileManager.close()
+        0 * fileManager.flush()
+    }
+
+    def "closes idle file managers when closed"() {
+        def fileManager = Mock(StandardJavaFileManager)
+        compiler.getStandardFileManager(null, null, null) >> fileManager
+        pool.release(pool.acquire(compiler, null, []), true)
+
+        when:
+        pool.close()
+
+        then:
+        1 * fileManager.close()
+    }
+}
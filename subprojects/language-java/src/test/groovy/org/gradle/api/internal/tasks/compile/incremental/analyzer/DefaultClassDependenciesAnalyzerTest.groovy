@@ -17,6 +17,7 @@
 
 package org.gradle.api.internal.tasks.compile.incremental.analyzer
 
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.annotations.AnnotatedMembers
 import org.gradle.api.internal.tasks.compile.incremental.analyzer.annotations.SomeClassAnnotation
 import org.gradle.api.internal.tasks.compile.incremental.analyzer.annotations.SomeRuntimeAnnotation
 import org.gradle.api.internal.tasks.compile.incremental.analyzer.annotations.SomeSourceAnnotation
@@ -24,6 +25,7 @@ import org.gradle.api.internal.tasks.compile.incremental.analyzer.annotations.Us
 import org.gradle.api.internal.tasks.compile.incremental.analyzer.annotations.UsesRuntimeAnnotation
 import org.gradle.api.internal.tasks.compile.incremental.analyzer.annotations.UsesSourceAnnotation
 import org.gradle.api.internal.tasks.compile.incremental.deps.ClassAnalysis
+import org.gradle.api.internal.tasks.compile.incremental.deps.ClassMembers
 import org.gradle.api.internal.tasks.compile.incremental.test.HasInnerClass
 import org.gradle.api.internal.tasks.compile.incremental.test.HasNonPrivateConstants
 import org.gradle.api.internal.tasks.compile.incremental.test.HasPrivateConstants
@@ -103,6 +105,34 @@ class DefaultClassDependenciesAnalyzerTest extends Specification {
         analyze(SomeSourceAnnotation).dependencyToAll
     }
 
+    def "knows the members of a class and the members it references"() {
+        when:
+        def analysis = analyze(SomeOtherClass)
+
+        then:
+        analysis.members.keySet() == [ClassMembers.TYPE, "<init>", "foo"] as Set
+        analysis.memberReferences == [SomeClass.name + ".<init>", YetAnotherClass.name + ".<init>"] as Set
+    }
+
+    def "includes the annotations of fields, methods and parameters in the hash of the member"() {
+        def original = analyze(AnnotatedMembers.Original).members
+
+        expect:
+        changedMembers(original, analyze(AnnotatedMembers.ChangedFieldAnnotation).members) == ["field"] as Set
+        changedMembers(original, analyze(AnnotatedMembers.ChangedMethodAnnotation).members) == ["method"] as Set
+        changedMembers(original, analyze(AnnotatedMembers.ChangedParameterAnnotation).members) == ["method"] as Set
+    }
+
+    private static Set<String> changedMembers(Map<String, Integer> previous, Map<String, Integer> current) {
+        // the declaration of the class differs, as the class names differ
+        (previous.keySet() + current.keySet()).findAll { it != ClassMembers.TYPE && previous[it] != current[it] } as Set
+    }
+
+    def "does not track the members of annotation types"() {
+        expect:
+        analyze(SomeRuntimeAnnotation).members.isEmpty()
+    }
+
     InputStream classStream(Class aClass) {
         aClass.classLoader.getResourceAsStream(aClass.getName().replace(".", "/") + ".class")
     }
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.incremental.analyzer.annotations;
+
+public class AnnotatedMembers {
+    public static class Original {
+        @SomeValueAnnotation("a") int field;
+
+        @SomeValueAnnotation(numbers = {1, 2})
+        void method(@SomeValueAnnotation("p") String s) {
+        }
+
+        void other() {
+        }
+    }
+
+    public static class ChangedFieldAnnotation {
+        @SomeValueAnnotation("b") int field;
+
+        @SomeValueAnnotation(numbers = {1, 2})
+        void method(@SomeValueAnnotation("p") String s) {
+        }
+
+        void other() {
+        }
+    }
+
+    public static class ChangedMethodAnnotation {
+        @SomeValueAnnotation("a") int field;
+
+        @SomeValueAnnotation(numbers = {2, 1})
+        void method(@SomeValueAnnotation("p") String s) {
+        }
+
+        void other() {
+        }
+    }
+
+    public static class ChangedParameterAnnotation {
+        @SomeValueAnnotation("a") int field;
+
+        @SomeValueAnnotation(numbers = {1, 2})
+        void method(@SomeValueAnnotation("q") String s) {
+        }
+
+        void other() {
+        }
+    }
+}
@@ -100,4 +100,19 @@ class ClassDependentsAccumulatorTest extends Specification {
         accumulator.dependentsMap["b"].dependentClasses == ["a"] as Set
         accumulator.dependentsMap["a"] == null
     }
+
+    def "records members of classes only when asked to"() {
+        def analysis = new ClassAnalysis("A", [] as Set, false, IntSets.EMPTY_SET, [] as Set, ["": 1, "foo": 2], ["B.bar"] as Set)
+
+        when:
+        accumulator.addClass(analysis)
+        def withMembers = new ClassDependentsAccumulator(true)
+        withMembers.addClass(analysis)
+
+        then:
+        accumulator.analysis.getMembers("A").isEmpty()
+        accumulator.analysis.getMemberDependents("B", "bar") == ["A"] as Set
+        withMembers.analysis.getMembers("A") == ["": 1, "foo": 2]
+        withMembers.analysis.getMemberDependents("B", "bar") == ["A"] as Set
+    }
 }
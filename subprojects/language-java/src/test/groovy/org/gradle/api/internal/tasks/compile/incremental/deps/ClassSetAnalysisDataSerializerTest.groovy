@@ -64,4 +64,22 @@ class ClassSetAnalysisDataSerializerTest extends Specification {
         read.classesToChildren == ['A': ['SA'] as Set, B: ['SB1', 'SB2'] as Set]
         read.fullRebuildCause == "Because"
     }
+
+    def "serializes members"() {
+        def data = new ClassSetAnalysisData([:], ["A": dependents("B", "C")], [:], [:], dependents(), dependents(), null,
+            ["A": ["": 1, "foo": 2, "bar": 3]], ["A.foo": ["B"] as Set, "B.<init>": ["A", "C"] as Set])
+        def os = new ByteArrayOutputStream()
+        def e = new OutputStreamBackedEncoder(os)
+
+        when:
+        serializer.write(e, data)
+        ClassSetAnalysisData read = serializer.read(new InputStreamBackedDecoder(new ByteArrayInputStream(os.toByteArray())))
+
+        then:
+        read.getMembers("A") == ["": 1, "foo": 2, "bar": 3]
+        read.getMembers("B").isEmpty()
+        read.getMemberDependents("A", "foo") == ["B"] as Set
+        read.getMemberDependents("B", "<init>") == ["A", "C"] as Set
+        read.getMemberDependents("A", "bar").isEmpty()
+    }
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.incremental.deps
+
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet
+import it.unimi.dsi.fastutil.ints.IntSet
+import spock.lang.Specification
+import spock.lang.Subject
+
+import static org.gradle.api.internal.tasks.compile.incremental.deps.DependentsSet.dependencyToAll
+import static org.gradle.api.internal.tasks.compile.incremental.deps.DependentsSet.dependents
+
+class ClassSetAnalysisDataSizeEstimatorTest extends Specification {
+
+    @Subject estimator = ClassSetAnalysisData.SizeEstimator.INSTANCE
+
+    def "estimated size grows with the number of classes"() {
+        def small = new ClassSetAnalysisData(
+            ["A.class": "A"],
+            ["A": dependents("B")],
+            [A: new IntOpenHashSet([1]) as IntSet],
+            [:], dependents(), dependents(), null
+        )
+        def large = new ClassSetAnalysisData(
+            ["A.class": "A", "B.class": "B", "C.class": "C"],
+            ["A": dependents("B", "C"), "B": dependents("C")],
+            [A: new IntOpenHashSet([1, 2, 3]) as IntSet],
+            ['A': ['SA'] as Set], dependents("Aggregated"), dependents(), null
+        )
+
+        expect:
+        estimator.estimateSize(small) < estimator.estimateSize(large)
+    }
+
+    def "estimates the size of analysis that depends on all classes"() {
+        def data = new ClassSetAnalysisData(
+            ["A.class": "A"],
+            ["A": dependencyToAll()],
+            [:],
+            [:], dependents(), dependencyToAll("Because"), "Because"
+        )
+
+        expect:
+        estimator.estimateSize(data) > 0
+    }
+}
@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.tasks.compile.incremental.deps
 
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet
 import it.unimi.dsi.fastutil.ints.IntSet
 import it.unimi.dsi.fastutil.ints.IntSets
 import spock.lang.Specification
@@ -30,6 +31,48 @@ class ClassSetAnalysisTest extends Specification {
         new ClassSetAnalysis(new ClassSetAnalysisData([:], dependents, classToConstants, classesToChildren, aggregatedTypes, dependentsOnAll, fullRebuildCause))
     }
 
+    ClassSetAnalysis memberAnalysis(Map<String, DependentsSet> dependents, Map<String, Set<String>> classesToChildren, Map<String, Set<String>> memberDependents) {
+        new ClassSetAnalysis(new ClassSetAnalysisData([:], dependents, [:], classesToChildren, empty(), empty(), null, [:], memberDependents))
+    }
+
+    def "returns only users of changed members and subclasses"() {
+        def a = memberAnalysis([
+            "A": dependents("B", "C", "D", "Sub"),
+            "B": dependents(),
+            "C": dependents("E"),
+            "D": dependents(),
+            "Sub": dependents(),
+        ], ["A": ["Sub"] as Set], ["A.foo": ["B"] as Set, "A.bar": ["C"] as Set])
+
+        expect:
+        a.getRelevantMemberDependents("A", ["foo"] as Set).dependentClasses == ["B", "Sub"] as Set
+        a.getRelevantMemberDependents("A", ["bar"] as Set).dependentClasses == ["C", "E", "Sub"] as Set
+        a.getRelevantMemberDependents("A", [] as Set).dependentClasses == ["Sub"] as Set
+        a.getRelevantDependents(["D"], ["A": ["foo"] as Set], IntSets.EMPTY_SET).dependentClasses == ["B", "Sub"] as Set
+    }
+
+    def "member changes of a dependency to all require full rebuild"() {
+        def a = memberAnalysis(["A": dependencyToAll()], [:], ["A.foo": ["B"] as Set])
+
+        expect:
+        a.getRelevantMemberDependents("A", ["foo"] as Set).dependencyToAll
+    }
+
+    def "changed constants require full rebuild even when only members changed"() {
+        def a = memberAnalysis(["A": dependents("B")], [:], ["A.foo": ["B"] as Set])
+
+        expect:
+        a.getRelevantDependents([], ["A": ["foo"] as Set], new IntOpenHashSet([1])).dependencyToAll
+    }
+
+    def "knows type hierarchy"() {
+        def a = memberAnalysis([:], ["A": ["B", "C"] as Set, "B": ["D"] as Set], [:])
+
+        expect:
+        a.getTypeHierarchy("A") == ["A", "B", "C", "D"] as Set
+        a.getTypeHierarchy("D") == ["D"] as Set
+    }
+
     def "returns empty analysis"() {
         def a = analysis([:])
         expect: a.getRelevantDependents("Foo", IntSets.EMPTY_SET).dependentClasses.isEmpty()
@@ -99,6 +99,38 @@ class JarSnapshotTest extends Specification {
         altered(s2, s1).isDependencyToAll()
     }
 
+    def "only classes using changed members are affected when the declaration of a class is unchanged"() {
+        def previousAnalysis = new ClassSetAnalysisData([:], ["A": dependents("B", "C"), "B": dependents(), "C": dependents()], [:], ["A": ["Sub"] as Set], dependents(), dependents(), null,
+            ["A": ["": 1, "foo": 2, "bar": 3]], ["A.foo": ["B"] as Set])
+        def currentAnalysis = new ClassSetAnalysisData([:], ["A": dependents("B", "C"), "B": dependents(), "C": dependents()], [:], ["A": ["Sub"] as Set], dependents(), dependents(), null,
+            ["A": ["": 1, "foo": 20, "bar": 3]], ["A.foo": ["B"] as Set])
+        JarSnapshot s1 = snapshot(["A": HashCode.fromInt(0xaa), "B": HashCode.fromInt(0xbb), "C": HashCode.fromInt(0xcc)], previousAnalysis)
+        JarSnapshot s2 = snapshot(["A": HashCode.fromInt(0xaaaa), "B": HashCode.fromInt(0xbb), "C": HashCode.fromInt(0xcc)], currentAnalysis)
+
+        when:
+        def affected = s2.getAffectedClassesSince(s1)
+
+        then:
+        affected.altered.dependentClasses == ["B"] as Set
+        affected.changedMembers == ["A": ["foo"] as Set, "Sub": ["foo"] as Set]
+    }
+
+    def "class is affected when its declaration changed"() {
+        def previousAnalysis = new ClassSetAnalysisData([:], ["A": dependents("B"), "B": dependents()], [:], [:], dependents(), dependents(), null,
+            ["A": ["": 1, "foo": 2]], [:])
+        def currentAnalysis = new ClassSetAnalysisData([:], ["A": dependents("B"), "B": dependents()], [:], [:], dependents(), dependents(), null,
+            ["A": ["": 10, "foo": 2]], [:])
+        JarSnapshot s1 = snapshot(["A": HashCode.fromInt(0xaa), "B": HashCode.fromInt(0xbb)], previousAnalysis)
+        JarSnapshot s2 = snapshot(["A": HashCode.fromInt(0xaaaa), "B": HashCode.fromInt(0xbb)], currentAnalysis)
+
+        when:
+        def affected = s2.getAffectedClassesSince(s1)
+
+        then:
+        affected.altered.dependentClasses == ["A", "B"] as Set
+        affected.changedMembers.isEmpty()
+    }
+
     def "knows added classes"() {
         JarSnapshot s1 = snapshot(["A": HashCode.fromInt(0xaa), "B": HashCode.fromInt(0xbb), "C": HashCode.fromInt(0xcc)], analysis)
         JarSnapshot s2 = snapshot(["A": HashCode.fromInt(0xaa)], analysis)
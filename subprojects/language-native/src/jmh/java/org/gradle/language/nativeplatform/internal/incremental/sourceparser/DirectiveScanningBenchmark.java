@@ -0,0 +1,116 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.language.nativeplatform.internal.incremental.sourceparser;
+
+import com.google.common.io.Files;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Compares finding the directives of a source file line by line using a {@link PreprocessingReader}, as the source parser used to, with the {@link DirectiveScanner}.
+ * The bodies of the directives are parsed in the same way in both cases, which the {@code parser} benchmark includes.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class DirectiveScanningBenchmark {
+
+    @Param({"100", "2000"})
+    int lines;
+
+    File sourceFile;
+    RegexBackedCSourceParser parser = new RegexBackedCSourceParser();
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        StringBuilder content = new StringBuilder();
+        content.append("/*\n * A license header\n * #include \"not-included.h\"\n */\n");
+        content.append("#include <stdio.h>\n#include \"header.h\"\n#define HEADER \"other.h\"\n#include HEADER\n");
+        for (int i = 0; i < lines; i++) {
+            if (i % 50 == 0) {
+                content.append("#define MACRO_").append(i).append("(X) \"header_\" #X \".h\" // a macro\n");
+            } else if (i % 10 == 0) {
+                content.append("    /* a comment */ printf(\"%d\\n\", value_").append(i).append(");\n");
+            } else {
+                content.append("    int value_").append(i).append(" = compute(\"string with a \\\" quote\", ").append(i).append(");\n");
+            }
+        }
+        sourceFile = File.createTempFile("source", ".cpp");
+        Files.write(content.toString().getBytes(Charset.defaultCharset()), sourceFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sourceFile.delete();
+    }
+
+    @Benchmark
+    public void preprocessingReader(Blackhole blackhole) throws IOException {
+        Reader reader = new BufferedReader(new FileReader(sourceFile));
+        try {
+            PreprocessingReader lineReader = new PreprocessingReader(reader);
+            StringBuilder line = new StringBuilder();
+            while (lineReader.readNextLine(line)) {
+                int pos = 0;
+                while (pos < line.length() && Character.isWhitespace(line.charAt(pos))) {
+                    pos++;
+                }
+                if (pos < line.length() && line.charAt(pos) == '#') {
+                    blackhole.consume(line.toString());
+                }
+                line.setLength(0);
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Benchmark
+    public void directiveScanner(Blackhole blackhole) throws IOException {
+        CharBuffer content = Charset.defaultCharset().decode(ByteBuffer.wrap(Files.toByteArray(sourceFile)));
+        DirectiveScanner scanner = new DirectiveScanner(content.array(), content.limit());
+        StringBuilder line = new StringBuilder();
+        while (scanner.readNextDirective(line)) {
+            blackhole.consume(line.toString());
+            line.setLength(0);
+        }
+    }
+
+    @Benchmark
+    public void parser(Blackhole blackhole) {
+        blackhole.consume(parser.parseSource(sourceFile));
+    }
+}
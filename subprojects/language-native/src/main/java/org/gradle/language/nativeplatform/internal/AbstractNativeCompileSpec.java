@@ -36,6 +36,7 @@ public abstract class AbstractNativeCompileSpec extends AbstractBinaryToolSpec i
     private List<File> sourceFiles = new ArrayList<File>();
     private List<File> removedSourceFiles = new ArrayList<File>();
     private boolean incrementalCompile;
+    private boolean writeDependencyFiles;
     private Map<String, String> macros = new LinkedHashMap<String, String>();
     private File objectFileDir;
     private boolean positionIndependentCode;
@@ -115,6 +116,16 @@ public abstract class AbstractNativeCompileSpec extends AbstractBinaryToolSpec i
         incrementalCompile = flag;
     }
 
+    @Override
+    public boolean isWriteDependencyFiles() {
+        return writeDependencyFiles;
+    }
+
+    @Override
+    public void setWriteDependencyFiles(boolean flag) {
+        writeDependencyFiles = flag;
+    }
+
     @Override
     public File getObjectFileDir() {
         return objectFileDir;
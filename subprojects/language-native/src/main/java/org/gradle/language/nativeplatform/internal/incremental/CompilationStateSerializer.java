@@ -17,6 +17,7 @@ package org.gradle.language.nativeplatform.internal.incremental;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.serialize.BaseSerializerFactory;
 import org.gradle.internal.serialize.Decoder;
@@ -40,6 +41,7 @@ public class CompilationStateSerializer implements Serializer<CompilationState>
     public CompilationState read(Decoder decoder) throws Exception {
         // Deduplicates the include file states, as these are often shared between source files
         Map<Integer, IncludeFileEdge> ids = new HashMap<Integer, IncludeFileEdge>();
+        Map<Integer, Map.Entry<File, HashCode>> dependencyIds = new HashMap<Integer, Map.Entry<File, HashCode>>();
         int sourceFileCount = decoder.readSmallInt();
         ImmutableMap.Builder<File, SourceFileState> builder = ImmutableMap.builder();
         for (int i = 0; i < sourceFileCount; i++) {
@@ -63,7 +65,24 @@ public class CompilationStateSerializer implements Serializer<CompilationState>
                 }
                 includeFileStateBuilder.add(includeFileState);
             }
-            builder.put(sourceFile, new SourceFileState(sourceHashCode, isUnresolved, includeFileStateBuilder.build()));
+            ImmutableMap<File, HashCode> compilerDependencies = null;
+            if (decoder.readBoolean()) {
+                int dependencyCount = decoder.readSmallInt();
+                ImmutableMap.Builder<File, HashCode> dependenciesBuilder = ImmutableMap.builder();
+                for (int j = 0; j < dependencyCount; j++) {
+                    int id = decoder.readSmallInt();
+                    Map.Entry<File, HashCode> dependency = dependencyIds.get(id);
+                    if (dependency == null) {
+                        File file = fileSerializer.read(decoder);
+                        HashCode hash = hashSerializer.read(decoder);
+                        dependency = Maps.immutableEntry(file, hash);
+                        dependencyIds.put(id, dependency);
+                    }
+                    dependenciesBuilder.put(dependency);
+                }
+                compilerDependencies = dependenciesBuilder.build();
+            }
+            builder.put(sourceFile, new SourceFileState(sourceHashCode, isUnresolved, includeFileStateBuilder.build(), compilerDependencies));
         }
         return new CompilationState(builder.build());
     }
@@ -72,6 +91,7 @@ public class CompilationStateSerializer implements Serializer<CompilationState>
     public void write(Encoder encoder, CompilationState value) throws Exception {
         // Deduplicates the include file states, as these are often shared between source files
         Map<IncludeFileEdge, Integer> ids = new HashMap<IncludeFileEdge, Integer>();
+        Map<Map.Entry<File, HashCode>, Integer> dependencyIds = new HashMap<Map.Entry<File, HashCode>, Integer>();
         encoder.writeSmallInt(value.getFileStates().size());
         for (Map.Entry<File, SourceFileState> entry : value.getFileStates().entrySet()) {
             SourceFileState sourceFileState = entry.getValue();
@@ -97,6 +117,25 @@ public class CompilationStateSerializer implements Serializer<CompilationState>
                     encoder.writeSmallInt(id);
                 }
             }
+            ImmutableMap<File, HashCode> compilerDependencies = sourceFileState.getCompilerDependencies();
+            if (compilerDependencies == null) {
+                encoder.writeBoolean(false);
+            } else {
+                encoder.writeBoolean(true);
+                encoder.writeSmallInt(compilerDependencies.size());
+                for (Map.Entry<File, HashCode> dependency : compilerDependencies.entrySet()) {
+                    Integer id = dependencyIds.get(dependency);
+                    if (id == null) {
+                        id = dependencyIds.size();
+                        dependencyIds.put(dependency, id);
+                        encoder.writeSmallInt(id);
+                        fileSerializer.write(encoder, dependency.getKey());
+                        hashSerializer.write(encoder, dependency.getValue());
+                    } else {
+                        encoder.writeSmallInt(id);
+                    }
+                }
+            }
         }
     }
 }
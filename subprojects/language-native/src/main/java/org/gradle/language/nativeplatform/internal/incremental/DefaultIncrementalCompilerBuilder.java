@@ -26,25 +26,40 @@ import org.gradle.api.internal.file.collections.MinimalFileSet;
 import org.gradle.api.internal.tasks.LifecycleAwareTaskProperty;
 import org.gradle.api.provider.Provider;
 import org.gradle.cache.PersistentStateCache;
+import org.gradle.caching.internal.controller.BuildCacheController;
 import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.language.base.internal.compile.Compiler;
 import org.gradle.language.nativeplatform.internal.incremental.sourceparser.CSourceParser;
+import org.gradle.nativeplatform.internal.CompilerOutputFileNamingSchemeFactory;
 import org.gradle.nativeplatform.toolchain.internal.NativeCompileSpec;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.util.List;
 import java.util.Set;
 
 public class DefaultIncrementalCompilerBuilder implements IncrementalCompilerBuilder {
+    private static final String USE_DEPENDENCY_FILES_PROPERTY_NAME = "org.gradle.internal.native.compiler.dependency.files";
+    private static final String CACHE_OBJECT_FILES_PROPERTY_NAME = "org.gradle.internal.native.compiler.object.cache";
+
     private final FileSystemSnapshotter fileSystemSnapshotter;
     private final CompilationStateCacheFactory compilationStateCacheFactory;
     private final CSourceParser sourceParser;
     private final DirectoryFileTreeFactory directoryFileTreeFactory;
     private final TaskFileVarFactory fileVarFactory;
     private final BuildOperationExecutor buildOperationExecutor;
+    private final DirectoryListingCache directoryListingCache;
+    private final CompilerOutputFileNamingSchemeFactory compilerOutputFileNamingSchemeFactory;
+    private final boolean useDependencyFiles;
+    @Nullable
+    private final ObjectFileCache objectFileCache;
 
-    public DefaultIncrementalCompilerBuilder(FileSystemSnapshotter fileSystemSnapshotter, CompilationStateCacheFactory compilationStateCacheFactory, CSourceParser sourceParser, DirectoryFileTreeFactory directoryFileTreeFactory, TaskFileVarFactory fileVarFactory, BuildOperationExecutor buildOperationExecutor) {
+    public DefaultIncrementalCompilerBuilder(FileSystemSnapshotter fileSystemSnapshotter, CompilationStateCacheFactory compilationStateCacheFactory, CSourceParser sourceParser, DirectoryFileTreeFactory directoryFileTreeFactory, TaskFileVarFactory fileVarFactory, BuildOperationExecutor buildOperationExecutor, DirectoryListingCache directoryListingCache, CompilerOutputFileNamingSchemeFactory compilerOutputFileNamingSchemeFactory, BuildCacheController buildCacheController) {
         this.fileSystemSnapshotter = fileSystemSnapshotter;
+        this.directoryListingCache = directoryListingCache;
+        this.compilerOutputFileNamingSchemeFactory = compilerOutputFileNamingSchemeFactory;
+        this.useDependencyFiles = Boolean.getBoolean(USE_DEPENDENCY_FILES_PROPERTY_NAME);
+        this.objectFileCache = Boolean.getBoolean(CACHE_OBJECT_FILES_PROPERTY_NAME) ? new ObjectFileCache(buildCacheController, buildOperationExecutor) : null;
         this.compilationStateCacheFactory = compilationStateCacheFactory;
         this.sourceParser = sourceParser;
         this.directoryFileTreeFactory = directoryFileTreeFactory;
@@ -54,7 +69,7 @@ public class DefaultIncrementalCompilerBuilder implements IncrementalCompilerBui
 
     @Override
     public IncrementalCompiler newCompiler(TaskInternal task, FileCollection sourceFiles, FileCollection includeDirs, Provider<Boolean> importAware) {
-        return new StateCollectingIncrementalCompiler(task, includeDirs, sourceFiles, fileSystemSnapshotter, compilationStateCacheFactory, sourceParser, directoryFileTreeFactory, fileVarFactory, buildOperationExecutor, importAware);
+        return new StateCollectingIncrementalCompiler(task, includeDirs, sourceFiles, fileSystemSnapshotter, compilationStateCacheFactory, sourceParser, directoryFileTreeFactory, fileVarFactory, buildOperationExecutor, importAware, directoryListingCache, compilerOutputFileNamingSchemeFactory, useDependencyFiles, objectFileCache);
     }
 
     private static class StateCollectingIncrementalCompiler implements IncrementalCompiler, MinimalFileSet, LifecycleAwareTaskProperty {
@@ -69,10 +84,15 @@ public class DefaultIncrementalCompilerBuilder implements IncrementalCompilerBui
         private final FileCollection sourceFiles;
         private final FileCollection headerFilesCollection;
         private final Provider<Boolean> importAware;
+        private final DirectoryListingCache directoryListingCache;
+        private final CompilerOutputFileNamingSchemeFactory compilerOutputFileNamingSchemeFactory;
+        private final boolean useDependencyFiles;
+        @Nullable
+        private final ObjectFileCache objectFileCache;
         private PersistentStateCache<CompilationState> compileStateCache;
         private IncrementalCompilation incrementalCompilation;
 
-        StateCollectingIncrementalCompiler(TaskInternal task, FileCollection includeDirs, FileCollection sourceFiles, FileSystemSnapshotter fileSystemSnapshotter, CompilationStateCacheFactory compilationStateCacheFactory, CSourceParser sourceParser, DirectoryFileTreeFactory directoryFileTreeFactory, TaskFileVarFactory fileVarFactory, BuildOperationExecutor buildOperationExecutor, Provider<Boolean> importAware) {
+        StateCollectingIncrementalCompiler(TaskInternal task, FileCollection includeDirs, FileCollection sourceFiles, FileSystemSnapshotter fileSystemSnapshotter, CompilationStateCacheFactory compilationStateCacheFactory, CSourceParser sourceParser, DirectoryFileTreeFactory directoryFileTreeFactory, TaskFileVarFactory fileVarFactory, BuildOperationExecutor buildOperationExecutor, Provider<Boolean> importAware, DirectoryListingCache directoryListingCache, CompilerOutputFileNamingSchemeFactory compilerOutputFileNamingSchemeFactory, boolean useDependencyFiles, @Nullable ObjectFileCache objectFileCache) {
             this.taskOutputs = task.getOutputs();
             this.taskPath = task.getPath();
             this.includeDirs = includeDirs;
@@ -83,6 +103,10 @@ public class DefaultIncrementalCompilerBuilder implements IncrementalCompilerBui
             this.directoryFileTreeFactory = directoryFileTreeFactory;
             this.buildOperationExecutor = buildOperationExecutor;
             this.importAware = importAware;
+            this.directoryListingCache = directoryListingCache;
+            this.compilerOutputFileNamingSchemeFactory = compilerOutputFileNamingSchemeFactory;
+            this.useDependencyFiles = useDependencyFiles;
+            this.objectFileCache = objectFileCache;
             headerFilesCollection = fileVarFactory.newCalculatedInputFileCollection(task, this, sourceFiles, includeDirs);
         }
 
@@ -91,7 +115,7 @@ public class DefaultIncrementalCompilerBuilder implements IncrementalCompilerBui
             if (incrementalCompilation == null) {
                 throw new IllegalStateException("Header files should be calculated before compiler is created.");
             }
-            return new IncrementalNativeCompiler<T>(taskOutputs, compiler, compileStateCache, incrementalCompilation);
+            return new IncrementalNativeCompiler<T>(taskOutputs, compiler, compileStateCache, incrementalCompilation, fileSystemSnapshotter, compilerOutputFileNamingSchemeFactory, useDependencyFiles, objectFileCache);
         }
 
         @Override
@@ -99,7 +123,7 @@ public class DefaultIncrementalCompilerBuilder implements IncrementalCompilerBui
             List<File> includeRoots = ImmutableList.copyOf(includeDirs);
             compileStateCache = compilationStateCacheFactory.create(taskPath);
             DefaultSourceIncludesParser sourceIncludesParser = new DefaultSourceIncludesParser(sourceParser, importAware.get());
-            DefaultSourceIncludesResolver dependencyParser = new DefaultSourceIncludesResolver(includeRoots, fileSystemSnapshotter);
+            DefaultSourceIncludesResolver dependencyParser = new DefaultSourceIncludesResolver(includeRoots, fileSystemSnapshotter, directoryListingCache);
             IncrementalCompileFilesFactory incrementalCompileFilesFactory = new IncrementalCompileFilesFactory(sourceIncludesParser, dependencyParser, fileSystemSnapshotter);
             IncrementalCompileProcessor incrementalCompileProcessor = new IncrementalCompileProcessor(compileStateCache, incrementalCompileFilesFactory, buildOperationExecutor);
 
@@ -33,21 +33,24 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class DefaultSourceIncludesResolver implements SourceIncludesResolver {
     private static final MissingIncludeFile MISSING_INCLUDE_FILE = new MissingIncludeFile();
     private final FileSystemSnapshotter fileSystemSnapshotter;
-    private final Map<File, DirectoryContents> includeRoots = new HashMap<File, DirectoryContents>();
+    private final DirectoryListingCache directoryListingCache;
+    private final ConcurrentMap<File, DirectoryContents> includeRoots = new ConcurrentHashMap<File, DirectoryContents>();
     private final FixedIncludePath includePath;
 
-    public DefaultSourceIncludesResolver(List<File> includePaths, FileSystemSnapshotter fileSystemSnapshotter) {
+    public DefaultSourceIncludesResolver(List<File> includePaths, FileSystemSnapshotter fileSystemSnapshotter, DirectoryListingCache directoryListingCache) {
         this.fileSystemSnapshotter = fileSystemSnapshotter;
+        this.directoryListingCache = directoryListingCache;
         List<DirectoryContents> includeDirs = new ArrayList<DirectoryContents>(includePaths.size());
         for (File includeDir : includePaths) {
             includeDirs.add(toDir(includeDir));
@@ -261,7 +264,10 @@ public class DefaultSourceIncludesResolver implements SourceIncludesResolver {
         DirectoryContents directoryContents = includeRoots.get(includeDir);
         if (directoryContents == null) {
             directoryContents = new DirectoryContents(includeDir);
-            includeRoots.put(includeDir, directoryContents);
+            DirectoryContents existing = includeRoots.putIfAbsent(includeDir, directoryContents);
+            if (existing != null) {
+                directoryContents = existing;
+            }
         }
         return directoryContents;
     }
@@ -302,7 +308,7 @@ public class DefaultSourceIncludesResolver implements SourceIncludesResolver {
 
     private static class FixedIncludePath extends IncludePath {
         private final List<DirectoryContents> directories;
-        private final Map<String, CachedIncludeFile> cachedLookups = new HashMap<String, CachedIncludeFile>();
+        private final Map<String, CachedIncludeFile> cachedLookups = new ConcurrentHashMap<String, CachedIncludeFile>();
 
         FixedIncludePath(List<DirectoryContents> directories) {
             this.directories = directories;
@@ -337,7 +343,7 @@ public class DefaultSourceIncludesResolver implements SourceIncludesResolver {
 
     private class DirectoryContents {
         private final File searchDir;
-        private final Map<String, CachedIncludeFile> contents = new HashMap<String, CachedIncludeFile>();
+        private final Map<String, CachedIncludeFile> contents = new ConcurrentHashMap<String, CachedIncludeFile>();
 
         DirectoryContents(File searchDir) {
             this.searchDir = searchDir;
@@ -349,6 +355,11 @@ public class DefaultSourceIncludesResolver implements SourceIncludesResolver {
                 return includeFile;
             }
 
+            if (!directoryListingCache.mayContain(searchDir, includePath)) {
+                contents.put(includePath, MISSING_INCLUDE_FILE);
+                return MISSING_INCLUDE_FILE;
+            }
+
             File candidate = new File(searchDir, includePath);
             FileSnapshot fileSnapshot = fileSystemSnapshotter.snapshotSelf(candidate);
             includeFile = fileSnapshot.getType() == FileType.RegularFile ? new SystemIncludeFile(candidate, includePath, fileSnapshot) : MISSING_INCLUDE_FILE;
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.language.nativeplatform.internal.incremental;
+
+import com.google.common.io.Files;
+import org.gradle.api.UncheckedIOException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses the dependency files written by GCC and Clang using {@code -MMD -MF}. These contain a single make rule, whose prerequisites are the source file and the non-system header files used to compile it.
+ */
+public class DependencyFileParser {
+    /**
+     * Returns the files listed as prerequisites in the given dependency file. Relative paths are resolved against the given working directory of the compiler.
+     */
+    public List<File> parse(File dependencyFile, File workingDir) {
+        String content;
+        try {
+            content = Files.asCharSource(dependencyFile, Charset.defaultCharset()).read();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read dependency file " + dependencyFile, e);
+        }
+        List<String> paths = parse(content);
+        List<File> files = new ArrayList<File>(paths.size());
+        for (String path : paths) {
+            File file = new File(path);
+            files.add(file.isAbsolute() ? file : new File(workingDir, path));
+        }
+        return files;
+    }
+
+    List<String> parse(CharSequence content) {
+        List<String> prerequisites = new ArrayList<String>();
+        int length = content.length();
+        int pos = skipTargets(content);
+        StringBuilder path = new StringBuilder();
+        while (pos < length) {
+            char ch = content.charAt(pos);
+            if (ch == '\\' && pos + 1 < length) {
+                char next = content.charAt(pos + 1);
+                if (next == '\n' || next == '\r') {
+                    // A line continuation
+                    addPath(path, prerequisites);
+                    pos = next == '\r' && pos + 2 < length && content.charAt(pos + 2) == '\n' ? pos + 3 : pos + 2;
+                    continue;
+                }
+                if (next == ' ' || next == '#') {
+                    path.append(next);
+                    pos += 2;
+                    continue;
+                }
+                // A Windows path separator
+                path.append(ch);
+            } else if (ch == '$' && pos + 1 < length && content.charAt(pos + 1) == '$') {
+                path.append('$');
+                pos++;
+            } else if (ch == '\n' || ch == '\r') {
+                // End of the rule
+                break;
+            } else if (ch == ' ' || ch == '\t') {
+                addPath(path, prerequisites);
+            } else {
+                path.append(ch);
+            }
+            pos++;
+        }
+        addPath(path, prerequisites);
+        return prerequisites;
+    }
+
+    /**
+     * Returns the position after the ':' that separates the target from its prerequisites. Ignores the ':' of a Windows drive letter, which is not followed by whitespace.
+     */
+    private static int skipTargets(CharSequence content) {
+        int length = content.length();
+        for (int pos = 0; pos < length; pos++) {
+            char ch = content.charAt(pos);
+            if (ch == '\\') {
+                // Skip escaped character
+                pos++;
+            } else if (ch == ':' && (pos + 1 == length || Character.isWhitespace(content.charAt(pos + 1)))) {
+                return pos + 1;
+            }
+        }
+        return length;
+    }
+
+    private static void addPath(StringBuilder path, List<String> paths) {
+        if (path.length() > 0) {
+            paths.add(path.toString());
+            path.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.language.nativeplatform.internal.incremental;
+
+import org.gradle.api.internal.tasks.execution.TaskOutputChangesListener;
+import org.gradle.initialization.RootBuildLifecycleListener;
+import org.gradle.internal.nativeintegration.filesystem.FileSystem;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caches the listings of include directories, so that include files that do not exist in an include directory can be ruled out without probing the file system.
+ * The listings are shared by all compile tasks, and kept across builds.
+ *
+ * <p>A listing is checked again against the modification time of its directory whenever task outputs may have changed and at the start of each build, as the
+ * {@link org.gradle.api.internal.changedetection.state.FileSystemMirror} would discard its state. Adding, removing or renaming an entry updates the modification time of
+ * a directory. When a directory was modified shortly before it was listed, a later change may not be visible in its modification time, so it is listed again instead.</p>
+ */
+public class DirectoryListingCache implements TaskOutputChangesListener, RootBuildLifecycleListener {
+    private static final long MODIFICATION_TIME_RESOLUTION = 2000;
+
+    private final Map<String, Listing> listings = new ConcurrentHashMap<String, Listing>();
+    private final boolean caseSensitive;
+    private final AtomicInteger generation = new AtomicInteger();
+
+    public DirectoryListingCache(FileSystem fileSystem) {
+        this.caseSensitive = fileSystem.isCaseSensitive();
+    }
+
+    /**
+     * Returns false when the given directory definitely does not contain a file at the given relative path. Returns true when it may do, in which case the file system
+     * needs to be checked.
+     */
+    public boolean mayContain(File directory, String relativePath) {
+        File dir = directory;
+        int start = 0;
+        while (true) {
+            int separator = relativePath.indexOf('/', start);
+            String name = separator < 0 ? relativePath.substring(start) : relativePath.substring(start, separator);
+            if (!isPlainName(name)) {
+                return true;
+            }
+            Listing listing = getListing(dir);
+            if (listing.entries == null) {
+                // Could not list the directory
+                return true;
+            }
+            if (!listing.entries.contains(name)) {
+                return false;
+            }
+            if (separator < 0) {
+                return true;
+            }
+            dir = new File(dir, name);
+            start = separator + 1;
+        }
+    }
+
+    private static boolean isPlainName(String name) {
+        if (name.isEmpty() || name.equals(".") || name.equals("..")) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char ch = name.charAt(i);
+            // Leave the handling of separators and of names that the file system may normalize to the file system
+            if (ch == '\\' || ch == ':' || ch >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Listing getListing(File dir) {
+        String path = dir.getAbsolutePath();
+        int currentGeneration = generation.get();
+        Listing listing = listings.get(path);
+        if (listing != null && listing.generation == currentGeneration) {
+            return listing;
+        }
+        long lastModified = dir.lastModified();
+        if (listing != null && listing.lastModified == lastModified && !listing.recentlyModified) {
+            listing.generation = currentGeneration;
+            return listing;
+        }
+        listing = list(dir, lastModified, currentGeneration);
+        listings.put(path, listing);
+        return listing;
+    }
+
+    private Listing list(File dir, long lastModified, int currentGeneration) {
+        if (lastModified == 0 && !dir.exists()) {
+            return new Listing(Collections.<String>emptySet(), lastModified, false, currentGeneration);
+        }
+        String[] names = dir.list();
+        boolean recentlyModified = lastModified == 0 || System.currentTimeMillis() - lastModified < MODIFICATION_TIME_RESOLUTION;
+        if (names == null) {
+            if (dir.isDirectory()) {
+                // Not readable, fall back to probing the file system
+                return new Listing(null, lastModified, recentlyModified, currentGeneration);
+            }
+            return new Listing(Collections.<String>emptySet(), lastModified, recentlyModified, currentGeneration);
+        }
+        Set<String> entries = caseSensitive ? new HashSet<String>(names.length) : new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+        entries.addAll(Arrays.asList(names));
+        return new Listing(entries, lastModified, recentlyModified, currentGeneration);
+    }
+
+    @Override
+    public void beforeTaskOutputChanged() {
+        generation.incrementAndGet();
+    }
+
+    @Override
+    public void afterStart() {
+        generation.incrementAndGet();
+    }
+
+    @Override
+    public void beforeComplete() {
+    }
+
+    private static class Listing {
+        final Set<String> entries;
+        final long lastModified;
+        final boolean recentlyModified;
+        volatile int generation;
+
+        Listing(Set<String> entries, long lastModified, boolean recentlyModified, int generation) {
+            this.entries = entries;
+            this.lastModified = lastModified;
+            this.recentlyModified = recentlyModified;
+            this.generation = generation;
+        }
+    }
+}
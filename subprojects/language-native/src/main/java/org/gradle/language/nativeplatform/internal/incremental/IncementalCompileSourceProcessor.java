@@ -19,6 +19,14 @@ package org.gradle.language.nativeplatform.internal.incremental;
 import java.io.File;
 
 public interface IncementalCompileSourceProcessor {
+    /**
+     * Calculates the include file graph of the given source file, ready for a later call to {@link #processSource(File)}. This method may be called concurrently for different source files.
+     */
+    void prepareSource(File sourceFile);
+
+    /**
+     * Adds the given source file to the result, using the analysis calculated by {@link #prepareSource(File)} when present. Source files should be processed from a single thread.
+     */
     void processSource(File sourceFile);
 
     IncrementalCompilation getResult();
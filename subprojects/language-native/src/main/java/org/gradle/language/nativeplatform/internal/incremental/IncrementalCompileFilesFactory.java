@@ -38,6 +38,8 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class IncrementalCompileFilesFactory {
 
@@ -65,7 +67,8 @@ public class IncrementalCompileFilesFactory {
         private final BuildableCompilationState current = new BuildableCompilationState();
         private final List<File> toRecompile = new ArrayList<File>();
         private final Set<File> existingHeaders = new HashSet<File>();
-        private final Map<File, FileDetails> visitedFiles = new HashMap<File, FileDetails>();
+        private final ConcurrentMap<File, FileDetails> visitedFiles = new ConcurrentHashMap<File, FileDetails>();
+        private final ConcurrentMap<File, SourceFileResult> preparedSources = new ConcurrentHashMap<File, SourceFileResult>();
         private boolean hasUnresolvedHeaders;
 
         DefaultIncementalCompileSourceProcessor(CompilationState previousCompileState) {
@@ -77,55 +80,73 @@ public class IncrementalCompileFilesFactory {
             return new DefaultIncrementalCompilation(current.snapshot(), toRecompile, getRemovedSources(), existingHeaders, hasUnresolvedHeaders);
         }
 
+        @Override
+        public void prepareSource(File sourceFile) {
+            preparedSources.put(sourceFile, visitSourceFile(sourceFile));
+        }
+
         @Override
         public void processSource(File sourceFile) {
-            if (visitSourceFile(sourceFile)) {
+            SourceFileResult result = preparedSources.remove(sourceFile);
+            if (result == null) {
+                result = visitSourceFile(sourceFile);
+            }
+            if (result.state == null) {
+                return;
+            }
+            current.setState(sourceFile, result.state);
+            existingHeaders.addAll(result.headers);
+            if (result.hasUnresolvedHeaders) {
+                hasUnresolvedHeaders = true;
+            }
+            if (result.recompile) {
                 toRecompile.add(sourceFile);
             }
         }
 
         /**
-         * @return true if this source file requires recompilation, false otherwise.
+         * Calculates the state of the given source file. Does not change the state of this processor, other than caching the details of the visited files,
+         * so that it can be called for multiple source files concurrently.
          */
-        private boolean visitSourceFile(File sourceFile) {
+        private SourceFileResult visitSourceFile(File sourceFile) {
             FileSnapshot fileSnapshot = fileSystemSnapshotter.snapshotSelf(sourceFile);
             if (fileSnapshot.getType() != FileType.RegularFile) {
                 // Skip things that aren't files
-                return false;
+                return SourceFileResult.NOT_A_FILE;
             }
 
             SourceFileState previousState = previous.getState(sourceFile);
+            Set<File> headers = new HashSet<File>();
 
             if (previousState != null) {
                 // Already seen this source file before. See if we can reuse the analysis from last time
-                if (graphHasNotChanged(sourceFile, fileSnapshot, previousState, existingHeaders)) {
-                    // Include file graph for this source file has not changed, skip this file
-                    current.setState(sourceFile, previousState);
-                    if (previousState.isHasUnresolved() && !ignoreUnresolvedHeadersInDependencies) {
-                        hasUnresolvedHeaders = true;
-                        return true;
+                if (previousState.getCompilerDependencies() != null) {
+                    // The compiler reported the header files that this source file used, so check these as well as the include file graph,
+                    // rather than treating unresolved macro includes as changed
+                    if (compilerDependenciesHaveNotChanged(sourceFile, fileSnapshot, previousState, headers)) {
+                        return new SourceFileResult(previousState, headers, false, false);
                     }
-                    return false;
+                } else if (graphHasNotChanged(sourceFile, fileSnapshot, previousState, headers)) {
+                    // Include file graph for this source file has not changed, skip this file
+                    boolean unresolved = previousState.isHasUnresolved() && !ignoreUnresolvedHeadersInDependencies;
+                    return new SourceFileResult(previousState, headers, unresolved, unresolved);
                 }
                 // Else, something has changed in the include file graph for this source file, so analyse again
+                headers.clear();
             }
 
             // Source file has not been compiled before, or its include file graph has changed in some way
             // Calculate the include file graph for the source file and mark for recompilation
 
             CollectingMacroLookup visibleMacros = new CollectingMacroLookup();
-            FileVisitResult result = visitFile(sourceFile, fileSnapshot, visibleMacros, new HashSet<HashCode>(), existingHeaders);
+            FileVisitResult result = visitFile(sourceFile, fileSnapshot, visibleMacros, new HashSet<HashCode>(), headers);
             Set<IncludeFileEdge> includedFiles = new LinkedHashSet<IncludeFileEdge>();
             result.collectFilesInto(includedFiles, new HashSet<File>());
             SourceFileState newState = new SourceFileState(fileSnapshot.getContent().getContentMd5(), result.result == IncludeFileResolutionResult.UnresolvedMacroIncludes, ImmutableSet.copyOf(includedFiles));
-            current.setState(sourceFile, newState);
-            if (newState.isHasUnresolved()) {
-                hasUnresolvedHeaders = true;
-            }
-            return true;
+            return new SourceFileResult(newState, headers, newState.isHasUnresolved(), true);
         }
 
-        private boolean graphHasNotChanged(File sourceFile, FileSnapshot fileSnapshot, SourceFileState previousState, Set<File> existingHeaders) {
+        private boolean graphHasNotChanged(File sourceFile, FileSnapshot fileSnapshot, SourceFileState previousState, Set<File> headers) {
             if (!fileSnapshot.getContent().getContentMd5().equals(previousState.getHash())) {
                 // Source file has changed
                 return false;
@@ -137,7 +158,6 @@ public class IncrementalCompileFilesFactory {
 
             // Check each unique edge in the include file graph
             Map<HashCode, File> includes = new HashMap<HashCode, File>(previousState.getEdges().size());
-            Set<File> headers = new HashSet<File>();
             includes.put(fileSnapshot.getContent().getContentMd5(), sourceFile);
             for (IncludeFileEdge includeFileEdge : previousState.getEdges()) {
                 File includedFrom = includeFileEdge.getIncludedBy() != null ? includes.get(includeFileEdge.getIncludedBy()) : null;
@@ -151,13 +171,27 @@ public class IncrementalCompileFilesFactory {
                     // Include file changed
                     return false;
                 }
-                if (!existingHeaders.contains(includeFile.getFile())) {
-                    // Collect for later, do not add until the graph is known to have not changed
-                    headers.add(includeFile.getFile());
-                }
+                // Collect for later, do not use until the graph is known to have not changed
+                headers.add(includeFile.getFile());
                 includes.put(hash, includeFile.getFile());
             }
-            existingHeaders.addAll(headers);
+            return true;
+        }
+
+        private boolean compilerDependenciesHaveNotChanged(File sourceFile, FileSnapshot fileSnapshot, SourceFileState previousState, Set<File> headers) {
+            // Resolve the include file graph again, as a new header file may shadow one of the header files the compiler used
+            if (!graphHasNotChanged(sourceFile, fileSnapshot, previousState, headers)) {
+                return false;
+            }
+            for (Map.Entry<File, HashCode> dependency : previousState.getCompilerDependencies().entrySet()) {
+                FileSnapshot headerSnapshot = fileSystemSnapshotter.snapshotSelf(dependency.getKey());
+                if (headerSnapshot.getType() != FileType.RegularFile || !headerSnapshot.getContent().getContentMd5().equals(dependency.getValue())) {
+                    // Header file has changed or been removed
+                    return false;
+                }
+                // Collect for later, do not use until the dependencies are known to have not changed
+                headers.add(dependency.getKey());
+            }
             return true;
         }
 
@@ -178,7 +212,11 @@ public class IncrementalCompileFilesFactory {
             if (fileDetails == null) {
                 IncludeDirectives includeDirectives = sourceIncludesParser.parseIncludes(file);
                 fileDetails = new FileDetails(includeDirectives);
-                visitedFiles.put(file, fileDetails);
+                FileDetails existing = visitedFiles.putIfAbsent(file, fileDetails);
+                if (existing != null) {
+                    // Visited concurrently for another source file
+                    fileDetails = existing;
+                }
             }
 
             CollectingMacroLookup includedFileDirectives = new CollectingMacroLookup();
@@ -230,6 +268,27 @@ public class IncrementalCompileFilesFactory {
         }
     }
 
+    /**
+     * The state calculated for a source file, to be applied to the result of the compilation.
+     */
+    private static class SourceFileResult {
+        static final SourceFileResult NOT_A_FILE = new SourceFileResult(null, Collections.<File>emptySet(), false, false);
+
+        // Null when the source file is not a regular file
+        @Nullable
+        final SourceFileState state;
+        final Set<File> headers;
+        final boolean hasUnresolvedHeaders;
+        final boolean recompile;
+
+        SourceFileResult(@Nullable SourceFileState state, Set<File> headers, boolean hasUnresolvedHeaders, boolean recompile) {
+            this.state = state;
+            this.headers = headers;
+            this.hasUnresolvedHeaders = hasUnresolvedHeaders;
+            this.recompile = recompile;
+        }
+    }
+
     private enum IncludeFileResolutionResult {
         NoMacroIncludes,
         HasMacroIncludes, // but all resolved ok
@@ -243,7 +302,7 @@ public class IncrementalCompileFilesFactory {
         final IncludeDirectives directives;
         // Non-null when the result of visiting this file can be reused
         @Nullable
-        FileVisitResult results;
+        volatile FileVisitResult results;
 
         FileDetails(IncludeDirectives directives) {
             this.directives = directives;
@@ -298,7 +357,10 @@ public class IncrementalCompileFilesFactory {
         public void collectInto(CollectingMacroLookup lookup) {
             if (includeDirectives != null) {
                 lookup.append(file, includeDirectives);
-                includeFileDirectives.appendTo(lookup);
+                // The directives are collected lazily and this result may be reused by source files that are being visited concurrently
+                synchronized (includeFileDirectives) {
+                    includeFileDirectives.appendTo(lookup);
+                }
             }
         }
     }
@@ -15,16 +15,25 @@
  */
 package org.gradle.language.nativeplatform.internal.incremental;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.gradle.api.Action;
 import org.gradle.cache.PersistentStateCache;
 import org.gradle.internal.operations.BuildOperationContext;
 import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.BuildOperationQueue;
 import org.gradle.internal.operations.CallableBuildOperation;
 import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.RunnableBuildOperation;
 
 import java.io.File;
 import java.util.Collection;
+import java.util.List;
 
 public class IncrementalCompileProcessor {
+    // The number of source files analyzed by each parallel operation. Keeps the overhead of the operations low, while spreading the work for larger components
+    private static final int SOURCE_FILES_PER_OPERATION = 20;
+
     private final PersistentStateCache<CompilationState> previousCompileStateCache;
     private final IncrementalCompileFilesFactory incrementalCompileFilesFactory;
     private final BuildOperationExecutor buildOperationExecutor;
@@ -41,6 +50,10 @@ public class IncrementalCompileProcessor {
             public IncrementalCompilation call(BuildOperationContext context) {
                 CompilationState previousCompileState = previousCompileStateCache.get();
                 IncementalCompileSourceProcessor processor = incrementalCompileFilesFactory.files(previousCompileState);
+                if (sourceFiles.size() > SOURCE_FILES_PER_OPERATION) {
+                    prepareSourceFiles(processor, sourceFiles);
+                }
+                // Apply the results in a stable order, regardless of the order the files were analyzed in
                 for (File sourceFile : sourceFiles) {
                     processor.processSource(sourceFile);
                 }
@@ -69,4 +82,27 @@ public class IncrementalCompileProcessor {
         });
     }
 
+    private void prepareSourceFiles(final IncementalCompileSourceProcessor processor, Collection<File> sourceFiles) {
+        final List<List<File>> batches = Lists.partition(ImmutableList.copyOf(sourceFiles), SOURCE_FILES_PER_OPERATION);
+        buildOperationExecutor.runAll(new Action<BuildOperationQueue<RunnableBuildOperation>>() {
+            @Override
+            public void execute(BuildOperationQueue<RunnableBuildOperation> queue) {
+                for (final List<File> batch : batches) {
+                    queue.add(new RunnableBuildOperation() {
+                        @Override
+                        public void run(BuildOperationContext context) {
+                            for (File sourceFile : batch) {
+                                processor.prepareSource(sourceFile);
+                            }
+                        }
+
+                        @Override
+                        public BuildOperationDescriptor.Builder description() {
+                            return BuildOperationDescriptor.displayName("Analyzing include files of " + batch.size() + " source files");
+                        }
+                    });
+                }
+            }
+        });
+    }
 }
@@ -16,23 +16,39 @@
 package org.gradle.language.nativeplatform.internal.incremental;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import org.gradle.api.NonNullApi;
 import org.gradle.api.internal.TaskOutputsInternal;
+import org.gradle.api.internal.changedetection.state.FileSnapshot;
+import org.gradle.api.internal.changedetection.state.FileSystemSnapshotter;
 import org.gradle.api.logging.LogLevel;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.api.tasks.WorkResult;
 import org.gradle.api.tasks.WorkResults;
 import org.gradle.cache.PersistentStateCache;
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.internal.file.FileType;
 import org.gradle.internal.hash.HashCode;
+import org.gradle.language.base.compile.CompilerVersion;
 import org.gradle.language.base.internal.compile.Compiler;
+import org.gradle.language.base.internal.compile.VersionAwareCompiler;
 import org.gradle.language.base.internal.tasks.SimpleStaleClassCleaner;
+import org.gradle.nativeplatform.internal.CompilerOutputFileNamingScheme;
+import org.gradle.nativeplatform.internal.CompilerOutputFileNamingSchemeFactory;
+import org.gradle.nativeplatform.toolchain.internal.ArgumentsAwareCompiler;
 import org.gradle.nativeplatform.toolchain.internal.NativeCompileSpec;
+import org.gradle.nativeplatform.toolchain.internal.NativeCompiler;
 
+import javax.annotation.Nullable;
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @NonNullApi
 public class IncrementalNativeCompiler<T extends NativeCompileSpec> implements Compiler<T> {
@@ -42,16 +58,29 @@ public class IncrementalNativeCompiler<T extends NativeCompileSpec> implements C
     private final TaskOutputsInternal outputs;
     private final PersistentStateCache<CompilationState> compileStateCache;
     private final IncrementalCompilation incrementalCompilation;
+    private final FileSystemSnapshotter fileSystemSnapshotter;
+    private final CompilerOutputFileNamingSchemeFactory compilerOutputFileNamingSchemeFactory;
+    private final boolean useDependencyFiles;
+    @Nullable
+    private final ObjectFileCache objectFileCache;
 
-    public IncrementalNativeCompiler(TaskOutputsInternal outputs, Compiler<T> delegateCompiler, PersistentStateCache<CompilationState> compileStateCache, IncrementalCompilation incrementalCompilation) {
+    public IncrementalNativeCompiler(TaskOutputsInternal outputs, Compiler<T> delegateCompiler, PersistentStateCache<CompilationState> compileStateCache, IncrementalCompilation incrementalCompilation, FileSystemSnapshotter fileSystemSnapshotter, CompilerOutputFileNamingSchemeFactory compilerOutputFileNamingSchemeFactory, boolean useDependencyFiles, @Nullable ObjectFileCache objectFileCache) {
         this.outputs = outputs;
         this.delegateCompiler = delegateCompiler;
         this.compileStateCache = compileStateCache;
         this.incrementalCompilation = incrementalCompilation;
+        this.fileSystemSnapshotter = fileSystemSnapshotter;
+        this.compilerOutputFileNamingSchemeFactory = compilerOutputFileNamingSchemeFactory;
+        this.useDependencyFiles = useDependencyFiles;
+        this.objectFileCache = objectFileCache;
     }
 
     @Override
     public WorkResult execute(final T spec) {
+        if (useDependencyFiles) {
+            spec.setWriteDependencyFiles(true);
+        }
+
         WorkResult workResult;
         if (spec.isIncrementalCompile()) {
             workResult = doIncrementalCompile(incrementalCompilation, spec);
@@ -59,11 +88,52 @@ public class IncrementalNativeCompiler<T extends NativeCompileSpec> implements C
             workResult = doCleanIncrementalCompile(spec);
         }
 
-        compileStateCache.set(incrementalCompilation.getFinalState());
+        CompilationState finalState = incrementalCompilation.getFinalState();
+        if (useDependencyFiles) {
+            finalState = addCompilerDependencies(spec, finalState);
+        }
+        compileStateCache.set(finalState);
 
         return workResult;
     }
 
+    /**
+     * Adds the header files reported by the compiler for the compiled source files to their state, so that these can be checked instead of the include file graph in the next build.
+     */
+    private CompilationState addCompilerDependencies(T spec, CompilationState state) {
+        CompilerOutputFileNamingScheme namingScheme = compilerOutputFileNamingSchemeFactory.create()
+            .withObjectFileNameSuffix(NativeCompiler.DEPENDENCY_FILE_SUFFIX)
+            .withOutputBaseFolder(spec.getObjectFileDir());
+        DependencyFileParser parser = new DependencyFileParser();
+        Map<File, SourceFileState> fileStates = new LinkedHashMap<File, SourceFileState>(state.getFileStates());
+        for (File sourceFile : spec.getSourceFiles()) {
+            SourceFileState sourceFileState = fileStates.get(sourceFile);
+            File dependencyFile = namingScheme.map(sourceFile);
+            if (sourceFileState == null || !dependencyFile.isFile()) {
+                // The tool chain does not write dependency files
+                continue;
+            }
+            Map<File, HashCode> dependencies = new LinkedHashMap<File, HashCode>();
+            boolean complete = true;
+            for (File file : parser.parse(dependencyFile, spec.getObjectFileDir())) {
+                if (file.equals(sourceFile) || dependencies.containsKey(file)) {
+                    continue;
+                }
+                FileSnapshot snapshot = fileSystemSnapshotter.snapshotSelf(file);
+                if (snapshot.getType() != FileType.RegularFile) {
+                    // Removed while compiling, fall back to the include file graph
+                    complete = false;
+                    break;
+                }
+                dependencies.put(file, snapshot.getContent().getContentMd5());
+            }
+            if (complete) {
+                fileStates.put(sourceFile, new SourceFileState(sourceFileState.getHash(), sourceFileState.isHasUnresolved(), sourceFileState.getEdges(), ImmutableMap.copyOf(dependencies)));
+            }
+        }
+        return new CompilationState(ImmutableMap.copyOf(fileStates));
+    }
+
     private List<File> getSourceFilesForPch(T spec) {
         // When the component defines a precompiled header, we need to check if the precompiled header is the _first_ header in the source file.
         // For source files that do not include the precompiled header as the first file, we emit a warning
@@ -110,19 +180,67 @@ public class IncrementalNativeCompiler<T extends NativeCompileSpec> implements C
         spec.setSourceFiles(compilation.getRecompile());
         spec.setRemovedSourceFiles(compilation.getRemoved());
         spec.setSourceFilesForPch(getSourceFilesForPch(spec));
-        return delegateCompiler.execute(spec);
+        return compile(spec);
     }
 
     protected WorkResult doCleanIncrementalCompile(T spec) {
         boolean deleted = cleanPreviousOutputs(spec);
         spec.setSourceFilesForPch(getSourceFilesForPch(spec));
-        WorkResult compileResult = delegateCompiler.execute(spec);
+        WorkResult compileResult = compile(spec);
         if (deleted && !compileResult.getDidWork()) {
             return WorkResults.didWork(true);
         }
         return compileResult;
     }
 
+    private WorkResult compile(T spec) {
+        if (objectFileCache == null || !objectFileCache.isEnabled() || !(delegateCompiler instanceof VersionAwareCompiler)) {
+            return delegateCompiler.execute(spec);
+        }
+        VersionAwareCompiler<T> versionAwareCompiler = (VersionAwareCompiler<T>) delegateCompiler;
+        if (!(versionAwareCompiler.getCompiler() instanceof ArgumentsAwareCompiler)) {
+            return delegateCompiler.execute(spec);
+        }
+
+        // Load the outputs of those source files that have been compiled before with the same inputs from the build cache, and compile the others
+        CompilerVersion compilerVersion = versionAwareCompiler.getVersion();
+        List<String> args = ((ArgumentsAwareCompiler<T>) versionAwareCompiler.getCompiler()).getCommonArguments(spec);
+        CompilerOutputFileNamingScheme namingScheme = compilerOutputFileNamingSchemeFactory.create().withOutputBaseFolder(spec.getObjectFileDir());
+        CompilationState state = incrementalCompilation.getFinalState();
+        List<File> sourceFiles = spec.getSourceFiles();
+        Map<File, BuildCacheKey> keys = new LinkedHashMap<File, BuildCacheKey>();
+        Map<BuildCacheKey, File> outputDirs = new LinkedHashMap<BuildCacheKey, File>();
+        for (File sourceFile : sourceFiles) {
+            SourceFileState sourceFileState = state.getState(sourceFile);
+            BuildCacheKey key = sourceFileState == null ? null : objectFileCache.createKey(spec, compilerVersion, args, sourceFile, sourceFileState);
+            if (key != null) {
+                keys.put(sourceFile, key);
+                outputDirs.put(key, getOutputDir(namingScheme, sourceFile));
+            }
+        }
+        Set<BuildCacheKey> loaded = objectFileCache.loadAll(outputDirs);
+
+        List<File> sourceFilesToCompile = new ArrayList<File>(sourceFiles.size());
+        for (File sourceFile : sourceFiles) {
+            BuildCacheKey key = keys.get(sourceFile);
+            if (key == null || !loaded.contains(key)) {
+                sourceFilesToCompile.add(sourceFile);
+            }
+        }
+        outputDirs.keySet().removeAll(loaded);
+
+        spec.setSourceFiles(sourceFilesToCompile);
+        WorkResult compileResult = delegateCompiler.execute(spec);
+
+        objectFileCache.storeAll(outputDirs);
+        return WorkResults.didWork(compileResult.getDidWork() || !loaded.isEmpty());
+    }
+
+    private static File getOutputDir(CompilerOutputFileNamingScheme namingScheme, File sourceFile) {
+        // All outputs of a source file are written to the same directory
+        return namingScheme.map(sourceFile).getParentFile();
+    }
+
     private boolean cleanPreviousOutputs(NativeCompileSpec spec) {
         SimpleStaleClassCleaner cleaner = new SimpleStaleClassCleaner(outputs);
         cleaner.addDirToClean(spec.getObjectFileDir());
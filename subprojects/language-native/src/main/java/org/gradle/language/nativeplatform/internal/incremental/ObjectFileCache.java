@@ -0,0 +1,354 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.language.nativeplatform.internal.incremental;
+
+import com.google.common.io.Files;
+import org.gradle.api.Action;
+import org.gradle.api.NonNullApi;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.caching.internal.controller.BuildCacheController;
+import org.gradle.caching.internal.controller.BuildCacheLoadCommand;
+import org.gradle.caching.internal.controller.BuildCacheStoreCommand;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hasher;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.InputStreamBackedDecoder;
+import org.gradle.internal.serialize.OutputStreamBackedEncoder;
+import org.gradle.language.base.compile.CompilerVersion;
+import org.gradle.nativeplatform.platform.NativePlatform;
+import org.gradle.nativeplatform.toolchain.internal.NativeCompileSpec;
+import org.gradle.nativeplatform.toolchain.internal.NativeCompiler;
+import org.gradle.util.GFileUtils;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Stores the outputs of compiling individual source files in the build cache, so that these can be reused when only some of the source files of a compile task have changed.
+ *
+ * <p>An entry is keyed by the content of the source file and of the header files it includes, together with the compiler and the arguments used to compile it.
+ * The preprocessor is not run to calculate the key. Instead, the include file graph calculated for incremental compilation is used.</p>
+ *
+ * <p>Entries are loaded and stored in parallel, using a build operation for each source file.</p>
+ */
+@NonNullApi
+public class ObjectFileCache {
+    private static final Logger LOGGER = Logging.getLogger(ObjectFileCache.class);
+    // Change this when the key or the format of the entries changes
+    private static final int CACHE_ENTRY_VERSION = 2;
+
+    private final BuildCacheController buildCacheController;
+    private final BuildOperationExecutor buildOperationExecutor;
+
+    public ObjectFileCache(BuildCacheController buildCacheController, BuildOperationExecutor buildOperationExecutor) {
+        this.buildCacheController = buildCacheController;
+        this.buildOperationExecutor = buildOperationExecutor;
+    }
+
+    public boolean isEnabled() {
+        return buildCacheController.isEnabled();
+    }
+
+    /**
+     * Calculates the cache key for the outputs of the given source file, or returns null when these cannot be cached.
+     *
+     * @param args the arguments passed to the compiler for every source file of the spec, including those added by the tool chain.
+     */
+    @Nullable
+    public BuildCacheKey createKey(NativeCompileSpec spec, CompilerVersion compilerVersion, List<String> args, File sourceFile, SourceFileState state) {
+        if (state.isHasUnresolved()) {
+            // The headers included by the source file are not known
+            return null;
+        }
+        if (spec.getSourceFilesForPch().contains(sourceFile)) {
+            // The object file depends on the precompiled header as well
+            return null;
+        }
+
+        Hasher hasher = Hashing.md5().newHasher();
+        hasher.putInt(CACHE_ENTRY_VERSION);
+        hasher.putString(spec.getClass().getName());
+        hasher.putString(compilerVersion.getType());
+        hasher.putString(compilerVersion.getVendor());
+        hasher.putString(compilerVersion.getVersion());
+        NativePlatform targetPlatform = spec.getTargetPlatform();
+        hasher.putString(targetPlatform.getOperatingSystem().getName());
+        hasher.putString(targetPlatform.getArchitecture().getName());
+        putArgs(hasher, args, spec);
+
+        hasher.putString(sourceFile.getName());
+        hasher.putHash(state.getHash());
+        hasher.putInt(state.getEdges().size());
+        for (IncludeFileEdge edge : state.getEdges()) {
+            hasher.putString(edge.getIncludePath());
+            HashCode includedBy = edge.getIncludedBy();
+            hasher.putBoolean(includedBy != null);
+            if (includedBy != null) {
+                hasher.putHash(includedBy);
+            }
+            hasher.putHash(edge.getResolvedTo());
+        }
+        return new ObjectFileCacheKey(hasher.hash(), sourceFile);
+    }
+
+    /**
+     * Loads the outputs for each of the given keys into the associated output directory, replacing its content. Returns the keys for which an entry was loaded.
+     */
+    public Set<BuildCacheKey> loadAll(final Map<BuildCacheKey, File> outputDirs) {
+        final Set<BuildCacheKey> loaded = Collections.newSetFromMap(new ConcurrentHashMap<BuildCacheKey, Boolean>());
+        buildOperationExecutor.runAll(new Action<BuildOperationQueue<RunnableBuildOperation>>() {
+            @Override
+            public void execute(BuildOperationQueue<RunnableBuildOperation> queue) {
+                for (final Map.Entry<BuildCacheKey, File> entry : outputDirs.entrySet()) {
+                    queue.add(new RunnableBuildOperation() {
+                        @Override
+                        public void run(BuildOperationContext context) {
+                            if (load(entry.getKey(), entry.getValue())) {
+                                loaded.add(entry.getKey());
+                            }
+                        }
+
+                        @Override
+                        public BuildOperationDescriptor.Builder description() {
+                            return BuildOperationDescriptor.displayName("Load object files for " + entry.getKey().getDisplayName());
+                        }
+                    });
+                }
+            }
+        });
+        return loaded;
+    }
+
+    /**
+     * Stores the outputs in the output directory associated with each of the given keys.
+     */
+    public void storeAll(final Map<BuildCacheKey, File> outputDirs) {
+        buildOperationExecutor.runAll(new Action<BuildOperationQueue<RunnableBuildOperation>>() {
+            @Override
+            public void execute(BuildOperationQueue<RunnableBuildOperation> queue) {
+                for (final Map.Entry<BuildCacheKey, File> entry : outputDirs.entrySet()) {
+                    queue.add(new RunnableBuildOperation() {
+                        @Override
+                        public void run(BuildOperationContext context) {
+                            store(entry.getKey(), entry.getValue());
+                        }
+
+                        @Override
+                        public BuildOperationDescriptor.Builder description() {
+                            return BuildOperationDescriptor.displayName("Store object files for " + entry.getKey().getDisplayName());
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    private boolean load(BuildCacheKey key, File outputDir) {
+        try {
+            return buildCacheController.load(new LoadCommand(key, outputDir)) != null;
+        } catch (Exception e) {
+            LOGGER.warn("Could not load object files for {} from the build cache: {}", key.getDisplayName(), e.getMessage());
+            // Do not leave partially unpacked outputs behind
+            GFileUtils.deleteDirectory(outputDir);
+            return false;
+        }
+    }
+
+    private void store(BuildCacheKey key, File outputDir) {
+        if (getCacheableOutputs(outputDir).isEmpty()) {
+            // Nothing was written for the source file
+            return;
+        }
+        try {
+            buildCacheController.store(new StoreCommand(key, outputDir));
+        } catch (Exception e) {
+            LOGGER.warn("Could not store object files for {} in the build cache: {}", key.getDisplayName(), e.getMessage());
+        }
+    }
+
+    private static void putArgs(Hasher hasher, List<String> args, NativeCompileSpec spec) {
+        // The include directories differ between machines. The headers resolved through them are already part of the key.
+        List<String> includePaths = new ArrayList<String>();
+        for (File includeRoot : spec.getIncludeRoots()) {
+            includePaths.add(includeRoot.getAbsolutePath());
+        }
+        for (File includeRoot : spec.getSystemIncludeRoots()) {
+            includePaths.add(includeRoot.getAbsolutePath());
+        }
+        hasher.putInt(args.size());
+        for (String arg : args) {
+            hasher.putString(withoutIncludePath(arg, includePaths));
+        }
+    }
+
+    private static String withoutIncludePath(String arg, List<String> includePaths) {
+        for (String includePath : includePaths) {
+            if (arg.endsWith(includePath)) {
+                return arg.substring(0, arg.length() - includePath.length());
+            }
+        }
+        return arg;
+    }
+
+    private static List<File> getCacheableOutputs(File outputDir) {
+        List<File> outputs = new ArrayList<File>();
+        File[] files = outputDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                // Dependency files contain absolute paths, so they are not reused
+                if (file.isFile() && !file.getName().endsWith(NativeCompiler.DEPENDENCY_FILE_SUFFIX)) {
+                    outputs.add(file);
+                }
+            }
+        }
+        return outputs;
+    }
+
+    private static class ObjectFileCacheKey implements BuildCacheKey {
+        private final HashCode hashCode;
+        private final File sourceFile;
+
+        ObjectFileCacheKey(HashCode hashCode, File sourceFile) {
+            this.hashCode = hashCode;
+            this.sourceFile = sourceFile;
+        }
+
+        @Override
+        public String getHashCode() {
+            return hashCode.toString();
+        }
+
+        @Override
+        public String getDisplayName() {
+            return hashCode + " for " + sourceFile.getName();
+        }
+
+        @Override
+        public String toString() {
+            return getDisplayName();
+        }
+    }
+
+    private static class LoadCommand implements BuildCacheLoadCommand<Boolean> {
+        private final BuildCacheKey key;
+        private final File outputDir;
+
+        LoadCommand(BuildCacheKey key, File outputDir) {
+            this.key = key;
+            this.outputDir = outputDir;
+        }
+
+        @Override
+        public BuildCacheKey getKey() {
+            return key;
+        }
+
+        @Override
+        public Result<Boolean> load(InputStream inputStream) throws IOException {
+            GFileUtils.deleteDirectory(outputDir);
+            GFileUtils.mkdirs(outputDir);
+            InputStreamBackedDecoder decoder = new InputStreamBackedDecoder(new GZIPInputStream(inputStream));
+            try {
+                final int count = readOutputs(decoder);
+                return new Result<Boolean>() {
+                    @Override
+                    public long getArtifactEntryCount() {
+                        return count;
+                    }
+
+                    @Override
+                    public Boolean getMetadata() {
+                        return Boolean.TRUE;
+                    }
+                };
+            } finally {
+                decoder.close();
+            }
+        }
+
+        private int readOutputs(Decoder decoder) throws IOException {
+            int count = decoder.readSmallInt();
+            for (int i = 0; i < count; i++) {
+                String name = decoder.readString();
+                byte[] content = decoder.readBinary();
+                Files.write(content, new File(outputDir, name));
+            }
+            return count;
+        }
+    }
+
+    private static class StoreCommand implements BuildCacheStoreCommand {
+        private final BuildCacheKey key;
+        private final File outputDir;
+
+        StoreCommand(BuildCacheKey key, File outputDir) {
+            this.key = key;
+            this.outputDir = outputDir;
+        }
+
+        @Override
+        public BuildCacheKey getKey() {
+            return key;
+        }
+
+        @Override
+        public Result store(OutputStream outputStream) throws IOException {
+            OutputStreamBackedEncoder encoder = new OutputStreamBackedEncoder(new GZIPOutputStream(outputStream));
+            try {
+                final int count = writeOutputs(encoder);
+                return new Result() {
+                    @Override
+                    public long getArtifactEntryCount() {
+                        return count;
+                    }
+                };
+            } finally {
+                encoder.close();
+            }
+        }
+
+        private int writeOutputs(Encoder encoder) throws IOException {
+            List<File> outputs = getCacheableOutputs(outputDir);
+            encoder.writeSmallInt(outputs.size());
+            for (File output : outputs) {
+                encoder.writeString(output.getName());
+                encoder.writeBinary(Files.toByteArray(output));
+            }
+            return outputs.size();
+        }
+    }
+}
@@ -15,9 +15,13 @@
  */
 package org.gradle.language.nativeplatform.internal.incremental;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import org.gradle.internal.hash.HashCode;
 
+import javax.annotation.Nullable;
+import java.io.File;
+
 /**
  * Immutable snapshot of the state of a source file.
  */
@@ -25,11 +29,17 @@ public class SourceFileState {
     private final HashCode hash;
     private final boolean hasUnresolved;
     private final ImmutableSet<IncludeFileEdge> resolvedIncludes;
+    private final ImmutableMap<File, HashCode> compilerDependencies;
 
     public SourceFileState(HashCode hash, boolean hasUnresolved, ImmutableSet<IncludeFileEdge> resolvedIncludes) {
+        this(hash, hasUnresolved, resolvedIncludes, null);
+    }
+
+    public SourceFileState(HashCode hash, boolean hasUnresolved, ImmutableSet<IncludeFileEdge> resolvedIncludes, @Nullable ImmutableMap<File, HashCode> compilerDependencies) {
         this.hash = hash;
         this.hasUnresolved = hasUnresolved;
         this.resolvedIncludes = resolvedIncludes;
+        this.compilerDependencies = compilerDependencies;
     }
 
     public HashCode getHash() {
@@ -49,4 +59,12 @@ public class SourceFileState {
     public ImmutableSet<IncludeFileEdge> getEdges() {
         return resolvedIncludes;
     }
+
+    /**
+     * The header files that the compiler reported as used when this source file was last compiled, with their content hashes. Returns null when the compiler did not report these.
+     */
+    @Nullable
+    public ImmutableMap<File, HashCode> getCompilerDependencies() {
+        return compilerDependencies;
+    }
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.language.nativeplatform.internal.incremental.sourceparser;
+
+/**
+ * Finds the preprocessor directives in the content of a C source file, in a single pass over the content.
+ *
+ * <p>Applies the same filtering as {@link PreprocessingReader}: comments are replaced with a single space and line continuations are removed. Only the lines that start
+ * with a '#' are collected, all other lines are skipped without copying their content.</p>
+ */
+class DirectiveScanner {
+    private final char[] chars;
+    private final int length;
+    private int pos;
+
+    /**
+     * Whether or not the scanner is currently in the middle of a string literal.
+     */
+    private boolean inString;
+
+    /**
+     * Whether or not the last char has been a backslash.
+     */
+    private boolean quoted;
+
+    DirectiveScanner(char[] chars, int length) {
+        this.chars = chars;
+        this.length = length;
+    }
+
+    /**
+     * Collects the next directive line into the given buffer, starting with the '#'. Does not include the line separators.
+     *
+     * @return true if a directive was found, false when the end of the content is reached.
+     */
+    boolean readNextDirective(StringBuilder buffer) {
+        while (true) {
+            int ch = read();
+            while (ch == 0 || ch > 0 && ch != '\n' && ch != '\r' && Character.isWhitespace((char) ch)) {
+                ch = read();
+            }
+            if (ch == '#') {
+                buffer.append('#');
+                ch = read();
+                while (ch >= 0 && ch != '\n' && ch != '\r') {
+                    buffer.append((char) ch);
+                    ch = read();
+                }
+                endLine(ch);
+                return true;
+            }
+            while (ch >= 0 && ch != '\n' && ch != '\r') {
+                ch = read();
+            }
+            if (ch < 0) {
+                return false;
+            }
+            endLine(ch);
+        }
+    }
+
+    private void endLine(int ch) {
+        if (ch == '\r' && pos < length && chars[pos] == '\n') {
+            pos++;
+        }
+    }
+
+    /**
+     * Returns the next character of the filtered content, or -1 at the end of the content.
+     */
+    private int read() {
+        while (true) {
+            if (pos >= length) {
+                return -1;
+            }
+            char ch = chars[pos++];
+            if (ch == '\\' && discardNewLine()) {
+                continue;
+            }
+            if (ch == '"' && !quoted) {
+                inString = !inString;
+            } else if (ch == '\\') {
+                quoted = !quoted;
+            } else {
+                quoted = false;
+                if (!inString && ch == '/' && pos < length) {
+                    if (chars[pos] == '/') {
+                        return skipLineComment();
+                    }
+                    if (chars[pos] == '*') {
+                        return skipBlockComment();
+                    }
+                }
+            }
+            return ch;
+        }
+    }
+
+    /**
+     * Skips a '//' comment, and returns the line separator that ends it.
+     */
+    private int skipLineComment() {
+        pos++;
+        while (pos < length) {
+            char ch = chars[pos++];
+            if (ch == '\n' || ch == '\r') {
+                return ch;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Skips a '/*' comment, and returns the single space that replaces it.
+     */
+    private int skipBlockComment() {
+        pos++;
+        while (pos < length) {
+            if (chars[pos++] == '*') {
+                while (pos < length && chars[pos] == '*') {
+                    pos++;
+                }
+                if (pos < length && chars[pos++] == '/') {
+                    return ' ';
+                }
+            }
+        }
+        return -1;
+    }
+
+    private boolean discardNewLine() {
+        if (pos < length && chars[pos] == '\n') {
+            pos++;
+            return true;
+        }
+        if (pos + 1 < length && chars[pos] == '\r' && chars[pos + 1] == '\n') {
+            pos += 2;
+            return true;
+        }
+        return false;
+    }
+}
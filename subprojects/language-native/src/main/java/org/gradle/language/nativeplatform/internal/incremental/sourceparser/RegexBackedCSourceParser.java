@@ -19,6 +19,7 @@ package org.gradle.language.nativeplatform.internal.incremental.sourceparser;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.io.Files;
 import org.apache.commons.io.IOUtils;
 import org.gradle.api.GradleException;
 import org.gradle.language.nativeplatform.internal.Expression;
@@ -29,11 +30,12 @@ import org.gradle.language.nativeplatform.internal.Macro;
 import org.gradle.language.nativeplatform.internal.MacroFunction;
 
 import javax.annotation.Nullable;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -49,33 +51,31 @@ public class RegexBackedCSourceParser implements CSourceParser {
     @Override
     public IncludeDirectives parseSource(File sourceFile) {
         try {
-            Reader fileReader = new FileReader(sourceFile);
-            try {
-                return parseSource(fileReader);
-            } finally {
-                IOUtils.closeQuietly(fileReader);
-            }
+            // Decode the whole file at once, using the same charset as a FileReader would
+            CharBuffer content = Charset.defaultCharset().decode(ByteBuffer.wrap(Files.toByteArray(sourceFile)));
+            return parseSource(content.array(), content.limit());
         } catch (Exception e) {
             throw new GradleException(String.format("Could not extract includes from source file %s.", sourceFile), e);
         }
     }
 
     protected IncludeDirectives parseSource(Reader sourceReader) throws IOException {
+        char[] content = IOUtils.toCharArray(sourceReader);
+        return parseSource(content, content.length);
+    }
+
+    private IncludeDirectives parseSource(char[] content, int length) {
         Set<Include> includes = Sets.newLinkedHashSet();
         List<Macro> macros = Lists.newArrayList();
         List<MacroFunction> macroFunctions = Lists.newArrayList();
-        BufferedReader reader = new BufferedReader(sourceReader);
-        PreprocessingReader lineReader = new PreprocessingReader(reader);
+        DirectiveScanner scanner = new DirectiveScanner(content, length);
         Buffer buffer = new Buffer();
         while (true) {
             buffer.reset();
-            if (!lineReader.readNextLine(buffer.value)) {
+            if (!scanner.readNextDirective(buffer.value)) {
                 break;
             }
-            buffer.consumeWhitespace();
-            if (!buffer.consume('#')) {
-                continue;
-            }
+            buffer.consume('#');
             buffer.consumeWhitespace();
             if (buffer.consume("define")) {
                 parseDefineDirectiveBody(buffer, macros, macroFunctions);
@@ -16,16 +16,30 @@
 
 package org.gradle.language.nativeplatform.internal.registry;
 
+import org.gradle.internal.event.ListenerManager;
+import org.gradle.internal.nativeintegration.filesystem.FileSystem;
 import org.gradle.internal.service.ServiceRegistration;
 import org.gradle.internal.service.scopes.AbstractPluginServiceRegistry;
 import org.gradle.language.cpp.internal.NativeDependencyCache;
 import org.gradle.language.internal.DefaultNativeComponentFactory;
 import org.gradle.language.nativeplatform.internal.incremental.DefaultCompilationStateCacheFactory;
 import org.gradle.language.nativeplatform.internal.incremental.DefaultIncrementalCompilerBuilder;
+import org.gradle.language.nativeplatform.internal.incremental.DirectoryListingCache;
 import org.gradle.language.nativeplatform.internal.incremental.sourceparser.CachingCSourceParser;
 import org.gradle.language.nativeplatform.internal.toolchains.DefaultToolChainSelector;
 
 public class NativeLanguageServices extends AbstractPluginServiceRegistry {
+    @Override
+    public void registerGradleUserHomeServices(ServiceRegistration registration) {
+        registration.addProvider(new Object() {
+            DirectoryListingCache createDirectoryListingCache(FileSystem fileSystem, ListenerManager listenerManager) {
+                DirectoryListingCache directoryListingCache = new DirectoryListingCache(fileSystem);
+                listenerManager.addListener(directoryListingCache);
+                return directoryListingCache;
+            }
+        });
+    }
+
     @Override
     public void registerGradleServices(ServiceRegistration registration) {
         registration.add(DefaultCompilationStateCacheFactory.class);
@@ -83,6 +83,25 @@ class CompilationStateSerializerTest extends SerializerSpec {
         otherCompileState.edges == stateTwo.edges
     }
 
+    def "serializes state with header files reported by the compiler"() {
+        when:
+        def header = new File("header.h")
+        def fileOne = new File("one")
+        def stateOne = new SourceFileState(HashCode.fromInt(0x12345678), false, ImmutableSet.of(), ImmutableMap.of(header, HashCode.fromInt(1), new File("other.h"), HashCode.fromInt(2)))
+        def fileTwo = new File("two")
+        def stateTwo = new SourceFileState(HashCode.fromInt(0x23456789), false, ImmutableSet.of(), ImmutableMap.of(header, HashCode.fromInt(1)))
+        def fileThree = new File("three")
+        def stateThree = compilationFileState(HashCode.fromInt(0x34567890), ["ONE"])
+        def state = compilationState([(fileOne): stateOne, (fileTwo): stateTwo, (fileThree): stateThree])
+
+        then:
+        def newState = serialized(state)
+        newState.getState(fileOne).compilerDependencies == stateOne.compilerDependencies
+        newState.getState(fileTwo).compilerDependencies == stateTwo.compilerDependencies
+        newState.getState(fileThree).compilerDependencies == null
+        newState.getState(fileThree).edges == stateThree.edges
+    }
+
     private SourceFileState compilationFileState(HashCode hash, Collection<String> includes) {
         return new SourceFileState(hash, true, ImmutableSet.copyOf(includes.collect { new IncludeFileEdge(it, null, HashCode.fromInt(123) )}))
     }
@@ -16,6 +16,7 @@
 package org.gradle.language.nativeplatform.internal.incremental
 
 import org.gradle.api.internal.changedetection.state.TestFileSnapshotter
+import org.gradle.api.internal.file.TestFiles
 import org.gradle.language.nativeplatform.internal.Include
 import org.gradle.language.nativeplatform.internal.IncludeDirectives
 import org.gradle.language.nativeplatform.internal.incremental.sourceparser.RegexBackedCSourceParser
@@ -53,7 +54,7 @@ class DefaultSourceIncludesResolverTest extends Specification {
     def resolve(Include include) {
         def macros = new CollectingMacroLookup()
         macros.append(sourceFile, included)
-        return new DefaultSourceIncludesResolver(includePaths, fileSystemSnapshotter).resolveInclude(sourceFile, include, macros)
+        return new DefaultSourceIncludesResolver(includePaths, fileSystemSnapshotter, new DirectoryListingCache(TestFiles.fileSystem())).resolveInclude(sourceFile, include, macros)
     }
 
     def "ignores system include file that does not exist"() {
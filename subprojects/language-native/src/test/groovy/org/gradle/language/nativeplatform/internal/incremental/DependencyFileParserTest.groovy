@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.language.nativeplatform.internal.incremental
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class DependencyFileParserTest extends Specification {
+    @Rule final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    def parser = new DependencyFileParser()
+
+    def "parses prerequisites of rule"() {
+        expect:
+        parser.parse("foo.o: foo.c a.h b.h\n") == ["foo.c", "a.h", "b.h"]
+        parser.parse("foo.o: foo.c\n") == ["foo.c"]
+        parser.parse("foo.o:\n") == []
+        parser.parse("") == []
+    }
+
+    def "parses prerequisites split across lines"() {
+        expect:
+        parser.parse("foo.o: foo.c \\\n  a.h \\\n  b.h\n") == ["foo.c", "a.h", "b.h"]
+        parser.parse("foo.o: foo.c \\\r\n  a.h\r\n") == ["foo.c", "a.h"]
+        parser.parse("foo.o: \\\n foo.c\\\n a.h") == ["foo.c", "a.h"]
+    }
+
+    def "parses escaped characters"() {
+        expect:
+        parser.parse("foo.o: dir\\ with\\ spaces/a.h b\\#1.h \$\$c.h\n") == ["dir with spaces/a.h", "b#1.h", "\$c.h"]
+    }
+
+    def "parses Windows paths"() {
+        expect:
+        parser.parse("C:\\build\\foo.o: C:\\src\\foo.c C:/include/a.h\n") == ["C:\\src\\foo.c", "C:/include/a.h"]
+    }
+
+    def "ignores rules after the first"() {
+        expect:
+        parser.parse("foo.o: foo.c a.h\na.h:\n") == ["foo.c", "a.h"]
+    }
+
+    def "resolves relative paths against working directory"() {
+        def workingDir = tmpDir.createDir("work")
+        def header = tmpDir.file("include/a.h")
+        def dependencyFile = tmpDir.file("foo.d")
+        dependencyFile.text = "foo.o: foo.c ${header.absolutePath}\n"
+
+        expect:
+        parser.parse(dependencyFile, workingDir) == [new File(workingDir, "foo.c"), header]
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.language.nativeplatform.internal.incremental
+
+import org.gradle.api.internal.file.TestFiles
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class DirectoryListingCacheTest extends Specification {
+    @Rule final TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider()
+    def includeDir = temporaryFolder.testDirectory.createDir("include")
+    def cache = new DirectoryListingCache(TestFiles.fileSystem())
+
+    def "rules out files that are not listed in the directory"() {
+        includeDir.createFile("a.h")
+        includeDir.createFile("sub/b.h")
+
+        expect:
+        cache.mayContain(includeDir, "a.h")
+        cache.mayContain(includeDir, "sub/b.h")
+        !cache.mayContain(includeDir, "missing.h")
+        !cache.mayContain(includeDir, "sub/missing.h")
+        !cache.mayContain(includeDir, "missing/b.h")
+        !cache.mayContain(includeDir.file("missing"), "a.h")
+    }
+
+    def "leaves paths that may be normalized by the file system to the file system"() {
+        expect:
+        cache.mayContain(includeDir, "../a.h")
+        cache.mayContain(includeDir, "./a.h")
+        cache.mayContain(includeDir, "sub\\a.h")
+        cache.mayContain(includeDir, "/a.h")
+    }
+
+    def "lists directory again when task outputs may have changed"() {
+        expect:
+        !cache.mayContain(includeDir, "a.h")
+
+        when:
+        includeDir.createFile("a.h")
+
+        then:
+        !cache.mayContain(includeDir, "a.h")
+
+        when:
+        cache.beforeTaskOutputChanged()
+
+        then:
+        cache.mayContain(includeDir, "a.h")
+    }
+
+    def "lists directory again when a build starts"() {
+        expect:
+        !cache.mayContain(includeDir, "sub/a.h")
+
+        when:
+        includeDir.createFile("sub/a.h")
+        cache.afterStart()
+
+        then:
+        cache.mayContain(includeDir, "sub/a.h")
+    }
+}
@@ -16,6 +16,7 @@
 package org.gradle.language.nativeplatform.internal.incremental
 
 import com.google.common.collect.ImmutableList
+import com.google.common.collect.ImmutableMap
 import org.gradle.api.internal.changedetection.state.FileSnapshot
 import org.gradle.api.internal.changedetection.state.TestFileSnapshotter
 import org.gradle.cache.PersistentStateCache
@@ -361,6 +362,78 @@ class IncrementalCompileProcessorTest extends Specification {
         checkCompile recompiled: [source2], removed: []
     }
 
+    def "reports changes in source order when source files are analyzed in batches"() {
+        given:
+        initialFiles()
+        def added = (1..50).collect { sourceFile("file$it") }
+        added.eachWithIndex { file, i ->
+            sourceAdded(file, i % 2 == 0 ? [dep1] : [dep4])
+        }
+
+        expect:
+        checkCompile recompiled: added, removed: []
+        checkCompile recompiled: [], removed: []
+
+        when:
+        modified(dep3)
+
+        then:
+        checkCompile recompiled: [source1, source2] + added.findAll { graph[it] == [dep1] }, removed: []
+    }
+
+    def "uses header files reported by the compiler instead of treating unresolved includes as changed"() {
+        given:
+        def macroHeader = sourceFile("macroHeader")
+        dependencyResolver.unresolved(source1)
+        initialFiles()
+        recordCompilerDependencies(source1, [dep1, dep2, dep3, macroHeader])
+
+        expect:
+        checkCompile recompiled: [], removed: []
+
+        when:
+        modified(macroHeader)
+
+        then:
+        checkCompile recompiled: [source1], removed: []
+    }
+
+    def "checks the include file graph as well as the header files reported by the compiler"() {
+        given:
+        initialFiles()
+        recordCompilerDependencies(source1, [dep2])
+
+        when:
+        modified(dep3)
+
+        then:
+        checkCompile recompiled: [source1, source2], removed: []
+    }
+
+    def "detects new header file that shadows a header file reported by the compiler"() {
+        given:
+        initialFiles()
+        recordCompilerDependencies(source1, [dep1, dep2, dep3])
+
+        when:
+        def dep5 = sourceFile("dep5")
+        graph[dep5] = []
+        parse(dep5)
+        dependencyResolver.resolveAs("dep2", dep5)
+        graph[source1] = [dep1, dep5]
+
+        then:
+        checkCompile recompiled: [source1], removed: []
+    }
+
+    private void recordCompilerDependencies(TestFile sourceFile, List<TestFile> headers) {
+        def states = new LinkedHashMap<File, SourceFileState>(stateCache.get().fileStates)
+        def previous = states[sourceFile]
+        def dependencies = headers.collectEntries { [it, fileSystemSnapshotter.snapshotSelf(it).content.contentMd5] }
+        states[sourceFile] = new SourceFileState(previous.hash, previous.hasUnresolved, previous.edges, ImmutableMap.copyOf(dependencies))
+        stateCache.set(new CompilationState(ImmutableMap.copyOf(states)))
+    }
+
     def "discovers if unresolved includes have been used"() {
         given:
         parse(source1)
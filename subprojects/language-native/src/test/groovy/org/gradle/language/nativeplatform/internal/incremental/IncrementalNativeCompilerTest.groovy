@@ -15,15 +15,31 @@
  */
 package org.gradle.language.nativeplatform.internal.incremental
 
+import com.google.common.collect.ImmutableMap
+import com.google.common.collect.ImmutableSet
 import com.google.common.collect.Sets
 import org.gradle.api.internal.TaskOutputsInternal
+import org.gradle.api.internal.changedetection.state.TestFileSnapshotter
 import org.gradle.api.internal.file.TestFiles
 import org.gradle.api.tasks.WorkResults
 import org.gradle.cache.PersistentStateCache
+import org.gradle.caching.internal.controller.BuildCacheController
+import org.gradle.caching.internal.controller.BuildCacheLoadCommand
+import org.gradle.caching.internal.controller.BuildCacheStoreCommand
+import org.gradle.internal.hash.HashCode
+import org.gradle.internal.operations.TestBuildOperationExecutor
 import org.gradle.language.base.internal.compile.Compiler
+import org.gradle.language.base.internal.compile.DefaultCompilerVersion
+import org.gradle.language.base.internal.compile.VersionAwareCompiler
+import org.gradle.language.c.internal.DefaultCCompileSpec
+import org.gradle.nativeplatform.internal.CompilerOutputFileNamingSchemeFactory
+import org.gradle.nativeplatform.platform.internal.DefaultNativePlatform
+import org.gradle.nativeplatform.toolchain.internal.ArgumentsAwareCompiler
 import org.gradle.nativeplatform.toolchain.internal.NativeCompileSpec
+import org.gradle.nativeplatform.toolchain.internal.NativeCompiler
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.gradle.util.UsesNativeServices
+import org.gradle.util.VersionNumber
 import org.junit.Rule
 import spock.lang.Specification
 
@@ -36,7 +52,9 @@ class IncrementalNativeCompilerTest extends Specification {
     def compileStateCache = Mock(PersistentStateCache)
     def headerDependenciesCollector = new DefaultHeaderDependenciesCollector(TestFiles.directoryFileTreeFactory())
     def incrementalCompilation = Mock(IncrementalCompilation)
-    def compiler = new IncrementalNativeCompiler(outputs, delegateCompiler, compileStateCache, incrementalCompilation)
+    def fileSystemSnapshotter = new TestFileSnapshotter()
+    def compilerOutputFileNamingSchemeFactory = new CompilerOutputFileNamingSchemeFactory(TestFiles.resolver(temporaryFolder.testDirectory))
+    def compiler = new IncrementalNativeCompiler(outputs, delegateCompiler, compileStateCache, incrementalCompilation, fileSystemSnapshotter, compilerOutputFileNamingSchemeFactory, false, null)
 
     def "updates spec for incremental compilation"() {
         def spec = Mock(NativeCompileSpec)
@@ -88,4 +106,136 @@ class IncrementalNativeCompilerTest extends Specification {
         result.didWork
         outputFile.assertDoesNotExist()
     }
+
+    def "records header files reported by the compiler when dependency files are used"() {
+        def compiler = new IncrementalNativeCompiler(outputs, delegateCompiler, compileStateCache, incrementalCompilation, fileSystemSnapshotter, compilerOutputFileNamingSchemeFactory, true, null)
+        def spec = Mock(NativeCompileSpec)
+        def objectFileDir = temporaryFolder.file("objects")
+        def source = temporaryFolder.createFile("src/source.c")
+        def header = temporaryFolder.createFile("include/header.h") << "header"
+        def otherSource = temporaryFolder.createFile("src/other.c")
+        def sourceState = new SourceFileState(HashCode.fromInt(1), true, ImmutableSet.of())
+        def otherState = new SourceFileState(HashCode.fromInt(2), false, ImmutableSet.of())
+        def dependencyFile = compilerOutputFileNamingSchemeFactory.create()
+            .withObjectFileNameSuffix(NativeCompiler.DEPENDENCY_FILE_SUFFIX)
+            .withOutputBaseFolder(objectFileDir)
+            .map(source)
+        dependencyFile.parentFile.mkdirs()
+        dependencyFile.text = "source.o: ${source.absolutePath} \\\n  ${header.absolutePath}\n"
+
+        given:
+        spec.incrementalCompile >> true
+        spec.objectFileDir >> objectFileDir
+        spec.sourceFiles >> [source]
+        incrementalCompilation.recompile >> [source]
+        incrementalCompilation.removed >> []
+        incrementalCompilation.finalState >> new CompilationState(ImmutableMap.of(source, sourceState, otherSource, otherState))
+
+        when:
+        compiler.execute(spec)
+
+        then:
+        1 * spec.setWriteDependencyFiles(true)
+        1 * delegateCompiler.execute(spec) >> WorkResults.didWork(true)
+        1 * compileStateCache.set(_) >> { CompilationState state ->
+            def newSourceState = state.getState(source)
+            assert newSourceState.hash == sourceState.hash
+            assert newSourceState.hasUnresolved
+            assert newSourceState.compilerDependencies == [(header): fileSystemSnapshotter.snapshotSelf(header).content.contentMd5]
+            assert state.getState(otherSource).is(otherState)
+        }
+    }
+
+    def "loads object files of unchanged translation units from the build cache"() {
+        def entries = [:]
+        def buildCacheController = Stub(BuildCacheController) {
+            isEnabled() >> true
+            store(_) >> { BuildCacheStoreCommand command ->
+                def output = new ByteArrayOutputStream()
+                command.store(output)
+                entries[command.key.hashCode] = output.toByteArray()
+            }
+            load(_) >> { BuildCacheLoadCommand command ->
+                def entry = entries[command.key.hashCode]
+                entry == null ? null : command.load(new ByteArrayInputStream(entry)).metadata
+            }
+        }
+        def argumentsAwareCompiler = Mock(ArgumentsAwareCompiler) {
+            getCommonArguments(_) >> ['-c']
+        }
+        def versionAwareCompiler = new VersionAwareCompiler(argumentsAwareCompiler, new DefaultCompilerVersion("gcc", "GNU", VersionNumber.parse("7.3.0")))
+        def compiler = new IncrementalNativeCompiler(outputs, versionAwareCompiler, compileStateCache, incrementalCompilation, fileSystemSnapshotter, compilerOutputFileNamingSchemeFactory, false, new ObjectFileCache(buildCacheController, new TestBuildOperationExecutor()))
+        def objectFileDir = temporaryFolder.file("objects")
+        def source = temporaryFolder.createFile("src/source.c")
+        def otherSource = temporaryFolder.createFile("src/other.c")
+        def namingScheme = compilerOutputFileNamingSchemeFactory.create().withObjectFileNameSuffix(".o").withOutputBaseFolder(objectFileDir)
+        def objectFile = namingScheme.map(source)
+        def otherObjectFile = namingScheme.map(otherSource)
+        def spec = new DefaultCCompileSpec()
+        spec.targetPlatform = new DefaultNativePlatform("host")
+        spec.objectFileDir = objectFileDir
+        spec.incrementalCompile = true
+
+        given:
+        incrementalCompilation.removed >> []
+        def sourceState = new SourceFileState(HashCode.fromInt(1), false, ImmutableSet.of())
+        def finalState = new CompilationState(ImmutableMap.of(source, sourceState, otherSource, new SourceFileState(HashCode.fromInt(2), false, ImmutableSet.of())))
+        incrementalCompilation.finalState >> { finalState }
+        incrementalCompilation.recompile >> [source, otherSource]
+
+        when:
+        compiler.execute(spec)
+
+        then:
+        1 * argumentsAwareCompiler.execute(spec) >> {
+            assert spec.sourceFiles == [source, otherSource]
+            objectFile.parentFile.mkdirs()
+            objectFile.text = "source"
+            otherObjectFile.parentFile.mkdirs()
+            otherObjectFile.text = "other"
+            WorkResults.didWork(true)
+        }
+        entries.size() == 2
+
+        when:
+        finalState = new CompilationState(ImmutableMap.of(source, sourceState, otherSource, new SourceFileState(HashCode.fromInt(3), false, ImmutableSet.of())))
+        objectFile.delete()
+        otherObjectFile.delete()
+        def result = compiler.execute(spec)
+
+        then:
+        1 * argumentsAwareCompiler.execute(spec) >> {
+            assert spec.sourceFiles == [otherSource]
+            otherObjectFile.text = "other changed"
+            WorkResults.didWork(true)
+        }
+        result.didWork
+        objectFile.text == "source"
+        otherObjectFile.text == "other changed"
+        entries.size() == 3
+    }
+
+    def "cache key includes the arguments added by the tool chain but not the include directories"() {
+        def objectFileCache = new ObjectFileCache(Stub(BuildCacheController), new TestBuildOperationExecutor())
+        def compilerVersion = new DefaultCompilerVersion("gcc", "GNU", VersionNumber.parse("7.3.0"))
+        def source = temporaryFolder.createFile("src/source.c")
+        def state = new SourceFileState(HashCode.fromInt(1), false, ImmutableSet.of())
+        def includeDir = temporaryFolder.file("include")
+        def spec = new DefaultCCompileSpec()
+        spec.targetPlatform = new DefaultNativePlatform("host")
+        spec.include(includeDir)
+        def otherIncludeDir = temporaryFolder.file("other/include")
+        def otherSpec = new DefaultCCompileSpec()
+        otherSpec.targetPlatform = new DefaultNativePlatform("host")
+        otherSpec.include(otherIncludeDir)
+
+        when:
+        def key = objectFileCache.createKey(spec, compilerVersion, ['-c', '-I', includeDir.absolutePath], source, state)
+        def movedKey = objectFileCache.createKey(otherSpec, compilerVersion, ['-c', '-I', otherIncludeDir.absolutePath], source, state)
+        def toolChainArgsKey = objectFileCache.createKey(otherSpec, compilerVersion, ['-c', '-m32', '-I', otherIncludeDir.absolutePath], source, state)
+
+        then:
+        key.hashCode == movedKey.hashCode
+        key.hashCode != toolChainArgsKey.hashCode
+    }
 }
@@ -17,6 +17,7 @@
 package org.gradle.language.nativeplatform.internal.incremental
 
 import org.gradle.api.internal.changedetection.state.TestFileSnapshotter
+import org.gradle.api.internal.file.TestFiles
 import org.gradle.internal.serialize.SerializerSpec
 import org.gradle.language.nativeplatform.internal.incremental.sourceparser.IncludeDirectivesSerializer
 import org.gradle.language.nativeplatform.internal.incremental.sourceparser.RegexBackedCSourceParser
@@ -36,7 +37,7 @@ class SourceParseAndResolutionTest extends SerializerSpec {
     def sourceDir = tmpDir.createDir("src")
     def sourceFile = sourceDir.createFile("src.cpp")
     def fileSystemSnapshotter = new TestFileSnapshotter()
-    def resolver = new DefaultSourceIncludesResolver([includeDir], fileSystemSnapshotter)
+    def resolver = new DefaultSourceIncludesResolver([includeDir], fileSystemSnapshotter, new DirectoryListingCache(TestFiles.fileSystem()))
     def parser = new RegexBackedCSourceParser()
     def serializer = new IncludeDirectivesSerializer()
 
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.language.nativeplatform.internal.incremental.sourceparser
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class DirectiveScannerTest extends Specification {
+    private static final String BN = "\\" + System.getProperty("line.separator")
+
+    List<String> directives(String input) {
+        def scanner = new DirectiveScanner(input.toCharArray(), input.length())
+        def result = []
+        def line = new StringBuilder()
+        while (scanner.readNextDirective(line)) {
+            result << line.toString()
+            line.setLength(0)
+        }
+        return result
+    }
+
+    List<String> directivesFromPreprocessingReader(String input) {
+        def reader = new PreprocessingReader(new StringReader(input))
+        def result = []
+        def line = new StringBuilder()
+        while (reader.readNextLine(line)) {
+            def text = line.toString().replaceFirst(/^[\s\u0000]+/, "")
+            if (text.startsWith("#")) {
+                result << text
+            }
+            line.setLength(0)
+        }
+        return result
+    }
+
+    def "finds no directives in empty text"() {
+        expect:
+        directives("").empty
+        directives("\n\n").empty
+    }
+
+    def "finds directives on separate lines"() {
+        expect:
+        directives("#include <a.h>${eol}int x;${eol}  # define X 1${eol}#import \"b.h\"".toString()) == ['#include <a.h>', '# define X 1', '#import "b.h"']
+
+        where:
+        eol << ['\n', '\r', '\r\n']
+    }
+
+    def "ignores directives in comments"() {
+        expect:
+        directives("/*\n#include <a.h>\n*/\n// #include <b.h>\n#include <c.h>") == ['#include <c.h>']
+    }
+
+    def "ignores # that does not start a line"() {
+        expect:
+        directives("int x; #include <a.h>\nx # define X") == []
+    }
+
+    def "joins continued directive lines"() {
+        expect:
+        directives("#define X ${BN}  value${BN}\n#include X") == ['#define X   value', '#include X']
+    }
+
+    @Unroll
+    def "finds the same directives as the preprocessing reader for #description"() {
+        expect:
+        directives(input) == directivesFromPreprocessingReader(input)
+
+        where:
+        description                    | input
+        "leading comments"             | "/* comment */ #include <a.h>\n  /* multi\nline */ #define X"
+        "trailing comments"            | "#include <a.h> // comment\n#define X /* comment */ 1\r\n#import <b.h>/*"
+        "escaped quotes"               | '#define X "a\\"b"\n"\\"\n#include "c.h"'
+        "carriage returns"             | "#include <a.h>\r\r\\\r\\\r${BN}#define X\\\r."
+        "continuations in a directive" | "#inc${BN}lude <a${BN}.h>\n#${BN}define X"
+        "stars in a comment"           | "/** comment ** / **/#include <a.h>\n/***/#define X"
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.performance.experiment.java
+
+import org.gradle.performance.AbstractCrossBuildPerformanceTest
+import org.gradle.performance.categories.PerformanceExperiment
+import org.junit.experimental.categories.Category
+import spock.lang.Unroll
+
+import static org.gradle.performance.generator.JavaTestProject.LARGE_JAVA_MULTI_PROJECT
+import static org.gradle.performance.generator.JavaTestProject.LARGE_MONOLITHIC_JAVA_PROJECT
+
+/**
+ * Compares the storage engines of the persistent indexed caches. An up-to-date build mostly reads the task history and file hash caches, while a clean build writes them.
+ */
+@Category(PerformanceExperiment)
+class PersistentIndexedCacheStoragePerformanceTest extends AbstractCrossBuildPerformanceTest {
+
+    @Unroll
+    def "#tasks on #testProject with log structured caches"() {
+        when:
+        runner.testGroup = "persistent indexed cache storage"
+        runner.buildSpec {
+            warmUpCount = warmUpRuns
+            invocationCount = runs
+            projectName(testProject.projectName).displayName("log structured").invocation {
+                tasksToRun(tasks.split(' ')).useDaemon().gradleOpts("-Xms${testProject.daemonMemory}", "-Xmx${testProject.daemonMemory}", "-Dorg.gradle.internal.cache.log.structured=true")
+            }
+        }
+        runner.baseline {
+            warmUpCount = warmUpRuns
+            invocationCount = runs
+            projectName(testProject.projectName).displayName("b-tree").invocation {
+                tasksToRun(tasks.split(' ')).useDaemon().gradleOpts("-Xms${testProject.daemonMemory}", "-Xmx${testProject.daemonMemory}")
+            }
+        }
+
+        then:
+        runner.run()
+
+        where:
+        testProject                   | tasks            | warmUpRuns | runs
+        LARGE_MONOLITHIC_JAVA_PROJECT | 'assemble'       | 2          | 10
+        LARGE_MONOLITHIC_JAVA_PROJECT | 'clean assemble' | 2          | 6
+        LARGE_JAVA_MULTI_PROJECT      | 'assemble'       | 2          | 10
+        LARGE_JAVA_MULTI_PROJECT      | 'clean assemble' | 2          | 6
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
+import org.gradle.cache.internal.logstructured.LogStructuredPersistentIndexedCache;
+import org.gradle.cache.internal.store.PersistentIndexedStore;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.gradle.internal.serialize.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Compares the storage engines for persistent indexed caches using the access patterns of the file hash cache (many small entries, mostly read)
+ * and the task history cache (fewer, larger entries that are replaced on every build).
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class PersistentIndexedCacheBenchmark {
+    private static final int FILE_HASH_ENTRIES = 20000;
+    private static final int TASK_HISTORY_ENTRIES = 500;
+    private static final int TASK_HISTORY_VALUE_SIZE = 8 * 1024;
+
+    @Param({"btree", "logStructured"})
+    String engine;
+
+    File tmpDir;
+    PersistentIndexedStore<String, byte[]> fileHashes;
+    PersistentIndexedStore<String, byte[]> taskHistory;
+    Random random;
+    byte[] fileHash;
+    byte[] taskHistoryValue;
+
+    @Setup(Level.Iteration)
+    public void prepare() throws IOException {
+        tmpDir = File.createTempFile("jmh", "cache");
+        tmpDir.delete();
+        tmpDir.mkdirs();
+        random = new Random(1234);
+        fileHash = new byte[16];
+        taskHistoryValue = new byte[TASK_HISTORY_VALUE_SIZE];
+
+        fileHashes = createStore("fileHashes");
+        for (int i = 0; i < FILE_HASH_ENTRIES; i++) {
+            random.nextBytes(fileHash);
+            fileHashes.put(filePath(i), fileHash.clone());
+        }
+        taskHistory = createStore("taskHistory");
+        for (int i = 0; i < TASK_HISTORY_ENTRIES; i++) {
+            random.nextBytes(taskHistoryValue);
+            taskHistory.put(taskPath(i), taskHistoryValue.clone());
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        fileHashes.close();
+        taskHistory.close();
+        FileUtils.deleteDirectory(tmpDir);
+    }
+
+    private PersistentIndexedStore<String, byte[]> createStore(String name) {
+        Serializer<String> keySerializer = BaseSerializerFactory.STRING_SERIALIZER;
+        Serializer<byte[]> valueSerializer = BaseSerializerFactory.BYTE_ARRAY_SERIALIZER;
+        if (engine.equals("logStructured")) {
+            return new LogStructuredPersistentIndexedCache<String, byte[]>(new File(tmpDir, name + ".log"), keySerializer, valueSerializer);
+        }
+        return new BTreePersistentIndexedCache<String, byte[]>(new File(tmpDir, name + ".bin"), keySerializer, valueSerializer);
+    }
+
+    private static String filePath(int i) {
+        return "/home/user/project/src/main/java/org/example/pkg" + (i % 100) + "/Source" + i + ".java";
+    }
+
+    private static String taskPath(int i) {
+        return ":project" + (i % 50) + ":task" + i;
+    }
+
+    @Benchmark
+    public void file_hashes_read_mostly(Blackhole bh) {
+        int i = random.nextInt(FILE_HASH_ENTRIES);
+        if (random.nextInt(10) == 0) {
+            random.nextBytes(fileHash);
+            fileHashes.put(filePath(i), fileHash.clone());
+        } else {
+            bh.consume(fileHashes.get(filePath(i)));
+        }
+    }
+
+    @Benchmark
+    public void task_history_read_then_replace(Blackhole bh) {
+        String key = taskPath(random.nextInt(TASK_HISTORY_ENTRIES));
+        bh.consume(taskHistory.get(key));
+        random.nextBytes(taskHistoryValue);
+        taskHistory.put(key, taskHistoryValue.clone());
+    }
+}
@@ -26,6 +26,7 @@ public class PersistentIndexedCacheParameters<K, V> {
     private final Serializer<K> keySerializer;
     private final Serializer<V> valueSerializer;
     private CacheDecorator cacheDecorator;
+    private boolean logStructured;
 
     public PersistentIndexedCacheParameters(String cacheName, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
         this.cacheName = cacheName;
@@ -67,4 +68,17 @@ public class PersistentIndexedCacheParameters<K, V> {
         this.cacheDecorator = cacheDecorator;
         return this;
     }
+
+    public boolean isLogStructured() {
+        return logStructured;
+    }
+
+    /**
+     * Stores the entries of the cache in an append-only log, rather than in a B-tree that is updated in place. This suits caches that receive many small updates,
+     * as these are written to the end of the file instead of to random locations in it.
+     */
+    public PersistentIndexedCacheParameters<K, V> logStructured() {
+        this.logStructured = true;
+        return this;
+    }
 }
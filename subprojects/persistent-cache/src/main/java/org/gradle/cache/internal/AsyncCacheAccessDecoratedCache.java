@@ -56,28 +56,20 @@ public class AsyncCacheAccessDecoratedCache<K, V> implements MultiProcessSafeAsy
 
     @Override
     public void putLater(final K key, final V value, final Runnable completion) {
-        asyncCacheAccess.enqueue(new Runnable() {
+        asyncCacheAccess.enqueue(new EntryWrite(key, completion) {
             @Override
-            public void run() {
-                try {
-                    persistentCache.put(key, value);
-                } finally {
-                    completion.run();
-                }
+            protected void write() {
+                persistentCache.put(key, value);
             }
         });
     }
 
     @Override
     public void removeLater(final K key, final Runnable completion) {
-        asyncCacheAccess.enqueue(new Runnable() {
+        asyncCacheAccess.enqueue(new EntryWrite(key, completion) {
             @Override
-            public void run() {
-                try {
-                    persistentCache.remove(key);
-                } finally {
-                    completion.run();
-                }
+            protected void write() {
+                persistentCache.remove(key);
             }
         });
     }
@@ -96,4 +88,40 @@ public class AsyncCacheAccessDecoratedCache<K, V> implements MultiProcessSafeAsy
     public void beforeLockRelease(FileLock.State currentCacheState) {
         persistentCache.beforeLockRelease(currentCacheState);
     }
+
+    private abstract class EntryWrite implements CoalescableCacheWrite {
+        private final K key;
+        private final Runnable completion;
+
+        EntryWrite(K key, Runnable completion) {
+            this.key = key;
+            this.completion = completion;
+        }
+
+        @Override
+        public Object getCache() {
+            return persistentCache;
+        }
+
+        @Override
+        public Object getKey() {
+            return key;
+        }
+
+        @Override
+        public void run() {
+            try {
+                write();
+            } finally {
+                completion.run();
+            }
+        }
+
+        @Override
+        public void skip() {
+            completion.run();
+        }
+
+        protected abstract void write();
+    }
 }
@@ -24,9 +24,15 @@ import org.gradle.internal.concurrent.ExecutorPolicy;
 import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.time.CountdownTimer;
 import org.gradle.internal.time.Time;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
@@ -34,9 +40,19 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Applies the operations submitted to it on a single thread, while holding the cache lock.
+ *
+ * <p>Queued operations are applied in batches: the worker takes all operations that are in the queue, skips writes that are replaced by a later write to the same entry in the batch,
+ * and applies the remaining operations, without releasing the cache lock between batches until the queue stays empty for the batch window.</p>
+ */
 class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheAccessWorker.class);
+
     private final BlockingQueue<Runnable> workQueue;
+    private final int maximumBatchSize;
     private final String displayName;
     private final CacheAccess cacheAccess;
     private final long batchWindowMillis;
@@ -45,6 +61,13 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
     private boolean workerCompleted;
     private boolean stopSeen;
     private final CountDownLatch doneSignal = new CountDownLatch(1);
+    private final AtomicInteger pendingOperations = new AtomicInteger();
+    // Statistics, only updated by the worker thread
+    private int batchCount;
+    private int operationCount;
+    private int coalescedWriteCount;
+    private int maximumBatchSizeSeen;
+    private int maximumQueueDepthSeen;
     private final ExecutorPolicy.CatchAndRecordFailures failureHandler = new ExecutorPolicy.CatchAndRecordFailures();
 
     CacheAccessWorker(String displayName, CacheAccess cacheAccess) {
@@ -55,11 +78,22 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
         HeapProportionalCacheSizer heapProportionalCacheSizer = new HeapProportionalCacheSizer();
         int queueCapacity = Math.min(4000, heapProportionalCacheSizer.scaleCacheSize(40000));
         workQueue = new ArrayBlockingQueue<Runnable>(queueCapacity, true);
+        maximumBatchSize = queueCapacity;
     }
 
     @Override
     public void enqueue(Runnable task) {
-        addToQueue(task);
+        addOperationToQueue(task);
+    }
+
+    private void addOperationToQueue(Runnable task) {
+        pendingOperations.incrementAndGet();
+        try {
+            addToQueue(task);
+        } catch (RuntimeException e) {
+            pendingOperations.decrementAndGet();
+            throw e;
+        }
     }
 
     private void addToQueue(Runnable task) {
@@ -80,7 +114,7 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
                 return task.create();
             }
         });
-        addToQueue(futureTask);
+        addOperationToQueue(futureTask);
         try {
             return futureTask.get();
         } catch (ExecutionException e) {
@@ -92,7 +126,8 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
 
     @Override
     public synchronized void flush() {
-        if (!workerCompleted && !closed) {
+        // Avoid the round trip through the worker thread when there is nothing to wait for
+        if (!workerCompleted && !closed && pendingOperations.get() > 0) {
             FlushOperationsCommand flushOperationsCommand = new FlushOperationsCommand();
             addToQueue(flushOperationsCommand);
             flushOperationsCommand.await();
@@ -100,6 +135,41 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
         rethrowFailure();
     }
 
+    /**
+     * The number of batches applied so far.
+     */
+    int getBatchCount() {
+        return batchCount;
+    }
+
+    /**
+     * The number of operations taken from the queue so far, including writes that were skipped because a later write replaced them.
+     */
+    int getOperationCount() {
+        return operationCount;
+    }
+
+    /**
+     * The number of writes skipped so far because a later write in the same batch replaced them.
+     */
+    int getCoalescedWriteCount() {
+        return coalescedWriteCount;
+    }
+
+    /**
+     * The largest number of operations applied in one batch so far.
+     */
+    int getMaximumBatchSize() {
+        return maximumBatchSizeSeen;
+    }
+
+    /**
+     * The largest number of operations seen waiting in the queue so far.
+     */
+    int getMaximumQueueDepth() {
+        return maximumQueueDepthSeen;
+    }
+
     private void rethrowFailure() {
         failureHandler.onStop();
     }
@@ -160,6 +230,10 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
                 }
             }
             workerCompleted = true;
+            if (batchCount > 0) {
+                LOGGER.debug("Applied {} operations to {} in {} batches (largest batch {}, largest queue depth {}), skipped {} replaced writes.",
+                    operationCount, displayName, batchCount, maximumBatchSizeSeen, maximumQueueDepthSeen, coalescedWriteCount);
+            }
             doneSignal.countDown();
         }
     }
@@ -175,25 +249,25 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
                 @Override
                 public void run() {
                     CountdownTimer timer = Time.startCountdownTimer(maximumLockingTimeMillis, TimeUnit.MILLISECONDS);
-                    if (updateOperation != null) {
-                        failureHandler.onExecute(updateOperation);
-                    }
-                    Runnable otherOperation;
+                    List<Runnable> batch = new ArrayList<Runnable>();
+                    Runnable nextOperation = updateOperation;
                     try {
-                        while ((otherOperation = workQueue.poll(batchWindowMillis, TimeUnit.MILLISECONDS)) != null) {
-                            failureHandler.onExecute(otherOperation);
-                            final Class<? extends Runnable> runnableClass = otherOperation.getClass();
-                            if (runnableClass == FlushOperationsCommand.class) {
-                                flushOperations.add((FlushOperationsCommand) otherOperation);
-                            }
-                            if (runnableClass == ShutdownOperationsCommand.class) {
-                                stopSeen = true;
+                        while (nextOperation != null) {
+                            Runnable command = takeBatch(nextOperation, batch);
+                            applyBatch(batch);
+                            batch.clear();
+                            if (command != null) {
+                                if (command.getClass() == FlushOperationsCommand.class) {
+                                    flushOperations.add((FlushOperationsCommand) command);
+                                } else {
+                                    stopSeen = true;
+                                }
+                                break;
                             }
-                            if (runnableClass == ShutdownOperationsCommand.class
-                                    || runnableClass == FlushOperationsCommand.class
-                                    || timer.hasExpired()) {
+                            if (timer.hasExpired()) {
                                 break;
                             }
+                            nextOperation = workQueue.poll(batchWindowMillis, TimeUnit.MILLISECONDS);
                         }
                     } catch (InterruptedException e) {
                         throw UncheckedException.throwAsUncheckedException(e);
@@ -207,6 +281,76 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
         }
     }
 
+    /**
+     * Collects the given operation and the operations queued behind it into the given batch, stopping at the first flush or shutdown command.
+     *
+     * @return the command that ended the batch, or null if the queue is empty or the batch is full.
+     */
+    private Runnable takeBatch(Runnable firstOperation, List<Runnable> batch) {
+        maximumQueueDepthSeen = Math.max(maximumQueueDepthSeen, workQueue.size() + 1);
+        Runnable operation = firstOperation;
+        while (operation != null) {
+            Class<? extends Runnable> runnableClass = operation.getClass();
+            if (runnableClass == FlushOperationsCommand.class || runnableClass == ShutdownOperationsCommand.class) {
+                return operation;
+            }
+            batch.add(operation);
+            if (batch.size() >= maximumBatchSize) {
+                break;
+            }
+            // Only this thread takes from the queue
+            operation = workQueue.poll();
+        }
+        return null;
+    }
+
+    private void applyBatch(List<Runnable> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        boolean[] replaced = findReplacedWrites(batch);
+        for (int i = 0; i < batch.size(); i++) {
+            Runnable operation = batch.get(i);
+            try {
+                if (replaced[i]) {
+                    failureHandler.onExecute(new SkipWrite((CoalescableCacheWrite) operation));
+                    coalescedWriteCount++;
+                } else {
+                    failureHandler.onExecute(operation);
+                }
+            } finally {
+                pendingOperations.decrementAndGet();
+            }
+        }
+        batchCount++;
+        operationCount += batch.size();
+        maximumBatchSizeSeen = Math.max(maximumBatchSizeSeen, batch.size());
+    }
+
+    /**
+     * Finds the writes in the batch that are followed by another write to the same entry, with no other operation in between that might observe the first write.
+     */
+    private static boolean[] findReplacedWrites(List<Runnable> batch) {
+        boolean[] replaced = new boolean[batch.size()];
+        Map<Object, Set<Object>> keysWrittenLater = new IdentityHashMap<Object, Set<Object>>();
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            Runnable operation = batch.get(i);
+            if (operation instanceof CoalescableCacheWrite) {
+                CoalescableCacheWrite write = (CoalescableCacheWrite) operation;
+                Set<Object> keys = keysWrittenLater.get(write.getCache());
+                if (keys == null) {
+                    keys = new HashSet<Object>();
+                    keysWrittenLater.put(write.getCache(), keys);
+                }
+                replaced[i] = !keys.add(write.getKey());
+            } else if (!keysWrittenLater.isEmpty()) {
+                // Reads and other operations must see every write that precedes them
+                keysWrittenLater.clear();
+            }
+        }
+        return replaced;
+    }
+
     public synchronized void stop() {
         if (!closed && !workerCompleted) {
             closed = true;
@@ -230,4 +374,17 @@ class CacheAccessWorker implements Runnable, Stoppable, AsyncCacheAccess {
             // do nothing
         }
     }
+
+    private static class SkipWrite implements Runnable {
+        private final CoalescableCacheWrite write;
+
+        SkipWrite(CoalescableCacheWrite write) {
+            this.write = write;
+        }
+
+        @Override
+        public void run() {
+            write.skip();
+        }
+    }
 }
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+/**
+ * A write to a single entry of a cache, submitted to a {@link CacheAccessWorker}. The worker can skip a write when a later write in the same batch replaces the same entry.
+ */
+interface CoalescableCacheWrite extends Runnable {
+    /**
+     * The cache being written to. Compared using identity.
+     */
+    Object getCache();
+
+    /**
+     * The key of the entry being written to.
+     */
+    Object getKey();
+
+    /**
+     * Called instead of {@link #run()} when this write is replaced by a later write to the same entry.
+     */
+    void skip();
+}
@@ -30,6 +30,8 @@ import org.gradle.cache.MultiProcessSafePersistentIndexedCache;
 import org.gradle.cache.PersistentIndexedCacheParameters;
 import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
 import org.gradle.cache.internal.cacheops.CacheAccessOperationsStack;
+import org.gradle.cache.internal.logstructured.LogStructuredPersistentIndexedCache;
+import org.gradle.cache.internal.store.PersistentIndexedStore;
 import org.gradle.internal.Cast;
 import org.gradle.internal.Factories;
 import org.gradle.internal.Factory;
@@ -57,6 +59,8 @@ import static org.gradle.cache.FileLockManager.LockMode.Exclusive;
 @ThreadSafe
 public class DefaultCacheAccess implements CacheCoordinator {
     private final static Logger LOG = LoggerFactory.getLogger(DefaultCacheAccess.class);
+    // Uses the log structured storage engine for every indexed cache, to compare the engines on real builds
+    private final static String LOG_STRUCTURED_CACHES_PROPERTY_NAME = "org.gradle.internal.cache.log.structured";
     private final static Runnable NO_OP = new Runnable() {
         @Override
         public void run() {
@@ -174,6 +178,7 @@ public class DefaultCacheAccess implements CacheCoordinator {
                     LOG.debug("Cache {} could not run cleanup action {}", cacheDisplayName, cleanupAction);
                 }
             }
+            compactIndexedCaches();
             if (fileLockHeldByOwner != null) {
                 fileLockHeldByOwner.run();
             }
@@ -188,6 +193,29 @@ public class DefaultCacheAccess implements CacheCoordinator {
         }
     }
 
+    /**
+     * Compacts the stores of the indexed caches that need it. This is done when the cache is closed rather than when the file lock is released, so that handing the lock over to
+     * another process stays cheap.
+     */
+    private void compactIndexedCaches() {
+        for (final IndexedCacheEntry<?, ?> entry : caches.values()) {
+            if (!entry.getPersistentCache().requiresCompaction()) {
+                continue;
+            }
+            try {
+                crossProcessCacheAccess.withFileLock(new Factory<Void>() {
+                    @Override
+                    public Void create() {
+                        entry.getPersistentCache().compact();
+                        return null;
+                    }
+                });
+            } catch (Exception e) {
+                LOG.debug("Cache {} could not compact {}.", cacheDisplayName, entry.getParameters().getCacheName(), e);
+            }
+        }
+    }
+
     @Override
     public <T> T withFileLock(Factory<? extends T> action) {
         return crossProcessCacheAccess.withFileLock(action);
@@ -282,15 +310,21 @@ public class DefaultCacheAccess implements CacheCoordinator {
         IndexedCacheEntry<K, V> entry = Cast.uncheckedCast(caches.get(parameters.getCacheName()));
         try {
             if (entry == null) {
-                final File cacheFile = new File(baseDir, parameters.getCacheName() + ".bin");
+                final boolean logStructured = parameters.isLogStructured() || Boolean.getBoolean(LOG_STRUCTURED_CACHES_PROPERTY_NAME);
+                // Use a different file for each storage engine, as they use different file formats
+                final File cacheFile = new File(baseDir, parameters.getCacheName() + (logStructured ? ".log" : ".bin"));
                 LOG.debug("Creating new cache for {}, path {}, access {}", parameters.getCacheName(), cacheFile, this);
-                Factory<BTreePersistentIndexedCache<K, V>> indexedCacheFactory = new Factory<BTreePersistentIndexedCache<K, V>>() {
-                    public BTreePersistentIndexedCache<K, V> create() {
+                Factory<PersistentIndexedStore<K, V>> indexedCacheFactory = new Factory<PersistentIndexedStore<K, V>>() {
+                    public PersistentIndexedStore<K, V> create() {
+                        if (logStructured) {
+                            return doCreateLogStructuredCache(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer());
+                        }
                         return doCreateCache(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer());
                     }
                 };
 
-                MultiProcessSafePersistentIndexedCache<K, V> indexedCache = new DefaultMultiProcessSafePersistentIndexedCache<K, V>(indexedCacheFactory, fileAccess);
+                DefaultMultiProcessSafePersistentIndexedCache<K, V> persistentCache = new DefaultMultiProcessSafePersistentIndexedCache<K, V>(indexedCacheFactory, fileAccess);
+                MultiProcessSafePersistentIndexedCache<K, V> indexedCache = persistentCache;
                 CacheDecorator decorator = parameters.getCacheDecorator();
                 if (decorator != null) {
                     indexedCache = decorator.decorate(cacheFile.getAbsolutePath(), parameters.getCacheName(), indexedCache, crossProcessCacheAccess, getCacheAccessWorker());
@@ -298,7 +332,7 @@ public class DefaultCacheAccess implements CacheCoordinator {
                         useCache(NO_OP);
                     }
                 }
-                entry = new IndexedCacheEntry<K, V>(parameters, indexedCache);
+                entry = new IndexedCacheEntry<K, V>(parameters, indexedCache, persistentCache);
                 caches.put(parameters.getCacheName(), entry);
                 if (fileLock != null) {
                     indexedCache.afterLockAcquire(stateAtOpen);
@@ -316,6 +350,10 @@ public class DefaultCacheAccess implements CacheCoordinator {
         return new BTreePersistentIndexedCache<K, V>(cacheFile, keySerializer, valueSerializer);
     }
 
+    <K, V> LogStructuredPersistentIndexedCache<K, V> doCreateLogStructuredCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        return new LogStructuredPersistentIndexedCache<K, V>(cacheFile, keySerializer, valueSerializer);
+    }
+
     /**
      * Called just after the file lock has been acquired.
      */
@@ -422,17 +460,26 @@ public class DefaultCacheAccess implements CacheCoordinator {
 
     private static class IndexedCacheEntry<K, V> {
         private final MultiProcessSafePersistentIndexedCache<K, V> cache;
+        private final DefaultMultiProcessSafePersistentIndexedCache<K, V> persistentCache;
         private final PersistentIndexedCacheParameters<K, V> parameters;
 
-        IndexedCacheEntry(PersistentIndexedCacheParameters<K, V> parameters, MultiProcessSafePersistentIndexedCache<K, V> cache) {
+        IndexedCacheEntry(PersistentIndexedCacheParameters<K, V> parameters, MultiProcessSafePersistentIndexedCache<K, V> cache, DefaultMultiProcessSafePersistentIndexedCache<K, V> persistentCache) {
             this.parameters = parameters;
             this.cache = cache;
+            this.persistentCache = persistentCache;
         }
 
         public MultiProcessSafePersistentIndexedCache<K, V> getCache() {
             return cache;
         }
 
+        /**
+         * Returns the undecorated cache.
+         */
+        public DefaultMultiProcessSafePersistentIndexedCache<K, V> getPersistentCache() {
+            return persistentCache;
+        }
+
         public PersistentIndexedCacheParameters<K, V> getParameters() {
             return parameters;
         }
@@ -444,6 +491,7 @@ public class DefaultCacheAccess implements CacheCoordinator {
             checkCompatibleKeySerializer(faultMessages, parameters.getKeySerializer());
             checkCompatibleValueSerializer(faultMessages, parameters.getValueSerializer());
             checkCompatibleCacheDecorator(faultMessages, parameters.getCacheDecorator());
+            checkCompatibleStorage(faultMessages, parameters.isLogStructured());
 
             if (!faultMessages.isEmpty()) {
                 String lineSeparator = SystemProperties.getInstance().getLineSeparator();
@@ -486,6 +534,14 @@ public class DefaultCacheAccess implements CacheCoordinator {
                         cacheDecorator, parameters.getCacheDecorator()));
             }
         }
+
+        private void checkCompatibleStorage(Collection<String> faultMessages, boolean logStructured) {
+            if (logStructured != parameters.isLogStructured()) {
+                faultMessages.add(
+                    String.format(" * Requested log structured storage (%s) doesn't match current cache storage (%s)",
+                        logStructured, parameters.isLogStructured()));
+            }
+        }
     }
 
     private static class InvalidCacheReuseException extends GradleException {
@@ -24,6 +24,7 @@ import org.gradle.cache.LockTimeoutException;
 import org.gradle.cache.internal.filelock.DefaultLockStateSerializer;
 import org.gradle.cache.internal.filelock.LockFileAccess;
 import org.gradle.cache.internal.filelock.LockInfo;
+import org.gradle.cache.internal.filelock.LockReleaseSignal;
 import org.gradle.cache.internal.filelock.LockState;
 import org.gradle.cache.internal.filelock.LockStateAccess;
 import org.gradle.cache.internal.filelock.LockStateSerializer;
@@ -31,6 +32,7 @@ import org.gradle.cache.internal.filelock.Version1LockStateSerializer;
 import org.gradle.cache.internal.locklistener.FileLockContentionHandler;
 import org.gradle.internal.Factory;
 import org.gradle.internal.FileUtils;
+import org.gradle.internal.IoActions;
 import org.gradle.internal.concurrent.CompositeStoppable;
 import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.id.IdGenerator;
@@ -41,6 +43,7 @@ import org.gradle.util.GFileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
 import java.util.Random;
@@ -51,16 +54,21 @@ import static org.gradle.internal.UncheckedException.throwAsUncheckedException;
 
 /**
  * Uses file system locks on a lock file per target file.
+ *
+ * <p>When {@value #RELEASE_SIGNAL_PROPERTY_NAME} is set, processes also increment a {@link LockReleaseSignal} when they release a lock, so that other processes
+ * waiting for the lock retry immediately instead of sleeping for their backoff period.</p>
  */
 public class DefaultFileLockManager implements FileLockManager {
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultFileLockManager.class);
     public static final int DEFAULT_LOCK_TIMEOUT = 60000;
+    public static final String RELEASE_SIGNAL_PROPERTY_NAME = "org.gradle.internal.filelock.release.signal";
 
     private final Set<File> lockedFiles = new CopyOnWriteArraySet<File>();
     private final ProcessMetaDataProvider metaDataProvider;
     private final int lockTimeoutMs;
     private final IdGenerator<Long> generator;
     private final FileLockContentionHandler fileLockContentionHandler;
+    private final boolean useReleaseSignal;
     private final int shortTimeoutMs = 10000;
 
     public DefaultFileLockManager(ProcessMetaDataProvider metaDataProvider, FileLockContentionHandler fileLockContentionHandler) {
@@ -73,10 +81,16 @@ public class DefaultFileLockManager implements FileLockManager {
 
     DefaultFileLockManager(ProcessMetaDataProvider metaDataProvider, int lockTimeoutMs, FileLockContentionHandler fileLockContentionHandler,
                            IdGenerator<Long> generator) {
+        this(metaDataProvider, lockTimeoutMs, fileLockContentionHandler, generator, Boolean.getBoolean(RELEASE_SIGNAL_PROPERTY_NAME));
+    }
+
+    DefaultFileLockManager(ProcessMetaDataProvider metaDataProvider, int lockTimeoutMs, FileLockContentionHandler fileLockContentionHandler,
+                           IdGenerator<Long> generator, boolean useReleaseSignal) {
         this.metaDataProvider = metaDataProvider;
         this.lockTimeoutMs = lockTimeoutMs;
         this.fileLockContentionHandler = fileLockContentionHandler;
         this.generator = generator;
+        this.useReleaseSignal = useReleaseSignal;
     }
 
     public FileLock lock(File target, LockOptions options, String targetDisplayName) throws LockTimeoutException {
@@ -112,6 +126,23 @@ public class DefaultFileLockManager implements FileLockManager {
         }
     }
 
+    /**
+     * Opens the release signal for the given lock file. The caller is responsible for closing it. Returns null when release signals are not used or the signal
+     * file cannot be opened, in which case waiting processes only rely on their backoff.
+     */
+    @Nullable
+    private LockReleaseSignal openReleaseSignal(File lockFile) {
+        if (!useReleaseSignal) {
+            return null;
+        }
+        try {
+            return LockReleaseSignal.open(lockFile);
+        } catch (IOException e) {
+            LOGGER.debug("Could not open release signal for lock file {}. Ignoring.", lockFile, e);
+            return null;
+        }
+    }
+
     private class DefaultFileLock extends AbstractFileAccess implements FileLock {
         private final File lockFile;
         private final File target;
@@ -120,6 +151,7 @@ public class DefaultFileLockManager implements FileLockManager {
         private final String operationDisplayName;
         private java.nio.channels.FileLock lock;
         private LockFileAccess lockFileAccess;
+        private final LockReleaseSignal releaseSignal;
         private LockState lockState;
         private int port;
         private final long lockId;
@@ -144,6 +176,7 @@ public class DefaultFileLockManager implements FileLockManager {
                 LOGGER.info("Couldn't create lock file for {}", lockFile);
                 throw e;
             }
+            releaseSignal = openReleaseSignal(lockFile);
 
             LockStateSerializer stateProtocol = options.isUseCrossVersionImplementation() ? new Version1LockStateSerializer() : new DefaultLockStateSerializer();
             lockFileAccess = new LockFileAccess(lockFile, new LockStateAccess(stateProtocol));
@@ -155,6 +188,7 @@ public class DefaultFileLockManager implements FileLockManager {
             } catch (Throwable t) {
                 // Also releases any locks
                 lockFileAccess.close();
+                IoActions.closeQuietly(releaseSignal);
                 throw t;
             }
 
@@ -162,7 +196,7 @@ public class DefaultFileLockManager implements FileLockManager {
         }
 
         public boolean isLockFile(File file) {
-            return file.equals(lockFile);
+            return file.equals(lockFile) || file.equals(LockReleaseSignal.signalFileFor(lockFile));
         }
 
         public boolean getUnlockedCleanly() {
@@ -240,7 +274,7 @@ public class DefaultFileLockManager implements FileLockManager {
                                 // Discard information region
                                 java.nio.channels.FileLock info;
                                 try {
-                                    info = lockInformationRegion(LockMode.Exclusive, new ExponentialBackoff(shortTimeoutMs));
+                                    info = lockInformationRegion(LockMode.Exclusive, new ExponentialBackoff(shortTimeoutMs, null));
                                 } catch (InterruptedException e) {
                                     throw throwAsUncheckedException(e);
                                 }
@@ -254,6 +288,16 @@ public class DefaultFileLockManager implements FileLockManager {
                             }
                         } finally {
                             lockFileAccess.close();
+                            if (releaseSignal != null) {
+                                try {
+                                    if (lock != null) {
+                                        // Wake up any process waiting for the lock
+                                        releaseSignal.signalRelease();
+                                    }
+                                } finally {
+                                    releaseSignal.close();
+                                }
+                            }
                         }
                     } catch (Exception e) {
                         throw new RuntimeException("Failed to release lock on " + displayName, e);
@@ -280,7 +324,7 @@ public class DefaultFileLockManager implements FileLockManager {
             // Lock the state region, with the requested mode
             java.nio.channels.FileLock stateRegionLock = lockStateRegion(lockMode);
             if (stateRegionLock == null) {
-                LockInfo lockInfo = readInformationRegion(new ExponentialBackoff(shortTimeoutMs));
+                LockInfo lockInfo = readInformationRegion(new ExponentialBackoff(shortTimeoutMs, null));
                 throw new LockTimeoutException(displayName, lockInfo.pid, metaDataProvider.getProcessIdentifier(), lockInfo.operation, operationDisplayName, lockFile);
             }
 
@@ -293,7 +337,7 @@ public class DefaultFileLockManager implements FileLockManager {
                     lockState = lockFileAccess.ensureLockState();
 
                     // Acquire an exclusive lock on the information region and write our details there
-                    java.nio.channels.FileLock informationRegionLock = lockInformationRegion(LockMode.Exclusive, new ExponentialBackoff(shortTimeoutMs));
+                    java.nio.channels.FileLock informationRegionLock = lockInformationRegion(LockMode.Exclusive, new ExponentialBackoff(shortTimeoutMs, null));
                     if (informationRegionLock == null) {
                         throw new IllegalStateException(String.format("Unable to lock the information region for %s", displayName));
                     }
@@ -333,7 +377,7 @@ public class DefaultFileLockManager implements FileLockManager {
         }
 
         private java.nio.channels.FileLock lockStateRegion(final LockMode lockMode) throws IOException, InterruptedException {
-            final ExponentialBackoff backoff = new ExponentialBackoff(lockTimeoutMs);
+            final ExponentialBackoff backoff = new ExponentialBackoff(lockTimeoutMs, releaseSignal);
             return backoff.retryUntil(new IOQuery<java.nio.channels.FileLock>() {
                 private long lastPingTime;
                 private int lastLockHolderPort;
@@ -388,10 +432,12 @@ public class DefaultFileLockManager implements FileLockManager {
         private final Random random = new Random();
 
         private final int timeoutMs;
+        private final LockReleaseSignal releaseSignal;
         private CountdownTimer timer;
 
-        private ExponentialBackoff(int timeoutMs) {
+        private ExponentialBackoff(int timeoutMs, @Nullable LockReleaseSignal releaseSignal) {
             this.timeoutMs = timeoutMs;
+            this.releaseSignal = releaseSignal;
             restartTimer();
         }
 
@@ -401,14 +447,20 @@ public class DefaultFileLockManager implements FileLockManager {
 
         <T> T retryUntil(IOQuery<T> query) throws IOException, InterruptedException {
             int iteration = 0;
-            T result;
-            while ((result = query.run()) == null) {
-                if (timer.hasExpired()) {
-                    break;
+            while (true) {
+                // Read before trying, so that a release in between is not missed
+                long releaseCount = releaseSignal == null ? 0 : releaseSignal.getReleaseCount();
+                T result = query.run();
+                if (result != null || timer.hasExpired()) {
+                    return result;
+                }
+                long backoffPeriod = backoffPeriodFor(++iteration);
+                if (releaseSignal == null) {
+                    Thread.sleep(backoffPeriod);
+                } else {
+                    releaseSignal.awaitRelease(releaseCount, backoffPeriod);
                 }
-                Thread.sleep(backoffPeriodFor(++iteration));
             }
-            return result;
         }
 
         long backoffPeriodFor(int iteration) {
@@ -20,15 +20,18 @@ import org.gradle.cache.FileAccess;
 import org.gradle.cache.FileIntegrityViolationException;
 import org.gradle.cache.FileLock;
 import org.gradle.cache.MultiProcessSafePersistentIndexedCache;
-import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
+import org.gradle.cache.internal.store.AppendOnlyPersistentIndexedStore;
+import org.gradle.cache.internal.store.PersistentIndexedStore;
 import org.gradle.internal.Factory;
 
 public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements MultiProcessSafePersistentIndexedCache<K, V> {
     private final FileAccess fileAccess;
-    private final Factory<BTreePersistentIndexedCache<K, V>> factory;
-    private BTreePersistentIndexedCache<K, V> cache;
+    private final Factory<? extends PersistentIndexedStore<K, V>> factory;
+    private PersistentIndexedStore<K, V> cache;
+    // An append-only store is kept once closed, so that it can be reopened without reading all of its files again
+    private boolean open;
 
-    public DefaultMultiProcessSafePersistentIndexedCache(Factory<BTreePersistentIndexedCache<K, V>> factory, FileAccess fileAccess) {
+    public DefaultMultiProcessSafePersistentIndexedCache(Factory<? extends PersistentIndexedStore<K, V>> factory, FileAccess fileAccess) {
         this.factory = factory;
         this.fileAccess = fileAccess;
     }
@@ -40,7 +43,7 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
 
     @Override
     public V get(final K key) {
-        final BTreePersistentIndexedCache<K, V> cache = getCache();
+        final PersistentIndexedStore<K, V> cache = getCache();
         try {
             return fileAccess.readFile(new Factory<V>() {
                 public V create() {
@@ -64,7 +67,7 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
 
     @Override
     public void put(final K key, final V value) {
-        final BTreePersistentIndexedCache<K, V> cache = getCache();
+        final PersistentIndexedStore<K, V> cache = getCache();
         // Use writeFile because the cache can internally recover from datafile
         // corruption, so we don't care at this level if it's corrupt
         fileAccess.writeFile(new Runnable() {
@@ -76,7 +79,7 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
 
     @Override
     public void remove(final K key) {
-        final BTreePersistentIndexedCache<K, V> cache = getCache();
+        final PersistentIndexedStore<K, V> cache = getCache();
         // Use writeFile because the cache can internally recover from datafile
         // corruption, so we don't care at this level if it's corrupt
         fileAccess.writeFile(new Runnable() {
@@ -92,24 +95,48 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
 
     @Override
     public void finishWork() {
-        if (cache != null) {
+        if (cache != null && open) {
+            open = false;
             try {
                 fileAccess.writeFile(new Runnable() {
                     public void run() {
                         cache.close();
                     }
                 });
-            } finally {
+            } catch (RuntimeException e) {
+                cache = null;
+                throw e;
+            }
+            if (!(cache instanceof AppendOnlyPersistentIndexedStore)) {
                 cache = null;
             }
         }
     }
 
+    /**
+     * Returns true when the store of this cache would reclaim a significant amount of space by compacting it.
+     */
+    public boolean requiresCompaction() {
+        return cache instanceof AppendOnlyPersistentIndexedStore && ((AppendOnlyPersistentIndexedStore<K, V>) cache).requiresCompaction();
+    }
+
+    /**
+     * Compacts the store of this cache. Must be called while holding the file lock.
+     */
+    public void compact() {
+        final AppendOnlyPersistentIndexedStore<K, V> cache = (AppendOnlyPersistentIndexedStore<K, V>) getCache();
+        fileAccess.writeFile(new Runnable() {
+            public void run() {
+                cache.compact();
+            }
+        });
+    }
+
     @Override
     public void beforeLockRelease(FileLock.State currentCacheState) {
     }
 
-    private BTreePersistentIndexedCache<K, V> getCache() {
+    private PersistentIndexedStore<K, V> getCache() {
         if (cache == null) {
             // Use writeFile because the cache can internally recover from datafile
             // corruption, so we don't care at this level if it's corrupt
@@ -118,6 +145,20 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
                     cache = factory.create();
                 }
             });
+            open = true;
+        } else if (!open) {
+            final AppendOnlyPersistentIndexedStore<K, V> store = (AppendOnlyPersistentIndexedStore<K, V>) cache;
+            try {
+                fileAccess.writeFile(new Runnable() {
+                    public void run() {
+                        store.reopen();
+                    }
+                });
+            } catch (RuntimeException e) {
+                cache = null;
+                throw e;
+            }
+            open = true;
         }
         return cache;
     }
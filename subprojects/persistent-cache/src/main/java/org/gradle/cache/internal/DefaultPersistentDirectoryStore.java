@@ -22,6 +22,7 @@ import org.gradle.cache.FileLockManager;
 import org.gradle.cache.LockOptions;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.PersistentIndexedCacheParameters;
+import org.gradle.cache.internal.filelock.LockReleaseSignal;
 import org.gradle.internal.Factory;
 import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.serialize.Serializer;
@@ -126,7 +127,8 @@ public class DefaultPersistentDirectoryStore implements ReferencablePersistentCa
 
     @Override
     public Collection<File> getReservedCacheFiles() {
-        return Arrays.asList(propertiesFile, gcFile, determineLockTargetFile(getLockTarget()));
+        File lockFile = determineLockTargetFile(getLockTarget());
+        return Arrays.asList(propertiesFile, gcFile, lockFile, LockReleaseSignal.signalFileFor(lockFile));
     }
 
     // TODO: Duplicated in DefaultFileLockManager
@@ -26,7 +26,10 @@ import java.math.BigInteger;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
-class KeyHasher<K> {
+/**
+ * Calculates a 64 bit hash of the serialized form of a key, which is used to identify the entry for the key.
+ */
+public class KeyHasher<K> {
     private final Serializer<K> serializer;
     private final MessageDigestStream digestStream = new MessageDigestStream();
     private final KryoBackedEncoder encoder = new KryoBackedEncoder(digestStream);
@@ -35,7 +38,7 @@ class KeyHasher<K> {
         this.serializer = serializer;
     }
 
-    long getHashCode(K key) throws Exception {
+    public long getHashCode(K key) throws Exception {
         serializer.write(encoder, key);
         encoder.flush();
         return digestStream.getChecksum();
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.filelock;
+
+import org.gradle.internal.time.CountdownTimer;
+import org.gradle.internal.time.Time;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A counter in a small file next to a lock file, which processes increment when they release the lock. Processes waiting for the lock watch
+ * the counter so they can retry as soon as the lock is released, rather than sleeping for their full backoff period.
+ *
+ * <p>The counter only ever makes a waiter retry sooner. Ownership of the lock is still decided by the file system lock, which the operating system releases when
+ * a process dies, so a process that crashes or does not know about the counter only makes waiters fall back to their backoff. Processes incrementing the counter
+ * concurrently can lose an increment, but the value still changes, which is all that waiters look for.</p>
+ *
+ * <p>The counter is accessed with positioned reads and writes rather than through a memory mapping, so that the file is no longer held open once the signal is
+ * closed. A mapping would keep the file open until it is garbage collected, which prevents it from being deleted on Windows.</p>
+ */
+public class LockReleaseSignal implements Closeable {
+    private static final int SIGNAL_FILE_SIZE = 8;
+    private static final long POLL_INTERVAL_MS = 1;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(SIGNAL_FILE_SIZE);
+
+    private LockReleaseSignal(RandomAccessFile file) {
+        this.file = file;
+        this.channel = file.getChannel();
+    }
+
+    public static File signalFileFor(File lockFile) {
+        return new File(lockFile.getParentFile(), lockFile.getName() + ".signal");
+    }
+
+    /**
+     * Opens the signal file for the given lock file, creating it if required. The signal must be closed when the lock is closed.
+     */
+    public static LockReleaseSignal open(File lockFile) throws IOException {
+        return new LockReleaseSignal(new RandomAccessFile(signalFileFor(lockFile), "rw"));
+    }
+
+    /**
+     * Returns the number of times the lock has been released. Read this before trying to acquire the lock, and pass it to {@link #awaitRelease(long, long)}.
+     */
+    public synchronized long getReleaseCount() throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                // Not signalled yet
+                return 0;
+            }
+        }
+        return buffer.getLong(0);
+    }
+
+    public synchronized void signalRelease() throws IOException {
+        long releaseCount = getReleaseCount();
+        buffer.clear();
+        buffer.putLong(0, releaseCount + 1);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, buffer.position());
+        }
+    }
+
+    /**
+     * Waits until the lock has been released since the given release count was read, or until the given time has passed.
+     */
+    public void awaitRelease(long releaseCount, long timeoutMs) throws IOException, InterruptedException {
+        CountdownTimer timer = Time.startCountdownTimer(timeoutMs);
+        while (getReleaseCount() == releaseCount && !timer.hasExpired()) {
+            Thread.sleep(POLL_INTERVAL_MS);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
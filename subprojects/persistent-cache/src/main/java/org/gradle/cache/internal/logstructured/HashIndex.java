@@ -0,0 +1,146 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.logstructured;
+
+/**
+ * Maps the hash of a key to the position and size of the latest record for the key in the log. Uses open addressing over primitive arrays,
+ * so that caches with many small entries do not need an object per entry.
+ */
+class HashIndex {
+    private static final int INITIAL_CAPACITY = 1024;
+    // Positions are never 0, as the log starts with a header
+    private static final long EMPTY = 0;
+
+    private long[] hashes;
+    private long[] positions;
+    private int[] sizes;
+    private int count;
+
+    HashIndex() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * Returns the position of the record for the given hash, or -1 when there is none.
+     */
+    long getPosition(long hash) {
+        int slot = find(hash);
+        return positions[slot] == EMPTY ? -1 : positions[slot];
+    }
+
+    /**
+     * Returns the size of the record for the given hash, or 0 when there is none.
+     */
+    int getSize(long hash) {
+        int slot = find(hash);
+        return positions[slot] == EMPTY ? 0 : sizes[slot];
+    }
+
+    void put(long hash, long position, int size) {
+        int slot = find(hash);
+        if (positions[slot] == EMPTY) {
+            if ((count + 1) * 2 > hashes.length) {
+                grow();
+                slot = find(hash);
+            }
+            count++;
+        }
+        hashes[slot] = hash;
+        positions[slot] = position;
+        sizes[slot] = size;
+    }
+
+    void remove(long hash) {
+        int slot = find(hash);
+        if (positions[slot] == EMPTY) {
+            return;
+        }
+        count--;
+        // Move later entries of the same probe sequence back, so that lookups do not stop at the removed slot
+        int mask = hashes.length - 1;
+        int empty = slot;
+        int current = slot;
+        while (true) {
+            current = (current + 1) & mask;
+            if (positions[current] == EMPTY) {
+                break;
+            }
+            int home = slot(hashes[current]);
+            boolean canMove = empty <= current ? (home <= empty || home > current) : (home <= empty && home > current);
+            if (canMove) {
+                hashes[empty] = hashes[current];
+                positions[empty] = positions[current];
+                sizes[empty] = sizes[current];
+                empty = current;
+            }
+        }
+        hashes[empty] = 0;
+        positions[empty] = EMPTY;
+        sizes[empty] = 0;
+    }
+
+    void visit(Visitor visitor) {
+        for (int i = 0; i < hashes.length; i++) {
+            if (positions[i] != EMPTY) {
+                visitor.visit(hashes[i], positions[i], sizes[i]);
+            }
+        }
+    }
+
+    private int find(long hash) {
+        int mask = hashes.length - 1;
+        int slot = slot(hash);
+        while (positions[slot] != EMPTY && hashes[slot] != hash) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int slot(long hash) {
+        // The hashes are taken from a message digest, so the low bits are already well distributed
+        return (int) hash & (hashes.length - 1);
+    }
+
+    private void grow() {
+        long[] oldHashes = hashes;
+        long[] oldPositions = positions;
+        int[] oldSizes = sizes;
+        allocate(oldHashes.length * 2);
+        for (int i = 0; i < oldHashes.length; i++) {
+            if (oldPositions[i] != EMPTY) {
+                int slot = find(oldHashes[i]);
+                hashes[slot] = oldHashes[i];
+                positions[slot] = oldPositions[i];
+                sizes[slot] = oldSizes[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        hashes = new long[capacity];
+        positions = new long[capacity];
+        sizes = new int[capacity];
+    }
+
+    interface Visitor {
+        void visit(long hash, long position, int size);
+    }
+}
@@ -0,0 +1,592 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.logstructured;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.cache.internal.btree.KeyHasher;
+import org.gradle.cache.internal.store.AppendOnlyPersistentIndexedStore;
+import org.gradle.internal.IoActions;
+import org.gradle.internal.io.StreamByteBuffer;
+import org.gradle.internal.serialize.Serializer;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.util.Random;
+
+/**
+ * A persistent indexed store that appends every change to a log file, rather than updating blocks of the file in place.
+ *
+ * <p>The position of the latest record for each key is held in an in-memory index. The index is persisted to a separate, append-only index file: each time the store is closed,
+ * a segment holding the index entries that changed since the previous segment is appended to it. When the store is reopened after another process has used it, only the segments and
+ * log records appended since are read. The whole index file is read only when the store is first opened, and the log is read from the start only when the index file is missing or
+ * was written for a different log.</p>
+ *
+ * <p>Records that have been replaced or removed stay in the log until the store is compacted. Compaction copies the live records to a new log and writes a new index file that holds
+ * a single segment. It is not done when the store is closed, so that handing the store over to another process stays cheap.</p>
+ */
+public class LogStructuredPersistentIndexedCache<K, V> implements AppendOnlyPersistentIndexedStore<K, V> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogStructuredPersistentIndexedCache.class);
+    private static final int LOG_MAGIC = 0x474c4f47;
+    private static final int INDEX_MAGIC = 0x47494458;
+    private static final int SEGMENT_END = 0x47534547;
+    private static final int VERSION = 2;
+    // magic, version and generation
+    private static final int HEADER_SIZE = 16;
+    // magic, version, log generation and index id
+    private static final int INDEX_HEADER_SIZE = 24;
+    // hash and value length
+    private static final int RECORD_HEADER_SIZE = 12;
+    // hash, position and size
+    private static final int INDEX_ENTRY_SIZE = 20;
+    // entry count, log length, garbage bytes and end marker
+    private static final int SEGMENT_OVERHEAD = 24;
+    private static final int REMOVED = -1;
+    private static final int MAX_PENDING_BYTES = 64 * 1024;
+    private static final long MIN_COMPACTION_GARBAGE_BYTES = 1024 * 1024;
+    private static final int MIN_COMPACTION_INDEX_ENTRIES = 64 * 1024;
+    private static final Random RANDOM = new Random();
+
+    private final File logFile;
+    private final File indexFile;
+    private final KeyHasher<K> keyHasher;
+    private final Serializer<V> serializer;
+    private final StreamByteBuffer pending = new StreamByteBuffer();
+    private final DataOutputStream pendingOutput = new DataOutputStream(pending.getOutputStream());
+    private RandomAccessFile file;
+    private HashIndex index;
+    // The entries that have changed since the last segment of the index file, with a negative position for removed entries
+    private HashIndex changes;
+    private long generation;
+    private long flushedLength;
+    private long garbageBytes;
+    private long indexId;
+    // The length of the index file up to the end of its last complete segment, or -1 when the index file needs to be written in full
+    private long indexFileLength;
+    // The length of the log covered by the index file
+    private long indexedLogLength;
+    private long indexFileEntries;
+
+    public LogStructuredPersistentIndexedCache(File logFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        this.logFile = logFile;
+        this.indexFile = new File(logFile.getParentFile(), logFile.getName() + ".idx");
+        this.keyHasher = new KeyHasher<K>(keySerializer);
+        this.serializer = valueSerializer;
+        try {
+            open();
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not open %s.", this), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "cache " + logFile.getName() + " (" + logFile + ")";
+    }
+
+    private void open() throws IOException {
+        LOGGER.debug("Opening {}", this);
+        file = new RandomAccessFile(logFile, "rw");
+        index = new HashIndex();
+        changes = new HashIndex();
+        garbageBytes = 0;
+        indexFileLength = -1;
+        indexedLogLength = 0;
+        indexFileEntries = 0;
+        if (file.length() >= HEADER_SIZE && readLogHeader()) {
+            long length = file.length();
+            if (!readIndexFile() || indexedLogLength > length) {
+                LOGGER.debug("Could not use index file {}, rebuilding index from {}.", indexFile, logFile);
+                index = new HashIndex();
+                garbageBytes = 0;
+                indexFileLength = -1;
+                indexedLogLength = HEADER_SIZE;
+                indexFileEntries = 0;
+            }
+            flushedLength = indexedLogLength;
+            if (flushedLength < length) {
+                readLog();
+            }
+        } else {
+            if (file.length() > 0) {
+                LOGGER.warn("{} is corrupt. Discarding.", this);
+            }
+            generation = RANDOM.nextLong();
+            file.setLength(0);
+            file.writeInt(LOG_MAGIC);
+            file.writeInt(VERSION);
+            file.writeLong(generation);
+            flushedLength = HEADER_SIZE;
+        }
+    }
+
+    private boolean readLogHeader() throws IOException {
+        file.seek(0);
+        if (file.readInt() != LOG_MAGIC || file.readInt() != VERSION) {
+            return false;
+        }
+        generation = file.readLong();
+        return true;
+    }
+
+    @Override
+    public void reopen() {
+        try {
+            LOGGER.debug("Reopening {}", this);
+            file = new RandomAccessFile(logFile, "rw");
+            long length = file.length();
+            if (length < flushedLength || !readLogHeaderOf(generation) || !catchUpWithIndexFile() || indexedLogLength > length) {
+                // Replaced by another process, for example when it compacted the store
+                file.close();
+                open();
+                return;
+            }
+            if (flushedLength < length) {
+                readLog();
+            }
+        } catch (Exception e) {
+            IoActions.closeQuietly(file);
+            throw new UncheckedIOException(String.format("Could not reopen %s.", this), e);
+        }
+    }
+
+    private boolean readLogHeaderOf(long expectedGeneration) throws IOException {
+        return file.length() >= HEADER_SIZE && readLogHeader() && generation == expectedGeneration;
+    }
+
+    /**
+     * Reads the whole index file. Returns false when it cannot be used for the log.
+     */
+    private boolean readIndexFile() {
+        if (!indexFile.isFile()) {
+            return false;
+        }
+        try {
+            DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+            try {
+                if (input.readInt() != INDEX_MAGIC || input.readInt() != VERSION || input.readLong() != generation) {
+                    return false;
+                }
+                indexId = input.readLong();
+                indexFileLength = INDEX_HEADER_SIZE;
+                indexedLogLength = HEADER_SIZE;
+                readSegments(input);
+                return true;
+            } finally {
+                input.close();
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Could not read index file {}.", indexFile, e);
+            return false;
+        }
+    }
+
+    /**
+     * Reads the segments that other processes have appended to the index file since this store last read or wrote it. Only reads the header of the index file when there are none.
+     * Returns false when the index file has been replaced since.
+     */
+    private boolean catchUpWithIndexFile() throws IOException {
+        if (indexFileLength < 0) {
+            // Will be written in full, so only the log needs to be read
+            return true;
+        }
+        if (!indexFile.isFile()) {
+            return false;
+        }
+        RandomAccessFile indexInput = new RandomAccessFile(indexFile, "r");
+        try {
+            if (indexInput.length() < indexFileLength) {
+                return false;
+            }
+            indexInput.seek(0);
+            if (indexInput.readInt() != INDEX_MAGIC || indexInput.readInt() != VERSION || indexInput.readLong() != generation || indexInput.readLong() != indexId) {
+                return false;
+            }
+            indexInput.seek(indexFileLength);
+            readSegments(new DataInputStream(new BufferedInputStream(Channels.newInputStream(indexInput.getChannel()))));
+            flushedLength = Math.max(flushedLength, indexedLogLength);
+            return true;
+        } finally {
+            indexInput.close();
+        }
+    }
+
+    /**
+     * Applies the complete segments of the index file that are read from the given input to the index. Stops at the end of the file or at a segment that was not completely written.
+     */
+    private void readSegments(DataInputStream input) throws IOException {
+        while (true) {
+            int count;
+            long[] hashes;
+            long[] positions;
+            int[] sizes;
+            long logLength;
+            long garbage;
+            try {
+                count = input.readInt();
+                if (count < 0) {
+                    return;
+                }
+                hashes = new long[count];
+                positions = new long[count];
+                sizes = new int[count];
+                for (int i = 0; i < count; i++) {
+                    hashes[i] = input.readLong();
+                    positions[i] = input.readLong();
+                    sizes[i] = input.readInt();
+                }
+                logLength = input.readLong();
+                garbage = input.readLong();
+                if (input.readInt() != SEGMENT_END || logLength < indexedLogLength) {
+                    return;
+                }
+            } catch (EOFException e) {
+                // Not completely written, for example because the process writing it stopped. It is overwritten by the next segment.
+                return;
+            }
+            for (int i = 0; i < count; i++) {
+                if (positions[i] < 0) {
+                    index.remove(hashes[i]);
+                } else {
+                    index.put(hashes[i], positions[i], sizes[i]);
+                }
+            }
+            garbageBytes = garbage;
+            indexedLogLength = logLength;
+            indexFileLength += SEGMENT_OVERHEAD + (long) count * INDEX_ENTRY_SIZE;
+            indexFileEntries += count;
+        }
+    }
+
+    /**
+     * Reads the log from the end of the records known to the index to the end of the log, adding the records to the index. Discards any incomplete record at the end of the log, which is
+     * left behind when the process writing the log stops while writing.
+     */
+    private void readLog() throws IOException {
+        long length = file.length();
+        long position = flushedLength;
+        file.seek(position);
+        DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(file.getChannel())));
+        while (position + RECORD_HEADER_SIZE <= length) {
+            long hash = input.readLong();
+            int valueLength = input.readInt();
+            if (valueLength < REMOVED || position + RECORD_HEADER_SIZE + Math.max(valueLength, 0) > length) {
+                break;
+            }
+            garbageBytes += index.getSize(hash);
+            if (valueLength == REMOVED) {
+                index.remove(hash);
+                changes.put(hash, REMOVED, 0);
+                garbageBytes += RECORD_HEADER_SIZE;
+            } else {
+                skipFully(input, valueLength);
+                index.put(hash, position, RECORD_HEADER_SIZE + valueLength);
+                changes.put(hash, position, RECORD_HEADER_SIZE + valueLength);
+            }
+            position += RECORD_HEADER_SIZE + Math.max(valueLength, 0);
+        }
+        if (position != length) {
+            LOGGER.debug("Discarding incomplete record at the end of {}.", this);
+            file.setLength(position);
+        }
+        flushedLength = position;
+    }
+
+    private static void skipFully(InputStream input, int count) throws IOException {
+        long remaining = count;
+        while (remaining > 0) {
+            long skipped = input.skip(remaining);
+            if (skipped <= 0) {
+                throw new EOFException();
+            }
+            remaining -= skipped;
+        }
+    }
+
+    @Nullable
+    @Override
+    public V get(K key) {
+        try {
+            long hash = keyHasher.getHashCode(key);
+            long position = index.getPosition(hash);
+            if (position < 0) {
+                return null;
+            }
+            byte[] value = new byte[index.getSize(hash) - RECORD_HEADER_SIZE];
+            if (position >= flushedLength) {
+                flush();
+            }
+            file.seek(position + RECORD_HEADER_SIZE);
+            file.readFully(value);
+            return serializer.read(new KryoBackedDecoder(new ByteArrayInputStream(value)));
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not read entry '%s' from %s.", key, this), e);
+        }
+    }
+
+    @Override
+    public void put(K key, V value) {
+        try {
+            long hash = keyHasher.getHashCode(key);
+            StreamByteBuffer buffer = new StreamByteBuffer();
+            KryoBackedEncoder encoder = new KryoBackedEncoder(buffer.getOutputStream());
+            serializer.write(encoder, value);
+            encoder.flush();
+
+            int valueLength = buffer.totalBytesUnread();
+            long position = append(hash, valueLength);
+            buffer.writeTo(pendingOutput);
+            garbageBytes += index.getSize(hash);
+            index.put(hash, position, RECORD_HEADER_SIZE + valueLength);
+            changes.put(hash, position, RECORD_HEADER_SIZE + valueLength);
+            maybeFlush();
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not add entry '%s' to %s.", key, this), e);
+        }
+    }
+
+    @Override
+    public void remove(K key) {
+        try {
+            long hash = keyHasher.getHashCode(key);
+            int size = index.getSize(hash);
+            if (size == 0) {
+                return;
+            }
+            append(hash, REMOVED);
+            garbageBytes += size + RECORD_HEADER_SIZE;
+            index.remove(hash);
+            changes.put(hash, REMOVED, 0);
+            maybeFlush();
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not remove entry '%s' from %s.", key, this), e);
+        }
+    }
+
+    /**
+     * Appends the header of a record to the pending changes, returning the position of the record in the log.
+     */
+    private long append(long hash, int valueLength) throws IOException {
+        long position = flushedLength + pending.totalBytesUnread();
+        pendingOutput.writeLong(hash);
+        pendingOutput.writeInt(valueLength);
+        return position;
+    }
+
+    private void maybeFlush() throws IOException {
+        if (pending.totalBytesUnread() >= MAX_PENDING_BYTES) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        pendingOutput.flush();
+        long count = pending.totalBytesUnread();
+        if (count == 0) {
+            return;
+        }
+        file.seek(flushedLength);
+        pending.writeTo(Channels.newOutputStream(file.getChannel()));
+        pending.clear();
+        flushedLength += count;
+    }
+
+    /**
+     * Writes the pending records to the log and appends the changes to the index file, keeping the index in memory so that the store can be reopened.
+     */
+    @Override
+    public void close() {
+        LOGGER.debug("Closing {}", this);
+        try {
+            try {
+                flush();
+                if (indexFileLength < 0) {
+                    writeIndexFile();
+                } else if (indexedLogLength != flushedLength) {
+                    appendIndexSegment();
+                }
+            } finally {
+                file.close();
+            }
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not close %s.", this), e);
+        }
+    }
+
+    @Override
+    public boolean requiresCompaction() {
+        return requiresLogCompaction() || requiresIndexCompaction();
+    }
+
+    private boolean requiresLogCompaction() {
+        return garbageBytes >= MIN_COMPACTION_GARBAGE_BYTES && garbageBytes * 2 > flushedLength;
+    }
+
+    private boolean requiresIndexCompaction() {
+        return indexFileEntries >= MIN_COMPACTION_INDEX_ENTRIES && indexFileEntries > (long) index.size() * 2;
+    }
+
+    @Override
+    public void compact() {
+        try {
+            flush();
+            if (requiresLogCompaction()) {
+                compactLog();
+                writeIndexFile();
+            } else if (requiresIndexCompaction()) {
+                writeIndexFile();
+            }
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not compact %s.", this), e);
+        }
+    }
+
+    /**
+     * Copies the latest record for each key to a new log, in the order they appear in the current log, and replaces the current log with the new one.
+     * The new log has a different generation, so that other processes do not use the index file or their in-memory index with it.
+     */
+    private void compactLog() throws IOException {
+        LOGGER.debug("Compacting {}, {} of {} bytes are no longer used.", this, garbageBytes, flushedLength);
+        File compactedFile = new File(logFile.getParentFile(), logFile.getName() + ".compact");
+        long newGeneration = RANDOM.nextLong();
+        HashIndex newIndex = new HashIndex();
+        long newLength = HEADER_SIZE;
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(compactedFile)));
+        try {
+            output.writeInt(LOG_MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(newGeneration);
+            file.seek(HEADER_SIZE);
+            DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(file.getChannel())));
+            long position = HEADER_SIZE;
+            byte[] value = new byte[0];
+            while (position < flushedLength) {
+                long hash = input.readLong();
+                int valueLength = input.readInt();
+                int size = RECORD_HEADER_SIZE + Math.max(valueLength, 0);
+                if (index.getPosition(hash) == position) {
+                    if (value.length < valueLength) {
+                        value = new byte[valueLength];
+                    }
+                    input.readFully(value, 0, valueLength);
+                    output.writeLong(hash);
+                    output.writeInt(valueLength);
+                    output.write(value, 0, valueLength);
+                    newIndex.put(hash, newLength, size);
+                    newLength += size;
+                } else {
+                    skipFully(input, size - RECORD_HEADER_SIZE);
+                }
+                position += size;
+            }
+        } finally {
+            output.close();
+        }
+
+        file.close();
+        if (!logFile.delete() || !compactedFile.renameTo(logFile)) {
+            throw new IOException(String.format("Could not replace %s with compacted log %s.", logFile, compactedFile));
+        }
+        file = new RandomAccessFile(logFile, "rw");
+        generation = newGeneration;
+        index = newIndex;
+        flushedLength = newLength;
+        garbageBytes = 0;
+    }
+
+    /**
+     * Replaces the index file with one that holds the whole index in a single segment.
+     */
+    private void writeIndexFile() throws IOException {
+        indexId = RANDOM.nextLong();
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+        try {
+            output.writeInt(INDEX_MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(generation);
+            output.writeLong(indexId);
+            writeSegment(output, index);
+        } finally {
+            output.close();
+        }
+        indexFileLength = INDEX_HEADER_SIZE + SEGMENT_OVERHEAD + (long) index.size() * INDEX_ENTRY_SIZE;
+        indexFileEntries = index.size();
+        indexedLogLength = flushedLength;
+        changes = new HashIndex();
+    }
+
+    /**
+     * Appends a segment holding the changes since the previous segment to the index file. Overwrites any incomplete segment at the end of the file.
+     */
+    private void appendIndexSegment() throws IOException {
+        RandomAccessFile indexOutput = new RandomAccessFile(indexFile, "rw");
+        try {
+            indexOutput.seek(indexFileLength);
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(indexOutput.getChannel())));
+            writeSegment(output, changes);
+            output.flush();
+            indexFileLength += SEGMENT_OVERHEAD + (long) changes.size() * INDEX_ENTRY_SIZE;
+            indexOutput.setLength(indexFileLength);
+        } finally {
+            indexOutput.close();
+        }
+        indexFileEntries += changes.size();
+        indexedLogLength = flushedLength;
+        changes = new HashIndex();
+    }
+
+    private void writeSegment(final DataOutputStream output, HashIndex entries) throws IOException {
+        output.writeInt(entries.size());
+        final IOException[] failure = new IOException[1];
+        entries.visit(new HashIndex.Visitor() {
+            @Override
+            public void visit(long hash, long position, int size) {
+                if (failure[0] != null) {
+                    return;
+                }
+                try {
+                    output.writeLong(hash);
+                    output.writeLong(position);
+                    output.writeInt(size);
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        output.writeLong(flushedLength);
+        output.writeLong(garbageBytes);
+        output.writeInt(SEGMENT_END);
+    }
+}
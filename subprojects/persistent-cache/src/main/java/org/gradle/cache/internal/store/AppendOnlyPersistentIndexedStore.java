@@ -0,0 +1,38 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.store;
+
+/**
+ * A storage engine that only appends to its files. Once closed, the store can be reopened, reading only what other processes have appended to the files in the meantime.
+ * The space taken by replaced and removed entries is reclaimed by compacting the store.
+ */
+public interface AppendOnlyPersistentIndexedStore<K, V> extends PersistentIndexedStore<K, V> {
+    /**
+     * Reopens the files after the store has been closed, catching up with the changes made to them by other processes since.
+     */
+    void reopen();
+
+    /**
+     * Returns true when compacting the store would reclaim a significant amount of space. Can be called while the store is closed, in which case the result may be out of date.
+     */
+    boolean requiresCompaction();
+
+    /**
+     * Rewrites the files of the store so that they hold only the current entries. Must be called while the store is open.
+     */
+    void compact();
+}
@@ -198,4 +198,119 @@ class CacheAccessWorkerTest extends ConcurrentSpec {
         def e = thrown(RuntimeException)
         e == failure
     }
+
+    def "applies queued operations in one batch"() {
+        given:
+        def counter = 0
+        3.times {
+            cacheAccessWorker.enqueue { counter++ }
+        }
+
+        when:
+        start(cacheAccessWorker)
+        cacheAccessWorker.flush()
+
+        then:
+        counter == 3
+        cacheAccessWorker.batchCount == 1
+        cacheAccessWorker.operationCount == 3
+        cacheAccessWorker.maximumBatchSize == 3
+        cacheAccessWorker.maximumQueueDepth >= 3
+
+        cleanup:
+        cacheAccessWorker?.stop()
+    }
+
+    def "skips writes that are replaced by a later write to the same entry"() {
+        given:
+        def cache1 = new Object()
+        def cache2 = new Object()
+        def applied = []
+        def skipped = []
+        def write = { Object cache, String key, String value ->
+            new TestWrite(cache, key, { applied << value }, { skipped << value })
+        }
+        cacheAccessWorker.enqueue(write(cache1, "a", "1"))
+        cacheAccessWorker.enqueue(write(cache1, "b", "2"))
+        cacheAccessWorker.enqueue(write(cache2, "a", "3"))
+        cacheAccessWorker.enqueue(write(cache1, "a", "4"))
+        cacheAccessWorker.enqueue(write(cache1, "a", "5"))
+
+        when:
+        start(cacheAccessWorker)
+        cacheAccessWorker.flush()
+
+        then:
+        applied == ["2", "3", "5"]
+        skipped == ["1", "4"]
+        cacheAccessWorker.coalescedWriteCount == 2
+        cacheAccessWorker.operationCount == 5
+
+        cleanup:
+        cacheAccessWorker?.stop()
+    }
+
+    def "does not skip writes that are observed by a later operation"() {
+        given:
+        def cache = new Object()
+        def applied = []
+        def observed = []
+        cacheAccessWorker.enqueue(new TestWrite(cache, "a", { applied << "1" }, {}))
+        cacheAccessWorker.enqueue { observed.addAll(applied) }
+        cacheAccessWorker.enqueue(new TestWrite(cache, "a", { applied << "2" }, {}))
+
+        when:
+        start(cacheAccessWorker)
+        cacheAccessWorker.flush()
+
+        then:
+        applied == ["1", "2"]
+        observed == ["1"]
+        cacheAccessWorker.coalescedWriteCount == 0
+
+        cleanup:
+        cacheAccessWorker?.stop()
+    }
+
+    def "flush does not wait for the worker when there are no queued operations"() {
+        given:
+        def counter = 0
+        start(cacheAccessWorker)
+        cacheAccessWorker.enqueue { counter++ }
+        cacheAccessWorker.flush()
+
+        when:
+        cacheAccessWorker.flush()
+
+        then:
+        counter == 1
+        cacheAccessWorker.batchCount == 1
+
+        cleanup:
+        cacheAccessWorker?.stop()
+    }
+
+    private static class TestWrite implements CoalescableCacheWrite {
+        final Object cache
+        final Object key
+        final Runnable action
+        final Runnable skipAction
+
+        TestWrite(Object cache, Object key, Runnable action, Runnable skipAction) {
+            this.cache = cache
+            this.key = key
+            this.action = action
+            this.skipAction = skipAction
+        }
+
+        @Override
+        void run() {
+            action.run()
+        }
+
+        @Override
+        void skip() {
+            skipAction.run()
+        }
+    }
 }
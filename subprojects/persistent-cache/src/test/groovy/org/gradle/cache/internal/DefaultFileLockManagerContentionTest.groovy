@@ -20,6 +20,7 @@ import org.gradle.cache.FileLock
 import org.gradle.cache.FileLockManager
 import org.gradle.cache.LockTimeoutException
 import org.gradle.cache.internal.filelock.LockOptionsBuilder
+import org.gradle.cache.internal.filelock.LockReleaseSignal
 import org.gradle.cache.internal.locklistener.DefaultFileLockContentionHandler
 import org.gradle.cache.internal.locklistener.FileLockContentionHandler
 import org.gradle.internal.concurrent.CompositeStoppable
@@ -114,6 +115,49 @@ class DefaultFileLockManagerContentionTest extends ConcurrentSpec {
         }
     }
 
+    def "lock manager using release signal acquires lock released by another lock manager"() {
+        given:
+        def signallingManager = new DefaultFileLockManager(Stub(ProcessMetaDataProvider), 2000, contentionHandler, new LongIdGenerator(), true)
+        def signallingManager2 = new DefaultFileLockManager(Stub(ProcessMetaDataProvider), 2000, contentionHandler2, new LongIdGenerator(), true)
+        def file = tmpDir.file("lock-file.bin")
+        FileLock lock
+        lock = createLock(Exclusive, file, signallingManager, { lock.close() } as Runnable)
+
+        expect:
+        lock.isLockFile(tmpDir.file("lock-file.bin.lock.signal"))
+
+        when:
+        def lock2 = createLock(Exclusive, file, signallingManager2)
+
+        then:
+        lock2
+        releaseCount(tmpDir.file("lock-file.bin.lock")) == 1
+    }
+
+    def "lock manager using release signal does not hold signal file open after lock is closed"() {
+        given:
+        def signallingManager = new DefaultFileLockManager(Stub(ProcessMetaDataProvider), 2000, contentionHandler, new LongIdGenerator(), true)
+        def file = tmpDir.file("lock-file.bin")
+        def lock = createLock(Exclusive, file, signallingManager)
+        def signalFile = tmpDir.file("lock-file.bin.lock.signal")
+
+        when:
+        lock.close()
+
+        then:
+        releaseCount(tmpDir.file("lock-file.bin.lock")) == 1
+        signalFile.delete()
+    }
+
+    long releaseCount(File lockFile) {
+        def signal = LockReleaseSignal.open(lockFile)
+        try {
+            return signal.releaseCount
+        } finally {
+            signal.close()
+        }
+    }
+
     FileLock createLock(FileLockManager.LockMode lockMode, File file, FileLockManager lockManager = manager, Runnable whenContended = null) {
         def lock = lockManager.lock(file, LockOptionsBuilder.mode(lockMode), "foo", "operation", whenContended)
         openedLocks << lock
@@ -17,6 +17,7 @@ package org.gradle.cache.internal
 
 import org.gradle.cache.FileAccess
 import org.gradle.cache.internal.btree.BTreePersistentIndexedCache
+import org.gradle.cache.internal.store.AppendOnlyPersistentIndexedStore
 import org.gradle.internal.Factory
 import spock.lang.Specification
 
@@ -129,6 +130,29 @@ class MultiProcessSafePersistentIndexedCacheTest extends Specification {
         0 * _._
     }
 
+    def "reopens append-only store on first access after close"() {
+        def appendOnlyFactory = Mock(Factory)
+        def appendOnlyCache = new DefaultMultiProcessSafePersistentIndexedCache<String, String>(appendOnlyFactory, fileAccess)
+        def store = Mock(AppendOnlyPersistentIndexedStore)
+
+        when:
+        appendOnlyCache.get("key")
+        appendOnlyCache.finishWork()
+
+        then:
+        2 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        1 * appendOnlyFactory.create() >> store
+        1 * store.close()
+
+        when:
+        appendOnlyCache.get("key")
+
+        then:
+        1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        1 * store.reopen()
+        0 * appendOnlyFactory.create()
+    }
+
     def cacheOpened() {
         1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
         1 * factory.create() >> backingCache
@@ -0,0 +1,306 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.logstructured
+
+import org.gradle.internal.serialize.BaseSerializerFactory
+import org.gradle.internal.serialize.DefaultSerializer
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class LogStructuredPersistentIndexedCacheTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def logFile = tmpDir.file("cache.log")
+    def indexFile = tmpDir.file("cache.log.idx")
+
+    def "returns null for unknown entry"() {
+        def cache = createCache()
+
+        expect:
+        cache.get("unknown") == null
+
+        cleanup:
+        cache.close()
+    }
+
+    def "can read entries before they are written to the log"() {
+        def cache = createCache()
+
+        when:
+        cache.put("a", "1")
+        cache.put("b", "2")
+        cache.put("a", "3")
+
+        then:
+        cache.get("a") == "3"
+        cache.get("b") == "2"
+
+        cleanup:
+        cache.close()
+    }
+
+    def "persists added, updated and removed entries"() {
+        def cache = createCache()
+        cache.put("a", "1")
+        cache.put("b", "2")
+        cache.put("c", "3")
+        cache.put("b", "4")
+        cache.remove("c")
+        cache.remove("unknown")
+        cache.close()
+
+        when:
+        cache = createCache()
+
+        then:
+        cache.get("a") == "1"
+        cache.get("b") == "4"
+        cache.get("c") == null
+
+        cleanup:
+        cache.close()
+    }
+
+    def "appends changes to index file when closed"() {
+        def cache = createCache()
+        1000.times {
+            cache.put("key" + it, "value" + it)
+        }
+
+        expect:
+        !indexFile.exists()
+
+        when:
+        cache.close()
+        def initialLength = indexFile.length()
+        cache.reopen()
+        cache.put("a", "1")
+        cache.close()
+
+        then:
+        indexFile.length() > initialLength
+        indexFile.length() - initialLength < 100
+
+        when:
+        cache.reopen()
+        cache.close()
+
+        then:
+        indexFile.length() - initialLength < 100
+
+        when:
+        cache = createCache()
+
+        then:
+        cache.get("a") == "1"
+        cache.get("key999") == "value999"
+
+        cleanup:
+        cache.close()
+    }
+
+    def "reopened cache sees entries written by another instance"() {
+        def cache = createCache()
+        cache.put("a", "1")
+        cache.put("b", "2")
+        cache.close()
+
+        when:
+        def other = createCache()
+        other.put("a", "3")
+        other.remove("b")
+        other.put("c", "4")
+        other.close()
+        cache.reopen()
+
+        then:
+        cache.get("a") == "3"
+        cache.get("b") == null
+        cache.get("c") == "4"
+
+        when:
+        cache.put("d", "5")
+        cache.close()
+        other.reopen()
+
+        then:
+        other.get("d") == "5"
+
+        cleanup:
+        other.close()
+    }
+
+    def "reopened cache sees entries after another instance compacted the log"() {
+        def cache = createCache()
+        def value = "x" * 10000
+        cache.put("a", "1")
+        cache.close()
+
+        when:
+        def other = createCache()
+        200.times {
+            other.put("b", value + it)
+        }
+        other.compact()
+        other.put("c", "2")
+        other.close()
+        cache.reopen()
+
+        then:
+        cache.get("a") == "1"
+        cache.get("b") == value + 199
+        cache.get("c") == "2"
+
+        cleanup:
+        cache.close()
+    }
+
+    def "rebuilds index from log when index file is missing"() {
+        def cache = createCache()
+        cache.put("a", "1")
+        cache.put("b", "2")
+        cache.remove("a")
+        cache.put("c", "3")
+        cache.close()
+
+        when:
+        indexFile.delete()
+        cache = createCache()
+
+        then:
+        cache.get("a") == null
+        cache.get("b") == "2"
+        cache.get("c") == "3"
+
+        cleanup:
+        cache.close()
+    }
+
+    def "discards incomplete record at end of log"() {
+        def cache = createCache()
+        cache.put("a", "1")
+        cache.close()
+        def length = logFile.length()
+
+        when:
+        indexFile.delete()
+        logFile << ([1, 2, 3, 4, 5] as byte[])
+        cache = createCache()
+
+        then:
+        cache.get("a") == "1"
+        logFile.length() == length
+
+        when:
+        cache.put("b", "2")
+        cache.close()
+        cache = createCache()
+
+        then:
+        cache.get("a") == "1"
+        cache.get("b") == "2"
+
+        cleanup:
+        cache.close()
+    }
+
+    def "discards log with unexpected content"() {
+        logFile.text = "not a log file"
+
+        when:
+        def cache = createCache()
+
+        then:
+        cache.get("a") == null
+
+        when:
+        cache.put("a", "1")
+        cache.close()
+        cache = createCache()
+
+        then:
+        cache.get("a") == "1"
+
+        cleanup:
+        cache.close()
+    }
+
+    def "compacts log when most of it holds replaced values"() {
+        def cache = createCache()
+        def value = "x" * 10000
+        200.times {
+            cache.put("a", value + it)
+        }
+        cache.put("b", "2")
+        cache.close()
+        def uncompactedLength = logFile.length()
+
+        expect:
+        uncompactedLength > 200 * 10000
+
+        when:
+        cache.reopen()
+
+        then:
+        cache.requiresCompaction()
+
+        when:
+        cache.compact()
+        cache.close()
+
+        then:
+        !cache.requiresCompaction()
+        logFile.length() < uncompactedLength / 100
+
+        when:
+        cache = createCache()
+
+        then:
+        cache.get("a") == value + 199
+        cache.get("b") == "2"
+
+        cleanup:
+        cache.close()
+    }
+
+    def "handles many entries"() {
+        def cache = new LogStructuredPersistentIndexedCache<Long, Long>(logFile, BaseSerializerFactory.LONG_SERIALIZER, BaseSerializerFactory.LONG_SERIALIZER)
+        (0L..<10000L).each {
+            cache.put(it, it * 2)
+        }
+        (0L..<10000L).step(2) {
+            cache.remove(it)
+        }
+        cache.close()
+
+        when:
+        cache = new LogStructuredPersistentIndexedCache<Long, Long>(logFile, BaseSerializerFactory.LONG_SERIALIZER, BaseSerializerFactory.LONG_SERIALIZER)
+
+        then:
+        (0L..<10000L).every {
+            cache.get(it) == (it % 2 == 0 ? null : it * 2)
+        }
+
+        cleanup:
+        cache.close()
+    }
+
+    private LogStructuredPersistentIndexedCache<String, String> createCache() {
+        return new LogStructuredPersistentIndexedCache<String, String>(logFile, new DefaultSerializer<String>(), new DefaultSerializer<String>())
+    }
+}
@@ -38,4 +38,8 @@ public class VersionAwareCompiler<T extends CompileSpec> implements Compiler<T>
         return compilerVersion;
     }
 
+    public Compiler<T> getCompiler() {
+        return compiler;
+    }
+
 }
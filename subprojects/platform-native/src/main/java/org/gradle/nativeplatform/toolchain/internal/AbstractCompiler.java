@@ -66,11 +66,7 @@ public abstract class AbstractCompiler<T extends BinaryToolSpec> implements Comp
     protected abstract Action<BuildOperationQueue<CommandLineToolInvocation>> newInvocationAction(T spec, List<String> commonArguments);
 
     protected List<String> getArguments(T spec) {
-        List<String> args = argsTransformer.transform(spec);
-
-        Action<List<String>> userArgTransformer = invocationContext.getArgAction();
-        // modifies in place
-        userArgTransformer.execute(args);
+        List<String> args = getTransformedArguments(spec);
 
         if (useCommandFile) {
             // Shorten args and write out an options.txt file
@@ -80,6 +76,18 @@ public abstract class AbstractCompiler<T extends BinaryToolSpec> implements Comp
         return args;
     }
 
+    /**
+     * Returns the arguments for the given spec, after the tool chain's argument actions have been applied.
+     */
+    protected List<String> getTransformedArguments(T spec) {
+        List<String> args = argsTransformer.transform(spec);
+
+        Action<List<String>> userArgTransformer = invocationContext.getArgAction();
+        // modifies in place
+        userArgTransformer.execute(args);
+        return args;
+    }
+
     protected abstract void addOptionsFileArgs(List<String> args, File tempDir);
 
     protected CommandLineToolInvocation newInvocation(String name, File workingDirectory, Iterable<String> args, BuildOperationLogger operationLogger) {
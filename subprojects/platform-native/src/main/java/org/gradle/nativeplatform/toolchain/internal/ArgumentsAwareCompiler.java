@@ -0,0 +1,31 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.nativeplatform.toolchain.internal;
+
+import org.gradle.language.base.internal.compile.Compiler;
+
+import java.util.List;
+
+/**
+ * A compiler that can report the arguments it passes to the tool for every source file of a compile spec.
+ */
+public interface ArgumentsAwareCompiler<T extends NativeCompileSpec> extends Compiler<T> {
+    /**
+     * Returns the arguments passed to the tool for every source file of the given spec, including those added by the tool chain. Does not write an options file.
+     */
+    List<String> getCommonArguments(T spec);
+}
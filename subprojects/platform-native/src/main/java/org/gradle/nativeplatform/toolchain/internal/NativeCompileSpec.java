@@ -77,6 +77,13 @@ public interface NativeCompileSpec extends BinaryToolSpec {
 
     void setIncrementalCompile(boolean flag);
 
+    /**
+     * Should the compiler write a dependency file next to each object file, listing the header files used to compile the source file? Ignored by tool chains that cannot do this.
+     */
+    boolean isWriteDependencyFiles();
+
+    void setWriteDependencyFiles(boolean flag);
+
     File getPrefixHeaderFile();
 
     void setPrefixHeaderFile(File prefixHeaderFile);
@@ -24,29 +24,50 @@ import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.api.tasks.WorkResult;
 import org.gradle.api.tasks.WorkResults;
+import org.apache.commons.io.FilenameUtils;
 import org.gradle.internal.FileUtils;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
 import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.logging.BuildOperationLogger;
 import org.gradle.internal.os.OperatingSystem;
 import org.gradle.internal.work.WorkerLeaseService;
 import org.gradle.nativeplatform.internal.CompilerOutputFileNamingSchemeFactory;
+import org.gradle.util.GFileUtils;
 
+import javax.annotation.Nullable;
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+public abstract class NativeCompiler<T extends NativeCompileSpec> extends AbstractCompiler<T> implements ArgumentsAwareCompiler<T> {
+    /**
+     * The suffix of the dependency files written next to the object files, when requested by {@link NativeCompileSpec#isWriteDependencyFiles()}.
+     */
+    public static final String DEPENDENCY_FILE_SUFFIX = ".d";
+
+    public static final String MAX_SOURCE_FILES_PER_INVOCATION_PROPERTY_NAME = "org.gradle.internal.native.compiler.batch.size";
 
-public abstract class NativeCompiler<T extends NativeCompileSpec> extends AbstractCompiler<T> {
     private final Transformer<T, T> specTransformer;
     private final String objectFileExtension;
     private final Logger logger = Logging.getLogger(NativeCompiler.class);
 
     private final CompilerOutputFileNamingSchemeFactory compilerOutputFileNamingSchemeFactory;
+    private final int maxSourceFilesPerInvocation;
 
     public NativeCompiler(BuildOperationExecutor buildOperationExecutor, CompilerOutputFileNamingSchemeFactory compilerOutputFileNamingSchemeFactory, CommandLineToolInvocationWorker commandLineToolInvocationWorker, CommandLineToolContext invocationContext, ArgsTransformer<T> argsTransformer, Transformer<T, T> specTransformer, String objectFileExtension, boolean useCommandFile, WorkerLeaseService workerLeaseService) {
-        super(buildOperationExecutor, commandLineToolInvocationWorker, invocationContext, argsTransformer, useCommandFile, workerLeaseService);
+        super(buildOperationExecutor, new BatchAwareInvocationWorker(commandLineToolInvocationWorker), invocationContext, argsTransformer, useCommandFile, workerLeaseService);
         this.compilerOutputFileNamingSchemeFactory = compilerOutputFileNamingSchemeFactory;
         this.objectFileExtension = objectFileExtension;
         this.specTransformer = specTransformer;
+        this.maxSourceFilesPerInvocation = Integer.getInteger(MAX_SOURCE_FILES_PER_INVOCATION_PROPERTY_NAME, 1);
     }
 
     @Override
@@ -58,6 +79,11 @@ public abstract class NativeCompiler<T extends NativeCompileSpec> extends Abstra
         return WorkResults.didWork(!transformedSpec.getSourceFiles().isEmpty());
     }
 
+    @Override
+    public List<String> getCommonArguments(T spec) {
+        return getTransformedArguments(spec);
+    }
+
     // TODO(daniel): Should support in a better way multi file invocation.
     protected Action<BuildOperationQueue<CommandLineToolInvocation>> newInvocationAction(final T spec, final List<String> genericArgs) {
         final File objectDir = spec.getObjectFileDir();
@@ -65,6 +91,22 @@ public abstract class NativeCompiler<T extends NativeCompileSpec> extends Abstra
             @Override
             public void execute(BuildOperationQueue<CommandLineToolInvocation> buildQueue) {
                 buildQueue.setLogLocation(spec.getOperationLogger().getLogLocation());
+                if (maxSourceFilesPerInvocation > 1) {
+                    int batchIndex = 0;
+                    for (List<File> batch : batchSourceFiles(spec)) {
+                        File batchDir = new File(spec.getTempDir(), "batch" + batchIndex);
+                        List<String> batchOutputArgs = batch.size() > 1 ? getBatchOutputArgs(spec, batchDir) : null;
+                        if (batchOutputArgs == null) {
+                            for (File sourceFile : batch) {
+                                buildQueue.add(createPerFileInvocation(genericArgs, sourceFile, objectDir, spec));
+                            }
+                        } else {
+                            buildQueue.add(createBatchInvocation(genericArgs, batch, batchDir, batchOutputArgs, objectDir, spec));
+                            batchIndex++;
+                        }
+                    }
+                    return;
+                }
                 for (File sourceFile : spec.getSourceFiles()) {
                     CommandLineToolInvocation perFileInvocation = createPerFileInvocation(genericArgs, sourceFile, objectDir, spec);
                     buildQueue.add(perFileInvocation);
@@ -83,6 +125,22 @@ public abstract class NativeCompiler<T extends NativeCompileSpec> extends Abstra
 
     protected abstract List<String> getPCHArgs(T spec);
 
+    /**
+     * Returns the arguments that cause the compiler to write the header files used by the source file to the given dependency file. Tool chains that cannot do this return no arguments.
+     */
+    protected List<String> getDependencyFileArgs(File dependencyFile) {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Returns the arguments that cause the compiler to write the outputs for each of the source files of an invocation into the given directory, named after the source file.
+     * The compiler runs with this directory as its working directory.
+     *
+     * @return the arguments, or null when the compiler cannot compile multiple source files of the given spec in a single invocation.
+     */
+    @Nullable
+    protected abstract List<String> getBatchOutputArgs(T spec, File outputDir);
+
     protected File getOutputFileDir(File sourceFile, File objectFileDir, String fileSuffix) {
         boolean windowsPathLimitation = OperatingSystem.current().isWindows();
 
@@ -108,12 +166,156 @@ public abstract class NativeCompiler<T extends NativeCompileSpec> extends Abstra
     protected CommandLineToolInvocation createPerFileInvocation(List<String> genericArgs, File sourceFile, File objectDir, T spec) {
         List<String> sourceArgs = getSourceArgs(sourceFile);
         List<String> outputArgs = getOutputArgs(spec, getOutputFileDir(sourceFile, objectDir, objectFileExtension));
+        if (spec.isWriteDependencyFiles()) {
+            outputArgs = Lists.newArrayList(Iterables.concat(outputArgs, getDependencyFileArgs(getOutputFileDir(sourceFile, objectDir, DEPENDENCY_FILE_SUFFIX))));
+        }
         List<String> pchArgs = maybeGetPCHArgs(spec, sourceFile);
 
         return newInvocation("compiling ".concat(sourceFile.getName()), objectDir, buildPerFileArgs(genericArgs, sourceArgs, outputArgs, pchArgs), spec.getOperationLogger());
     }
 
+    /**
+     * Groups the source files to compile into batches of source files that are compiled using the same arguments, and whose outputs have different names.
+     */
+    private List<List<File>> batchSourceFiles(T spec) {
+        Map<List<String>, List<List<File>>> batchesByArgs = new LinkedHashMap<List<String>, List<List<File>>>();
+        Map<List<File>, Set<String>> namesByBatch = new LinkedHashMap<List<File>, Set<String>>();
+        for (File sourceFile : spec.getSourceFiles()) {
+            List<String> pchArgs = maybeGetPCHArgs(spec, sourceFile);
+            List<List<File>> batches = batchesByArgs.get(pchArgs);
+            if (batches == null) {
+                batches = new ArrayList<List<File>>();
+                batchesByArgs.put(pchArgs, batches);
+            }
+            // Output names are compared ignoring case, as the file system may not be case sensitive
+            String outputName = FilenameUtils.removeExtension(sourceFile.getName()).toLowerCase(Locale.ROOT);
+            List<File> batch = null;
+            for (List<File> candidate : batches) {
+                if (candidate.size() < maxSourceFilesPerInvocation && !namesByBatch.get(candidate).contains(outputName)) {
+                    batch = candidate;
+                    break;
+                }
+            }
+            if (batch == null) {
+                batch = new ArrayList<File>();
+                batches.add(batch);
+                namesByBatch.put(batch, new HashSet<String>());
+            }
+            batch.add(sourceFile);
+            namesByBatch.get(batch).add(outputName);
+        }
+        List<List<File>> result = new ArrayList<List<File>>();
+        for (List<List<File>> batches : batchesByArgs.values()) {
+            result.addAll(batches);
+        }
+        return result;
+    }
+
+    protected CommandLineToolInvocation createBatchInvocation(List<String> genericArgs, List<File> sourceFiles, File batchDir, List<String> outputArgs, File objectDir, T spec) {
+        // Remove the outputs of any earlier execution
+        GFileUtils.deleteDirectory(batchDir);
+        GFileUtils.mkdirs(batchDir);
+
+        List<String> sourceArgs = new ArrayList<String>();
+        Map<File, File> outputs = new LinkedHashMap<File, File>();
+        for (File sourceFile : sourceFiles) {
+            sourceArgs.addAll(getSourceArgs(sourceFile));
+            String baseName = FilenameUtils.removeExtension(sourceFile.getName());
+            outputs.put(new File(batchDir, baseName + objectFileExtension), getOutputFileDir(sourceFile, objectDir, objectFileExtension));
+            if (spec.isWriteDependencyFiles()) {
+                outputs.put(new File(batchDir, baseName + DEPENDENCY_FILE_SUFFIX), getOutputFileDir(sourceFile, objectDir, DEPENDENCY_FILE_SUFFIX));
+            }
+        }
+        List<String> pchArgs = maybeGetPCHArgs(spec, sourceFiles.get(0));
+
+        String description = "compiling " + sourceFiles.size() + " source files starting with " + sourceFiles.get(0).getName();
+        CommandLineToolInvocation invocation = newInvocation(description, batchDir, buildPerFileArgs(genericArgs, sourceArgs, outputArgs, pchArgs), spec.getOperationLogger());
+        return new BatchInvocation(invocation, outputs);
+    }
+
     protected Iterable<String> buildPerFileArgs(List<String> genericArgs, List<String> sourceArgs, List<String> outputArgs, List<String> pchArgs) {
         return Iterables.concat(genericArgs, pchArgs, sourceArgs, outputArgs);
     }
+
+    /**
+     * An invocation that compiles multiple source files, whose outputs are moved to the locations of the outputs of a per-file invocation once the compiler has finished.
+     */
+    private static class BatchInvocation implements CommandLineToolInvocation {
+        private final CommandLineToolInvocation delegate;
+        private final Map<File, File> outputs;
+
+        BatchInvocation(CommandLineToolInvocation delegate, Map<File, File> outputs) {
+            this.delegate = delegate;
+            this.outputs = outputs;
+        }
+
+        @Override
+        public List<File> getPath() {
+            return delegate.getPath();
+        }
+
+        @Override
+        public Map<String, String> getEnvironment() {
+            return delegate.getEnvironment();
+        }
+
+        @Override
+        public File getWorkDirectory() {
+            return delegate.getWorkDirectory();
+        }
+
+        @Override
+        public Iterable<String> getArgs() {
+            return delegate.getArgs();
+        }
+
+        @Override
+        public BuildOperationLogger getLogger() {
+            return delegate.getLogger();
+        }
+
+        @Override
+        public BuildOperationDescriptor.Builder description() {
+            return delegate.description();
+        }
+
+        void moveOutputs() {
+            for (Map.Entry<File, File> entry : outputs.entrySet()) {
+                File output = entry.getKey();
+                if (!output.isFile()) {
+                    // Not all outputs are written by every compiler
+                    continue;
+                }
+                File destination = entry.getValue();
+                GFileUtils.deleteQuietly(destination);
+                GFileUtils.moveExistingFile(output, destination);
+            }
+        }
+    }
+
+    private static class BatchAwareInvocationWorker implements CommandLineToolInvocationWorker {
+        private final CommandLineToolInvocationWorker delegate;
+
+        BatchAwareInvocationWorker(CommandLineToolInvocationWorker delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return delegate.getDisplayName();
+        }
+
+        @Override
+        public String toString() {
+            return getDisplayName();
+        }
+
+        @Override
+        public void execute(CommandLineToolInvocation invocation, BuildOperationContext context) {
+            delegate.execute(invocation, context);
+            if (invocation instanceof BatchInvocation) {
+                ((BatchInvocation) invocation).moveOutputs();
+            }
+        }
+    }
 }
@@ -18,18 +18,18 @@ package org.gradle.nativeplatform.toolchain.internal;
 
 import org.gradle.api.tasks.WorkResult;
 import org.gradle.api.tasks.WorkResults;
-import org.gradle.language.base.internal.compile.Compiler;
 import org.gradle.nativeplatform.internal.CompilerOutputFileNamingSchemeFactory;
 
 import java.io.File;
+import java.util.List;
 
-public class OutputCleaningCompiler<T extends NativeCompileSpec> implements Compiler<T> {
+public class OutputCleaningCompiler<T extends NativeCompileSpec> implements ArgumentsAwareCompiler<T> {
 
-    private final Compiler<T> compiler;
+    private final ArgumentsAwareCompiler<T> compiler;
     private final String outputFileSuffix;
     private final CompilerOutputFileNamingSchemeFactory compilerOutputFileNamingSchemeFactory;
 
-    public OutputCleaningCompiler(Compiler<T> compiler, CompilerOutputFileNamingSchemeFactory compilerOutputFileNamingSchemeFactory, String outputFileSuffix) {
+    public OutputCleaningCompiler(ArgumentsAwareCompiler<T> compiler, CompilerOutputFileNamingSchemeFactory compilerOutputFileNamingSchemeFactory, String outputFileSuffix) {
         this.compiler = compiler;
         this.compilerOutputFileNamingSchemeFactory = compilerOutputFileNamingSchemeFactory;
         this.outputFileSuffix = outputFileSuffix;
@@ -42,6 +42,11 @@ public class OutputCleaningCompiler<T extends NativeCompileSpec> implements Comp
         return WorkResults.didWork(didRemove || didCompile);
     }
 
+    @Override
+    public List<String> getCommonArguments(T spec) {
+        return compiler.getCommonArguments(spec);
+    }
+
     private boolean compileSources(T spec) {
         if (spec.getSourceFiles().isEmpty()) {
             return false;
@@ -57,6 +62,9 @@ public class OutputCleaningCompiler<T extends NativeCompileSpec> implements Comp
             // Remove .pdb file if present
             new File(objectFile.getParentFile(), objectFile.getName() + ".pdb").delete();
 
+            // Remove dependency file if present
+            getOutputFile(spec.getObjectFileDir(), removedSource, NativeCompiler.DEPENDENCY_FILE_SUFFIX).delete();
+
             if (objectFile.delete()) {
                 didRemove = true;
                 objectFile.getParentFile().delete();
@@ -66,8 +74,12 @@ public class OutputCleaningCompiler<T extends NativeCompileSpec> implements Comp
     }
 
     private File getObjectFile(File objectFileRoot, File sourceFile) {
+        return getOutputFile(objectFileRoot, sourceFile, outputFileSuffix);
+    }
+
+    private File getOutputFile(File objectFileRoot, File sourceFile, String suffix) {
         return compilerOutputFileNamingSchemeFactory.create()
-            .withObjectFileNameSuffix(outputFileSuffix)
+            .withObjectFileNameSuffix(suffix)
             .withOutputBaseFolder(objectFileRoot)
             .map(sourceFile);
     }
@@ -24,11 +24,20 @@ import org.gradle.nativeplatform.toolchain.internal.CommandLineToolContext;
 import org.gradle.nativeplatform.toolchain.internal.CommandLineToolInvocationWorker;
 import org.gradle.nativeplatform.toolchain.internal.compilespec.CPCHCompileSpec;
 
+import java.io.File;
+import java.util.List;
+
 public class CPCHCompiler extends GccCompatibleNativeCompiler<CPCHCompileSpec> {
     public CPCHCompiler(BuildOperationExecutor buildOperationExecutor, CompilerOutputFileNamingSchemeFactory compilerOutputFileNamingSchemeFactory, CommandLineToolInvocationWorker commandLineTool, CommandLineToolContext invocationContext, String objectFileExtension, boolean useCommandFile, WorkerLeaseService workerLeaseService) {
         super(buildOperationExecutor, compilerOutputFileNamingSchemeFactory, commandLineTool, invocationContext, new CPCHCompileArgsTransformer(), Transformers.<CPCHCompileSpec>noOpTransformer(), objectFileExtension, useCommandFile, workerLeaseService);
     }
 
+    @Override
+    protected List<String> getBatchOutputArgs(CPCHCompileSpec spec, File outputDir) {
+        // Without -o, the precompiled header is written next to the header file rather than to the working directory
+        return null;
+    }
+
     private static class CPCHCompileArgsTransformer extends GccCompilerArgsTransformer<CPCHCompileSpec> {
         @Override
         protected String getLanguage() {
@@ -30,6 +30,7 @@ import org.gradle.nativeplatform.toolchain.internal.OptionsFileArgsWriter;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 class GccCompatibleNativeCompiler<T extends NativeCompileSpec> extends NativeCompiler<T> {
@@ -43,6 +44,20 @@ class GccCompatibleNativeCompiler<T extends NativeCompileSpec> extends NativeCom
         return Arrays.asList("-o", outputFile.getAbsolutePath());
     }
 
+    @Override
+    protected List<String> getDependencyFileArgs(File dependencyFile) {
+        return Arrays.asList("-MMD", "-MF", dependencyFile.getAbsolutePath());
+    }
+
+    @Override
+    protected List<String> getBatchOutputArgs(T spec, File outputDir) {
+        // Without -o, the object file and dependency file for each source file are written to the working directory
+        if (spec.isWriteDependencyFiles()) {
+            return Collections.singletonList("-MMD");
+        }
+        return Collections.emptyList();
+    }
+
     @Override
     protected void addOptionsFileArgs(List<String> args, File tempDir) {
         OptionsFileArgsWriter writer = new GccOptionsFileArgsWriter(tempDir);
@@ -24,12 +24,24 @@ import org.gradle.nativeplatform.toolchain.internal.CommandLineToolContext;
 import org.gradle.nativeplatform.toolchain.internal.CommandLineToolInvocationWorker;
 import org.gradle.nativeplatform.toolchain.internal.compilespec.CCompileSpec;
 
+import java.io.File;
+import java.util.List;
+
 class CCompiler extends VisualCppNativeCompiler<CCompileSpec> {
 
     CCompiler(BuildOperationExecutor buildOperationExecutor, CompilerOutputFileNamingSchemeFactory compilerOutputFileNamingSchemeFactory, CommandLineToolInvocationWorker commandLineToolInvocationWorker, CommandLineToolContext invocationContext, Transformer<CCompileSpec, CCompileSpec> specTransformer, String objectFileExtension, boolean useCommandFile, WorkerLeaseService workerLeaseService) {
         super(buildOperationExecutor, compilerOutputFileNamingSchemeFactory, commandLineToolInvocationWorker, invocationContext, new CCompilerArgsTransformer(), specTransformer, objectFileExtension, useCommandFile, workerLeaseService);
     }
 
+    @Override
+    protected List<String> getBatchOutputArgs(CCompileSpec spec, File outputDir) {
+        // Debug builds write a program database per object file, which is referenced from the object file
+        if (spec.isDebuggable()) {
+            return null;
+        }
+        return getObjectFileDirArgs(outputDir);
+    }
+
     private static class CCompilerArgsTransformer extends VisualCppCompilerArgsTransformer<CCompileSpec> {
         @Override
         protected String getLanguageOption() {
@@ -29,6 +29,7 @@ import org.gradle.nativeplatform.toolchain.internal.OptionsFileArgsWriter;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 class VisualCppNativeCompiler<T extends NativeCompileSpec> extends NativeCompiler<T> {
@@ -48,6 +49,19 @@ class VisualCppNativeCompiler<T extends NativeCompileSpec> extends NativeCompile
         return args;
     }
 
+    @Override
+    protected List<String> getBatchOutputArgs(T spec, File outputDir) {
+        return null;
+    }
+
+    /**
+     * Returns the arguments that cause the compiler to write an object file named after each source file into the given directory.
+     */
+    protected List<String> getObjectFileDirArgs(File outputDir) {
+        // A trailing separator tells the compiler to write an object file named after each source file into the directory
+        return Collections.singletonList("/Fo" + outputDir.getAbsolutePath() + File.separator);
+    }
+
     @Override
     protected void addOptionsFileArgs(List<String> args, File tempDir) {
         OptionsFileArgsWriter writer = new VisualCppOptionsFileArgsWriter(tempDir);
@@ -19,7 +19,6 @@ package org.gradle.nativeplatform.toolchain.internal
 import org.gradle.api.internal.file.BaseDirFileResolver
 import org.gradle.api.internal.file.TestFiles
 import org.gradle.api.tasks.WorkResult
-import org.gradle.language.base.internal.compile.Compiler
 import org.gradle.nativeplatform.internal.CompilerOutputFileNamingSchemeFactory
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
@@ -39,7 +38,7 @@ class OutputCleaningCompilerTest extends Specification {
     private static final String O_EXT = ".o"
 
     NativeCompileSpec spec = Mock(NativeCompileSpec)
-    Compiler delegateCompiler = Mock(Compiler)
+    ArgumentsAwareCompiler delegateCompiler = Mock(ArgumentsAwareCompiler)
 
     OutputCleaningCompiler cleanCompiler = new OutputCleaningCompiler<NativeCompileSpec>(delegateCompiler, compilerOutputFileNamingSchemeFactory, O_EXT);
 
@@ -16,11 +16,19 @@
 
 package org.gradle.nativeplatform.toolchain.internal.gcc
 
+import org.gradle.internal.concurrent.GradleThread
+import org.gradle.internal.operations.BuildOperationQueue
+import org.gradle.internal.operations.logging.BuildOperationLogger
 import org.gradle.nativeplatform.toolchain.internal.CommandLineToolContext
+import org.gradle.nativeplatform.toolchain.internal.CommandLineToolInvocation
 import org.gradle.nativeplatform.toolchain.internal.NativeCompiler
 import org.gradle.nativeplatform.toolchain.internal.compilespec.CppCompileSpec
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
 
 class CppCompilerTest extends GccCompatibleNativeCompilerTest {
+    @Rule
+    SetSystemProperties systemProperties = new SetSystemProperties()
 
     @Override
     protected NativeCompiler getCompiler(CommandLineToolContext invocationContext, String objectFileExtension, boolean useCommandFile) {
@@ -36,4 +44,71 @@ class CppCompilerTest extends GccCompatibleNativeCompilerTest {
     protected List<String> getCompilerSpecificArguments(File includeDir, File systemIncludeDir) {
         [ '-x', 'c++' ] + super.getCompilerSpecificArguments(includeDir, systemIncludeDir)
     }
+
+    def "compiles source files with different output names in batches when enabled"() {
+        given:
+        System.setProperty(NativeCompiler.MAX_SOURCE_FILES_PER_INVOCATION_PROPERTY_NAME, "2")
+        def compiler = getCompiler()
+        def testDir = tmpDirProvider.testDirectory
+        def sourceFiles = [testDir.file("a/one.cpp"), testDir.file("b/one.cpp"), testDir.file("two.cpp"), testDir.file("three.cpp")]
+        def spec = Stub(CppCompileSpec) {
+            getTempDir() >> testDir.file("tmp")
+            getObjectFileDir() >> testDir.file("objects")
+            getSourceFiles() >> sourceFiles
+            getOperationLogger() >> Mock(BuildOperationLogger)
+            getPreCompiledHeader() >> null
+            getPrefixHeaderFile() >> null
+            getPreCompiledHeaderObjectFile() >> null
+        }
+        def queue = Mock(BuildOperationQueue)
+        def invocations = []
+
+        when:
+        compiler.newInvocationAction(spec, ['-c']).execute(queue)
+
+        then:
+        2 * queue.add(_) >> { CommandLineToolInvocation invocation -> invocations << invocation }
+        invocations[0].args as List == ['-c', sourceFiles[0].absolutePath, sourceFiles[2].absolutePath]
+        invocations[0].workDirectory == testDir.file("tmp/batch0")
+        invocations[1].args as List == ['-c', sourceFiles[1].absolutePath, sourceFiles[3].absolutePath]
+        invocations[1].workDirectory == testDir.file("tmp/batch1")
+    }
+
+    def "moves outputs of batch to the location of the output of each source file"() {
+        given:
+        GradleThread.setManaged()
+        System.setProperty(NativeCompiler.MAX_SOURCE_FILES_PER_INVOCATION_PROPERTY_NAME, "10")
+        def compiler = getCompiler()
+        def testDir = tmpDirProvider.testDirectory
+        def objectFileDir = testDir.file("objects")
+        def sourceFiles = [testDir.file("one.cpp"), testDir.file("two.cpp")]
+        def spec = Stub(CppCompileSpec) {
+            getTempDir() >> testDir.file("tmp")
+            getObjectFileDir() >> objectFileDir
+            getSourceFiles() >> sourceFiles
+            getOperationLogger() >> Mock(BuildOperationLogger)
+            getPreCompiledHeader() >> null
+            getPrefixHeaderFile() >> null
+            getPreCompiledHeaderObjectFile() >> null
+        }
+
+        when:
+        compiler.execute(spec)
+
+        then:
+        1 * commandLineTool.execute(_, _) >> { CommandLineToolInvocation invocation, context ->
+            new File(invocation.workDirectory, "one.o").text = "one"
+            new File(invocation.workDirectory, "two.o").text = "two"
+        }
+        sourceFiles.each { sourceFile ->
+            def objectFile = compilerOutputFileNamingSchemeFactory.create()
+                .withObjectFileNameSuffix(".o")
+                .withOutputBaseFolder(objectFileDir)
+                .map(sourceFile)
+            assert objectFile.text == sourceFile.name - ".cpp"
+        }
+
+        cleanup:
+        GradleThread.setUnmanaged()
+    }
 }
@@ -36,4 +36,12 @@ class CppPCHCompilerTest extends GccCompatibleNativeCompilerTest {
     protected List<String> getCompilerSpecificArguments(File includeDir, File systemIncludeDir) {
         return [ '-x', 'c++-header' ] + super.getCompilerSpecificArguments(includeDir, systemIncludeDir)
     }
+
+    def "does not compile precompiled headers in batches"() {
+        given:
+        def spec = Stub(CppPCHCompileSpec)
+
+        expect:
+        getCompiler().getBatchOutputArgs(spec, tmpDirProvider.testDirectory) == null
+    }
 }
@@ -16,7 +16,9 @@
 
 package org.gradle.nativeplatform.toolchain.internal.gcc
 
+import org.gradle.internal.operations.logging.BuildOperationLogger
 import org.gradle.nativeplatform.toolchain.internal.NativeCompileSpec
+import org.gradle.nativeplatform.toolchain.internal.NativeCompiler
 import org.gradle.nativeplatform.toolchain.internal.NativeCompilerTest
 
 abstract class GccCompatibleNativeCompilerTest extends NativeCompilerTest {
@@ -38,4 +40,41 @@ abstract class GccCompatibleNativeCompilerTest extends NativeCompilerTest {
         args == [ '-o', outputFile.absoluteFile.toString() ]
     }
 
+    def "arguments include dependency file flags when dependency files are requested"() {
+        given:
+        def compiler = getCompiler()
+        def testDir = tmpDirProvider.testDirectory
+        def objectFileDir = testDir.file("objects")
+        def sourceFile = testDir.file("source.ext")
+
+        when:
+        def spec = Stub(getCompileSpecType()) {
+            isWriteDependencyFiles() >> true
+            getOperationLogger() >> Mock(BuildOperationLogger)
+        }
+        def args = compiler.createPerFileInvocation([], sourceFile, objectFileDir, spec).args as List
+
+        then:
+        def dependencyFile = compilerOutputFileNamingSchemeFactory.create()
+            .withObjectFileNameSuffix(NativeCompiler.DEPENDENCY_FILE_SUFFIX)
+            .withOutputBaseFolder(objectFileDir)
+            .map(sourceFile)
+        args.containsAll([ '-MMD', '-MF', dependencyFile.absolutePath ])
+    }
+
+    def "arguments do not include dependency file flags by default"() {
+        given:
+        def compiler = getCompiler()
+        def testDir = tmpDirProvider.testDirectory
+
+        when:
+        def spec = Stub(getCompileSpecType()) {
+            getOperationLogger() >> Mock(BuildOperationLogger)
+        }
+        def args = compiler.createPerFileInvocation([], testDir.file("source.ext"), testDir.file("objects"), spec).args as List
+
+        then:
+        !args.contains('-MMD')
+    }
+
 }
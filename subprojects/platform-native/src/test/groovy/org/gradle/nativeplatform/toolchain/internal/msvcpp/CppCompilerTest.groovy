@@ -17,11 +17,18 @@
 package org.gradle.nativeplatform.toolchain.internal.msvcpp
 
 import org.gradle.internal.Transformers
+import org.gradle.internal.operations.BuildOperationQueue
+import org.gradle.internal.operations.logging.BuildOperationLogger
 import org.gradle.nativeplatform.toolchain.internal.CommandLineToolContext
+import org.gradle.nativeplatform.toolchain.internal.CommandLineToolInvocation
 import org.gradle.nativeplatform.toolchain.internal.NativeCompiler
 import org.gradle.nativeplatform.toolchain.internal.compilespec.CppCompileSpec
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
 
 class CppCompilerTest  extends VisualCppNativeCompilerTest {
+    @Rule
+    SetSystemProperties systemProperties = new SetSystemProperties()
 
     @Override
     protected NativeCompiler getCompiler(CommandLineToolContext invocationContext, String objectFileExtension, boolean useCommandFile) {
@@ -37,4 +44,45 @@ class CppCompilerTest  extends VisualCppNativeCompilerTest {
     protected List<String> getCompilerSpecificArguments(File includeDir, File systemIncludeDir) {
         [ '/TP' ] + super.getCompilerSpecificArguments(includeDir, systemIncludeDir)
     }
+
+    def "compiles source files in batches only when not debuggable"() {
+        given:
+        System.setProperty(NativeCompiler.MAX_SOURCE_FILES_PER_INVOCATION_PROPERTY_NAME, "10")
+        def compiler = getCompiler()
+        def testDir = tmpDirProvider.testDirectory
+        def sourceFiles = [testDir.file("one.cpp"), testDir.file("two.cpp")]
+        def spec = Stub(CppCompileSpec) {
+            getTempDir() >> testDir.file("tmp")
+            getObjectFileDir() >> testDir.file("objects")
+            getSourceFiles() >> sourceFiles
+            getOperationLogger() >> Mock(BuildOperationLogger)
+            isDebuggable() >> debuggable
+        }
+        def queue = Mock(BuildOperationQueue)
+        def invocations = []
+
+        when:
+        compiler.newInvocationAction(spec, ['/c']).execute(queue)
+
+        then:
+        _ * queue.add(_) >> { CommandLineToolInvocation invocation -> invocations << invocation }
+        invocations.size() == expectedInvocations
+
+        where:
+        debuggable | expectedInvocations
+        false      | 1
+        true       | 2
+    }
+
+    def "writes the object files of a batch to the batch directory"() {
+        given:
+        def compiler = getCompiler()
+        def outputDir = tmpDirProvider.testDirectory.file("batch0")
+        def spec = Stub(CppCompileSpec) {
+            isDebuggable() >> false
+        }
+
+        expect:
+        compiler.getBatchOutputArgs(spec, outputDir) == ["/Fo" + outputDir.absolutePath + File.separator]
+    }
 }
@@ -19,7 +19,9 @@ package org.gradle.api.internal.tasks;
 import org.gradle.api.internal.changedetection.state.InMemoryCacheDecoratorFactory;
 import org.gradle.api.internal.jvm.JvmBinaryRenderer;
 import org.gradle.api.internal.tasks.compile.incremental.cache.DefaultGeneralCompileCaches;
+import org.gradle.api.internal.tasks.compile.incremental.cache.DefaultUserHomeScopedCompileCaches;
 import org.gradle.api.internal.tasks.compile.incremental.cache.GeneralCompileCaches;
+import org.gradle.api.internal.tasks.compile.incremental.cache.UserHomeScopedCompileCaches;
 import org.gradle.api.invocation.Gradle;
 import org.gradle.cache.CacheRepository;
 import org.gradle.initialization.JdkToolsInitializer;
@@ -31,6 +33,10 @@ public class CompileServices extends AbstractPluginServiceRegistry {
         registration.add(JvmBinaryRenderer.class);
     }
 
+    public void registerGradleUserHomeServices(ServiceRegistration registration) {
+        registration.addProvider(new UserHomeScopeCompileServices());
+    }
+
     public void registerGradleServices(ServiceRegistration registration) {
         registration.addProvider(new GradleScopeCompileServices());
     }
@@ -41,8 +47,14 @@ public class CompileServices extends AbstractPluginServiceRegistry {
             initializer.initializeJdkTools();
         }
 
-        GeneralCompileCaches createGeneralCompileCaches(CacheRepository cacheRepository, Gradle gradle, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory) {
-            return new DefaultGeneralCompileCaches(cacheRepository, gradle, inMemoryCacheDecoratorFactory);
+        GeneralCompileCaches createGeneralCompileCaches(UserHomeScopedCompileCaches userHomeScopedCompileCaches, CacheRepository cacheRepository, Gradle gradle, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory) {
+            return new DefaultGeneralCompileCaches(userHomeScopedCompileCaches, cacheRepository, gradle, inMemoryCacheDecoratorFactory);
+        }
+    }
+
+    private static class UserHomeScopeCompileServices {
+        UserHomeScopedCompileCaches createUserHomeScopedCompileCaches(CacheRepository cacheRepository, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory) {
+            return new DefaultUserHomeScopedCompileCaches(cacheRepository, inMemoryCacheDecoratorFactory);
         }
     }
 }
@@ -36,6 +36,7 @@ import org.apache.http.protocol.HttpContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.Locale;
@@ -49,6 +50,7 @@ public class HttpClientHelper implements Closeable {
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpClientHelper.class);
     private CloseableHttpClient client;
     private final HttpSettings settings;
+    private final SharedHttpConnectionPool connectionPool;
 
     /**
      * Maintains a queue of contexts which are shared between threads when authentication
@@ -60,7 +62,16 @@ public class HttpClientHelper implements Closeable {
     private final ConcurrentLinkedQueue<HttpContext> sharedContext;
 
     public HttpClientHelper(HttpSettings settings) {
+        this(settings, null);
+    }
+
+    /**
+     * Creates a helper whose connections are taken from the given pool, when not null. Otherwise, the helper uses its own connections. Connections in the pool
+     * are only shared with helpers that use the same SSL context factory and hostname verifier.
+     */
+    public HttpClientHelper(HttpSettings settings, @Nullable SharedHttpConnectionPool connectionPool) {
         this.settings = settings;
+        this.connectionPool = connectionPool;
         if (!settings.getAuthenticationSettings().isEmpty()) {
             sharedContext = new ConcurrentLinkedQueue<HttpContext>();
         } else {
@@ -165,6 +176,10 @@ public class HttpClientHelper implements Closeable {
         if (client == null) {
             HttpClientBuilder builder = HttpClientBuilder.create();
             new HttpClientConfigurer(settings).configure(builder);
+            if (connectionPool != null) {
+                builder.setConnectionManager(connectionPool.getConnectionManager(settings));
+                builder.setConnectionManagerShared(true);
+            }
             this.client = builder.build();
         }
         return client;
@@ -37,9 +37,11 @@ public class HttpConnectorFactory implements ResourceConnectorFactory {
     );
 
     private SslContextFactory sslContextFactory;
+    private final SharedHttpConnectionPool connectionPool;
 
-    public HttpConnectorFactory(SslContextFactory sslContextFactory) {
+    public HttpConnectorFactory(SslContextFactory sslContextFactory, SharedHttpConnectionPool connectionPool) {
         this.sslContextFactory = sslContextFactory;
+        this.connectionPool = connectionPool;
     }
 
     @Override
@@ -57,7 +59,8 @@ public class HttpConnectorFactory implements ResourceConnectorFactory {
         HttpClientHelper http = new HttpClientHelper(DefaultHttpSettings.builder()
             .withAuthenticationSettings(connectionDetails.getAuthentications())
             .withSslContextFactory(sslContextFactory)
-            .build()
+            .build(),
+            connectionPool
         );
         HttpResourceAccessor accessor = new HttpResourceAccessor(http);
         HttpResourceLister lister = new HttpResourceLister(accessor);
@@ -30,6 +30,11 @@ public class HttpResourcesPluginServiceRegistry extends AbstractPluginServiceReg
         registration.addProvider(new GlobalScopeServices());
     }
 
+    @Override
+    public void registerBuildSessionServices(ServiceRegistration registration) {
+        registration.addProvider(new BuildSessionScopeServices());
+    }
+
     public void registerBuildServices(ServiceRegistration registration) {
         registration.addProvider(new AuthenticationSchemeAction());
     }
@@ -38,9 +43,15 @@ public class HttpResourcesPluginServiceRegistry extends AbstractPluginServiceReg
         SslContextFactory createSslContextFactory() {
             return new DefaultSslContextFactory();
         }
+    }
+
+    private static class BuildSessionScopeServices {
+        SharedHttpConnectionPool createSharedHttpConnectionPool() {
+            return new SharedHttpConnectionPool();
+        }
 
-        ResourceConnectorFactory createHttpConnectorFactory(SslContextFactory sslContextFactory) {
-            return new HttpConnectorFactory(sslContextFactory);
+        ResourceConnectorFactory createHttpConnectorFactory(SslContextFactory sslContextFactory, SharedHttpConnectionPool connectionPool) {
+            return new HttpConnectorFactory(sslContextFactory, connectionPool);
         }
     }
 
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resource.transport.http;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.gradle.internal.concurrent.Stoppable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.HostnameVerifier;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of HTTP connections shared by all repository transports of a build session.
+ *
+ * <p>Repositories that point at the same host, for example several repositories served by the same repository manager or proxy, reuse
+ * each other's kept-alive connections instead of each opening and handshaking their own. The number of concurrent connections
+ * to each host is bounded across all repositories.</p>
+ *
+ * <p>Connections are only shared between clients that use the same SSL context factory and hostname verifier. Clients with different TLS settings
+ * get connections from separate connection managers, each with the same limits.</p>
+ */
+public class SharedHttpConnectionPool implements Stoppable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedHttpConnectionPool.class);
+    public static final String MAX_CONNECTIONS_PER_HOST_SYSTEM_PROPERTY = "org.gradle.internal.http.maxConnectionsPerHost";
+    public static final String MAX_CONNECTIONS_SYSTEM_PROPERTY = "org.gradle.internal.http.maxConnections";
+    // Same as the limit of a client that does not use a shared pool
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = HttpClientConfigurer.MAX_HTTP_CONNECTIONS;
+    public static final int DEFAULT_MAX_CONNECTIONS = 200;
+
+    private final HttpTimeoutSettings timeoutSettings;
+    private final int maxConnectionsPerHost;
+    private final int maxConnections;
+    private final ConcurrentMap<TlsSettings, CountingConnectionManager> connectionManagers = new ConcurrentHashMap<TlsSettings, CountingConnectionManager>();
+
+    public SharedHttpConnectionPool() {
+        this(new JavaSystemPropertiesHttpTimeoutSettings(),
+            initLimit(MAX_CONNECTIONS_PER_HOST_SYSTEM_PROPERTY, DEFAULT_MAX_CONNECTIONS_PER_HOST),
+            initLimit(MAX_CONNECTIONS_SYSTEM_PROPERTY, DEFAULT_MAX_CONNECTIONS));
+    }
+
+    SharedHttpConnectionPool(HttpTimeoutSettings timeoutSettings, int maxConnectionsPerHost, int maxConnections) {
+        this.timeoutSettings = timeoutSettings;
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.maxConnections = Math.max(maxConnections, maxConnectionsPerHost);
+    }
+
+    /**
+     * The connection manager to use for clients with the given settings. Clients must not shut it down when they are closed.
+     */
+    public HttpClientConnectionManager getConnectionManager(HttpSettings settings) {
+        TlsSettings key = new TlsSettings(settings.getSslContextFactory(), settings.getHostnameVerifier());
+        CountingConnectionManager connectionManager = connectionManagers.get(key);
+        if (connectionManager == null) {
+            connectionManager = createConnectionManager(key);
+            CountingConnectionManager existing = connectionManagers.putIfAbsent(key, connectionManager);
+            if (existing != null) {
+                connectionManager.shutdown();
+                connectionManager = existing;
+            }
+        }
+        return connectionManager;
+    }
+
+    private CountingConnectionManager createConnectionManager(TlsSettings tlsSettings) {
+        CountingConnectionManager connectionManager = new CountingConnectionManager(RegistryBuilder.<ConnectionSocketFactory>create()
+            .register("http", PlainConnectionSocketFactory.getSocketFactory())
+            .register("https", new SSLConnectionSocketFactory(tlsSettings.sslContextFactory.createSslContext(), tlsSettings.hostnameVerifier))
+            .build());
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerHost);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultSocketConfig(SocketConfig.custom().setSoTimeout(timeoutSettings.getSocketTimeoutMs()).build());
+        return connectionManager;
+    }
+
+    public Statistics getStatistics() {
+        long leases = 0;
+        long connects = 0;
+        int leased = 0;
+        int available = 0;
+        for (CountingConnectionManager connectionManager : connectionManagers.values()) {
+            PoolStats totalStats = connectionManager.getTotalStats();
+            leases += connectionManager.leases.get();
+            connects += connectionManager.connects.get();
+            leased += totalStats.getLeased();
+            available += totalStats.getAvailable();
+        }
+        return new Statistics(leases, connects, leased, available);
+    }
+
+    @Override
+    public void stop() {
+        Statistics statistics = getStatistics();
+        if (statistics.getRequestCount() > 0) {
+            LOGGER.debug("{}", statistics);
+        }
+        for (CountingConnectionManager connectionManager : connectionManagers.values()) {
+            connectionManager.shutdown();
+        }
+        connectionManagers.clear();
+    }
+
+    private static int initLimit(String propertyName, int defaultValue) {
+        String systemProperty = System.getProperty(propertyName);
+        if (!StringUtils.isBlank(systemProperty)) {
+            try {
+                int value = Integer.parseInt(systemProperty);
+                if (value > 0) {
+                    return value;
+                }
+            } catch (NumberFormatException e) {
+                // Fall through
+            }
+            LOGGER.warn("Invalid value for java system property '{}': {}. Default '{}' will be used.", propertyName, systemProperty, defaultValue);
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Connection usage of a shared pool.
+     */
+    public static class Statistics {
+        private final long requestCount;
+        private final long connectionCount;
+        private final int inFlightCount;
+        private final int idleCount;
+
+        Statistics(long requestCount, long connectionCount, int inFlightCount, int idleCount) {
+            this.requestCount = requestCount;
+            this.connectionCount = connectionCount;
+            this.inFlightCount = inFlightCount;
+            this.idleCount = idleCount;
+        }
+
+        /**
+         * The number of requests that have used a connection from this pool.
+         */
+        public long getRequestCount() {
+            return requestCount;
+        }
+
+        /**
+         * The number of connections that have been opened.
+         */
+        public long getConnectionCount() {
+            return connectionCount;
+        }
+
+        /**
+         * The number of requests that used a connection left open by an earlier request.
+         */
+        public long getReusedConnectionCount() {
+            return Math.max(0, requestCount - connectionCount);
+        }
+
+        /**
+         * The number of connections currently in use by a request.
+         */
+        public int getInFlightCount() {
+            return inFlightCount;
+        }
+
+        /**
+         * The number of open connections that are currently waiting to be reused.
+         */
+        public int getIdleCount() {
+            return idleCount;
+        }
+
+        @Override
+        public String toString() {
+            return "Shared HTTP connection pool: " + requestCount + " requests, " + connectionCount + " connections opened, " + getReusedConnectionCount() + " connections reused, "
+                + inFlightCount + " in flight, " + idleCount + " idle";
+        }
+    }
+
+    /**
+     * The settings that determine how connections are secured. Compared by identity, as neither type defines equality.
+     */
+    private static class TlsSettings {
+        private final SslContextFactory sslContextFactory;
+        private final HostnameVerifier hostnameVerifier;
+
+        TlsSettings(SslContextFactory sslContextFactory, HostnameVerifier hostnameVerifier) {
+            this.sslContextFactory = sslContextFactory;
+            this.hostnameVerifier = hostnameVerifier;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (obj == null || obj.getClass() != getClass()) {
+                return false;
+            }
+            TlsSettings other = (TlsSettings) obj;
+            return sslContextFactory == other.sslContextFactory && hostnameVerifier == other.hostnameVerifier;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(sslContextFactory) + System.identityHashCode(hostnameVerifier);
+        }
+    }
+
+    private static class CountingConnectionManager extends PoolingHttpClientConnectionManager {
+        private final AtomicLong leases = new AtomicLong();
+        private final AtomicLong connects = new AtomicLong();
+
+        CountingConnectionManager(Registry<ConnectionSocketFactory> socketFactoryRegistry) {
+            super(socketFactoryRegistry);
+        }
+
+        @Override
+        public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+            leases.incrementAndGet();
+            return super.requestConnection(route, state);
+        }
+
+        @Override
+        public void connect(HttpClientConnection managedConn, HttpRoute route, int connectTimeout, HttpContext context) throws IOException {
+            connects.incrementAndGet();
+            super.connect(managedConn, route, connectTimeout, context);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resource.transport.http
+
+import org.apache.http.conn.ssl.DefaultHostnameVerifier
+import org.apache.http.ssl.SSLContexts
+import org.apache.http.util.EntityUtils
+import org.mortbay.jetty.Server
+import org.mortbay.jetty.handler.AbstractHandler
+import spock.lang.Specification
+
+import javax.servlet.http.HttpServletRequest
+import javax.net.ssl.HostnameVerifier
+import javax.servlet.http.HttpServletResponse
+
+class SharedHttpConnectionPoolTest extends Specification {
+    def server = new Server(0)
+    def sslContextFactory = Stub(SslContextFactory) {
+        createSslContext() >> SSLContexts.createDefault()
+    }
+    def hostnameVerifier = new DefaultHostnameVerifier(null)
+    def pool = new SharedHttpConnectionPool(new JavaSystemPropertiesHttpTimeoutSettings(), 2, 10)
+
+    def setup() {
+        server.addHandler(new AbstractHandler() {
+            void handle(String target, HttpServletRequest request, HttpServletResponse response, int dispatch) {
+                response.contentType = "text/plain"
+                response.writer.print("content")
+                request.handled = true
+            }
+        })
+        server.start()
+    }
+
+    def cleanup() {
+        pool.stop()
+        server.stop()
+    }
+
+    def "clients sharing the pool reuse each other's connections"() {
+        def client1 = new HttpClientHelper(httpSettings, pool)
+        def client2 = new HttpClientHelper(httpSettings, pool)
+
+        when:
+        get(client1, "/repo1/a.pom")
+        get(client2, "/repo2/b.pom")
+        get(client1, "/repo1/c.pom")
+
+        then:
+        def statistics = pool.statistics
+        statistics.requestCount == 3
+        statistics.connectionCount == 1
+        statistics.reusedConnectionCount == 2
+        statistics.inFlightCount == 0
+        statistics.idleCount == 1
+    }
+
+    def "closing a client does not close the shared connections"() {
+        def client1 = new HttpClientHelper(httpSettings, pool)
+        def client2 = new HttpClientHelper(httpSettings, pool)
+
+        when:
+        get(client1, "/repo1/a.pom")
+        client1.close()
+        get(client2, "/repo2/b.pom")
+
+        then:
+        pool.statistics.connectionCount == 1
+    }
+
+    def "uses own connections when no pool is given"() {
+        def client = new HttpClientHelper(httpSettings, null)
+
+        when:
+        get(client, "/repo1/a.pom")
+
+        then:
+        pool.statistics.requestCount == 0
+
+        cleanup:
+        client.close()
+    }
+
+    def "clients with different SSL settings do not share connections"() {
+        def otherSslContextFactory = Stub(SslContextFactory) {
+            createSslContext() >> SSLContexts.createDefault()
+        }
+        def client1 = new HttpClientHelper(httpSettings, pool)
+        def client2 = new HttpClientHelper(httpSettings(otherSslContextFactory, hostnameVerifier), pool)
+        def client3 = new HttpClientHelper(httpSettings(sslContextFactory, Stub(HostnameVerifier)), pool)
+
+        when:
+        get(client1, "/repo1/a.pom")
+        get(client2, "/repo2/b.pom")
+        get(client3, "/repo3/c.pom")
+        get(client1, "/repo1/d.pom")
+
+        then:
+        def statistics = pool.statistics
+        statistics.requestCount == 4
+        statistics.connectionCount == 3
+        statistics.idleCount == 3
+    }
+
+    private void get(HttpClientHelper client, String path) {
+        def response = client.performGet("http://localhost:${server.connectors[0].localPort}${path}", false)
+        try {
+            assert EntityUtils.toString(response.entity) == "content"
+        } finally {
+            response.close()
+        }
+    }
+
+    private HttpSettings getHttpSettings() {
+        httpSettings(sslContextFactory, hostnameVerifier)
+    }
+
+    private HttpSettings httpSettings(SslContextFactory sslContextFactory, HostnameVerifier hostnameVerifier) {
+        Stub(HttpSettings) {
+            getProxySettings() >> Mock(HttpProxySettings)
+            getSecureProxySettings() >> Mock(HttpProxySettings)
+            getTimeoutSettings() >> new JavaSystemPropertiesHttpTimeoutSettings()
+            getSslContextFactory() >> sslContextFactory
+            getHostnameVerifier() >> hostnameVerifier
+        }
+    }
+}
@@ -16,6 +16,7 @@
 package org.gradle.internal.resource.local;
 
 import org.gradle.api.Action;
+import org.gradle.internal.hash.HashValue;
 
 import java.io.File;
 
@@ -30,6 +31,11 @@ public interface FileStore<K> {
      */
     LocallyAvailableResource move(K key, File source) throws FileStoreException;
 
+    /**
+     * Moves the given file into the store, when the SHA1 of its content is already known. Allows the store to avoid reading the file content again.
+     */
+    LocallyAvailableResource move(K key, File source, HashValue sha1) throws FileStoreException;
+
     /**
      * Adds an entry to the store, using the given action to produce the file.
      *
@@ -16,12 +16,26 @@
 
 package org.gradle.api.internal.tasks.testing;
 
+import org.gradle.api.internal.classpath.ModuleRegistry;
 import org.gradle.api.internal.tasks.testing.operations.TestExecutionBuildOperationBuildSessionScopeServices;
+import org.gradle.api.internal.tasks.testing.worker.TestWorkerProcessPool;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.service.ServiceRegistration;
 import org.gradle.internal.service.scopes.AbstractPluginServiceRegistry;
+import org.gradle.internal.time.Clock;
+import org.gradle.process.internal.worker.WorkerProcessFactory;
 
 public class TestingBasePluginServiceRegistry extends AbstractPluginServiceRegistry {
 
+    @Override
+    public void registerGradleUserHomeServices(ServiceRegistration registration) {
+        registration.addProvider(new Object() {
+            TestWorkerProcessPool createTestWorkerProcessPool(WorkerProcessFactory workerProcessFactory, ModuleRegistry moduleRegistry, ExecutorFactory executorFactory, Clock clock) {
+                return new TestWorkerProcessPool(workerProcessFactory, moduleRegistry, executorFactory, clock);
+            }
+        });
+    }
+
     @Override
     public void registerBuildSessionServices(ServiceRegistration registration) {
         registration.addProvider(new TestExecutionBuildOperationBuildSessionScopeServices());
@@ -34,6 +34,7 @@ import org.gradle.util.GFileUtils;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.FilenameFilter;
+import java.util.Set;
 
 public class Binary2JUnitXmlReportGenerator {
 
@@ -41,25 +42,49 @@ public class Binary2JUnitXmlReportGenerator {
     private final TestResultsProvider testResultsProvider;
     private JUnitXmlResultWriter xmlWriter;
     private final BuildOperationExecutor buildOperationExecutor;
+    private final String reportConfiguration;
+    private final File fingerprintsFile;
     private final static Logger LOG = Logging.getLogger(Binary2JUnitXmlReportGenerator.class);
 
-    public Binary2JUnitXmlReportGenerator(File testResultsDir, TestResultsProvider testResultsProvider, TestOutputAssociation outputAssociation, BuildOperationExecutor buildOperationExecutor, String hostName) {
+    public Binary2JUnitXmlReportGenerator(File testResultsDir, TestResultsProvider testResultsProvider, TestOutputAssociation outputAssociation, BuildOperationExecutor buildOperationExecutor, String hostName, File fingerprintsFile) {
         this.testResultsDir = testResultsDir;
         this.testResultsProvider = testResultsProvider;
         this.xmlWriter = new JUnitXmlResultWriter(hostName, testResultsProvider, outputAssociation);
         this.buildOperationExecutor = buildOperationExecutor;
+        this.reportConfiguration = hostName + ":" + outputAssociation;
+        this.fingerprintsFile = fingerprintsFile;
     }
 
     public void generate() {
         Timer clock = Time.startTimer();
 
+        final ReportFingerprints fingerprints = new ReportFingerprints(fingerprintsFile, testResultsDir, reportConfiguration);
+        final int[] upToDate = new int[1];
+        buildOperationExecutor.runAll(new Action<BuildOperationQueue<JUnitXmlReportFileGenerator>>() {
+            @Override
+            public void execute(final BuildOperationQueue<JUnitXmlReportFileGenerator> queue) {
+                testResultsProvider.visitClasses(new Action<TestClassResult>() {
+                    public void execute(final TestClassResult result) {
+                        String reportFileName = getReportFileName(result);
+                        if (fingerprints.isUpToDate(reportFileName, result)) {
+                            upToDate[0]++;
+                            return;
+                        }
+                        final File reportFile = new File(testResultsDir, reportFileName);
+                        queue.add(new JUnitXmlReportFileGenerator(result, reportFile, xmlWriter));
+                    }
+                });
+            }
+        });
+
         buildOperationExecutor.run(new RunnableBuildOperation() {
             @Override
             public void run(BuildOperationContext context) {
+                final Set<String> currentXmlFiles = fingerprints.getCurrentFiles();
                 File[] oldXmlFiles = testResultsDir.listFiles(new FilenameFilter() {
                     @Override
                     public boolean accept(File dir, String name) {
-                        return name.startsWith("TEST") && name.endsWith(".xml");
+                        return name.startsWith("TEST") && name.endsWith(".xml") && !currentXmlFiles.contains(name);
                     }
                 });
 
@@ -73,20 +98,9 @@ public class Binary2JUnitXmlReportGenerator {
                 return BuildOperationDescriptor.displayName("Delete old JUnit XML results");
             }
         });
+        fingerprints.write();
 
-        buildOperationExecutor.runAll(new Action<BuildOperationQueue<JUnitXmlReportFileGenerator>>() {
-            @Override
-            public void execute(final BuildOperationQueue<JUnitXmlReportFileGenerator> queue) {
-                testResultsProvider.visitClasses(new Action<TestClassResult>() {
-                    public void execute(final TestClassResult result) {
-                        final File reportFile = new File(testResultsDir, getReportFileName(result));
-                        queue.add(new JUnitXmlReportFileGenerator(result, reportFile, xmlWriter));
-                    }
-                });
-            }
-        });
-
-        LOG.info("Finished generating test XML results ({}) into: {}", clock.getElapsed(), testResultsDir);
+        LOG.info("Finished generating test XML results ({}, {} files up-to-date) into: {}", clock.getElapsed(), upToDate[0], testResultsDir);
     }
 
     private String getReportFileName(TestClassResult result) {
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit.result;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hasher;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.FlushableEncoder;
+import org.gradle.internal.serialize.HashCodeSerializer;
+import org.gradle.internal.serialize.MapSerializer;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.gradle.util.GFileUtils;
+import org.gradle.util.GradleVersion;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tracks the results of the test class that each file of a report was generated from, so that a report file is only regenerated when those results have changed.
+ *
+ * <p>The results of a test class that ran again always differ, as they include its start time. So a report file is only skipped when its results were carried forward,
+ * or when the same binary results are reported again.</p>
+ *
+ * <p>The fingerprints are stored outside of the report directory, so that they do not show up in the report.</p>
+ *
+ * <p>Not thread-safe.</p>
+ */
+public class ReportFingerprints {
+    private static final Logger LOGGER = Logging.getLogger(ReportFingerprints.class);
+    private static final int VERSION = 1;
+    private static final MapSerializer<String, HashCode> SERIALIZER = new MapSerializer<String, HashCode>(BaseSerializerFactory.STRING_SERIALIZER, new HashCodeSerializer());
+
+    private final File fingerprintsFile;
+    private final File reportDir;
+    private final String reportConfiguration;
+    private final Map<String, HashCode> previousFingerprints;
+    private final Map<String, HashCode> currentFingerprints = new HashMap<String, HashCode>();
+
+    /**
+     * @param fingerprintsFile The file to store the fingerprints in, outside of the report directory.
+     * @param reportConfiguration Describes anything other than the test results that affects the content of the report files.
+     */
+    public ReportFingerprints(File fingerprintsFile, File reportDir, String reportConfiguration) {
+        this.fingerprintsFile = fingerprintsFile;
+        this.reportDir = reportDir;
+        this.reportConfiguration = reportConfiguration;
+        this.previousFingerprints = read(fingerprintsFile);
+    }
+
+    /**
+     * Records the results the given report file is generated from, and returns true when the file exists and was generated from the same results.
+     *
+     * @param fileName The path of the report file, relative to the report directory.
+     */
+    public boolean isUpToDate(String fileName, TestClassResult result) {
+        HashCode fingerprint = fingerprint(result);
+        HashCode otherResultsFingerprint = currentFingerprints.get(fileName);
+        if (otherResultsFingerprint != null) {
+            // The file is generated from several results, which may be visited in any order
+            Hasher hasher = Hashing.md5().newHasher();
+            hasher.putHash(otherResultsFingerprint);
+            hasher.putHash(fingerprint);
+            currentFingerprints.put(fileName, hasher.hash());
+            return false;
+        }
+        currentFingerprints.put(fileName, fingerprint);
+        return fingerprint.equals(previousFingerprints.get(fileName)) && new File(reportDir, fileName).isFile();
+    }
+
+    /**
+     * Returns the report files recorded since this instance was created.
+     */
+    public Set<String> getCurrentFiles() {
+        return Collections.unmodifiableSet(currentFingerprints.keySet());
+    }
+
+    /**
+     * Stores the fingerprints recorded since this instance was created, replacing the previous ones.
+     */
+    public void write() {
+        GFileUtils.parentMkdirs(fingerprintsFile);
+        try {
+            OutputStream outputStream = new FileOutputStream(fingerprintsFile);
+            try {
+                FlushableEncoder encoder = new KryoBackedEncoder(outputStream);
+                encoder.writeSmallInt(VERSION);
+                SERIALIZER.write(encoder, currentFingerprints);
+                encoder.flush();
+            } finally {
+                outputStream.close();
+            }
+        } catch (Exception e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    private HashCode fingerprint(TestClassResult result) {
+        Hasher hasher = Hashing.md5().newHasher();
+        // The layout, styles and scripts of the report may change with the Gradle version
+        hasher.putString(GradleVersion.current().getVersion());
+        hasher.putString(reportConfiguration);
+        // The same fingerprints file may be used for a different report directory
+        hasher.putString(reportDir.getAbsolutePath());
+        hasher.putString(result.getClassName());
+        hasher.putString(result.getClassDisplayName());
+        hasher.putLong(result.getStartTime());
+        hasher.putInt(result.getResults().size());
+        for (TestMethodResult methodResult : result.getResults()) {
+            hasher.putString(methodResult.getName());
+            hasher.putString(methodResult.getDisplayName());
+            hasher.putString(String.valueOf(methodResult.getResultType()));
+            hasher.putLong(methodResult.getDuration());
+            hasher.putLong(methodResult.getEndTime());
+            hasher.putInt(methodResult.getFailures().size());
+            for (TestFailure failure : methodResult.getFailures()) {
+                putNullableString(hasher, failure.getExceptionType());
+                putNullableString(hasher, failure.getMessage());
+                putNullableString(hasher, failure.getStackTrace());
+            }
+        }
+        return hasher.hash();
+    }
+
+    private static void putNullableString(Hasher hasher, @Nullable String value) {
+        hasher.putBoolean(value != null);
+        if (value != null) {
+            hasher.putString(value);
+        }
+    }
+
+    private static Map<String, HashCode> read(File fingerprintsFile) {
+        if (!fingerprintsFile.isFile()) {
+            return Collections.emptyMap();
+        }
+        try {
+            InputStream inputStream = new FileInputStream(fingerprintsFile);
+            try {
+                Decoder decoder = new KryoBackedDecoder(inputStream);
+                if (decoder.readSmallInt() != VERSION) {
+                    return Collections.emptyMap();
+                }
+                return SERIALIZER.read(decoder);
+            } finally {
+                inputStream.close();
+            }
+        } catch (Exception e) {
+            LOGGER.debug("Could not read report fingerprints from " + fingerprintsFile + ".", e);
+            return Collections.emptyMap();
+        }
+    }
+}
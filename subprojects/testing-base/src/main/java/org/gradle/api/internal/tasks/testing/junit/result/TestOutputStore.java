@@ -16,22 +16,50 @@
 
 package org.gradle.api.internal.tasks.testing.junit.result;
 
-import com.esotericsoftware.kryo.io.Input;
-import com.esotericsoftware.kryo.io.Output;
-import com.google.common.collect.ImmutableMap;
+import it.unimi.dsi.fastutil.Swapper;
+import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.api.tasks.testing.TestOutputEvent;
-import org.gradle.internal.io.RandomAccessFileInputStream;
 import org.gradle.internal.UncheckedException;
+import org.gradle.internal.io.RandomAccessFileInputStream;
+import org.gradle.internal.os.OperatingSystem;
 import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
 import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
 
-import java.io.*;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
-import java.util.LinkedHashMap;
-import java.util.Map;
 
+/**
+ * Stores the output of tests in a data file, along with an index of the regions of the data file that hold the output of each test.
+ *
+ * <p>The index is a table of fixed size entries, sorted by class id and test id, so that readers can binary search it in place.
+ * The writer keeps the index in primitive arrays, so its size does not depend on the amount of output.</p>
+ */
 public class TestOutputStore {
+    private static final int ENTRY_SIZE = 6;
+    private static final int ENTRY_BYTES = ENTRY_SIZE * 8;
+    private static final int HEADER_BYTES = 4;
+
+    // Offsets of the fields of an index entry
+    private static final int CLASS_ID = 0;
+    private static final int TEST_ID = 1;
+    private static final int STDOUT_START = 2;
+    private static final int STDOUT_END = 3;
+    private static final int STDERR_START = 4;
+    private static final int STDERR_END = 5;
 
     private final File resultsDir;
     private final Charset messageStorageCharset;
@@ -49,30 +77,14 @@ public class TestOutputStore {
         return new File(resultsDir, getOutputsFile().getName() + ".idx");
     }
 
-    private static class Region {
-        long start;
-        long stop;
-
-        private Region() {
-            start = -1;
-            stop = -1;
-        }
-
-        private Region(long start, long stop) {
-            this.start = start;
-            this.stop = stop;
-        }
-    }
-
-    private static class TestCaseRegion {
-        Region stdOutRegion = new Region();
-        Region stdErrRegion = new Region();
-    }
-
     public class Writer implements Closeable {
         private final KryoBackedEncoder output;
+        private long position;
 
-        private final Map<Long, Map<Long, TestCaseRegion>> index = new LinkedHashMap<Long, Map<Long, TestCaseRegion>>();
+        // Entries of ENTRY_SIZE longs each, in the order the tests first produced output
+        private final LongArrayList entries = new LongArrayList();
+        // Offset of the entry for each class id and test id
+        private final Long2ObjectOpenHashMap<Long2IntOpenHashMap> entriesByClass = new Long2ObjectOpenHashMap<Long2IntOpenHashMap>();
 
         public Writer() {
             try {
@@ -94,8 +106,10 @@ public class TestOutputStore {
 
         public void onOutput(long classId, long testId, TestOutputEvent outputEvent) {
             boolean stdout = outputEvent.getDestination() == TestOutputEvent.Destination.StdOut;
-            mark(classId, testId, stdout);
+            long start = position;
 
+            // The encoder counts its position in an int, which wraps when there are gigabytes of output. The difference is still correct.
+            int startPosition = output.getWritePosition();
             output.writeBoolean(stdout);
             output.writeSmallLong(classId);
             output.writeSmallLong(testId);
@@ -108,117 +122,85 @@ public class TestOutputStore {
             }
             output.writeSmallInt(bytes.length);
             output.writeBytes(bytes, 0, bytes.length);
+            position += output.getWritePosition() - startPosition;
+
+            mark(classId, testId, stdout, start, position);
         }
 
-        private void mark(long classId, long testId, boolean isStdout) {
-            if (!index.containsKey(classId)) {
-                index.put(classId, new LinkedHashMap<Long, TestCaseRegion>());
+        private void mark(long classId, long testId, boolean isStdout, long start, long end) {
+            Long2IntOpenHashMap testEntries = entriesByClass.get(classId);
+            if (testEntries == null) {
+                testEntries = new Long2IntOpenHashMap();
+                testEntries.defaultReturnValue(-1);
+                entriesByClass.put(classId, testEntries);
             }
 
-            Map<Long, TestCaseRegion> testCaseRegions = index.get(classId);
-            if (!testCaseRegions.containsKey(testId)) {
-                TestCaseRegion region = new TestCaseRegion();
-                testCaseRegions.put(testId, region);
+            int offset = testEntries.get(testId);
+            if (offset < 0) {
+                offset = entries.size();
+                testEntries.put(testId, offset);
+                entries.add(classId);
+                entries.add(testId);
+                entries.add(-1);
+                entries.add(-1);
+                entries.add(-1);
+                entries.add(-1);
             }
 
-            TestCaseRegion region = testCaseRegions.get(testId);
-
-            Region streamRegion = isStdout ? region.stdOutRegion : region.stdErrRegion;
-
-            int total = output.getWritePosition();
-            if (streamRegion.start < 0) {
-                streamRegion.start = total;
+            int startField = offset + (isStdout ? STDOUT_START : STDERR_START);
+            if (entries.getLong(startField) < 0) {
+                entries.set(startField, start);
             }
-            streamRegion.stop = total;
+            entries.set(startField + 1, end);
         }
 
         private void writeIndex() {
-            Output indexOutput;
-            try {
-                indexOutput = new Output(new FileOutputStream(getIndexFile()));
-            } catch (FileNotFoundException e) {
-                throw new UncheckedIOException(e);
-            }
-
+            final long[] index = entries.elements();
+            int entryCount = entries.size() / ENTRY_SIZE;
+            it.unimi.dsi.fastutil.Arrays.quickSort(0, entryCount, new AbstractIntComparator() {
+                @Override
+                public int compare(int left, int right) {
+                    int result = compareLongs(index[left * ENTRY_SIZE + CLASS_ID], index[right * ENTRY_SIZE + CLASS_ID]);
+                    return result != 0 ? result : compareLongs(index[left * ENTRY_SIZE + TEST_ID], index[right * ENTRY_SIZE + TEST_ID]);
+                }
+            }, new Swapper() {
+                @Override
+                public void swap(int left, int right) {
+                    for (int field = 0; field < ENTRY_SIZE; field++) {
+                        long value = index[left * ENTRY_SIZE + field];
+                        index[left * ENTRY_SIZE + field] = index[right * ENTRY_SIZE + field];
+                        index[right * ENTRY_SIZE + field] = value;
+                    }
+                }
+            });
 
             try {
-                indexOutput.writeInt(index.size(), true);
-
-                for (Map.Entry<Long, Map<Long, TestCaseRegion>> classEntry : index.entrySet()) {
-                    Long classId = classEntry.getKey();
-                    Map<Long, TestCaseRegion> regions = classEntry.getValue();
-
-                    indexOutput.writeLong(classId, true);
-                    indexOutput.writeInt(regions.size(), true);
-
-                    for (Map.Entry<Long, TestCaseRegion> testCaseEntry : regions.entrySet()) {
-                        long id = testCaseEntry.getKey();
-                        TestCaseRegion region = testCaseEntry.getValue();
-                        indexOutput.writeLong(id, true);
-                        indexOutput.writeLong(region.stdOutRegion.start);
-                        indexOutput.writeLong(region.stdOutRegion.stop);
-                        indexOutput.writeLong(region.stdErrRegion.start);
-                        indexOutput.writeLong(region.stdErrRegion.stop);
+                DataOutputStream indexOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(getIndexFile())));
+                try {
+                    indexOutput.writeInt(entryCount);
+                    for (int i = 0; i < entryCount * ENTRY_SIZE; i++) {
+                        indexOutput.writeLong(index[i]);
                     }
+                } finally {
+                    indexOutput.close();
                 }
-            } finally {
-                indexOutput.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
         }
     }
 
-    public Writer writer() {
-        return new Writer();
-    }
-
-    private static class Index {
-        final ImmutableMap<Long, Index> children;
-        final Region stdOut;
-        final Region stdErr;
-
-        private Index(Region stdOut, Region stdErr) {
-            this.children = ImmutableMap.of();
-            this.stdOut = stdOut;
-            this.stdErr = stdErr;
-        }
-
-        private Index(ImmutableMap<Long, Index> children, Region stdOut, Region stdErr) {
-            this.children = children;
-            this.stdOut = stdOut;
-            this.stdErr = stdErr;
-        }
+    private static int compareLongs(long left, long right) {
+        return left < right ? -1 : (left == right ? 0 : 1);
     }
 
-    private static class IndexBuilder {
-        final Region stdOut = new Region();
-        final Region stdErr = new Region();
-
-        private final ImmutableMap.Builder<Long, Index> children = ImmutableMap.builder();
-
-        void add(long key, Index index) {
-            if (stdOut.start < 0) {
-                stdOut.start = index.stdOut.start;
-            }
-            if (stdErr.start < 0) {
-                stdErr.start = index.stdErr.start;
-            }
-            if (index.stdOut.stop > stdOut.stop) {
-                stdOut.stop = index.stdOut.stop;
-            }
-            if (index.stdErr.stop > stdErr.stop) {
-                stdErr.stop = index.stdErr.stop;
-            }
-
-            children.put(key, index);
-        }
-
-        Index build() {
-            return new Index(children.build(), stdOut, stdErr);
-        }
+    public Writer writer() {
+        return new Writer();
     }
 
     public class Reader implements Closeable {
-        private final Index index;
+        private final ByteBuffer index;
+        private final int entryCount;
         private final RandomAccessFile dataFile;
 
         public Reader() {
@@ -230,41 +212,14 @@ public class TestOutputStore {
                     throw new IllegalStateException(String.format("Test outputs data file '%s' exists but the index file '%s' does not", outputsFile, indexFile));
                 }
 
-                Input input;
-                try {
-                    input = new Input(new FileInputStream(indexFile));
-                } catch (FileNotFoundException e) {
-                    throw new UncheckedIOException(e);
-                }
-
-                IndexBuilder rootBuilder = null;
                 try {
-                    int numClasses = input.readInt(true);
-                    rootBuilder = new IndexBuilder();
-
-                    for (int classCounter = 0; classCounter < numClasses; ++classCounter) {
-                        long classId = input.readLong(true);
-                        IndexBuilder classBuilder = new IndexBuilder();
-
-                        int numEntries = input.readInt(true);
-                        for (int entryCounter = 0; entryCounter < numEntries; ++entryCounter) {
-                            long testId = input.readLong(true);
-                            Region stdOut = new Region(input.readLong(), input.readLong());
-                            Region stdErr = new Region(input.readLong(), input.readLong());
-                            classBuilder.add(testId, new Index(stdOut, stdErr));
-                        }
-
-                        rootBuilder.add(classId, classBuilder.build());
+                    index = readIndex(indexFile);
+                    entryCount = index.capacity() >= HEADER_BYTES ? index.getInt(0) : -1;
+                    if (entryCount < 0 || index.capacity() != HEADER_BYTES + (long) entryCount * ENTRY_BYTES) {
+                        throw new IllegalStateException(String.format("Test outputs index file '%s' is corrupt", indexFile));
                     }
-                } finally {
-                    input.close();
-                }
-
-                index = rootBuilder.build();
-
-                try {
-                    dataFile = new RandomAccessFile(getOutputsFile(), "r");
-                } catch (FileNotFoundException e) {
+                    dataFile = new RandomAccessFile(outputsFile, "r");
+                } catch (IOException e) {
                     throw new UncheckedIOException(e);
                 }
             } else { // no outputs file
@@ -273,10 +228,29 @@ public class TestOutputStore {
                 }
 
                 index = null;
+                entryCount = 0;
                 dataFile = null;
             }
         }
 
+        private ByteBuffer readIndex(File indexFile) throws IOException {
+            RandomAccessFile file = new RandomAccessFile(indexFile, "r");
+            try {
+                FileChannel channel = file.getChannel();
+                if (!OperatingSystem.current().isWindows()) {
+                    return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+                // Windows does not allow a mapped file to be deleted until the mapping is garbage collected, so read the index into the heap instead
+                ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    // Keep reading
+                }
+                return buffer;
+            } finally {
+                file.close();
+            }
+        }
+
         @Override
         public void close() throws IOException {
             if (dataFile != null) {
@@ -289,13 +263,13 @@ public class TestOutputStore {
                 return false;
             }
 
-            Index classIndex = index.children.get(classId);
-            if (classIndex == null) {
-                return false;
-            } else {
-                Region region = destination == TestOutputEvent.Destination.StdOut ? classIndex.stdOut : classIndex.stdErr;
-                return region.start >= 0;
+            int startField = destination == TestOutputEvent.Destination.StdOut ? STDOUT_START : STDERR_START;
+            for (int entry = firstEntry(classId); entry < entryCount && field(entry, CLASS_ID) == classId; entry++) {
+                if (field(entry, startField) >= 0) {
+                    return true;
+                }
             }
+            return false;
         }
 
         public void writeAllOutput(long classId, TestOutputEvent.Destination destination, java.io.Writer writer) {
@@ -310,24 +284,50 @@ public class TestOutputStore {
             doRead(classId, testId, false, destination, writer);
         }
 
-        private void doRead(long classId, long testId, boolean allClassOutput, TestOutputEvent.Destination destination, java.io.Writer writer) {
-            if (dataFile == null) {
-                return;
-            }
+        private long field(int entry, int field) {
+            return index.getLong(HEADER_BYTES + entry * ENTRY_BYTES + field * 8);
+        }
 
-            Index targetIndex = index.children.get(classId);
-            if (targetIndex != null && testId != 0) {
-                targetIndex = targetIndex.children.get(testId);
+        /**
+         * Returns the first entry for the given class, or where it would be inserted.
+         */
+        private int firstEntry(long classId) {
+            int low = 0;
+            int high = entryCount;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (field(middle, CLASS_ID) < classId) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
             }
+            return low;
+        }
 
-            if (targetIndex == null) {
+        private void doRead(long classId, long testId, boolean allClassOutput, TestOutputEvent.Destination destination, java.io.Writer writer) {
+            if (dataFile == null) {
                 return;
             }
 
             boolean stdout = destination == TestOutputEvent.Destination.StdOut;
-            Region region = stdout ? targetIndex.stdOut : targetIndex.stdErr;
+            int startField = stdout ? STDOUT_START : STDERR_START;
+
+            // Find the region covering all the requested output
+            long start = -1;
+            long end = -1;
+            for (int entry = firstEntry(classId); entry < entryCount && field(entry, CLASS_ID) == classId; entry++) {
+                long entryStart = field(entry, startField);
+                if (entryStart < 0 || (testId != 0 && field(entry, TEST_ID) != testId)) {
+                    continue;
+                }
+                if (start < 0 || entryStart < start) {
+                    start = entryStart;
+                }
+                end = Math.max(end, field(entry, startField + 1));
+            }
 
-            if (region.start < 0) {
+            if (start < 0) {
                 return;
             }
 
@@ -335,10 +335,10 @@ public class TestOutputStore {
             boolean ignoreTestLevel = !allClassOutput && testId == 0;
 
             try {
-                dataFile.seek(region.start);
-                long maxPos = region.stop - region.start;
+                dataFile.seek(start);
+                long length = end - start;
                 KryoBackedDecoder decoder = new KryoBackedDecoder(new RandomAccessFileInputStream(dataFile));
-                while (decoder.getReadPosition() <= maxPos) {
+                while (decoder.getReadPosition() < length) {
                     boolean readStdout = decoder.readBoolean();
                     long readClassId = decoder.readSmallLong();
                     long readTestId = decoder.readSmallLong();
@@ -30,15 +30,18 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Manages a set of parallel TestClassProcessors. Uses a simple round-robin algorithm to assign test classes to
- * processors.
+ * Manages a set of parallel TestClassProcessors. When estimated test class durations are available, each test class is
+ * assigned to the processor with the least estimated work queued. Otherwise, uses a simple round-robin algorithm to assign
+ * test classes to processors.
  */
 public class MaxNParallelTestClassProcessor implements TestClassProcessor {
     private final int maxProcessors;
     private final Factory<TestClassProcessor> factory;
     private final ActorFactory actorFactory;
+    private final TestClassDurationEstimates estimates;
     private TestResultProcessor resultProcessor;
     private int pos;
+    private List<Long> estimatedLoads = new ArrayList<Long>();
     private List<TestClassProcessor> processors = new ArrayList<TestClassProcessor>();
     private List<TestClassProcessor> rawProcessors = new ArrayList<TestClassProcessor>();
     private List<Actor> actors = new ArrayList<Actor>();
@@ -46,9 +49,14 @@ public class MaxNParallelTestClassProcessor implements TestClassProcessor {
     private volatile boolean stoppedNow;
 
     public MaxNParallelTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory) {
+        this(maxProcessors, factory, actorFactory, TestClassDurationEstimates.NONE);
+    }
+
+    public MaxNParallelTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory, TestClassDurationEstimates estimates) {
         this.maxProcessors = maxProcessors;
         this.factory = factory;
         this.actorFactory = actorFactory;
+        this.estimates = estimates;
     }
 
     @Override
@@ -64,20 +72,35 @@ public class MaxNParallelTestClassProcessor implements TestClassProcessor {
             return;
         }
 
-        TestClassProcessor processor;
+        int index;
         if (processors.size() < maxProcessors) {
-            processor = factory.create();
+            TestClassProcessor processor = factory.create();
             rawProcessors.add(processor);
             Actor actor = actorFactory.createActor(processor);
             processor = actor.getProxy(TestClassProcessor.class);
             actors.add(actor);
             processors.add(processor);
+            estimatedLoads.add(0L);
             processor.startProcessing(resultProcessor);
-        } else {
-            processor = processors.get(pos);
+            index = processors.size() - 1;
+        } else if (estimates.isEmpty()) {
+            index = pos;
             pos = (pos + 1) % processors.size();
+        } else {
+            index = leastLoadedProcessor();
+        }
+        estimatedLoads.set(index, estimatedLoads.get(index) + estimates.estimate(testClass.getTestClassName()));
+        processors.get(index).processTestClass(testClass);
+    }
+
+    private int leastLoadedProcessor() {
+        int index = 0;
+        for (int i = 1; i < estimatedLoads.size(); i++) {
+            if (estimatedLoads.get(i) < estimatedLoads.get(index)) {
+                index = i;
+            }
         }
-        processor.processTestClass(testClass);
+        return index;
     }
 
     @Override
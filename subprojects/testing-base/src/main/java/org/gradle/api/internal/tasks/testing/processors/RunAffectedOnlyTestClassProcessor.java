@@ -0,0 +1,149 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors;
+
+import org.gradle.api.Action;
+import org.gradle.api.internal.tasks.testing.DefaultTestClassDescriptor;
+import org.gradle.api.internal.tasks.testing.DefaultTestDescriptor;
+import org.gradle.api.internal.tasks.testing.DefaultTestOutputEvent;
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.TestStartEvent;
+import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult;
+import org.gradle.api.internal.tasks.testing.junit.result.TestMethodResult;
+import org.gradle.api.internal.tasks.testing.junit.result.TestOutputStore;
+import org.gradle.api.internal.tasks.testing.junit.result.TestResultSerializer;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.id.CompositeIdGenerator;
+import org.gradle.internal.id.IdGenerator;
+import org.gradle.internal.id.LongIdGenerator;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Passes only the test classes affected by a change to its delegate. The results of the other test classes are carried forward from the previous run, by replaying them
+ * to the result processor once the delegate has stopped.
+ *
+ * <p>A test class is carried forward only when the previous run contains results for it and none of them failed.</p>
+ */
+public class RunAffectedOnlyTestClassProcessor implements TestClassProcessor {
+    private final Set<String> affectedClasses;
+    private final File previousResultsDir;
+    private final TestClassProcessor delegate;
+    private final IdGenerator<?> idGenerator = new CompositeIdGenerator("carried forward", new LongIdGenerator());
+    private final Map<String, TestClassResult> previousResults = new HashMap<String, TestClassResult>();
+    private final List<TestClassResult> carriedForward = new ArrayList<TestClassResult>();
+    private TestResultProcessor resultProcessor;
+
+    public RunAffectedOnlyTestClassProcessor(Set<String> affectedClasses, File previousResultsDir, TestClassProcessor delegate) {
+        this.affectedClasses = affectedClasses;
+        this.previousResultsDir = previousResultsDir;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void startProcessing(TestResultProcessor resultProcessor) {
+        this.resultProcessor = resultProcessor;
+        new TestResultSerializer(previousResultsDir).read(new Action<TestClassResult>() {
+            @Override
+            public void execute(TestClassResult result) {
+                previousResults.put(result.getClassName(), result);
+            }
+        });
+        delegate.startProcessing(resultProcessor);
+    }
+
+    @Override
+    public void processTestClass(TestClassRunInfo testClass) {
+        String className = testClass.getTestClassName();
+        TestClassResult previousResult = previousResults.remove(className);
+        if (isAffected(className) || previousResult == null || previousResult.getFailuresCount() > 0) {
+            delegate.processTestClass(testClass);
+        } else {
+            carriedForward.add(previousResult);
+        }
+    }
+
+    private boolean isAffected(String className) {
+        if (affectedClasses.contains(className)) {
+            return true;
+        }
+        // The class analysis only reports top level classes as dependents
+        int nestedSeparator = className.indexOf('$');
+        return nestedSeparator > 0 && affectedClasses.contains(className.substring(0, nestedSeparator));
+    }
+
+    @Override
+    public void stop() {
+        delegate.stop();
+        if (carriedForward.isEmpty()) {
+            return;
+        }
+        TestOutputStore.Reader outputReader = new TestOutputStore(previousResultsDir).reader();
+        try {
+            for (TestClassResult classResult : carriedForward) {
+                replay(classResult, outputReader);
+            }
+        } finally {
+            CompositeStoppable.stoppable(outputReader).stop();
+        }
+    }
+
+    private void replay(TestClassResult classResult, TestOutputStore.Reader outputReader) {
+        Object classId = idGenerator.generateId();
+        resultProcessor.started(new DefaultTestClassDescriptor(classId, classResult.getClassName(), classResult.getClassDisplayName()), new TestStartEvent(classResult.getStartTime()));
+        replayOutput(outputReader, classResult.getId(), 0, classId);
+        long endTime = classResult.getStartTime();
+        for (TestMethodResult methodResult : classResult.getResults()) {
+            Object methodId = idGenerator.generateId();
+            DefaultTestDescriptor methodDescriptor = new DefaultTestDescriptor(methodId, classResult.getClassName(), methodResult.getName(), classResult.getClassDisplayName(), methodResult.getDisplayName());
+            resultProcessor.started(methodDescriptor, new TestStartEvent(methodResult.getEndTime() - methodResult.getDuration(), classId));
+            replayOutput(outputReader, classResult.getId(), methodResult.getId(), methodId);
+            resultProcessor.completed(methodId, new TestCompleteEvent(methodResult.getEndTime(), methodResult.getResultType()));
+            endTime = Math.max(endTime, methodResult.getEndTime());
+        }
+        resultProcessor.completed(classId, new TestCompleteEvent(endTime));
+    }
+
+    private void replayOutput(TestOutputStore.Reader outputReader, long previousClassId, long previousTestId, Object testId) {
+        for (TestOutputEvent.Destination destination : TestOutputEvent.Destination.values()) {
+            StringWriter output = new StringWriter();
+            if (previousTestId == 0) {
+                outputReader.writeNonTestOutput(previousClassId, destination, output);
+            } else {
+                outputReader.writeTestOutput(previousClassId, previousTestId, destination, output);
+            }
+            if (output.getBuffer().length() > 0) {
+                resultProcessor.output(testId, new DefaultTestOutputEvent(destination, output.toString()));
+            }
+        }
+    }
+
+    @Override
+    public void stopNow() {
+        delegate.stopNow();
+    }
+}
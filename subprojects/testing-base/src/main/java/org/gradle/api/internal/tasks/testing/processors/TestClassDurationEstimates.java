@@ -0,0 +1,53 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Map;
+
+/**
+ * Estimates how long each test class takes to execute, based on the durations recorded by a previous execution of the same test task.
+ * Classes without a recorded duration are assumed to take the average time of the recorded classes.
+ */
+public class TestClassDurationEstimates {
+    public static final TestClassDurationEstimates NONE = new TestClassDurationEstimates(ImmutableMap.<String, Long>of());
+
+    private final Map<String, Long> durations;
+    private final long defaultDuration;
+
+    public TestClassDurationEstimates(Map<String, Long> durations) {
+        this.durations = ImmutableMap.copyOf(durations);
+        long total = 0;
+        for (Long duration : durations.values()) {
+            total += duration;
+        }
+        this.defaultDuration = durations.isEmpty() ? 0 : total / durations.size();
+    }
+
+    /**
+     * Returns true when there is no recorded duration for any class, so no meaningful estimates can be made.
+     */
+    public boolean isEmpty() {
+        return durations.isEmpty();
+    }
+
+    public long estimate(String testClassName) {
+        Long duration = durations.get(testClassName);
+        return duration == null ? defaultDuration : duration;
+    }
+}
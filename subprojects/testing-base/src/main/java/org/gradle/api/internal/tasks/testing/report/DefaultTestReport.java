@@ -17,6 +17,7 @@ package org.gradle.api.internal.tasks.testing.report;
 
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
+import org.gradle.api.internal.tasks.testing.junit.result.ReportFingerprints;
 import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult;
 import org.gradle.api.internal.tasks.testing.junit.result.TestFailure;
 import org.gradle.api.internal.tasks.testing.junit.result.TestMethodResult;
@@ -37,16 +38,23 @@ import org.gradle.util.GFileUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static org.gradle.api.tasks.testing.TestResult.ResultType.SKIPPED;
 
 public class DefaultTestReport implements TestReporter {
     private final BuildOperationExecutor buildOperationExecutor;
+    private final File fingerprintsFile;
     private final static Logger LOG = Logging.getLogger(DefaultTestReport.class);
 
-    public DefaultTestReport(BuildOperationExecutor buildOperationExecutor) {
+    /**
+     * @param fingerprintsFile Where to record the results each class page was generated from, outside of the report directory.
+     */
+    public DefaultTestReport(BuildOperationExecutor buildOperationExecutor, File fingerprintsFile) {
         this.buildOperationExecutor = buildOperationExecutor;
+        this.fingerprintsFile = fingerprintsFile;
     }
 
     @Override
@@ -54,16 +62,22 @@ public class DefaultTestReport implements TestReporter {
         LOG.info("Generating HTML test report...");
 
         Timer clock = Time.startTimer();
-        AllTestResults model = loadModelFromProvider(resultsProvider);
-        generateFiles(model, resultsProvider, reportDir);
+        ReportFingerprints fingerprints = new ReportFingerprints(fingerprintsFile, reportDir, "html");
+        Set<String> outdatedClasses = new HashSet<String>();
+        AllTestResults model = loadModelFromProvider(resultsProvider, fingerprints, outdatedClasses);
+        generateFiles(model, resultsProvider, reportDir, fingerprints, outdatedClasses);
+        fingerprints.write();
         LOG.info("Finished generating test html results ({}) into: {}", clock.getElapsed(), reportDir);
     }
 
-    private AllTestResults loadModelFromProvider(TestResultsProvider resultsProvider) {
+    private AllTestResults loadModelFromProvider(TestResultsProvider resultsProvider, final ReportFingerprints fingerprints, final Set<String> outdatedClasses) {
         final AllTestResults model = new AllTestResults();
         resultsProvider.visitClasses(new Action<TestClassResult>() {
             public void execute(TestClassResult classResult) {
-                model.addTestClass(classResult.getId(), classResult.getClassName(), classResult.getClassDisplayName());
+                ClassTestResults classResults = model.addTestClass(classResult.getId(), classResult.getClassName(), classResult.getClassDisplayName());
+                if (!fingerprints.isUpToDate(classResults.getBaseUrl(), classResult)) {
+                    outdatedClasses.add(classResult.getClassName());
+                }
                 List<TestMethodResult> collectedResults = classResult.getResults();
                 for (TestMethodResult collectedResult : collectedResults) {
                     final TestResult testResult = model.addTest(classResult.getId(), classResult.getClassName(), classResult.getClassDisplayName(), collectedResult.getName(), collectedResult.getDisplayName(), collectedResult.getDuration());
@@ -81,15 +95,22 @@ public class DefaultTestReport implements TestReporter {
         return model;
     }
 
-    private void generateFiles(AllTestResults model, final TestResultsProvider resultsProvider, final File reportDir) {
+    private void generateFiles(AllTestResults model, final TestResultsProvider resultsProvider, final File reportDir, final ReportFingerprints fingerprints, final Set<String> outdatedClasses) {
         try {
             HtmlReportRenderer htmlRenderer = new HtmlReportRenderer();
             buildOperationExecutor.run(new RunnableBuildOperation() {
                 @Override
                 public void run(BuildOperationContext context) {
-                    // Clean-up old HTML report directories
+                    // Clean-up old HTML report directories, keeping the class pages that are still up-to-date
                     GFileUtils.deleteQuietly(new File(reportDir, "packages"));
-                    GFileUtils.deleteQuietly(new File(reportDir, "classes"));
+                    File[] oldClassPages = new File(reportDir, "classes").listFiles();
+                    if (oldClassPages != null) {
+                        for (File oldClassPage : oldClassPages) {
+                            if (!fingerprints.getCurrentFiles().contains("classes/" + oldClassPage.getName())) {
+                                GFileUtils.deleteQuietly(oldClassPage);
+                            }
+                        }
+                    }
                 }
 
                 @Override
@@ -108,6 +129,9 @@ public class DefaultTestReport implements TestReporter {
                             for (PackageTestResults packageResults : model.getPackages()) {
                                 queue.add(generator(packageResults.getBaseUrl(), packageResults, new PackagePageRenderer(), output));
                                 for (ClassTestResults classResults : packageResults.getClasses()) {
+                                    if (!outdatedClasses.contains(classResults.getName())) {
+                                        continue;
+                                    }
                                     queue.add(generator(classResults.getBaseUrl(), classResults, new ClassPageRenderer(resultsProvider), output));
                                 }
                             }
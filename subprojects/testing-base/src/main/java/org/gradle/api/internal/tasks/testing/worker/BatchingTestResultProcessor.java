@@ -0,0 +1,136 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent;
+import org.gradle.api.internal.tasks.testing.TestDescriptorInternal;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.TestStartEvent;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.serialize.Serializer;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes test events into batches, instead of sending each event to the build process as a separate message. A batch is sent once it reaches
+ * {@value #MAX_BATCH_BYTES} bytes, or at most {@value #FLUSH_INTERVAL_MILLIS}ms after its first event.
+ *
+ * <p>Thread-safe.</p>
+ */
+public class BatchingTestResultProcessor implements TestResultProcessor, Stoppable {
+    static final int MAX_BATCH_BYTES = 64 * 1024;
+    static final long FLUSH_INTERVAL_MILLIS = 100;
+
+    static final byte STARTED = 0;
+    static final byte COMPLETED = 1;
+    static final byte OUTPUT = 2;
+    static final byte FAILURE = 3;
+
+    private final TestEventBatchProcessor target;
+    private final Serializer<Object> valueSerializer = TestEventSerializer.create().build(Object.class);
+    private final ByteArrayOutputStream batch = new ByteArrayOutputStream(MAX_BATCH_BYTES);
+    private final KryoBackedEncoder encoder = new KryoBackedEncoder(batch);
+    private final ScheduledFuture<?> flusher;
+    private int batchStart;
+
+    public BatchingTestResultProcessor(TestEventBatchProcessor target, ScheduledExecutorService executor) {
+        this.target = target;
+        this.flusher = executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void started(TestDescriptorInternal test, TestStartEvent event) {
+        encoder.writeByte(STARTED);
+        write(test);
+        write(event);
+        added();
+    }
+
+    @Override
+    public synchronized void completed(Object testId, TestCompleteEvent event) {
+        encoder.writeByte(COMPLETED);
+        write(testId);
+        write(event);
+        added();
+    }
+
+    @Override
+    public synchronized void output(Object testId, TestOutputEvent event) {
+        encoder.writeByte(OUTPUT);
+        write(testId);
+        write(event);
+        added();
+    }
+
+    @Override
+    public synchronized void failure(Object testId, Throwable result) {
+        encoder.writeByte(FAILURE);
+        write(testId);
+        write(result);
+        added();
+    }
+
+    private void write(Object value) {
+        try {
+            valueSerializer.write(encoder, value);
+        } catch (Exception e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    private void added() {
+        // The encoder's position wraps after 2GB, the difference is still correct
+        if (encoder.getWritePosition() - batchStart >= MAX_BATCH_BYTES) {
+            flush();
+        }
+    }
+
+    /**
+     * Sends the pending events, if any.
+     */
+    public synchronized void flush() {
+        int batchEnd = encoder.getWritePosition();
+        if (batchEnd == batchStart) {
+            return;
+        }
+        encoder.flush();
+        byte[] events = batch.toByteArray();
+        batch.reset();
+        batchStart = batchEnd;
+        target.processBatch(events);
+    }
+
+    /**
+     * Sends the pending events and stops sending batches periodically. Events received afterwards are only sent by {@link #flush()}.
+     */
+    @Override
+    public void stop() {
+        flusher.cancel(false);
+        flush();
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.Action;
+import org.gradle.api.internal.DocumentationRegistry;
+import org.gradle.api.internal.tasks.testing.JULRedirector;
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.internal.classpath.DefaultClassPath;
+import org.gradle.internal.work.WorkerLeaseRegistry;
+import org.gradle.process.JavaForkOptions;
+import org.gradle.process.internal.ExecException;
+import org.gradle.process.internal.worker.WorkerProcessBuilder;
+import org.gradle.util.GUtil;
+
+import java.io.File;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs test classes in a worker process reserved from a {@link TestWorkerProcessPool}, rather than in a new worker process as {@link ForkingTestClassProcessor} does.
+ */
+public class PooledTestClassProcessor implements TestClassProcessor {
+    private final WorkerLeaseRegistry.WorkerLease currentWorkerLease;
+    private final TestWorkerProcessPool pool;
+    private final WorkerTestClassProcessorFactory processorFactory;
+    private final JavaForkOptions options;
+    private final Iterable<File> classPath;
+    private final Action<WorkerProcessBuilder> buildConfigAction;
+    private final DocumentationRegistry documentationRegistry;
+    private final Lock lock = new ReentrantLock();
+    private PooledTestWorkerProcess workerProcess;
+    private TestResultProcessor resultProcessor;
+    private WorkerLeaseRegistry.WorkerLeaseCompletion completion;
+    private boolean stoppedNow;
+
+    public PooledTestClassProcessor(WorkerLeaseRegistry.WorkerLease parentWorkerLease, TestWorkerProcessPool pool, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options, Iterable<File> classPath,
+                                    Action<WorkerProcessBuilder> buildConfigAction, DocumentationRegistry documentationRegistry) {
+        this.currentWorkerLease = parentWorkerLease;
+        this.pool = pool;
+        this.processorFactory = processorFactory;
+        this.options = options;
+        this.classPath = classPath;
+        this.buildConfigAction = buildConfigAction;
+        this.documentationRegistry = documentationRegistry;
+    }
+
+    @Override
+    public void startProcessing(TestResultProcessor resultProcessor) {
+        this.resultProcessor = resultProcessor;
+    }
+
+    @Override
+    public void processTestClass(TestClassRunInfo testClass) {
+        lock.lock();
+        try {
+            if (stoppedNow) {
+                return;
+            }
+
+            if (workerProcess == null) {
+                completion = currentWorkerLease.startChild();
+                JULRedirector.checkDeprecatedProperty(options);
+                workerProcess = pool.reserve(options, buildConfigAction);
+                workerProcess.startSession(resultProcessor, DefaultClassPath.of(classPath).getAsURLs(), GUtil.serialize(processorFactory));
+            }
+
+            workerProcess.processTestClass(testClass);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (workerProcess != null) {
+            try {
+                lock.lock();
+                try {
+                    if (stoppedNow) {
+                        return;
+                    }
+                    workerProcess.endSession();
+                } finally {
+                    lock.unlock();
+                }
+                workerProcess.waitForSessionCompleted();
+            } catch (ExecException e) {
+                if (!stoppedNow) {
+                    throw new ExecException(e.getMessage()
+                        + "\nThis problem might be caused by incorrect test process configuration."
+                        + "\nPlease refer to the test execution section in the user guide at "
+                        + documentationRegistry.getDocumentationFor("java_plugin", "sec:test_execution"), e.getCause());
+                }
+            } finally {
+                pool.release(workerProcess);
+                completion.leaseFinish();
+            }
+        }
+    }
+
+    @Override
+    public void stopNow() {
+        lock.lock();
+        try {
+            stoppedNow = true;
+            if (workerProcess != null) {
+                workerProcess.stopNow();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
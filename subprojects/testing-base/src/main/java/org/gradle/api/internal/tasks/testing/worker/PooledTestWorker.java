@@ -0,0 +1,209 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.Action;
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.classloader.ClassLoaderUtils;
+import org.gradle.internal.classloader.FilteringClassLoader;
+import org.gradle.internal.classloader.MultiParentClassLoader;
+import org.gradle.internal.classloader.VisitableURLClassLoader;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.dispatch.ContextClassLoaderProxy;
+import org.gradle.internal.id.IdGenerator;
+import org.gradle.internal.io.ClassLoaderObjectInputStream;
+import org.gradle.internal.remote.ObjectConnection;
+import org.gradle.internal.service.DefaultServiceRegistry;
+import org.gradle.internal.time.Clock;
+import org.gradle.process.internal.worker.WorkerProcessContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.net.URL;
+import java.security.AccessControlException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A test worker that can be reused by several test tasks. Unlike {@link TestWorker}, the test runtime classpath is not part of the system ClassLoader. Instead, each session loads
+ * the test runtime classpath and the test framework implementation into fresh ClassLoaders, which are discarded when the session completes.
+ */
+public class PooledTestWorker implements Action<WorkerProcessContext>, RemotePooledTestWorker, Serializable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PooledTestWorker.class);
+    private static final List<String> WORKER_PACKAGES = Arrays.asList("org.gradle", "org.slf4j", "org.apache.commons.lang");
+    private final List<URL> frameworkClasspath;
+    private CountDownLatch stopped;
+    private WorkerProcessContext workerProcessContext;
+    private DefaultServiceRegistry testServices;
+    private IdGenerator<?> idGenerator;
+    private PooledTestWorkerResultProcessor resultProcessor;
+    private BatchingTestResultProcessor batchingResultProcessor;
+    private VisitableURLClassLoader applicationClassLoader;
+    private VisitableURLClassLoader frameworkClassLoader;
+    private TestClassProcessor processor;
+    private Throwable sessionFailure;
+    private boolean retiring;
+
+    /**
+     * @param frameworkClasspath The implementation of the test frameworks, which is loaded separately for each session so that it can see the test runtime classpath.
+     */
+    public PooledTestWorker(List<URL> frameworkClasspath) {
+        this.frameworkClasspath = frameworkClasspath;
+    }
+
+    @Override
+    public void execute(WorkerProcessContext workerProcessContext) {
+        LOGGER.info("{} started.", workerProcessContext.getDisplayName());
+
+        this.workerProcessContext = workerProcessContext;
+        stopped = new CountDownLatch(1);
+
+        testServices = new TestWorker.TestFrameworkServiceRegistry(workerProcessContext);
+        idGenerator = testServices.get(IdGenerator.class);
+
+        ObjectConnection serverConnection = workerProcessContext.getServerConnection();
+        serverConnection.useParameterSerializers(TestEventSerializer.create());
+        resultProcessor = serverConnection.addOutgoing(PooledTestWorkerResultProcessor.class);
+        batchingResultProcessor = new BatchingTestResultProcessor(resultProcessor, testServices.get(ExecutorFactory.class).createScheduled("Test event batching", 1));
+        serverConnection.addIncoming(RemotePooledTestWorker.class, this);
+        serverConnection.connect();
+
+        try {
+            try {
+                stopped.await();
+            } catch (InterruptedException e) {
+                throw new UncheckedException(e);
+            }
+        } finally {
+            LOGGER.info("{} stopped.", workerProcessContext.getDisplayName());
+            testServices.close();
+        }
+    }
+
+    @Override
+    public void startSession(long workerId, List<URL> applicationClasspath, List<String> sharedPackages, byte[] serializedProcessorFactory) {
+        Thread.currentThread().setName("Test worker");
+        // Each session is a separate test worker, as far as the tests can tell
+        System.setProperty(TestWorker.WORKER_ID_SYS_PROPERTY, String.valueOf(workerId));
+        try {
+            applicationClassLoader = new VisitableURLClassLoader(ClassLoaderUtils.getPlatformClassLoader(), applicationClasspath);
+            frameworkClassLoader = new VisitableURLClassLoader(new MultiParentClassLoader(
+                new FilteringClassLoader(applicationClassLoader, spec(sharedPackages)),
+                new FilteringClassLoader(getClass().getClassLoader(), spec(WORKER_PACKAGES))), frameworkClasspath);
+
+            WorkerTestClassProcessorFactory factory = deserialize(serializedProcessorFactory, frameworkClassLoader);
+            TestClassProcessor targetProcessor = factory.create(testServices);
+            targetProcessor = new WorkerTestClassProcessor(targetProcessor, idGenerator.generateId(),
+                workerProcessContext.getDisplayName(), testServices.get(Clock.class));
+            processor = new ContextClassLoaderProxy<TestClassProcessor>(TestClassProcessor.class, targetProcessor, applicationClassLoader).getSource();
+            processor.startProcessing(batchingResultProcessor);
+        } catch (Throwable t) {
+            processor = null;
+            sessionFailure = t;
+        }
+    }
+
+    @Override
+    public void processTestClass(TestClassRunInfo testClass) {
+        Thread.currentThread().setName("Test worker");
+        if (processor == null) {
+            return;
+        }
+        try {
+            processor.processTestClass(testClass);
+        } catch (AccessControlException e) {
+            retiring = true;
+            throw e;
+        } finally {
+            // Clean the interrupted status
+            Thread.interrupted();
+        }
+    }
+
+    @Override
+    public void endSession() {
+        Thread.currentThread().setName("Test worker");
+        try {
+            if (processor != null) {
+                processor.stop();
+            }
+        } catch (Throwable t) {
+            sessionFailure = t;
+        } finally {
+            // Clean the interrupted status
+            // because some test class processors do work here, e.g. JUnitPlatform
+            Thread.interrupted();
+        }
+
+        try {
+            // Clean out any security manager the tests might have installed
+            System.setSecurityManager(null);
+        } catch (SecurityException e) {
+            retiring = true;
+        }
+        ClassLoaderUtils.tryClose(frameworkClassLoader);
+        ClassLoaderUtils.tryClose(applicationClassLoader);
+
+        batchingResultProcessor.flush();
+        if (retiring) {
+            resultProcessor.retired();
+        }
+        if (sessionFailure != null) {
+            resultProcessor.sessionFailed(sessionFailure);
+        } else {
+            resultProcessor.sessionCompleted();
+        }
+
+        processor = null;
+        frameworkClassLoader = null;
+        applicationClassLoader = null;
+        sessionFailure = null;
+        if (retiring) {
+            stopped.countDown();
+        }
+    }
+
+    @Override
+    public void stop() {
+        stopped.countDown();
+    }
+
+    private static FilteringClassLoader.Spec spec(Iterable<String> packages) {
+        FilteringClassLoader.Spec spec = new FilteringClassLoader.Spec();
+        for (String packageName : packages) {
+            spec.allowPackage(packageName);
+        }
+        return spec;
+    }
+
+    private static WorkerTestClassProcessorFactory deserialize(byte[] serializedProcessorFactory, ClassLoader classLoader) throws IOException, ClassNotFoundException {
+        ObjectInputStream inputStream = new ClassLoaderObjectInputStream(new ByteArrayInputStream(serializedProcessorFactory), classLoader);
+        try {
+            return (WorkerTestClassProcessorFactory) inputStream.readObject();
+        } finally {
+            inputStream.close();
+        }
+    }
+}
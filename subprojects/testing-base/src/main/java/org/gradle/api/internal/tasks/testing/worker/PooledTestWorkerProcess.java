@@ -0,0 +1,216 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent;
+import org.gradle.api.internal.tasks.testing.TestDescriptorInternal;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.TestStartEvent;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.remote.ObjectConnection;
+import org.gradle.process.internal.ExecException;
+import org.gradle.process.internal.worker.WorkerProcess;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The build side of a {@link PooledTestWorker} process. Forwards the test events of the current session to the result processor of the test task that is using the process.
+ */
+class PooledTestWorkerProcess implements PooledTestWorkerResultProcessor, TestResultProcessor {
+    private final Object key;
+    private final WorkerProcess workerProcess;
+    private final Object lock = new Object();
+    private final TestEventBatchReplayer replayer = new TestEventBatchReplayer(this);
+    private RemotePooledTestWorker worker;
+    private long sessionWorkerId;
+    private List<String> sessionSharedPackages;
+    private List<URL> sessionClasspath;
+    private volatile TestResultProcessor resultProcessor;
+    private boolean sessionActive;
+    private Throwable sessionFailure;
+    private boolean retired;
+    private boolean stopped;
+
+    PooledTestWorkerProcess(Object key, WorkerProcess workerProcess) {
+        this.key = key;
+        this.workerProcess = workerProcess;
+    }
+
+    Object getKey() {
+        return key;
+    }
+
+    void start() {
+        workerProcess.start();
+        ObjectConnection connection = workerProcess.getConnection();
+        connection.useParameterSerializers(TestEventSerializer.create());
+        connection.addIncoming(PooledTestWorkerResultProcessor.class, this);
+        worker = connection.addOutgoing(RemotePooledTestWorker.class);
+        connection.connect();
+    }
+
+    /**
+     * Returns true if this process can run another session.
+     */
+    boolean isReusable() {
+        synchronized (lock) {
+            return !retired && !stopped;
+        }
+    }
+
+    /**
+     * Configures the next session with the worker id and the worker configuration of the test framework, as set up by {@link TestWorkerProcessPool#reserve}.
+     *
+     * @param classpath Any application classpath configured by the test framework, in addition to the test runtime classpath.
+     */
+    void configureSession(long workerId, List<String> sharedPackages, List<URL> classpath) {
+        this.sessionWorkerId = workerId;
+        this.sessionSharedPackages = sharedPackages;
+        this.sessionClasspath = classpath;
+    }
+
+    void startSession(TestResultProcessor resultProcessor, List<URL> applicationClasspath, byte[] serializedProcessorFactory) {
+        synchronized (lock) {
+            this.resultProcessor = resultProcessor;
+            sessionActive = true;
+            sessionFailure = null;
+        }
+        List<URL> classpath = new ArrayList<URL>(applicationClasspath);
+        classpath.addAll(sessionClasspath);
+        worker.startSession(sessionWorkerId, classpath, sessionSharedPackages, serializedProcessorFactory);
+    }
+
+    void processTestClass(TestClassRunInfo testClass) {
+        worker.processTestClass(testClass);
+    }
+
+    /**
+     * Requests that the current session be completed. Does not block.
+     */
+    void endSession() {
+        worker.endSession();
+    }
+
+    /**
+     * Blocks until the worker has sent all results of the current session or the process has stopped.
+     */
+    void waitForSessionCompleted() {
+        synchronized (lock) {
+            while (sessionActive && !stopped) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    throw new UncheckedException(e);
+                }
+            }
+            resultProcessor = null;
+            if (sessionActive) {
+                sessionActive = false;
+                throw new ExecException(String.format("%s stopped before the test session completed.", workerProcess));
+            }
+            if (sessionFailure != null) {
+                throw UncheckedException.throwAsUncheckedException(sessionFailure);
+            }
+        }
+    }
+
+    /**
+     * Blocks until the process has stopped, and then marks this process as stopped.
+     */
+    void waitForStop() {
+        try {
+            workerProcess.waitForStop();
+        } catch (ExecException e) {
+            // Reported by the session, if any
+        } finally {
+            synchronized (lock) {
+                stopped = true;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    void stop() {
+        worker.stop();
+    }
+
+    void stopNow() {
+        synchronized (lock) {
+            retired = true;
+        }
+        workerProcess.stopNow();
+    }
+
+    @Override
+    public void retired() {
+        synchronized (lock) {
+            retired = true;
+        }
+    }
+
+    @Override
+    public void sessionCompleted() {
+        synchronized (lock) {
+            sessionActive = false;
+            lock.notifyAll();
+        }
+    }
+
+    @Override
+    public void sessionFailed(Throwable failure) {
+        synchronized (lock) {
+            retired = true;
+            sessionFailure = failure;
+            sessionActive = false;
+            lock.notifyAll();
+        }
+    }
+
+    @Override
+    public void processBatch(byte[] events) {
+        replayer.processBatch(events);
+    }
+
+    @Override
+    public void started(TestDescriptorInternal test, TestStartEvent event) {
+        resultProcessor.started(test, event);
+    }
+
+    @Override
+    public void completed(Object testId, TestCompleteEvent event) {
+        resultProcessor.completed(testId, event);
+    }
+
+    @Override
+    public void output(Object testId, TestOutputEvent event) {
+        resultProcessor.output(testId, event);
+    }
+
+    @Override
+    public void failure(Object testId, Throwable result) {
+        resultProcessor.failure(testId, result);
+    }
+
+    @Override
+    public String toString() {
+        return workerProcess.toString();
+    }
+}
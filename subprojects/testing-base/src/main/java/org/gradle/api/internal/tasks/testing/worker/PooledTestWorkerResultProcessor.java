@@ -0,0 +1,37 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+/**
+ * Receives the results of a {@link PooledTestWorker}. Session notifications are sent on the same channel as the batches of test events, so they are received after all events of the session.
+ */
+public interface PooledTestWorkerResultProcessor extends TestEventBatchProcessor {
+    /**
+     * Notifies this processor that the worker will stop once the current session has completed, and so cannot be reused.
+     */
+    void retired();
+
+    /**
+     * Notifies this processor that the current session has completed.
+     */
+    void sessionCompleted();
+
+    /**
+     * Notifies this processor that the current session has failed.
+     */
+    void sessionFailed(Throwable failure);
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+
+import java.net.URL;
+import java.util.List;
+
+/**
+ * Drives a {@link PooledTestWorker}. A pooled worker runs a sequence of sessions, one for each test task that uses it.
+ */
+public interface RemotePooledTestWorker {
+    /**
+     * Starts a session that loads test classes from the given classpath and runs them using the given serialized {@link org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory}. Does not block.
+     *
+     * @param workerId The id of the test worker that the tests of the session see, which is different for each session.
+     * @param sharedPackages The packages of the application classpath that the test framework implementation shares with the tests.
+     */
+    void startSession(long workerId, List<URL> applicationClasspath, List<String> sharedPackages, byte[] serializedProcessorFactory);
+
+    /**
+     * Does not block.
+     */
+    void processTestClass(TestClassRunInfo testClass);
+
+    /**
+     * Completes the current session. The worker notifies {@link PooledTestWorkerResultProcessor#sessionCompleted()} once all results of the session have been sent. Does not block.
+     */
+    void endSession();
+
+    /**
+     * Stops the worker. Does not block.
+     */
+    void stop();
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent;
+import org.gradle.api.internal.tasks.testing.TestDescriptorInternal;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.TestStartEvent;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.serialize.Serializer;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+
+import java.io.ByteArrayInputStream;
+
+/**
+ * Decodes the batches of test events sent by a {@link BatchingTestResultProcessor}, and passes the events to a {@link TestResultProcessor} in the order they were produced.
+ */
+public class TestEventBatchReplayer implements TestEventBatchProcessor {
+    private final Serializer<Object> valueSerializer = TestEventSerializer.create().build(Object.class);
+    private final TestResultProcessor target;
+
+    public TestEventBatchReplayer(TestResultProcessor target) {
+        this.target = target;
+    }
+
+    @Override
+    public void processBatch(byte[] events) {
+        KryoBackedDecoder decoder = new KryoBackedDecoder(new ByteArrayInputStream(events));
+        try {
+            while (decoder.getReadPosition() < events.length) {
+                byte type = decoder.readByte();
+                switch (type) {
+                    case BatchingTestResultProcessor.STARTED:
+                        target.started((TestDescriptorInternal) valueSerializer.read(decoder), (TestStartEvent) valueSerializer.read(decoder));
+                        break;
+                    case BatchingTestResultProcessor.COMPLETED:
+                        target.completed(valueSerializer.read(decoder), (TestCompleteEvent) valueSerializer.read(decoder));
+                        break;
+                    case BatchingTestResultProcessor.OUTPUT:
+                        target.output(valueSerializer.read(decoder), (TestOutputEvent) valueSerializer.read(decoder));
+                        break;
+                    case BatchingTestResultProcessor.FAILURE:
+                        target.failure(valueSerializer.read(decoder), (Throwable) valueSerializer.read(decoder));
+                        break;
+                    default:
+                        throw new IllegalArgumentException(String.format("Unexpected test event type %d found.", type));
+                }
+            }
+        } catch (Exception e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.Action;
+import org.gradle.api.internal.classpath.ModuleRegistry;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.classpath.DefaultClassPath;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.concurrent.ManagedScheduledExecutor;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.id.IdGenerator;
+import org.gradle.internal.id.LongIdGenerator;
+import org.gradle.internal.time.Clock;
+import org.gradle.process.JavaForkOptions;
+import org.gradle.process.internal.JavaExecHandleBuilder;
+import org.gradle.process.internal.worker.WorkerProcessBuilder;
+import org.gradle.process.internal.worker.WorkerProcessFactory;
+import org.gradle.util.CollectionUtils;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A pool of test worker processes that are reused by test tasks across builds, to avoid paying for JVM startup and warm up for every test task.
+ *
+ * <p>Processes are keyed by their JVM configuration, so a process is only reused by a test task with the same executable, JVM arguments, working directory, environment and log level.
+ * Each use of a process loads the test runtime classpath into fresh ClassLoaders, but any other JVM-wide state the tests change is visible to the next user of the process.
+ * For this reason, the pool is opt-in. Test tasks that run a Java agent do not use the pool, as agents such as JaCoCo write their results when the JVM exits.</p>
+ *
+ * <p>The number of idle processes is capped, by default at one per processor. When there are more, the process that has been idle the longest is stopped.
+ * Processes that have been idle for longer than a timeout, by default 3 minutes, are stopped as well.</p>
+ */
+public class TestWorkerProcessPool implements Stoppable {
+    public static final String ENABLED_PROPERTY = "org.gradle.internal.testing.worker.pool";
+    public static final String MAX_IDLE_PROPERTY = "org.gradle.internal.testing.worker.pool.maxIdle";
+    public static final String IDLE_TIMEOUT_PROPERTY = "org.gradle.internal.testing.worker.pool.idleTimeout";
+    private static final long DEFAULT_IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(3);
+    private static final Logger LOGGER = Logging.getLogger(TestWorkerProcessPool.class);
+
+    private final WorkerProcessFactory workerFactory;
+    private final ModuleRegistry moduleRegistry;
+    private final Clock clock;
+    private final int maxIdleProcesses;
+    private final long idleTimeoutMillis;
+    private final ManagedExecutor executor;
+    private final ManagedScheduledExecutor expiryExecutor;
+    private final Object lock = new Object();
+    private final IdGenerator<Long> sessionIdGenerator = new LongIdGenerator();
+    private final List<PooledTestWorkerProcess> allProcesses = new ArrayList<PooledTestWorkerProcess>();
+    // Ordered from the longest idle to the most recently released, with the time each process was released
+    private final Map<PooledTestWorkerProcess, Long> idleProcesses = new LinkedHashMap<PooledTestWorkerProcess, Long>();
+
+    public TestWorkerProcessPool(WorkerProcessFactory workerFactory, ModuleRegistry moduleRegistry, ExecutorFactory executorFactory, Clock clock) {
+        this(workerFactory, moduleRegistry, executorFactory, clock,
+            Integer.getInteger(MAX_IDLE_PROPERTY, Runtime.getRuntime().availableProcessors()),
+            Long.getLong(IDLE_TIMEOUT_PROPERTY, DEFAULT_IDLE_TIMEOUT_MILLIS));
+    }
+
+    TestWorkerProcessPool(WorkerProcessFactory workerFactory, ModuleRegistry moduleRegistry, ExecutorFactory executorFactory, Clock clock, int maxIdleProcesses, long idleTimeoutMillis) {
+        this.workerFactory = workerFactory;
+        this.moduleRegistry = moduleRegistry;
+        this.clock = clock;
+        this.maxIdleProcesses = maxIdleProcesses;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.executor = executorFactory.create("Test worker process pool");
+        this.expiryExecutor = executorFactory.createScheduled("Test worker process pool expiry", 1);
+        long checkIntervalMillis = Math.max(1000, idleTimeoutMillis / 2);
+        expiryExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                stopExpiredProcesses();
+            }
+        }, checkIntervalMillis, checkIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    /**
+     * Returns true when test worker processes with the given options can be reused. Processes that run a Java or native agent cannot, as an agent may only
+     * write its results when the JVM exits, for example the JaCoCo agent.
+     */
+    public static boolean canReuse(JavaForkOptions options) {
+        for (String jvmArg : options.getAllJvmArgs()) {
+            if (jvmArg.startsWith("-javaagent:") || jvmArg.startsWith("-agentpath:") || jvmArg.startsWith("-agentlib:")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reserves an idle process that is compatible with the given options, or starts a new one. The given action is the worker configuration action of the test framework,
+     * whose shared packages and application classpath are applied to the session, and whose JVM configuration is part of the key of the process.
+     */
+    PooledTestWorkerProcess reserve(JavaForkOptions options, Action<? super WorkerProcessBuilder> buildConfigAction) {
+        WorkerProcessBuilder builder = workerFactory.create(new PooledTestWorker(getFrameworkClasspath()));
+        builder.setBaseName("Gradle Test Executor");
+        builder.setImplementationClasspath(getImplementationClasspath());
+        options.copyTo(builder.getJavaCommand());
+        builder.getJavaCommand().jvmArgs("-Dorg.gradle.native=false");
+        buildConfigAction.execute(builder);
+
+        JavaExecHandleBuilder javaCommand = builder.getJavaCommand();
+        Set<File> frameworkApplicationClasspath = builder.getApplicationClasspath();
+        Object key = Arrays.asList(javaCommand.getExecutable(), javaCommand.getAllJvmArgs(), javaCommand.getWorkingDir(), javaCommand.getEnvironment(), builder.getLogLevel(),
+            frameworkApplicationClasspath);
+
+        PooledTestWorkerProcess process = reserveIdle(key);
+        if (process == null) {
+            process = start(key, builder);
+        }
+        process.configureSession(sessionIdGenerator.generateId(), new ArrayList<String>(builder.getSharedPackages()),
+            DefaultClassPath.of(frameworkApplicationClasspath).getAsURLs());
+        return process;
+    }
+
+    @Nullable
+    private PooledTestWorkerProcess reserveIdle(Object key) {
+        synchronized (lock) {
+            Iterator<PooledTestWorkerProcess> iterator = idleProcesses.keySet().iterator();
+            while (iterator.hasNext()) {
+                PooledTestWorkerProcess candidate = iterator.next();
+                if (candidate.getKey().equals(key)) {
+                    iterator.remove();
+                    LOGGER.debug("Reusing {}.", candidate);
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    private PooledTestWorkerProcess start(Object key, WorkerProcessBuilder builder) {
+        final PooledTestWorkerProcess process = new PooledTestWorkerProcess(key, builder.build());
+        process.start();
+        synchronized (lock) {
+            allProcesses.add(process);
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                process.waitForStop();
+                synchronized (lock) {
+                    allProcesses.remove(process);
+                    idleProcesses.remove(process);
+                }
+            }
+        });
+        return process;
+    }
+
+    /**
+     * Returns the given process to the pool, or stops it when it cannot be reused.
+     */
+    void release(PooledTestWorkerProcess process) {
+        boolean reusable;
+        List<PooledTestWorkerProcess> evicted = new ArrayList<PooledTestWorkerProcess>();
+        synchronized (lock) {
+            reusable = process.isReusable() && allProcesses.contains(process);
+            if (reusable) {
+                idleProcesses.put(process, clock.getCurrentTime());
+                Iterator<PooledTestWorkerProcess> iterator = idleProcesses.keySet().iterator();
+                while (idleProcesses.size() > maxIdleProcesses) {
+                    PooledTestWorkerProcess oldest = iterator.next();
+                    iterator.remove();
+                    allProcesses.remove(oldest);
+                    evicted.add(oldest);
+                }
+            } else {
+                allProcesses.remove(process);
+            }
+        }
+        if (!reusable) {
+            process.stopNow();
+        }
+        for (PooledTestWorkerProcess oldest : evicted) {
+            LOGGER.debug("Stopping {} as there are too many idle test worker processes.", oldest);
+            stop(oldest);
+        }
+    }
+
+    /**
+     * Stops the processes that have been idle for longer than the idle timeout.
+     */
+    void stopExpiredProcesses() {
+        List<PooledTestWorkerProcess> expired = new ArrayList<PooledTestWorkerProcess>();
+        synchronized (lock) {
+            long expiredBefore = clock.getCurrentTime() - idleTimeoutMillis;
+            Iterator<Map.Entry<PooledTestWorkerProcess, Long>> iterator = idleProcesses.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<PooledTestWorkerProcess, Long> entry = iterator.next();
+                if (entry.getValue() > expiredBefore) {
+                    break;
+                }
+                iterator.remove();
+                allProcesses.remove(entry.getKey());
+                expired.add(entry.getKey());
+            }
+        }
+        for (PooledTestWorkerProcess process : expired) {
+            LOGGER.debug("Stopping {} as it has been idle for too long.", process);
+            stop(process);
+        }
+    }
+
+    @Override
+    public void stop() {
+        List<PooledTestWorkerProcess> processes;
+        synchronized (lock) {
+            processes = new ArrayList<PooledTestWorkerProcess>(allProcesses);
+            allProcesses.clear();
+            idleProcesses.clear();
+        }
+        expiryExecutor.stop();
+        for (PooledTestWorkerProcess process : processes) {
+            stop(process);
+        }
+        executor.stop();
+    }
+
+    private static void stop(PooledTestWorkerProcess process) {
+        try {
+            process.stop();
+        } catch (Exception e) {
+            LOGGER.debug("Could not stop " + process + ".", e);
+            process.stopNow();
+        }
+    }
+
+    private List<URL> getImplementationClasspath() {
+        return CollectionUtils.flattenCollections(URL.class,
+            moduleRegistry.getModule("gradle-core-api").getImplementationClasspath().getAsURLs(),
+            moduleRegistry.getModule("gradle-core").getImplementationClasspath().getAsURLs(),
+            moduleRegistry.getModule("gradle-logging").getImplementationClasspath().getAsURLs(),
+            moduleRegistry.getModule("gradle-messaging").getImplementationClasspath().getAsURLs(),
+            moduleRegistry.getModule("gradle-base-services").getImplementationClasspath().getAsURLs(),
+            moduleRegistry.getModule("gradle-cli").getImplementationClasspath().getAsURLs(),
+            moduleRegistry.getModule("gradle-native").getImplementationClasspath().getAsURLs(),
+            moduleRegistry.getModule("gradle-testing-base").getImplementationClasspath().getAsURLs(),
+            moduleRegistry.getModule("gradle-process-services").getImplementationClasspath().getAsURLs(),
+            moduleRegistry.getExternalModule("slf4j-api").getImplementationClasspath().getAsURLs(),
+            moduleRegistry.getExternalModule("jul-to-slf4j").getImplementationClasspath().getAsURLs(),
+            moduleRegistry.getExternalModule("native-platform").getImplementationClasspath().getAsURLs(),
+            moduleRegistry.getExternalModule("kryo").getImplementationClasspath().getAsURLs(),
+            moduleRegistry.getExternalModule("commons-lang").getImplementationClasspath().getAsURLs()
+        );
+    }
+
+    /**
+     * The test framework implementations, which {@link PooledTestWorker} loads separately for each session so that they see the test runtime classpath.
+     */
+    private List<URL> getFrameworkClasspath() {
+        return CollectionUtils.flattenCollections(URL.class,
+            moduleRegistry.getModule("gradle-testing-jvm").getImplementationClasspath().getAsURLs(),
+            moduleRegistry.getModule("gradle-testing-junit-platform").getImplementationClasspath().getAsURLs(),
+            moduleRegistry.getExternalModule("junit-platform-engine").getImplementationClasspath().getAsURLs(),
+            moduleRegistry.getExternalModule("junit-platform-launcher").getImplementationClasspath().getAsURLs(),
+            moduleRegistry.getExternalModule("junit-platform-commons").getImplementationClasspath().getAsURLs(),
+            moduleRegistry.getExternalModule("junit").getImplementationClasspath().getAsURLs()
+        );
+    }
+}
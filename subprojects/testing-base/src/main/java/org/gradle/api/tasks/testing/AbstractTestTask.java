@@ -513,7 +513,7 @@ public abstract class AbstractTestTask extends ConventionTask implements Verific
 
         try {
             if (testReporter == null) {
-                testReporter = new DefaultTestReport(getBuildOperationExecutor());
+                testReporter = new DefaultTestReport(getBuildOperationExecutor(), new File(getTemporaryDir(), "html-report-fingerprints.bin"));
             }
 
             JUnitXmlReport junitXml = reports.getJunitXml();
@@ -521,7 +521,8 @@ public abstract class AbstractTestTask extends ConventionTask implements Verific
                 TestOutputAssociation outputAssociation = junitXml.isOutputPerTestCase()
                     ? TestOutputAssociation.WITH_TESTCASE
                     : TestOutputAssociation.WITH_SUITE;
-                Binary2JUnitXmlReportGenerator binary2JUnitXmlReportGenerator = new Binary2JUnitXmlReportGenerator(junitXml.getDestination(), testResultsProvider, outputAssociation, getBuildOperationExecutor(), getInetAddressFactory().getHostname());
+                Binary2JUnitXmlReportGenerator binary2JUnitXmlReportGenerator = new Binary2JUnitXmlReportGenerator(junitXml.getDestination(), testResultsProvider, outputAssociation, getBuildOperationExecutor(), getInetAddressFactory().getHostname(),
+                    new File(getTemporaryDir(), "junit-xml-report-fingerprints.bin"));
                 binary2JUnitXmlReportGenerator.generate();
             }
 
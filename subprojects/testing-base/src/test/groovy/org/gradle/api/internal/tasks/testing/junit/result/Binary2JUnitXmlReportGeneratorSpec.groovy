@@ -40,6 +40,7 @@ class Binary2JUnitXmlReportGeneratorSpec extends Specification {
 
     @Rule private TestNameTestDirectoryProvider temp = new TestNameTestDirectoryProvider()
     private resultsProvider = Mock(TestResultsProvider)
+    private resultsDir = temp.createDir("results")
     BuildOperationExecutor buildOperationExecutor
     Binary2JUnitXmlReportGenerator generator
     final WorkerLeaseService workerLeaseService = new TestWorkerLeaseService()
@@ -49,7 +50,7 @@ class Binary2JUnitXmlReportGeneratorSpec extends Specification {
         buildOperationExecutor = new DefaultBuildOperationExecutor(
             Mock(BuildOperationListener), Mock(Clock), new NoOpProgressLoggerFactory(),
             new DefaultBuildOperationQueueFactory(workerLeaseService), new DefaultExecutorFactory(), Mock(ResourceLockCoordinationService), parallelExecutionManager, new DefaultBuildOperationIdFactory())
-        Binary2JUnitXmlReportGenerator reportGenerator = new Binary2JUnitXmlReportGenerator(temp.testDirectory, resultsProvider, TestOutputAssociation.WITH_SUITE, buildOperationExecutor, "localhost")
+        Binary2JUnitXmlReportGenerator reportGenerator = new Binary2JUnitXmlReportGenerator(resultsDir, resultsProvider, TestOutputAssociation.WITH_SUITE, buildOperationExecutor, "localhost", temp.file("tmp/fingerprints.bin"))
         reportGenerator.xmlWriter = Mock(JUnitXmlResultWriter)
         return reportGenerator
     }
@@ -82,6 +83,46 @@ class Binary2JUnitXmlReportGeneratorSpec extends Specification {
         numThreads << [ 1, 4 ]
     }
 
+    def "only writes results that changed since the previous generation and removes stale results"() {
+        generator = generatorWithMaxThreads(1)
+
+        def fooTest = new TestClassResult(1, 'FooTest', 100)
+            .add(new TestMethodResult(1, "foo"))
+        def barTest = new TestClassResult(2, 'BarTest', 100)
+            .add(new TestMethodResult(2, "bar"))
+        def rerunBarTest = new TestClassResult(3, 'BarTest', 200)
+            .add(new TestMethodResult(4, "bar"))
+
+        resultsProvider.visitClasses(_) >> { Action action ->
+            action.execute(fooTest)
+            action.execute(barTest)
+        }
+        generator.generate()
+
+        when:
+        generator.generate()
+
+        then:
+        resultsProvider.visitClasses(_) >> { Action action ->
+            action.execute(fooTest)
+            action.execute(rerunBarTest)
+        }
+        1 * generator.xmlWriter.write(rerunBarTest, _)
+        0 * generator.xmlWriter._
+
+        when:
+        generator.generate()
+
+        then:
+        resultsProvider.visitClasses(_) >> { Action action ->
+            action.execute(fooTest)
+        }
+        0 * generator.xmlWriter._
+        resultsDir.file("TEST-FooTest.xml").exists()
+        !resultsDir.file("TEST-BarTest.xml").exists()
+        resultsDir.list() as List == ["TEST-FooTest.xml"]
+    }
+
     def "adds context information to the failure if something goes wrong"() {
         generator = generatorWithMaxThreads(1)
 
@@ -98,6 +98,29 @@ class TestOutputStoreSpec extends WorkspaceTest {
         reader.close()
     }
 
+    def "output of many interleaved tests is found through the index"() {
+        when:
+        def writer = output.writer()
+        200.times { i ->
+            (1..5).each { classId ->
+                writer.onOutput(classId, classId * 1000 + i, output(i % 2 == 0 ? StdOut : StdErr, "[$classId-$i]"))
+            }
+        }
+        writer.onOutput(3, output(StdOut, "[3]"))
+        writer.close()
+        def reader = output.reader()
+
+        then:
+        collectOutput(reader, 3, 3017, StdErr) == "[3-17]"
+        collectOutput(reader, 3, 3017, StdOut) == ""
+        collectOutput(reader, 3, StdOut) == "[3]"
+        collectAllOutput(reader, 5, StdOut) == (0..<200).findAll { it % 2 == 0 }.collect { "[5-$it]" }.join()
+        !reader.hasOutput(6, StdOut)
+
+        cleanup:
+        reader.close()
+    }
+
     def DefaultTestOutputEvent output(TestOutputEvent.Destination destination, String msg) {
         new DefaultTestOutputEvent(destination, msg)
     }
@@ -169,6 +192,16 @@ class TestOutputStoreSpec extends WorkspaceTest {
         thrown(IllegalStateException)
     }
 
+    def "exception if index file is corrupt"() {
+        when:
+        output.outputsFile.createNewFile()
+        output.indexFile.text = "broken"
+        output.reader()
+
+        then:
+        thrown(IllegalStateException)
+    }
+
     String collectAllOutput(TestOutputStore.Reader reader, long classId, TestOutputEvent.Destination destination) {
         def writer = new StringWriter()
         reader.writeAllOutput(classId, destination, writer)
@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.tasks.testing.processors
 
+import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo
 import org.gradle.api.internal.tasks.testing.TestClassProcessor
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo
 import org.gradle.api.internal.tasks.testing.TestResultProcessor
@@ -168,6 +169,44 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         1 * asyncProcessor2.processTestClass(test)
     }
 
+    def "assigns test classes to processor with least estimated work"() {
+        def estimates = new TestClassDurationEstimates([Slow: 100L, Fast: 10L, Other: 20L])
+        def processor = new MaxNParallelTestClassProcessor(2, factory, actorFactory, estimates)
+        TestClassProcessor processor1 = Mock()
+        TestClassProcessor processor2 = Mock()
+        TestClassProcessor asyncProcessor1 = Mock()
+        TestClassProcessor asyncProcessor2 = Mock()
+        Actor actor1 = Mock()
+        Actor actor2 = Mock()
+
+        1 * actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        1 * resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
+        processor.startProcessing(resultProcessor)
+
+        when:
+        processor.processTestClass(new DefaultTestClassRunInfo("Slow"))
+        processor.processTestClass(new DefaultTestClassRunInfo("Fast"))
+
+        then:
+        1 * factory.create() >> processor1
+        1 * actorFactory.createActor(processor1) >> actor1
+        1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
+        1 * asyncProcessor1.processTestClass(new DefaultTestClassRunInfo("Slow"))
+        1 * factory.create() >> processor2
+        1 * actorFactory.createActor(processor2) >> actor2
+        1 * actor2.getProxy(TestClassProcessor) >> asyncProcessor2
+        1 * asyncProcessor2.processTestClass(new DefaultTestClassRunInfo("Fast"))
+
+        when:
+        processor.processTestClass(new DefaultTestClassRunInfo("Other"))
+        processor.processTestClass(new DefaultTestClassRunInfo("Unknown"))
+
+        then:
+        1 * asyncProcessor2.processTestClass(new DefaultTestClassRunInfo("Other"))
+        1 * asyncProcessor2.processTestClass(new DefaultTestClassRunInfo("Unknown"))
+        0 * asyncProcessor1.processTestClass(_)
+    }
+
     def "stopNow propagates to factory created processors"() {
         TestClassRunInfo test = Mock()
         TestClassProcessor processor1 = Mock()
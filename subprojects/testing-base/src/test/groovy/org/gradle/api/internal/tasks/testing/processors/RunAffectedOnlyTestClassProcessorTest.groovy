@@ -0,0 +1,88 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors
+
+import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo
+import org.gradle.api.internal.tasks.testing.DefaultTestOutputEvent
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult
+import org.gradle.api.internal.tasks.testing.junit.result.TestMethodResult
+import org.gradle.api.internal.tasks.testing.junit.result.TestOutputStore
+import org.gradle.api.internal.tasks.testing.junit.result.TestResultSerializer
+import org.gradle.api.tasks.testing.TestOutputEvent
+import org.gradle.api.tasks.testing.TestResult
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class RunAffectedOnlyTestClassProcessorTest extends Specification {
+    @Rule
+    private TestNameTestDirectoryProvider tmp = new TestNameTestDirectoryProvider()
+
+    TestClassProcessor delegate = Mock()
+    TestResultProcessor resultProcessor = Mock()
+    File previousResultsDir
+
+    def setup() {
+        previousResultsDir = tmp.createDir("previous")
+        def passed = new TestClassResult(1, 'Passed', 1000).add(new TestMethodResult(2, 'ok', TestResult.ResultType.SUCCESS, 100, 1200))
+        def failed = new TestClassResult(3, 'Failed', 2000).add(new TestMethodResult(4, 'broken', TestResult.ResultType.FAILURE, 100, 2200))
+        def nested = new TestClassResult(5, 'Outer$Nested', 3000).add(new TestMethodResult(6, 'ok', TestResult.ResultType.SUCCESS, 100, 3200))
+        new TestResultSerializer(previousResultsDir).write([passed, failed, nested])
+        def writer = new TestOutputStore(previousResultsDir).writer()
+        writer.onOutput(1, 2, new DefaultTestOutputEvent(TestOutputEvent.Destination.StdOut, "some output"))
+        writer.close()
+    }
+
+    def "passes affected, previously failed and new test classes to delegate"() {
+        def processor = new RunAffectedOnlyTestClassProcessor(['Outer'] as Set, previousResultsDir, delegate)
+
+        when:
+        processor.startProcessing(resultProcessor)
+        ['Passed', 'Failed', 'Outer$Nested', 'New'].each { processor.processTestClass(new DefaultTestClassRunInfo(it)) }
+
+        then:
+        1 * delegate.startProcessing(resultProcessor)
+        1 * delegate.processTestClass(new DefaultTestClassRunInfo('Failed'))
+        1 * delegate.processTestClass(new DefaultTestClassRunInfo('Outer$Nested'))
+        1 * delegate.processTestClass(new DefaultTestClassRunInfo('New'))
+        0 * delegate._
+    }
+
+    def "replays results and output of unaffected test classes once delegate has stopped"() {
+        def processor = new RunAffectedOnlyTestClassProcessor([] as Set, previousResultsDir, delegate)
+        def classId
+        def methodId
+
+        when:
+        processor.startProcessing(resultProcessor)
+        processor.processTestClass(new DefaultTestClassRunInfo('Passed'))
+        processor.stop()
+
+        then:
+        1 * delegate.stop()
+
+        then:
+        1 * resultProcessor.started({ it.className == 'Passed' && it.composite }, { it.startTime == 1000 && it.parentId == null }) >> { classId = it[0].id }
+        1 * resultProcessor.started({ it.name == 'ok' && !it.composite }, { it.startTime == 1100 && it.parentId == classId }) >> { methodId = it[0].id }
+        1 * resultProcessor.output({ it == methodId }, new DefaultTestOutputEvent(TestOutputEvent.Destination.StdOut, "some output"))
+        1 * resultProcessor.completed({ it == methodId }, { it.endTime == 1200 && it.resultType == TestResult.ResultType.SUCCESS })
+        1 * resultProcessor.completed({ it == classId }, { it.endTime == 1200 })
+        0 * resultProcessor._
+    }
+}
@@ -53,7 +53,7 @@ class DefaultTestReportTest extends Specification {
         buildOperationExecutor = new DefaultBuildOperationExecutor(
             Mock(BuildOperationListener), Mock(Clock), new NoOpProgressLoggerFactory(),
             new DefaultBuildOperationQueueFactory(workerLeaseService), new DefaultExecutorFactory(), Mock(ResourceLockCoordinationService), parallelExecutionManager, new DefaultBuildOperationIdFactory())
-        return new DefaultTestReport(buildOperationExecutor)
+        return new DefaultTestReport(buildOperationExecutor, tmpDir.file('tmp/fingerprints.bin'))
     }
 
     def generatesReportWhenThereAreNoTestResults() {
@@ -467,6 +467,42 @@ class DefaultTestReportTest extends Specification {
         numThreads << [ 1, 4 ]
     }
 
+    def "only regenerates class pages whose results changed and removes stale class pages"() {
+        given:
+        report = reportWithMaxThreads(1)
+        report.generateReport(passingBuildResults(), reportDir)
+        def passedClassFile = reportDir.file('classes/org.gradle.passing.Passed.html')
+        def alsoPassedClassFile = reportDir.file('classes/org.gradle.passing.subpackage.AlsoPassed.html')
+        passedClassFile.text = "unchanged"
+
+        when:
+        report.generateReport(buildResults {
+            testClassResult("org.gradle.passing.Passed") {
+                testcase("passed") {
+                    duration = 1000;
+                }
+            }
+        }, reportDir)
+
+        then:
+        passedClassFile.text == "unchanged"
+        !alsoPassedClassFile.exists()
+        results(indexFile).assertHasTests(1)
+
+        when:
+        report.generateReport(buildResults {
+            testClassResult("org.gradle.passing.Passed") {
+                testcase("passed") {
+                    duration = 2000;
+                }
+            }
+        }, reportDir)
+
+        then:
+        results(passedClassFile).assertHasDuration("2.000s")
+        !reportDir.listFiles().any { it.name.endsWith(".bin") }
+    }
+
     def reportsOnClassesInDefaultPackage() {
         given:
         report = reportWithMaxThreads(1)
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker
+
+import org.gradle.api.internal.tasks.testing.DefaultTestClassDescriptor
+import org.gradle.api.internal.tasks.testing.DefaultTestOutputEvent
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import org.gradle.api.internal.tasks.testing.TestStartEvent
+import org.gradle.api.tasks.testing.TestOutputEvent
+import org.gradle.api.tasks.testing.TestResult
+import org.gradle.internal.id.CompositeIdGenerator
+import spock.lang.Specification
+
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledFuture
+
+class BatchingTestResultProcessorTest extends Specification {
+    def target = Mock(TestResultProcessor)
+    def replayer = new TestEventBatchReplayer(target)
+    def batches = []
+    def batchProcessor = { byte[] events -> batches << events; replayer.processBatch(events) } as TestEventBatchProcessor
+    def future = Mock(ScheduledFuture)
+    def executor = Mock(ScheduledExecutorService)
+    Runnable scheduledFlush
+    BatchingTestResultProcessor processor
+
+    def setup() {
+        executor.scheduleWithFixedDelay(_, _, _, _) >> { Runnable runnable, long delay, long period, unit ->
+            scheduledFlush = runnable
+            future
+        }
+        processor = new BatchingTestResultProcessor(batchProcessor, executor)
+    }
+
+    def "sends pending events in a single batch when flushed periodically"() {
+        def id = new CompositeIdGenerator.CompositeId(1L, 2L)
+        def descriptor = new DefaultTestClassDescriptor(id, "SomeTest")
+        def failure = new RuntimeException("broken")
+
+        when:
+        processor.started(descriptor, new TestStartEvent(100L, null))
+        processor.output(id, new DefaultTestOutputEvent(TestOutputEvent.Destination.StdOut, "some output"))
+        processor.failure(id, failure)
+        processor.completed(id, new TestCompleteEvent(200L, TestResult.ResultType.FAILURE))
+
+        then:
+        batches.empty
+        0 * target._
+
+        when:
+        scheduledFlush.run()
+
+        then:
+        batches.size() == 1
+        1 * target.started({ it.id == id && it.className == "SomeTest" }, { it.startTime == 100L })
+        then:
+        1 * target.output(id, { it.destination == TestOutputEvent.Destination.StdOut && it.message == "some output" })
+        then:
+        1 * target.failure(id, { it.message == "broken" })
+        then:
+        1 * target.completed(id, { it.endTime == 200L && it.resultType == TestResult.ResultType.FAILURE })
+        0 * target._
+
+        when:
+        scheduledFlush.run()
+
+        then:
+        batches.size() == 1
+    }
+
+    def "sends a batch once it is large enough"() {
+        def id = new CompositeIdGenerator.CompositeId(1L, 2L)
+        def output = "x" * 1000
+
+        when:
+        100.times {
+            processor.output(id, new DefaultTestOutputEvent(TestOutputEvent.Destination.StdErr, output))
+        }
+
+        then:
+        batches.size() == 1
+        batches[0].length >= BatchingTestResultProcessor.MAX_BATCH_BYTES
+        batches[0].length < BatchingTestResultProcessor.MAX_BATCH_BYTES + 2 * output.length()
+        _ * target.output(id, _)
+    }
+
+    def "sends pending events and stops flushing periodically when stopped"() {
+        def id = new CompositeIdGenerator.CompositeId(1L, 2L)
+
+        when:
+        processor.output(id, new DefaultTestOutputEvent(TestOutputEvent.Destination.StdOut, "output"))
+        processor.stop()
+
+        then:
+        1 * future.cancel(false)
+        1 * target.output(id, { it.message == "output" })
+        batches.size() == 1
+    }
+}
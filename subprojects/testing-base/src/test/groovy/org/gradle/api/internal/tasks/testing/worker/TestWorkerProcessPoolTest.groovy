@@ -0,0 +1,249 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker
+
+import org.gradle.api.Action
+import org.gradle.api.internal.classpath.ModuleRegistry
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.ManagedExecutor
+import org.gradle.internal.concurrent.ManagedScheduledExecutor
+import org.gradle.internal.remote.ObjectConnection
+import org.gradle.internal.time.Clock
+import org.gradle.process.JavaForkOptions
+import org.gradle.process.internal.JavaExecHandleBuilder
+import org.gradle.process.internal.worker.WorkerProcess
+import org.gradle.process.internal.worker.WorkerProcessBuilder
+import org.gradle.process.internal.worker.WorkerProcessFactory
+import spock.lang.Specification
+import spock.lang.Subject
+
+class TestWorkerProcessPoolTest extends Specification {
+    def jvmArgs = ["-Xmx64m"]
+    def javaCommand = Stub(JavaExecHandleBuilder) {
+        getExecutable() >> "java"
+        getAllJvmArgs() >> { jvmArgs }
+        getWorkingDir() >> new File("work")
+    }
+    def sharedPackages = [] as Set
+    def workerProcessBuilder = Mock(WorkerProcessBuilder) {
+        getJavaCommand() >> javaCommand
+        getApplicationClasspath() >> ([] as Set)
+        getSharedPackages() >> { sharedPackages }
+    }
+    def frameworkConfiguration = Mock(Action)
+    def workerProcessFactory = Stub(WorkerProcessFactory) {
+        create(_) >> workerProcessBuilder
+    }
+    def executorFactory = Stub(ExecutorFactory) {
+        create(_) >> Mock(ManagedExecutor)
+        createScheduled(_, _) >> Mock(ManagedScheduledExecutor)
+    }
+    def options = Stub(JavaForkOptions)
+    def currentTime = 0L
+    def clock = Stub(Clock) {
+        getCurrentTime() >> { currentTime }
+    }
+
+    @Subject
+    def pool = new TestWorkerProcessPool(workerProcessFactory, Stub(ModuleRegistry), executorFactory, clock, 2, 1000)
+
+    def "reuses released process with the same configuration"() {
+        def workerProcess = workerProcess()
+
+        when:
+        def first = pool.reserve(options, frameworkConfiguration)
+        pool.release(first)
+        def second = pool.reserve(options, frameworkConfiguration)
+
+        then:
+        1 * workerProcessBuilder.build() >> workerProcess
+        second.is(first)
+        0 * workerProcess.stopNow()
+    }
+
+    def "applies the test framework configuration and a new worker id to each session"() {
+        def remoteWorker = Mock(RemotePooledTestWorker)
+        def workerProcess = workerProcess(remoteWorker)
+        def classpath = [new URL("file:test.jar")]
+        def factory = [1, 2, 3] as byte[]
+        workerProcessBuilder.build() >> workerProcess
+
+        when:
+        def first = pool.reserve(options, frameworkConfiguration)
+        first.startSession(Stub(TestResultProcessor), classpath, factory)
+
+        then:
+        1 * frameworkConfiguration.execute(workerProcessBuilder) >> { sharedPackages.add("org.testng") }
+        1 * remoteWorker.startSession(1L, classpath, ["org.testng"], factory)
+
+        when:
+        first.sessionCompleted()
+        first.waitForSessionCompleted()
+        pool.release(first)
+        def second = pool.reserve(options, frameworkConfiguration)
+        second.startSession(Stub(TestResultProcessor), classpath, factory)
+
+        then:
+        second.is(first)
+        1 * frameworkConfiguration.execute(workerProcessBuilder)
+        1 * remoteWorker.startSession(2L, classpath, ["org.testng"], factory)
+    }
+
+    def "processes running a java agent cannot be reused"() {
+        expect:
+        TestWorkerProcessPool.canReuse(Stub(JavaForkOptions) { getAllJvmArgs() >> ["-Xmx64m"] })
+        !TestWorkerProcessPool.canReuse(Stub(JavaForkOptions) { getAllJvmArgs() >> ["-javaagent:jacocoagent.jar=destfile=build/jacoco/test.exec"] })
+        !TestWorkerProcessPool.canReuse(Stub(JavaForkOptions) { getAllJvmArgs() >> ["-agentpath:/opt/profiler/libagent.so"] })
+    }
+
+    def "starts new process when released process has a different configuration"() {
+        def workerProcess1 = workerProcess()
+        def workerProcess2 = workerProcess()
+
+        when:
+        def first = pool.reserve(options, frameworkConfiguration)
+        pool.release(first)
+        jvmArgs = ["-Xmx128m"]
+        def second = pool.reserve(options, frameworkConfiguration)
+
+        then:
+        2 * workerProcessBuilder.build() >>> [workerProcess1, workerProcess2]
+        !second.is(first)
+    }
+
+    def "does not reuse process that is in use"() {
+        when:
+        def first = pool.reserve(options, frameworkConfiguration)
+        def second = pool.reserve(options, frameworkConfiguration)
+
+        then:
+        2 * workerProcessBuilder.build() >>> [workerProcess(), workerProcess()]
+        !second.is(first)
+    }
+
+    def "stops process that cannot be reused"() {
+        def workerProcess1 = workerProcess()
+        def workerProcess2 = workerProcess()
+
+        when:
+        def first = pool.reserve(options, frameworkConfiguration)
+        first.retired()
+        pool.release(first)
+        def second = pool.reserve(options, frameworkConfiguration)
+
+        then:
+        2 * workerProcessBuilder.build() >>> [workerProcess1, workerProcess2]
+        1 * workerProcess1.stopNow()
+        !second.is(first)
+    }
+
+    def "stops processes when stopped"() {
+        def remoteWorker = Mock(RemotePooledTestWorker)
+        def workerProcess = workerProcess(remoteWorker)
+        workerProcessBuilder.build() >> workerProcess
+
+        given:
+        pool.release(pool.reserve(options, frameworkConfiguration))
+
+        when:
+        pool.stop()
+
+        then:
+        1 * remoteWorker.stop()
+    }
+
+    def "stops the longest idle process when there are too many idle processes"() {
+        def remoteWorker1 = Mock(RemotePooledTestWorker)
+        def remoteWorker2 = Mock(RemotePooledTestWorker)
+        def remoteWorker3 = Mock(RemotePooledTestWorker)
+        workerProcessBuilder.build() >>> [workerProcess(remoteWorker1), workerProcess(remoteWorker2), workerProcess(remoteWorker3)]
+
+        given:
+        def first = pool.reserve(options, frameworkConfiguration)
+        def second = pool.reserve(options, frameworkConfiguration)
+        def third = pool.reserve(options, frameworkConfiguration)
+        pool.release(second)
+        pool.release(first)
+
+        when:
+        pool.release(third)
+
+        then:
+        1 * remoteWorker2.stop()
+        0 * remoteWorker1.stop()
+        0 * remoteWorker3.stop()
+
+        when:
+        def reused1 = pool.reserve(options, frameworkConfiguration)
+        def reused2 = pool.reserve(options, frameworkConfiguration)
+
+        then:
+        reused1.is(first)
+        reused2.is(third)
+    }
+
+    def "stops processes that have been idle for too long"() {
+        def remoteWorker1 = Mock(RemotePooledTestWorker)
+        def remoteWorker2 = Mock(RemotePooledTestWorker)
+        def workerProcess1 = workerProcess(remoteWorker1)
+        def workerProcess2 = workerProcess(remoteWorker2)
+        def workerProcess3 = workerProcess()
+
+        given:
+        workerProcessBuilder.build() >>> [workerProcess1, workerProcess2, workerProcess3]
+        def first = pool.reserve(options, frameworkConfiguration)
+        def second = pool.reserve(options, frameworkConfiguration)
+        pool.release(first)
+        currentTime = 600
+        pool.release(second)
+
+        when:
+        currentTime = 1000
+        pool.stopExpiredProcesses()
+
+        then:
+        1 * remoteWorker1.stop()
+        0 * remoteWorker2.stop()
+
+        when:
+        currentTime = 1599
+        pool.stopExpiredProcesses()
+
+        then:
+        0 * remoteWorker2.stop()
+
+        when:
+        currentTime = 1600
+        pool.stopExpiredProcesses()
+        def next = pool.reserve(options, frameworkConfiguration)
+
+        then:
+        1 * remoteWorker2.stop()
+        !next.is(first)
+        !next.is(second)
+    }
+
+    private WorkerProcess workerProcess(RemotePooledTestWorker remoteWorker = Stub(RemotePooledTestWorker)) {
+        def connection = Stub(ObjectConnection) {
+            addOutgoing(RemotePooledTestWorker) >> remoteWorker
+        }
+        return Mock(WorkerProcess) {
+            getConnection() >> connection
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.testing
+
+import org.gradle.api.internal.tasks.testing.impact.TestImpactAnalyzer
+import org.gradle.integtests.fixtures.AbstractIntegrationSpec
+
+class TestImpactAnalysisIntegrationTest extends AbstractIntegrationSpec {
+    def setup() {
+        file("gradle.properties") << "systemProp.${TestImpactAnalyzer.ENABLED_PROPERTY}=true\n"
+        buildFile << """
+            apply plugin: 'java'
+            ${mavenCentralRepository()}
+            dependencies { testCompile 'junit:junit:4.12' }
+            test {
+                systemProperty 'mode', project.findProperty('mode') ?: 'a'
+                doFirst { file('build/executed.txt').delete() }
+            }
+        """
+        file("src/main/java/Foo.java") << """
+            public class Foo {
+                public String value() { return "foo"; }
+            }
+        """
+        file("src/test/java/FooTest.java") << testClass("FooTest", 'assertEquals("foo", new Foo().value());')
+        file("src/test/java/ModeTest.java") << testClass("ModeTest", 'assertEquals("a", System.getProperty("mode"));')
+    }
+
+    def "runs only the test classes affected by a changed class"() {
+        given:
+        succeeds("test")
+        assert executedTestClasses() == ["FooTest", "ModeTest"] as Set
+
+        when:
+        changeFoo()
+        succeeds("test")
+
+        then:
+        executedTestClasses() == ["FooTest"] as Set
+    }
+
+    def "runs all test classes when a system property has changed"() {
+        given:
+        succeeds("test")
+
+        when:
+        changeFoo()
+        executer.withArgument("-Pmode=b")
+        fails("test")
+
+        then:
+        executedTestClasses() == ["FooTest", "ModeTest"] as Set
+        failure.assertHasCause("There were failing tests.")
+    }
+
+    private void changeFoo() {
+        file("src/main/java/Foo.java").text = """
+            public class Foo {
+                public String value() { return "foo"; }
+                public String other() { return "other"; }
+            }
+        """
+    }
+
+    private Set<String> executedTestClasses() {
+        def executed = file("build/executed.txt")
+        return executed.file ? executed.readLines() as Set : [] as Set
+    }
+
+    private static String testClass(String name, String assertion) {
+        """
+            import java.io.FileWriter;
+            import org.junit.Test;
+            import static org.junit.Assert.assertEquals;
+
+            public class ${name} {
+                @Test
+                public void test() throws Exception {
+                    FileWriter writer = new FileWriter("build/executed.txt", true);
+                    try {
+                        writer.write("${name}\\n");
+                    } finally {
+                        writer.close();
+                    }
+                    ${assertion}
+                }
+            }
+        """
+    }
+}
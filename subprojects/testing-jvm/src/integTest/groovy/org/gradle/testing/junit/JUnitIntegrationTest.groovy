@@ -337,6 +337,43 @@ class JUnitIntegrationTest extends JUnitMultiVersionIntegrationSpec {
                 containsString('VM START TIME =')).get(0))))
     }
 
+    def startsNewJvmAfterMaximumNumberOfTestClassesWhenWorkerProcessPoolIsEnabled() {
+        given:
+        testDirectory.file('build.gradle').writelns(
+                "apply plugin: 'java'",
+                mavenCentralRepository(),
+                "dependencies { compile 'junit:junit:4.12' }",
+                "test.forkEvery = 1"
+        )
+        testDirectory.file('src/test/java/org/gradle/AbstractTest.java').writelns(
+                "package org.gradle;",
+                "public abstract class AbstractTest {",
+                "    @org.junit.Test public void ok() {",
+                "        String name = java.lang.management.ManagementFactory.getRuntimeMXBean().getName();",
+                "        System.out.println(String.format(\"VM NAME = %s\", name));",
+                "    }",
+                "}")
+        testDirectory.file('src/test/java/org/gradle/SomeTest.java').writelns(
+                "package org.gradle;",
+                "public class SomeTest extends AbstractTest {",
+                "}")
+        testDirectory.file('src/test/java/org/gradle/SomeTest2.java').writelns(
+                "package org.gradle;",
+                "public class SomeTest2 extends AbstractTest {",
+                "}")
+
+        when:
+        executer.withArgument("-Dorg.gradle.internal.testing.worker.pool=true").withTasks('test').run()
+
+        then:
+        TestFile results1 = testDirectory.file('build/test-results/test/TEST-org.gradle.SomeTest.xml')
+        TestFile results2 = testDirectory.file('build/test-results/test/TEST-org.gradle.SomeTest2.xml')
+        results1.assertIsFile()
+        results2.assertIsFile()
+        assertThat(results1.linesThat(containsString('VM NAME =')).get(0), not(equalTo(results2.linesThat(
+                containsString('VM NAME =')).get(0))))
+    }
+
     def canListenForTestResults() {
         given:
         testDirectory.file('src/main/java/AppException.java').writelns(
@@ -21,7 +21,9 @@ import org.gradle.api.file.FileTree;
 import org.gradle.process.JavaForkOptions;
 import org.gradle.util.Path;
 
+import javax.annotation.Nullable;
 import java.io.File;
+import java.util.Map;
 import java.util.Set;
 
 public class JvmTestExecutionSpec implements TestExecutionSpec {
@@ -36,8 +38,11 @@ public class JvmTestExecutionSpec implements TestExecutionSpec {
     private final JavaForkOptions javaForkOptions;
     private final int maxParallelForks;
     private final Set<String> previousFailedTestClasses;
+    private final Map<String, Long> previousTestClassDurations;
+    private final Set<String> affectedClasses;
+    private final File previousResultsDir;
 
-    public JvmTestExecutionSpec(TestFramework testFramework, Iterable<? extends File> classpath, FileTree candidateClassFiles, boolean scanForTestClasses, FileCollection testClassesDirs, String path, Path identityPath, long forkEvery, JavaForkOptions javaForkOptions, int maxParallelForks, Set<String> previousFailedTestClasses) {
+    public JvmTestExecutionSpec(TestFramework testFramework, Iterable<? extends File> classpath, FileTree candidateClassFiles, boolean scanForTestClasses, FileCollection testClassesDirs, String path, Path identityPath, long forkEvery, JavaForkOptions javaForkOptions, int maxParallelForks, Set<String> previousFailedTestClasses, Map<String, Long> previousTestClassDurations, @Nullable Set<String> affectedClasses, @Nullable File previousResultsDir) {
         this.testFramework = testFramework;
         this.classpath = classpath;
         this.candidateClassFiles = candidateClassFiles;
@@ -49,6 +54,9 @@ public class JvmTestExecutionSpec implements TestExecutionSpec {
         this.javaForkOptions = javaForkOptions;
         this.maxParallelForks = maxParallelForks;
         this.previousFailedTestClasses = previousFailedTestClasses;
+        this.previousTestClassDurations = previousTestClassDurations;
+        this.affectedClasses = affectedClasses;
+        this.previousResultsDir = previousResultsDir;
     }
 
     public TestFramework getTestFramework() {
@@ -94,4 +102,27 @@ public class JvmTestExecutionSpec implements TestExecutionSpec {
     public Set<String> getPreviousFailedTestClasses() {
         return previousFailedTestClasses;
     }
+
+    /**
+     * The durations in milliseconds of the test classes executed by the previous run of this test task, keyed by class name.
+     */
+    public Map<String, Long> getPreviousTestClassDurations() {
+        return previousTestClassDurations;
+    }
+
+    /**
+     * The classes affected by the changes made to the test runtime classpath since the previous run of this test task, or null when all test classes should be executed.
+     */
+    @Nullable
+    public Set<String> getAffectedClasses() {
+        return affectedClasses;
+    }
+
+    /**
+     * The binary results of the previous run of this test task, from which the results of the unaffected test classes are carried forward. Not null when {@link #getAffectedClasses()} is not null.
+     */
+    @Nullable
+    public File getPreviousResultsDir() {
+        return previousResultsDir;
+    }
 }
@@ -21,6 +21,7 @@ import org.apache.commons.lang.StringUtils;
 import org.gradle.api.GradleException;
 import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.internal.Factory;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Type;
 import org.slf4j.Logger;
@@ -49,6 +50,7 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
 
     private Set<File> testClassesDirectories;
     private Set<File> testClasspath;
+    private TestClassDetectionCache detectionCache;
 
     protected AbstractTestFrameworkDetector(ClassFileExtractionManager classFileExtractionManager) {
         assert classFileExtractionManager != null;
@@ -114,6 +116,26 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
         this.testClasspath = testClasspath;
     }
 
+    @Override
+    public void setDetectionCache(TestClassDetectionCache detectionCache) {
+        this.detectionCache = detectionCache;
+    }
+
+    @Override
+    public TestClassInfo readTestClass(final File testClassFile) {
+        Factory<TestClassInfo> reader = new Factory<TestClassInfo>() {
+            @Override
+            public TestClassInfo create() {
+                TestClassVisitor classVisitor = classVisitor(testClassFile);
+                return new TestClassInfo(classVisitor.getClassName(), classVisitor.getSuperClassName(), classVisitor.isTest(), classVisitor.isAbstract());
+            }
+        };
+        if (detectionCache == null) {
+            return reader.create();
+        }
+        return detectionCache.get(testClassFile, getClass(), reader);
+    }
+
     protected TestClassVisitor classVisitor(final File testClassFile) {
         final TestClassVisitor classVisitor = createClassVisitor();
 
@@ -132,22 +154,20 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
     }
 
     @Override
-    public boolean processTestClass(File testClassFile) {
-        return processTestClass(testClassFile, false);
+    public boolean processTestClass(TestClassInfo testClass) {
+        return processTestClass(testClass, false);
     }
 
     /**
-     * Uses a TestClassVisitor to detect whether the class in the testClassFile is a test class. <p/> If the class is not a test, this function will go up the inheritance tree to check if a parent
+     * Detects whether the class read by a TestClassVisitor is a test class. <p/> If the class is not a test, this function will go up the inheritance tree to check if a parent
      * class is a test class. First the package of the parent class is checked, if it is a java.lang or groovy.lang the class can't be a test class, otherwise the parent class is scanned. <p/> When a
      * parent class is a test class all the extending classes are marked as test classes.
      */
-    private boolean processTestClass(final File testClassFile, boolean superClass) {
-        final TestClassVisitor classVisitor = classVisitor(testClassFile);
-
-        boolean isTest = classVisitor.isTest();
+    private boolean processTestClass(TestClassInfo testClass, boolean superClass) {
+        boolean isTest = testClass.isTest();
 
         if (!isTest) { // scan parent class
-            final String superClassName = classVisitor.getSuperClassName();
+            final String superClassName = testClass.getSuperClassName();
 
             if (isKnownTestCaseClassName(superClassName)) {
                 isTest = true;
@@ -163,7 +183,7 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
             }
         }
 
-        publishTestClass(isTest, classVisitor, superClass);
+        publishTestClass(isTest, testClass, superClass);
 
         return isTest;
     }
@@ -176,7 +196,7 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
         Boolean isSuperTest = superClasses.get(testClassFile);
 
         if (isSuperTest == null) {
-            isTest = processTestClass(testClassFile, true);
+            isTest = processTestClass(readTestClass(testClassFile), true);
 
             superClasses.put(testClassFile, isTest);
         } else {
@@ -190,9 +210,9 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
      * In none super class mode a test class is published when the class is a test and it is not abstract. In super class mode it must not publish the class otherwise it will get published multiple
      * times (for each extending class).
      */
-    private void publishTestClass(boolean isTest, TestClassVisitor classVisitor, boolean superClass) {
-        if (isTest && !classVisitor.isAbstract() && !superClass) {
-            String className = Type.getObjectType(classVisitor.getClassName()).getClassName();
+    private void publishTestClass(boolean isTest, TestClassInfo testClass, boolean superClass) {
+        if (isTest && !testClass.isAbstract() && !superClass) {
+            String className = Type.getObjectType(testClass.getClassName()).getClassName();
             testClassProcessor.processTestClass(new DefaultTestClassRunInfo(className));
         }
     }
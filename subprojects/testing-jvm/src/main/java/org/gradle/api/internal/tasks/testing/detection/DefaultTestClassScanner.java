@@ -22,7 +22,16 @@ import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 /**
@@ -34,12 +43,16 @@ public class DefaultTestClassScanner implements Runnable {
     private final FileTree candidateClassFiles;
     private final TestFrameworkDetector testFrameworkDetector;
     private final TestClassProcessor testClassProcessor;
+    private final ExecutorFactory executorFactory;
+    private final int maxThreads;
 
     public DefaultTestClassScanner(FileTree candidateClassFiles, TestFrameworkDetector testFrameworkDetector,
-                                   TestClassProcessor testClassProcessor) {
+                                   TestClassProcessor testClassProcessor, ExecutorFactory executorFactory, int maxThreads) {
         this.candidateClassFiles = candidateClassFiles;
         this.testFrameworkDetector = testFrameworkDetector;
         this.testClassProcessor = testClassProcessor;
+        this.executorFactory = executorFactory;
+        this.maxThreads = maxThreads;
     }
 
     @Override
@@ -53,11 +66,37 @@ public class DefaultTestClassScanner implements Runnable {
 
     private void detectionScan() {
         testFrameworkDetector.startDetection(testClassProcessor);
+        final List<File> classFiles = new ArrayList<File>();
         candidateClassFiles.visit(new ClassFileVisitor() {
             public void visitClassFile(FileVisitDetails fileDetails) {
-                testFrameworkDetector.processTestClass(fileDetails.getFile());
+                classFiles.add(fileDetails.getFile());
             }
         });
+
+        // Read the class files in parallel, but detect and publish the test classes in the order they were found
+        ManagedExecutor executor = executorFactory.create("Test class detection", maxThreads);
+        try {
+            List<Future<TestClassInfo>> testClasses = new ArrayList<Future<TestClassInfo>>(classFiles.size());
+            for (final File classFile : classFiles) {
+                testClasses.add(executor.submit(new Callable<TestClassInfo>() {
+                    @Override
+                    public TestClassInfo call() {
+                        return testFrameworkDetector.readTestClass(classFile);
+                    }
+                }));
+            }
+            for (Future<TestClassInfo> testClass : testClasses) {
+                testFrameworkDetector.processTestClass(testClass.get());
+            }
+        } catch (ExecutionException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } finally {
+            // Discard the remaining reads when detection fails
+            executor.shutdownNow();
+            executor.stop();
+        }
     }
 
     private void filenameScan() {
@@ -30,13 +30,19 @@ import org.gradle.api.internal.tasks.testing.filter.DefaultTestFilter;
 import org.gradle.api.internal.tasks.testing.processors.MaxNParallelTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.PatternMatchTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.RestartEveryNTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.processors.RunAffectedOnlyTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.processors.RunLongestFirstTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.RunPreviousFailedFirstTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.processors.TestClassDurationEstimates;
 import org.gradle.api.internal.tasks.testing.processors.TestMainAction;
 import org.gradle.api.internal.tasks.testing.worker.ForkingTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.worker.PooledTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.worker.TestWorkerProcessPool;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.internal.Factory;
 import org.gradle.internal.actor.ActorFactory;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.internal.time.Clock;
 import org.gradle.internal.work.WorkerLeaseRegistry;
@@ -53,6 +59,7 @@ public class DefaultTestExecuter implements TestExecuter<JvmTestExecutionSpec> {
     private static final Logger LOGGER = Logging.getLogger(DefaultTestExecuter.class);
 
     private final WorkerProcessFactory workerFactory;
+    private final TestWorkerProcessPool workerProcessPool;
     private final ActorFactory actorFactory;
     private final ModuleRegistry moduleRegistry;
     private final WorkerLeaseRegistry workerLeaseRegistry;
@@ -61,12 +68,16 @@ public class DefaultTestExecuter implements TestExecuter<JvmTestExecutionSpec> {
     private final Clock clock;
     private final DocumentationRegistry documentationRegistry;
     private final DefaultTestFilter testFilter;
+    private final ExecutorFactory executorFactory;
+    private final TestClassDetectionCache detectionCache;
     private TestClassProcessor processor;
 
-    public DefaultTestExecuter(WorkerProcessFactory workerFactory, ActorFactory actorFactory, ModuleRegistry moduleRegistry,
+    public DefaultTestExecuter(WorkerProcessFactory workerFactory, TestWorkerProcessPool workerProcessPool, ActorFactory actorFactory, ModuleRegistry moduleRegistry,
                                WorkerLeaseRegistry workerLeaseRegistry, BuildOperationExecutor buildOperationExecutor, int maxWorkerCount,
-                               Clock clock, DocumentationRegistry documentationRegistry, DefaultTestFilter testFilter) {
+                               Clock clock, DocumentationRegistry documentationRegistry, DefaultTestFilter testFilter,
+                               ExecutorFactory executorFactory, TestClassDetectionCache detectionCache) {
         this.workerFactory = workerFactory;
+        this.workerProcessPool = workerProcessPool;
         this.actorFactory = actorFactory;
         this.moduleRegistry = moduleRegistry;
         this.workerLeaseRegistry = workerLeaseRegistry;
@@ -75,6 +86,8 @@ public class DefaultTestExecuter implements TestExecuter<JvmTestExecutionSpec> {
         this.clock = clock;
         this.documentationRegistry = documentationRegistry;
         this.testFilter = testFilter;
+        this.executorFactory = executorFactory;
+        this.detectionCache = detectionCache;
     }
 
     @Override
@@ -85,6 +98,11 @@ public class DefaultTestExecuter implements TestExecuter<JvmTestExecutionSpec> {
         final Set<File> classpath = ImmutableSet.copyOf(testExecutionSpec.getClasspath());
         final Factory<TestClassProcessor> forkingProcessorFactory = new Factory<TestClassProcessor>() {
             public TestClassProcessor create() {
+                // Forking every N test classes requires a new process, so bypass the pool
+                if (workerProcessPool.isEnabled() && testExecutionSpec.getForkEvery() <= 0 && TestWorkerProcessPool.canReuse(testExecutionSpec.getJavaForkOptions())) {
+                    return new PooledTestClassProcessor(currentWorkerLease, workerProcessPool, testInstanceFactory, testExecutionSpec.getJavaForkOptions(),
+                        classpath, testFramework.getWorkerConfigurationAction(), documentationRegistry);
+                }
                 return new ForkingTestClassProcessor(currentWorkerLease, workerFactory, testInstanceFactory, testExecutionSpec.getJavaForkOptions(),
                     classpath, testFramework.getWorkerConfigurationAction(), moduleRegistry, documentationRegistry);
             }
@@ -94,10 +112,22 @@ public class DefaultTestExecuter implements TestExecuter<JvmTestExecutionSpec> {
                 return new RestartEveryNTestClassProcessor(forkingProcessorFactory, testExecutionSpec.getForkEvery());
             }
         };
-        processor =
-            new PatternMatchTestClassProcessor(testFilter,
+        int maxParallelForks = getMaxParallelForks(testExecutionSpec);
+        TestClassProcessor parallelProcessor;
+        if (maxParallelForks > 1 && !testExecutionSpec.getPreviousTestClassDurations().isEmpty()) {
+            // Balance the work between the forks using the class durations recorded by the previous run
+            TestClassDurationEstimates estimates = new TestClassDurationEstimates(testExecutionSpec.getPreviousTestClassDurations());
+            parallelProcessor = new RunLongestFirstTestClassProcessor(estimates,
                 new RunPreviousFailedFirstTestClassProcessor(testExecutionSpec.getPreviousFailedTestClasses(),
-                    new MaxNParallelTestClassProcessor(getMaxParallelForks(testExecutionSpec), reforkingProcessorFactory, actorFactory)));
+                    new MaxNParallelTestClassProcessor(maxParallelForks, reforkingProcessorFactory, actorFactory, estimates)));
+        } else {
+            parallelProcessor = new RunPreviousFailedFirstTestClassProcessor(testExecutionSpec.getPreviousFailedTestClasses(),
+                new MaxNParallelTestClassProcessor(maxParallelForks, reforkingProcessorFactory, actorFactory));
+        }
+        if (testExecutionSpec.getAffectedClasses() != null) {
+            parallelProcessor = new RunAffectedOnlyTestClassProcessor(testExecutionSpec.getAffectedClasses(), testExecutionSpec.getPreviousResultsDir(), parallelProcessor);
+        }
+        processor = new PatternMatchTestClassProcessor(testFilter, parallelProcessor);
 
         final FileTree testClassFiles = testExecutionSpec.getCandidateClassFiles();
 
@@ -106,9 +136,10 @@ public class DefaultTestExecuter implements TestExecuter<JvmTestExecutionSpec> {
             TestFrameworkDetector testFrameworkDetector = testFramework.getDetector();
             testFrameworkDetector.setTestClasses(testExecutionSpec.getTestClassesDirs().getFiles());
             testFrameworkDetector.setTestClasspath(classpath);
-            detector = new DefaultTestClassScanner(testClassFiles, testFrameworkDetector, processor);
+            testFrameworkDetector.setDetectionCache(detectionCache);
+            detector = new DefaultTestClassScanner(testClassFiles, testFrameworkDetector, processor, executorFactory, maxWorkerCount);
         } else {
-            detector = new DefaultTestClassScanner(testClassFiles, null, processor);
+            detector = new DefaultTestClassScanner(testClassFiles, null, processor, executorFactory, maxWorkerCount);
         }
 
         final Object testTaskOperationId = buildOperationExecutor.getCurrentOperation().getParentId();
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection;
+
+import org.gradle.internal.Factory;
+
+import java.io.File;
+
+/**
+ * Cross-build cache of what test framework detectors found in class files, so that unchanged class files do not need to be read again.
+ */
+public interface TestClassDetectionCache {
+    /**
+     * Returns the information for the given class file, as found by a detector of the given type. Uses the given reader when the class file has not been read by such a detector before.
+     *
+     * <p>Can be called concurrently.</p>
+     */
+    TestClassInfo get(File classFile, Class<? extends TestFrameworkDetector> detectorType, Factory<TestClassInfo> reader);
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection;
+
+import org.gradle.internal.serialize.AbstractSerializer;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+
+import javax.annotation.Nullable;
+
+/**
+ * What a test framework detector found out about a class by reading its class file, without looking at its superclasses.
+ */
+public class TestClassInfo {
+    private final String className;
+    private final String superClassName;
+    private final boolean test;
+    private final boolean isAbstract;
+
+    public TestClassInfo(String className, @Nullable String superClassName, boolean test, boolean isAbstract) {
+        this.className = className;
+        this.superClassName = superClassName;
+        this.test = test;
+        this.isAbstract = isAbstract;
+    }
+
+    /**
+     * The internal name of the class.
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * The internal name of the superclass, or null for {@code java.lang.Object}.
+     */
+    @Nullable
+    public String getSuperClassName() {
+        return superClassName;
+    }
+
+    /**
+     * Whether the class itself is marked as a test class.
+     */
+    public boolean isTest() {
+        return test;
+    }
+
+    public boolean isAbstract() {
+        return isAbstract;
+    }
+
+    public static class Serializer extends AbstractSerializer<TestClassInfo> {
+        @Override
+        public TestClassInfo read(Decoder decoder) throws Exception {
+            String className = decoder.readString();
+            String superClassName = decoder.readNullableString();
+            boolean test = decoder.readBoolean();
+            boolean isAbstract = decoder.readBoolean();
+            return new TestClassInfo(className, superClassName, test, isAbstract);
+        }
+
+        @Override
+        public void write(Encoder encoder, TestClassInfo value) throws Exception {
+            encoder.writeString(value.getClassName());
+            encoder.writeNullableString(value.getSuperClassName());
+            encoder.writeBoolean(value.isTest());
+            encoder.writeBoolean(value.isAbstract());
+        }
+    }
+}
@@ -23,9 +23,16 @@ import java.util.Set;
 public interface TestFrameworkDetector {
     void startDetection(TestClassProcessor testClassProcessor);
 
-    boolean processTestClass(File testClassFile);
+    /**
+     * Reads the given candidate class file. Can be called concurrently, ahead of passing the result to {@link #processTestClass(TestClassInfo)}.
+     */
+    TestClassInfo readTestClass(File testClassFile);
+
+    boolean processTestClass(TestClassInfo testClass);
 
     void setTestClasses(Set<File> testClasses);
 
     void setTestClasspath(Set<File> classpath);
+
+    void setDetectionCache(TestClassDetectionCache detectionCache);
 }
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.impact;
+
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.file.FileVisitor;
+import org.gradle.api.internal.file.collections.DirectoryFileTreeFactory;
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassDependenciesAnalyzer;
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.CompilationResultAnalyzer;
+import org.gradle.api.internal.tasks.compile.incremental.deps.ClassSetAnalysis;
+import org.gradle.api.internal.tasks.compile.incremental.deps.ClassSetAnalysisData;
+import org.gradle.api.internal.tasks.compile.incremental.deps.DependentsSet;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.hash.FileHasher;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.FlushableEncoder;
+import org.gradle.internal.serialize.HashCodeSerializer;
+import org.gradle.internal.serialize.MapSerializer;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.gradle.util.GFileUtils;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Determines which classes of a test runtime classpath are affected by the changes made since the previous run, using the class level dependency analysis of the incremental Java compiler.
+ *
+ * <p>Every call records a snapshot of the classpath and of a hash of the other inputs of the test task in the given snapshot file, which the next call compares against. Only
+ * changes to class files in classpath directories are analyzed. Any other change, such as to a resource, a jar, a system property or the test framework options, affects
+ * every class.</p>
+ */
+public class TestImpactAnalyzer {
+    public static final String ENABLED_PROPERTY = "org.gradle.internal.testing.impact";
+    private static final Logger LOGGER = Logging.getLogger(TestImpactAnalyzer.class);
+    private static final int SNAPSHOT_VERSION = 2;
+    private static final HashCodeSerializer HASH_SERIALIZER = new HashCodeSerializer();
+    private static final MapSerializer<String, HashCode> HASHES_SERIALIZER = new MapSerializer<String, HashCode>(BaseSerializerFactory.STRING_SERIALIZER, HASH_SERIALIZER);
+
+    private final DirectoryFileTreeFactory directoryFileTreeFactory;
+    private final FileHasher fileHasher;
+    private final ClassDependenciesAnalyzer classDependenciesAnalyzer;
+
+    public TestImpactAnalyzer(DirectoryFileTreeFactory directoryFileTreeFactory, FileHasher fileHasher, ClassDependenciesAnalyzer classDependenciesAnalyzer) {
+        this.directoryFileTreeFactory = directoryFileTreeFactory;
+        this.fileHasher = fileHasher;
+        this.classDependenciesAnalyzer = classDependenciesAnalyzer;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    /**
+     * Returns the names of the classes affected by the changes to the given classpath since the snapshot was recorded, or null when every class should be considered affected.
+     *
+     * @param inputsHash a hash of all inputs of the test task other than its classpath, such as the JVM arguments, the environment and the test framework options.
+     */
+    @Nullable
+    public Set<String> getAffectedClasses(Iterable<File> classpath, HashCode inputsHash, File snapshotFile) {
+        ClasspathSnapshotter snapshotter = new ClasspathSnapshotter();
+        for (File file : classpath) {
+            if (file.isDirectory()) {
+                directoryFileTreeFactory.create(file).visit(snapshotter);
+            } else if (file.isFile()) {
+                snapshotter.otherFileHashes.put(file.getAbsolutePath(), fileHasher.hash(file));
+            }
+        }
+
+        Snapshot previous = snapshotFile.isFile() ? read(snapshotFile) : null;
+        Snapshot current = new Snapshot(inputsHash, snapshotter.classHashes, snapshotter.otherFileHashes);
+        write(current, snapshotFile);
+
+        if (previous == null) {
+            LOGGER.info("All test classes are affected as there is no previous classpath snapshot.");
+            return null;
+        }
+        if (!previous.inputsHash.equals(current.inputsHash)) {
+            LOGGER.info("All test classes are affected as an input of the test task other than its classpath has changed.");
+            return null;
+        }
+        if (!previous.otherFileHashes.equals(current.otherFileHashes)) {
+            LOGGER.info("All test classes are affected as a resource or a jar on the test runtime classpath has changed.");
+            return null;
+        }
+        Set<String> changedClasses = getChangedClasses(previous.classHashes, current.classHashes);
+        if (changedClasses.isEmpty()) {
+            LOGGER.info("All test classes are affected as no class on the test runtime classpath has changed.");
+            return null;
+        }
+
+        CompilationResultAnalyzer analyzer = new CompilationResultAnalyzer(classDependenciesAnalyzer, fileHasher);
+        for (File file : classpath) {
+            if (file.isDirectory()) {
+                directoryFileTreeFactory.create(file).visit(analyzer);
+            }
+        }
+        ClassSetAnalysisData analysisData = analyzer.getAnalysis();
+        IntSet constants = new IntOpenHashSet();
+        for (String changedClass : changedClasses) {
+            constants.addAll(analysisData.getConstants(changedClass));
+        }
+        DependentsSet dependents = new ClassSetAnalysis(analysisData).getRelevantDependents(changedClasses, constants);
+        if (dependents.isDependencyToAll()) {
+            LOGGER.info("All test classes are affected as a changed class may be used by any class.");
+            return null;
+        }
+
+        Set<String> affectedClasses = new HashSet<String>(changedClasses);
+        affectedClasses.addAll(dependents.getDependentClasses());
+        LOGGER.info("{} classes changed, affecting {} classes.", changedClasses.size(), affectedClasses.size());
+        return affectedClasses;
+    }
+
+    private static Set<String> getChangedClasses(Map<String, HashCode> previous, Map<String, HashCode> current) {
+        Set<String> changedClasses = new HashSet<String>();
+        for (Map.Entry<String, HashCode> entry : current.entrySet()) {
+            if (!entry.getValue().equals(previous.get(entry.getKey()))) {
+                changedClasses.add(entry.getKey());
+            }
+        }
+        for (String className : previous.keySet()) {
+            if (!current.containsKey(className)) {
+                changedClasses.add(className);
+            }
+        }
+        return changedClasses;
+    }
+
+    @Nullable
+    private static Snapshot read(File snapshotFile) {
+        try {
+            InputStream inputStream = new FileInputStream(snapshotFile);
+            try {
+                Decoder decoder = new KryoBackedDecoder(inputStream);
+                if (decoder.readSmallInt() != SNAPSHOT_VERSION) {
+                    return null;
+                }
+                HashCode inputsHash = HASH_SERIALIZER.read(decoder);
+                Map<String, HashCode> classHashes = HASHES_SERIALIZER.read(decoder);
+                Map<String, HashCode> otherFileHashes = HASHES_SERIALIZER.read(decoder);
+                return new Snapshot(inputsHash, classHashes, otherFileHashes);
+            } finally {
+                inputStream.close();
+            }
+        } catch (Exception e) {
+            LOGGER.debug("Could not read classpath snapshot from " + snapshotFile + ".", e);
+            return null;
+        }
+    }
+
+    private static void write(Snapshot snapshot, File snapshotFile) {
+        GFileUtils.parentMkdirs(snapshotFile);
+        try {
+            OutputStream outputStream = new FileOutputStream(snapshotFile);
+            try {
+                FlushableEncoder encoder = new KryoBackedEncoder(outputStream);
+                encoder.writeSmallInt(SNAPSHOT_VERSION);
+                HASH_SERIALIZER.write(encoder, snapshot.inputsHash);
+                HASHES_SERIALIZER.write(encoder, snapshot.classHashes);
+                HASHES_SERIALIZER.write(encoder, snapshot.otherFileHashes);
+                encoder.flush();
+            } finally {
+                outputStream.close();
+            }
+        } catch (Exception e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    private static class Snapshot {
+        private final HashCode inputsHash;
+        private final Map<String, HashCode> classHashes;
+        private final Map<String, HashCode> otherFileHashes;
+
+        Snapshot(HashCode inputsHash, Map<String, HashCode> classHashes, Map<String, HashCode> otherFileHashes) {
+            this.inputsHash = inputsHash;
+            this.classHashes = classHashes;
+            this.otherFileHashes = otherFileHashes;
+        }
+    }
+
+    private class ClasspathSnapshotter implements FileVisitor {
+        private final Map<String, HashCode> classHashes = new HashMap<String, HashCode>();
+        private final Map<String, HashCode> otherFileHashes = new LinkedHashMap<String, HashCode>();
+
+        @Override
+        public void visitDir(FileVisitDetails dirDetails) {
+        }
+
+        @Override
+        public void visitFile(FileVisitDetails fileDetails) {
+            String path = fileDetails.getRelativePath().getPathString();
+            if (path.endsWith(".class")) {
+                String className = path.substring(0, path.length() - ".class".length()).replace('/', '.');
+                // Keep the first class of a given name, as the class loader does
+                if (!classHashes.containsKey(className)) {
+                    classHashes.put(className, fileHasher.hash(fileDetails));
+                }
+            } else {
+                otherFileHashes.put(fileDetails.getFile().getAbsolutePath(), fileHasher.hash(fileDetails));
+            }
+        }
+    }
+}
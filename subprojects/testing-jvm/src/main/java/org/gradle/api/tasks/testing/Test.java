@@ -27,20 +27,29 @@ import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.FileTree;
 import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.internal.DocumentationRegistry;
+import org.gradle.api.internal.changedetection.state.ValueSnapshotter;
 import org.gradle.api.internal.classpath.ModuleRegistry;
 import org.gradle.api.internal.file.FileResolver;
+import org.gradle.api.internal.file.collections.DirectoryFileTreeFactory;
 import org.gradle.api.internal.initialization.loadercache.ClassLoaderCache;
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.CachingClassDependenciesAnalyzer;
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassDependenciesAnalyzer;
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.DefaultClassDependenciesAnalyzer;
+import org.gradle.api.internal.tasks.compile.incremental.cache.GeneralCompileCaches;
 import org.gradle.api.internal.tasks.testing.JvmTestExecutionSpec;
 import org.gradle.api.internal.tasks.testing.NoMatchingTestsReporter;
 import org.gradle.api.internal.tasks.testing.TestExecuter;
 import org.gradle.api.internal.tasks.testing.TestFramework;
 import org.gradle.api.internal.tasks.testing.detection.DefaultTestExecuter;
+import org.gradle.api.internal.tasks.testing.detection.TestClassDetectionCache;
 import org.gradle.api.internal.tasks.testing.filter.DefaultTestFilter;
+import org.gradle.api.internal.tasks.testing.impact.TestImpactAnalyzer;
 import org.gradle.api.internal.tasks.testing.junit.JUnitTestFramework;
 import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult;
 import org.gradle.api.internal.tasks.testing.junit.result.TestResultSerializer;
 import org.gradle.api.internal.tasks.testing.junitplatform.JUnitPlatformTestFramework;
 import org.gradle.api.internal.tasks.testing.testng.TestNGTestFramework;
+import org.gradle.api.internal.tasks.testing.worker.TestWorkerProcessPool;
 import org.gradle.api.specs.Spec;
 import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.Classpath;
@@ -55,9 +64,14 @@ import org.gradle.api.tasks.options.Option;
 import org.gradle.api.tasks.testing.junit.JUnitOptions;
 import org.gradle.api.tasks.testing.junitplatform.JUnitPlatformOptions;
 import org.gradle.api.tasks.util.PatternFilterable;
+import org.gradle.caching.internal.BuildCacheHasher;
+import org.gradle.caching.internal.DefaultBuildCacheHasher;
 import org.gradle.internal.Actions;
 import org.gradle.internal.Cast;
 import org.gradle.internal.actor.ActorFactory;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.hash.FileHasher;
+import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.jvm.UnsupportedJavaRuntimeException;
 import org.gradle.internal.jvm.inspection.JvmVersionDetector;
 import org.gradle.internal.operations.BuildOperationExecutor;
@@ -70,16 +84,20 @@ import org.gradle.process.internal.DefaultJavaForkOptions;
 import org.gradle.process.internal.worker.WorkerProcessFactory;
 import org.gradle.util.CollectionUtils;
 import org.gradle.util.ConfigureUtil;
+import org.gradle.util.GFileUtils;
 import org.gradle.util.SingleMessageLogger;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.io.File;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.Callable;
 
 import static org.gradle.util.ConfigureUtil.configureUsing;
@@ -567,25 +585,83 @@ public class Test extends AbstractTestTask implements JavaForkOptions, PatternFi
     protected JvmTestExecutionSpec createTestExecutionSpec() {
         DefaultJavaForkOptions javaForkOptions = new DefaultJavaForkOptions(getFileResolver());
         copyTo(javaForkOptions);
-        return new JvmTestExecutionSpec(getTestFramework(), getClasspath(), getCandidateClassFiles(), isScanForTestClasses(), getTestClassesDirs(), getPath(), getIdentityPath(), getForkEvery(), javaForkOptions, getMaxParallelForks(), getPreviousFailedTestClasses());
-    }
-
-    private Set<String> getPreviousFailedTestClasses() {
+        final Set<String> previousFailedTestClasses = new HashSet<String>();
+        final Map<String, Long> previousTestClassDurations = new HashMap<String, Long>();
         TestResultSerializer serializer = new TestResultSerializer(getBinResultsDir());
         if (serializer.isHasResults()) {
-            final Set<String> previousFailedTestClasses = new HashSet<String>();
             serializer.read(new Action<TestClassResult>() {
                 @Override
                 public void execute(TestClassResult testClassResult) {
                     if (testClassResult.getFailuresCount() > 0) {
                         previousFailedTestClasses.add(testClassResult.getClassName());
                     }
+                    previousTestClassDurations.put(testClassResult.getClassName(), testClassResult.getDuration());
                 }
             });
-            return previousFailedTestClasses;
-        } else {
-            return Collections.emptySet();
         }
+        Set<String> affectedClasses = null;
+        File previousResultsDir = null;
+        if (TestImpactAnalyzer.isEnabled()) {
+            File snapshotFile = new File(getTemporaryDir(), "classpath-snapshot.bin");
+            DefaultTestFilter filter = (DefaultTestFilter) getFilter();
+            if (filter.getIncludePatterns().isEmpty() && filter.getCommandLineIncludePatterns().isEmpty()) {
+                affectedClasses = createTestImpactAnalyzer().getAffectedClasses(getClasspath(), hashNonClasspathInputs(javaForkOptions), snapshotFile);
+            } else {
+                // The results of a filtered run are incomplete, so cannot be carried forward by the next run
+                GFileUtils.deleteQuietly(snapshotFile);
+            }
+            if (affectedClasses != null && serializer.isHasResults()) {
+                // Move the previous results out of the way, as the binary results directory is cleaned before execution
+                previousResultsDir = new File(getTemporaryDir(), "previous-results");
+                GFileUtils.deleteQuietly(previousResultsDir);
+                GFileUtils.moveDirectory(getBinResultsDir(), previousResultsDir);
+            } else {
+                affectedClasses = null;
+            }
+        }
+        return new JvmTestExecutionSpec(getTestFramework(), getClasspath(), getCandidateClassFiles(), isScanForTestClasses(), getTestClassesDirs(), getPath(), getIdentityPath(), getForkEvery(), javaForkOptions, getMaxParallelForks(), previousFailedTestClasses, previousTestClassDurations, affectedClasses, previousResultsDir);
+    }
+
+    /**
+     * Hashes the inputs of this task that can change the outcome of a test class without changing the test runtime classpath, including those that are not declared as inputs,
+     * such as the executable and the environment.
+     */
+    private HashCode hashNonClasspathInputs(JavaForkOptions javaForkOptions) {
+        ValueSnapshotter valueSnapshotter = getServices().get(ValueSnapshotter.class);
+        BuildCacheHasher hasher = new DefaultBuildCacheHasher();
+        // Includes the system properties, the JVM arguments and the test framework options
+        for (Map.Entry<String, Object> entry : new TreeMap<String, Object>(getInputs().getProperties()).entrySet()) {
+            hasher.putString(entry.getKey());
+            valueSnapshotter.snapshot(entry.getValue()).appendToHasher(hasher);
+        }
+        hasher.putString(String.valueOf(javaForkOptions.getExecutable()));
+        List<String> allJvmArgs = javaForkOptions.getAllJvmArgs();
+        hasher.putInt(allJvmArgs.size());
+        for (String jvmArg : allJvmArgs) {
+            hasher.putString(jvmArg);
+        }
+        Map<String, Object> environment = new TreeMap<String, Object>(javaForkOptions.getEnvironment());
+        hasher.putInt(environment.size());
+        for (Map.Entry<String, Object> entry : environment.entrySet()) {
+            hasher.putString(entry.getKey());
+            hasher.putString(String.valueOf(entry.getValue()));
+        }
+        hasher.putString(javaForkOptions.getWorkingDir().getAbsolutePath());
+        putSorted(hasher, getIncludes());
+        putSorted(hasher, getExcludes());
+        return hasher.hash();
+    }
+
+    private static void putSorted(BuildCacheHasher hasher, Set<String> values) {
+        hasher.putInt(values.size());
+        for (String value : new TreeSet<String>(values)) {
+            hasher.putString(value);
+        }
+    }
+
+    private TestImpactAnalyzer createTestImpactAnalyzer() {
+        ClassDependenciesAnalyzer classDependenciesAnalyzer = new CachingClassDependenciesAnalyzer(new DefaultClassDependenciesAnalyzer(), getServices().get(GeneralCompileCaches.class).getClassAnalysisCache());
+        return new TestImpactAnalyzer(getServices().get(DirectoryFileTreeFactory.class), getServices().get(FileHasher.class), classDependenciesAnalyzer);
     }
 
     @TaskAction
@@ -609,13 +685,15 @@ public class Test extends AbstractTestTask implements JavaForkOptions, PatternFi
     @Override
     protected TestExecuter<JvmTestExecutionSpec> createTestExecuter() {
         if (testExecuter == null) {
-            return new DefaultTestExecuter(getProcessBuilderFactory(), getActorFactory(), getModuleRegistry(),
+            return new DefaultTestExecuter(getProcessBuilderFactory(), getServices().get(TestWorkerProcessPool.class), getActorFactory(), getModuleRegistry(),
                 getServices().get(WorkerLeaseRegistry.class),
                 getServices().get(BuildOperationExecutor.class),
                 getServices().get(StartParameter.class).getMaxWorkerCount(),
                 getServices().get(Clock.class),
                 getServices().get(DocumentationRegistry.class),
-                (DefaultTestFilter) getFilter());
+                (DefaultTestFilter) getFilter(),
+                getServices().get(ExecutorFactory.class),
+                getServices().get(TestClassDetectionCache.class));
         } else {
             return testExecuter;
         }
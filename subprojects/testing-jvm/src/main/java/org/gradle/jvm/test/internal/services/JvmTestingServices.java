@@ -16,6 +16,12 @@
 
 package org.gradle.jvm.test.internal.services;
 
+import org.gradle.api.internal.changedetection.state.InMemoryCacheDecoratorFactory;
+import org.gradle.api.internal.tasks.testing.detection.DefaultTestClassDetectionCache;
+import org.gradle.api.internal.tasks.testing.detection.TestClassDetectionCache;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.cache.CacheRepository;
+import org.gradle.internal.hash.FileHasher;
 import org.gradle.internal.service.ServiceRegistration;
 import org.gradle.internal.service.scopes.AbstractPluginServiceRegistry;
 import org.gradle.jvm.test.internal.JUnitTestSuiteBinaryRenderer;
@@ -25,4 +31,15 @@ public class JvmTestingServices extends AbstractPluginServiceRegistry {
     public void registerGlobalServices(ServiceRegistration registration) {
         registration.add(JUnitTestSuiteBinaryRenderer.class);
     }
+
+    @Override
+    public void registerGradleServices(ServiceRegistration registration) {
+        registration.addProvider(new GradleScopeTestingServices());
+    }
+
+    private static class GradleScopeTestingServices {
+        TestClassDetectionCache createTestClassDetectionCache(CacheRepository cacheRepository, Gradle gradle, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory, FileHasher fileHasher) {
+            return new DefaultTestClassDetectionCache(cacheRepository, gradle, inMemoryCacheDecoratorFactory, fileHasher);
+        }
+    }
 }
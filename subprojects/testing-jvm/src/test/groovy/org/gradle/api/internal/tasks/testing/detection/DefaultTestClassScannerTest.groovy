@@ -23,6 +23,8 @@ import org.gradle.api.file.FileVisitor
 import org.gradle.api.file.RelativePath
 import org.gradle.api.internal.file.DefaultFileVisitDetails
 import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.concurrent.ExecutorFactory
 import org.junit.Test
 import spock.lang.Specification
 
@@ -31,9 +33,14 @@ class DefaultTestClassScannerTest extends Specification {
     private final TestClassProcessor processor = Mock()
     private final FileTree files = Mock()
 
+    private final ExecutorFactory executorFactory = new DefaultExecutorFactory()
+
     @Test
     void passesEachClassFileToTestClassDetector() {
-        DefaultTestClassScanner scanner = new DefaultTestClassScanner(files, detector, processor)
+        DefaultTestClassScanner scanner = new DefaultTestClassScanner(files, detector, processor, executorFactory, 4)
+        def class1 = new TestClassInfo("class1", null, true, false)
+        def class2 = new TestClassInfo("class2", null, true, false)
+        def processed = []
 
         when:
         scanner.run()
@@ -41,23 +48,23 @@ class DefaultTestClassScannerTest extends Specification {
         then:
         1 * detector.startDetection(processor)
         then:
-        1 * detector.processTestClass(new File("class1.class"))
-        then:
-        1 * detector.processTestClass(new File("class2.class"))
-        then:
         1 * files.visit(_) >> { args ->
             FileVisitor visitor = args[0]
             assert visitor
             visitor.visitFile(mockFileVisitDetails('class1'))
             visitor.visitFile(mockFileVisitDetails('class2'))
         }
+        1 * detector.readTestClass(new File("class1.class")) >> class1
+        1 * detector.readTestClass(new File("class2.class")) >> class2
+        2 * detector.processTestClass(_) >> { TestClassInfo testClass -> processed << testClass; true }
+        processed == [class1, class2]
 
         0 * _._
     }
 
     @Test
     void skipAnonymousClass() {
-        DefaultTestClassScanner scanner = new DefaultTestClassScanner(files, detector, processor)
+        DefaultTestClassScanner scanner = new DefaultTestClassScanner(files, detector, processor, executorFactory, 4)
 
         when:
         scanner.run()
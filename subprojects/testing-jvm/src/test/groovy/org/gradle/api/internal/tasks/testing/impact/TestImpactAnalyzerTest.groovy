@@ -0,0 +1,209 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.impact
+
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet
+import it.unimi.dsi.fastutil.ints.IntSets
+import org.gradle.api.file.FileTreeElement
+import org.gradle.api.internal.file.TestFiles
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassDependenciesAnalyzer
+import org.gradle.api.internal.tasks.compile.incremental.deps.ClassAnalysis
+import org.gradle.internal.hash.HashCode
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class TestImpactAnalyzerTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    def classesDir = tmpDir.createDir("classes")
+    def jar = tmpDir.file("lib.jar")
+    def snapshotFile = tmpDir.file("snapshot/classpath.bin")
+    def classpath = [classesDir, jar]
+    def inputsHash = HashCode.fromInt(1)
+    def dependencies = [:]
+    def constants = [:]
+    def unreadableClasses = []
+    def classDependenciesAnalyzer = Stub(ClassDependenciesAnalyzer) {
+        getClassAnalysis(_, _) >> { HashCode hash, FileTreeElement classFile ->
+            def path = classFile.relativePath.pathString
+            def className = path.substring(0, path.length() - ".class".length()).replace('/', '.')
+            if (className in unreadableClasses) {
+                throw new IllegalArgumentException("Could not read $className")
+            }
+            def classConstants = constants[className] ? new IntOpenHashSet(constants[className] as int[]) : IntSets.EMPTY_SET
+            new ClassAnalysis(className, (dependencies[className] ?: []) as Set, false, classConstants, [] as Set)
+        }
+    }
+    def analyzer = new TestImpactAnalyzer(TestFiles.directoryFileTreeFactory(), TestFiles.fileHasher(), classDependenciesAnalyzer)
+
+    def setup() {
+        jar.write("jar")
+        classFile("org.Foo").write("foo")
+        classFile("org.Bar").write("bar")
+        classFile("org.FooTest").write("foo test")
+        classFile("org.BarTest").write("bar test")
+        dependencies["org.FooTest"] = ["org.Foo"]
+        dependencies["org.BarTest"] = ["org.Bar"]
+        dependencies["org.Bar"] = ["org.Foo"]
+    }
+
+    def "all classes are affected when there is no previous snapshot"() {
+        expect:
+        analyzer.getAffectedClasses(classpath, inputsHash, snapshotFile) == null
+        snapshotFile.file
+    }
+
+    def "all classes are affected when the previous snapshot cannot be read"() {
+        snapshotFile.write("broken")
+
+        expect:
+        analyzer.getAffectedClasses(classpath, inputsHash, snapshotFile) == null
+    }
+
+    def "changed classes and the classes that depend on them are affected"() {
+        given:
+        analyzer.getAffectedClasses(classpath, inputsHash, snapshotFile)
+
+        when:
+        classFile("org.Bar").write("bar changed")
+
+        then:
+        analyzer.getAffectedClasses(classpath, inputsHash, snapshotFile) == ["org.Bar", "org.BarTest"] as Set
+
+        when:
+        classFile("org.Foo").write("foo changed")
+
+        then:
+        analyzer.getAffectedClasses(classpath, inputsHash, snapshotFile) == ["org.Foo", "org.Bar", "org.FooTest", "org.BarTest"] as Set
+    }
+
+    def "added and removed classes are affected"() {
+        given:
+        analyzer.getAffectedClasses(classpath, inputsHash, snapshotFile)
+
+        when:
+        classFile("org.Baz").write("baz")
+        classFile("org.FooTest").delete()
+
+        then:
+        analyzer.getAffectedClasses(classpath, inputsHash, snapshotFile) == ["org.Baz", "org.FooTest"] as Set
+    }
+
+    def "compares against the snapshot of the previous call"() {
+        given:
+        analyzer.getAffectedClasses(classpath, inputsHash, snapshotFile)
+        classFile("org.Bar").write("bar changed")
+        analyzer.getAffectedClasses(classpath, inputsHash, snapshotFile)
+
+        when:
+        classFile("org.FooTest").write("foo test changed")
+
+        then:
+        analyzer.getAffectedClasses(classpath, inputsHash, snapshotFile) == ["org.FooTest"] as Set
+    }
+
+    def "all classes are affected when no class has changed"() {
+        given:
+        analyzer.getAffectedClasses(classpath, inputsHash, snapshotFile)
+
+        expect:
+        analyzer.getAffectedClasses(classpath, inputsHash, snapshotFile) == null
+    }
+
+    def "all classes are affected when a jar on the classpath has changed"() {
+        given:
+        analyzer.getAffectedClasses(classpath, inputsHash, snapshotFile)
+
+        when:
+        jar.write("jar changed")
+        classFile("org.Bar").write("bar changed")
+
+        then:
+        analyzer.getAffectedClasses(classpath, inputsHash, snapshotFile) == null
+    }
+
+    def "all classes are affected when a resource on the classpath has changed"() {
+        given:
+        classesDir.file("org/config.properties").write("a=1")
+        analyzer.getAffectedClasses(classpath, inputsHash, snapshotFile)
+
+        when:
+        classesDir.file("org/config.properties").write("a=2")
+        classFile("org.Bar").write("bar changed")
+
+        then:
+        analyzer.getAffectedClasses(classpath, inputsHash, snapshotFile) == null
+    }
+
+    def "all classes are affected when an entry is added to the classpath"() {
+        given:
+        analyzer.getAffectedClasses(classpath, inputsHash, snapshotFile)
+        def otherJar = tmpDir.file("other.jar")
+        otherJar.write("other")
+
+        expect:
+        analyzer.getAffectedClasses(classpath + [otherJar], inputsHash, snapshotFile) == null
+    }
+
+    def "all classes are affected when another input of the test task has changed"() {
+        given:
+        analyzer.getAffectedClasses(classpath, inputsHash, snapshotFile)
+
+        when:
+        classFile("org.Bar").write("bar changed")
+
+        then:
+        analyzer.getAffectedClasses(classpath, HashCode.fromInt(2), snapshotFile) == null
+
+        when:
+        classFile("org.FooTest").write("foo test changed")
+
+        then:
+        analyzer.getAffectedClasses(classpath, HashCode.fromInt(2), snapshotFile) == ["org.FooTest"] as Set
+    }
+
+    def "all classes are affected when a changed class declares constants"() {
+        given:
+        constants["org.Bar"] = [12]
+        analyzer.getAffectedClasses(classpath, inputsHash, snapshotFile)
+
+        when:
+        classFile("org.Bar").write("bar changed")
+
+        then:
+        analyzer.getAffectedClasses(classpath, inputsHash, snapshotFile) == null
+    }
+
+    def "all classes are affected when a class cannot be analyzed"() {
+        given:
+        unreadableClasses << "org.FooTest"
+        analyzer.getAffectedClasses(classpath, inputsHash, snapshotFile)
+
+        when:
+        classFile("org.Bar").write("bar changed")
+
+        then:
+        analyzer.getAffectedClasses(classpath, inputsHash, snapshotFile) == null
+    }
+
+    private TestFile classFile(String className) {
+        classesDir.file(className.replace('.', '/') + ".class")
+    }
+}